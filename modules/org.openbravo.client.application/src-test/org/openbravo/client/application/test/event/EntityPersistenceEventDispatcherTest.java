@@ -0,0 +1,144 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.test.event;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbravo.client.kernel.event.EntityPersistenceEvent;
+import org.openbravo.client.kernel.event.EntityPersistenceEventDispatcher;
+import org.openbravo.dal.core.TriggerHandler;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.common.order.Order;
+import org.openbravo.model.common.order.OrderLine;
+
+/**
+ * Test cases ensuring the {@link EntityPersistenceEventDispatcher} notifies the persistence events
+ * to the observers that should receive them and in the right order.
+ */
+public class EntityPersistenceEventDispatcherTest extends ObserverBaseTest {
+  private static final List<String> notifications = Collections.synchronizedList(new ArrayList<>());
+  private static volatile Object recordedId;
+
+  @Inject
+  private EntityPersistenceEventDispatcher dispatcher;
+
+  /**
+   * Records the notification of an event to an observer, only if the event is about the instance
+   * updated by the test case being executed.
+   */
+  static void recordNotification(String observerName, EntityPersistenceEvent event) {
+    Object id = recordedId;
+    if (id != null && id.equals(event.getTargetInstance().getId())) {
+      notifications.add(observerName);
+    }
+  }
+
+  @Before
+  public void resetNotifications() {
+    notifications.clear();
+    dispatcher.resetStatistics();
+  }
+
+  @After
+  public void cleanUp() {
+    recordedId = null;
+    OBDal.getInstance().rollbackAndClose();
+  }
+
+  /** Observers are notified following their priority */
+  @Test
+  public void observersAreNotifiedInPriorityOrder() {
+    updateDescription(pickARandomOrderLine());
+
+    assertThat(notifications, contains(IndexedTestObserver.NAME, ValidEventTestObserver.NAME,
+        PlainTestObserver.NAME));
+  }
+
+  /** The observers of an entity are not notified of the events of other entities */
+  @Test
+  public void observerOfAnEntityIsNotNotifiedOfOtherEntities() {
+    updateDescription(pickARandomOrder());
+
+    assertThat(notifications, contains(ValidEventTestObserver.NAME, PlainTestObserver.NAME));
+    assertThat(getNotifiedObservers(),
+        not(hasItem(startsWith(OrderLineTestObserver.class.getName()))));
+    assertThat(getNotifiedObservers(), hasItem(startsWith(OrderTestObserver.class.getName())));
+  }
+
+  /**
+   * Observers overriding isValidEvent or not extending EntityPersistenceEventObserver receive the
+   * events of all the entities
+   */
+  @Test
+  public void unindexedObserversAreNotifiedOfAllEntities() {
+    updateDescription(pickARandomOrderLine());
+    updateDescription(pickARandomOrder());
+
+    assertThat(Collections.frequency(notifications, ValidEventTestObserver.NAME), equalTo(2));
+    assertThat(Collections.frequency(notifications, PlainTestObserver.NAME), equalTo(2));
+    assertThat(Collections.frequency(notifications, IndexedTestObserver.NAME), equalTo(1));
+  }
+
+  /** Only the observers which can accept any event are notified while triggers are disabled */
+  @Test
+  public void onlyUnindexedObserversAreNotifiedWhileTriggersAreDisabled() {
+    OrderLine orderLine = pickARandomOrderLine();
+    TriggerHandler.getInstance().disable();
+    try {
+      updateDescription(orderLine);
+    } finally {
+      TriggerHandler.getInstance().enable();
+    }
+
+    assertThat(notifications, contains(ValidEventTestObserver.NAME, PlainTestObserver.NAME));
+    assertThat(getNotifiedObservers(),
+        not(hasItem(startsWith(OrderLineTestObserver.class.getName()))));
+  }
+
+  private void updateDescription(OrderLine orderLine) {
+    recordedId = orderLine.getId();
+    orderLine.setDescription(Long.toString(System.nanoTime()));
+    OBDal.getInstance().flush();
+  }
+
+  private void updateDescription(Order order) {
+    recordedId = order.getId();
+    order.setDescription(Long.toString(System.nanoTime()));
+    OBDal.getInstance().flush();
+  }
+
+  private List<String> getNotifiedObservers() {
+    return Arrays.asList(dispatcher.getObserverStatistics());
+  }
+}
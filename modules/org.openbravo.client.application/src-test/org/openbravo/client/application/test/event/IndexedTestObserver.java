@@ -0,0 +1,46 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.test.event;
+
+import javax.annotation.Priority;
+import javax.enterprise.event.Observes;
+
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.client.kernel.event.EntityPersistenceEventObserver;
+import org.openbravo.client.kernel.event.EntityUpdateEvent;
+import org.openbravo.model.common.order.OrderLine;
+
+/**
+ * Observer of order lines used by {@link EntityPersistenceEventDispatcherTest}. It records every
+ * notification it receives without checking whether the event is valid, so it is only notified of
+ * the order line events if the dispatcher filters them.
+ */
+class IndexedTestObserver extends EntityPersistenceEventObserver {
+  static final String NAME = "indexed";
+
+  @Override
+  protected Entity[] getObservedEntities() {
+    return new Entity[] { ModelProvider.getInstance().getEntity(OrderLine.ENTITY_NAME) };
+  }
+
+  public void onUpdate(@Observes @Priority(100) EntityUpdateEvent event) {
+    EntityPersistenceEventDispatcherTest.recordNotification(NAME, event);
+  }
+}
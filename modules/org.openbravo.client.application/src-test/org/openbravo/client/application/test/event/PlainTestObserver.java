@@ -0,0 +1,37 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.test.event;
+
+import javax.annotation.Priority;
+import javax.enterprise.event.Observes;
+
+import org.openbravo.client.kernel.event.EntityPersistenceEventObserver;
+import org.openbravo.client.kernel.event.EntityUpdateEvent;
+
+/**
+ * Observer used by {@link EntityPersistenceEventDispatcherTest}. It is not an
+ * {@link EntityPersistenceEventObserver}, so the dispatcher must notify it of all the events.
+ */
+class PlainTestObserver {
+  static final String NAME = "plain";
+
+  public void onUpdate(@Observes @Priority(300) EntityUpdateEvent event) {
+    EntityPersistenceEventDispatcherTest.recordNotification(NAME, event);
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.test.event;
+
+import javax.annotation.Priority;
+import javax.enterprise.event.Observes;
+
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.client.kernel.event.EntityPersistenceEvent;
+import org.openbravo.client.kernel.event.EntityPersistenceEventObserver;
+import org.openbravo.client.kernel.event.EntityUpdateEvent;
+import org.openbravo.model.common.order.OrderLine;
+
+/**
+ * Observer of order lines used by {@link EntityPersistenceEventDispatcherTest}. As it overrides
+ * {@link #isValidEvent(EntityPersistenceEvent)}, it could accept events of any entity, so the
+ * dispatcher must notify it of all the events.
+ */
+class ValidEventTestObserver extends EntityPersistenceEventObserver {
+  static final String NAME = "validEvent";
+
+  @Override
+  protected Entity[] getObservedEntities() {
+    return new Entity[] { ModelProvider.getInstance().getEntity(OrderLine.ENTITY_NAME) };
+  }
+
+  @Override
+  protected boolean isValidEvent(EntityPersistenceEvent event) {
+    return super.isValidEvent(event);
+  }
+
+  public void onUpdate(@Observes @Priority(200) EntityUpdateEvent event) {
+    EntityPersistenceEventDispatcherTest.recordNotification(NAME, event);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.window;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbravo.client.application.window.CalloutExecutionPlanner.CalloutCall;
+import org.openbravo.client.application.window.CalloutExecutionPlanner.FieldValue;
+import org.openbravo.erpCommon.ad_callouts.CalloutConstants;
+
+/**
+ * Test cases for the {@link CalloutExecutionPlanner}
+ */
+public class CalloutExecutionPlannerTest {
+  private static final CalloutCall CALL = new CalloutCall("org.openbravo.Callout", "inpqty");
+
+  private Map<String, String> fieldValues;
+  private Map<String, JSONObject> columnValues;
+  private CalloutExecutionPlanner planner;
+
+  @Before
+  public void initPlanner() {
+    fieldValues = new HashMap<>();
+    fieldValues.put("inpqty", "1");
+    fieldValues.put("inpprice", "10");
+    fieldValues.put("inpamount", "5");
+    columnValues = new HashMap<>();
+    planner = new CalloutExecutionPlanner(
+        field -> new FieldValue(fieldValues.get(field), columnValues.get(field)));
+  }
+
+  @Test
+  public void notExecutedCalloutIsNotRedundant() {
+    assertThat(planner.isRedundant(CALL), equalTo(false));
+  }
+
+  @Test
+  public void calloutWithSameValuesIsRedundant() throws JSONException {
+    execute(result("inpamount", "10"));
+
+    assertThat(planner.isRedundant(CALL), equalTo(true));
+    assertThat(planner.isRedundant(new CalloutCall(CALL.getCalloutClassName(), "inpprice")),
+        equalTo(false));
+  }
+
+  @Test
+  public void calloutIsNotRedundantIfReadFieldChanges() throws JSONException {
+    execute(result("inpamount", "10"));
+    fieldValues.put("inpprice", "20");
+
+    assertThat(planner.isRedundant(CALL), equalTo(false));
+  }
+
+  @Test
+  public void calloutIsNotRedundantIfTriggeringFieldChanges() throws JSONException {
+    execute(result("inpamount", "10"));
+    fieldValues.put("inpqty", "2");
+
+    assertThat(planner.isRedundant(CALL), equalTo(false));
+  }
+
+  @Test
+  public void calloutIsNotRedundantIfUpdatedFieldChanges() throws JSONException {
+    execute(result("inpamount", "10"));
+    fieldValues.put("inpamount", "7");
+
+    assertThat(planner.isRedundant(CALL), equalTo(false));
+  }
+
+  @Test
+  public void calloutIsNotRedundantIfColumnValueChanges() throws JSONException {
+    columnValues.put("inpprice", columnValue("10"));
+    execute(result("inpamount", "10"));
+    columnValues.put("inpprice", columnValue("10"));
+
+    assertThat(planner.isRedundant(CALL), equalTo(true));
+
+    columnValues.put("inpprice", columnValue("20"));
+
+    assertThat(planner.isRedundant(CALL), equalTo(false));
+  }
+
+  @Test
+  public void calloutReturningMessagesIsNotRedundant() throws JSONException {
+    JSONObject result = result("inpamount", "10");
+    result.put("MESSAGE", new JSONObject().put(CalloutConstants.CLASSIC_VALUE, "Message"));
+    execute(result);
+
+    assertThat(planner.isRedundant(CALL), equalTo(false));
+  }
+
+  @Test
+  public void calloutReturningComboEntriesIsNotRedundant() throws JSONException {
+    JSONObject result = result("inpamount", "10");
+    result.getJSONObject("inpamount").put(CalloutConstants.ENTRIES, new JSONArray());
+    execute(result);
+
+    assertThat(planner.isRedundant(CALL), equalTo(false));
+  }
+
+  @Test
+  public void calloutDependsOnResultUpdatingReadField() throws JSONException {
+    Map<String, FieldValue> readValues = planner.getReadValues(CALL, Set.of("inpprice"));
+
+    assertThat(CalloutExecutionPlanner.dependsOn(readValues, result("inpprice", "20")),
+        equalTo(true));
+    assertThat(CalloutExecutionPlanner.dependsOn(readValues, result("inpqty", "2")),
+        equalTo(true));
+    assertThat(CalloutExecutionPlanner.dependsOn(readValues, result("inpamount", "2")),
+        equalTo(false));
+  }
+
+  private void execute(JSONObject result) throws JSONException {
+    Map<String, FieldValue> readValues = planner.getReadValues(CALL, Set.of("inpprice"));
+    fieldValues.put("inpamount",
+        result.getJSONObject("inpamount").getString(CalloutConstants.CLASSIC_VALUE));
+    planner.registerExecution(CALL, readValues, result);
+  }
+
+  private JSONObject result(String field, String value) throws JSONException {
+    JSONObject result = new JSONObject();
+    result.put(field, columnValue(value));
+    return result;
+  }
+
+  private JSONObject columnValue(String value) throws JSONException {
+    return new JSONObject().put(CalloutConstants.VALUE, value)
+        .put(CalloutConstants.CLASSIC_VALUE, value);
+  }
+}
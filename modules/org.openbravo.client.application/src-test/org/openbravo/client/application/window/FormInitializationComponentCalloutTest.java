@@ -0,0 +1,255 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.window;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.servlet.ServletException;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbravo.base.weld.test.WeldBaseTest;
+import org.openbravo.client.kernel.RequestContext;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.erpCommon.ad_callouts.CalloutConstants;
+import org.openbravo.erpCommon.ad_callouts.SimpleCallout;
+import org.openbravo.model.ad.ui.Tab;
+import org.openbravo.test.base.mock.HttpServletRequestMock;
+import org.openbravo.test.base.mock.OBServletContextMock;
+
+/**
+ * Tests that the callouts executed by the {@link FormInitializationComponent} produce the same
+ * values and messages when they are executed concurrently and their redundant calls are skipped
+ * than when they are executed sequentially.
+ */
+public class FormInitializationComponentCalloutTest extends WeldBaseTest {
+  private static final String SALES_ORDER_TAB_ID = "186";
+  private static final String A = "inptesta";
+  private static final String B = "inptestb";
+  private static final String SUM = "inptestsum";
+  // auxiliary input of the sales order tab, its value is kept in the column values
+  private static final String ORDER_TYPE = "inpordertype";
+
+  private static final Map<Class<?>, AtomicInteger> executions = new ConcurrentHashMap<>();
+  private static final Set<String> executionThreads = ConcurrentHashMap.newKeySet();
+
+  @Inject
+  private FormInitializationComponent fic;
+
+  @Before
+  public void initRequest() {
+    setTestAdminContext();
+    RequestContext.setServletContext(new OBServletContextMock());
+    executions.clear();
+    executionThreads.clear();
+  }
+
+  @After
+  public void cleanUp() {
+    RequestContext.setServletContext(null);
+    OBDal.getInstance().rollbackAndClose();
+  }
+
+  @Test
+  public void plannedCalloutsProduceTheSameResultAsSequentialCallouts() {
+    CalloutsResult sequentialResult = runCallouts(SequentialSumCallout.class,
+        SequentialDoubleCallout.class, SequentialMessageCallout.class);
+    CalloutsResult plannedResult = runCallouts(SumCallout.class, DoubleCallout.class,
+        MessageCallout.class);
+
+    assertThat(sequentialResult.values.get(SUM), equalTo("6"));
+    assertThat(sequentialResult.messages, equalTo(Arrays.asList("TYPE_INFO: b = 4")));
+    assertThat(plannedResult.values, equalTo(sequentialResult.values));
+    assertThat(plannedResult.messages, equalTo(sequentialResult.messages));
+    assertThat(plannedResult.calledCallouts, equalTo(sequentialResult.calledCallouts));
+  }
+
+  @Test
+  public void redundantCalloutCallsAreSkipped() {
+    runCallouts(SequentialSumCallout.class, SequentialDoubleCallout.class,
+        SequentialMessageCallout.class);
+    runCallouts(SumCallout.class, DoubleCallout.class, MessageCallout.class);
+
+    assertThat(executions.get(SequentialSumCallout.class).get(), equalTo(3));
+    // the last call is skipped: neither the fields it reads nor the sum changed
+    assertThat(executions.get(SumCallout.class).get(), equalTo(2));
+  }
+
+  @Test
+  public void threadSafeCalloutsAreExecutedConcurrently() {
+    runCallouts(SumCallout.class, DoubleCallout.class, MessageCallout.class);
+
+    if (CalloutExecutionPlanner.getMaxConcurrentCallouts() > 1) {
+      assertThat(executionThreads.contains(Thread.currentThread().getName()), equalTo(false));
+    } else {
+      assertThat(executionThreads, hasSize(1));
+    }
+  }
+
+  /**
+   * Runs the callouts in the sales order tab in this order: sum, double, message, sum, double and
+   * sum, being the message one triggered by the b field and the rest of them by the a field.
+   */
+  private CalloutsResult runCallouts(Class<? extends SimpleCallout> sumCallout,
+      Class<? extends SimpleCallout> doubleCallout,
+      Class<? extends SimpleCallout> messageCallout) {
+    RequestContext.get()
+        .setRequest(new RequestContext.HttpServletRequestWrapper(new HttpServletRequestMock()));
+    RequestContext.get().setRequestParameter(A, "2");
+
+    List<String> calloutsToCall = new ArrayList<>(Arrays.asList(sumCallout.getName(),
+        doubleCallout.getName(), messageCallout.getName(), sumCallout.getName(),
+        doubleCallout.getName(), sumCallout.getName()));
+    List<String> lastFieldChanged = new ArrayList<>(Arrays.asList(A, A, B, A, A, A));
+    Map<String, JSONObject> columnValues = new HashMap<>();
+    List<String> calledCallouts = new ArrayList<>();
+    List<JSONObject> messages = new ArrayList<>();
+    Map<String, Object> hiddenInputs = new HashMap<>();
+    List<String> overwrittenAuxiliaryInputs = new ArrayList<>();
+
+    fic.runCallouts(columnValues, OBDal.getInstance().get(Tab.class, SALES_ORDER_TAB_ID),
+        calledCallouts, calloutsToCall, lastFieldChanged, messages, new ArrayList<>(),
+        new ArrayList<>(), hiddenInputs, overwrittenAuxiliaryInputs);
+
+    CalloutsResult result = new CalloutsResult();
+    for (String field : Arrays.asList(A, B, SUM)) {
+      result.values.put(field, RequestContext.get().getRequestParameter(field));
+      result.values.put("hidden " + field, String.valueOf(hiddenInputs.get(field)));
+    }
+    for (Map.Entry<String, JSONObject> columnValue : columnValues.entrySet()) {
+      result.values.put("column " + columnValue.getKey(),
+          columnValue.getValue().opt(CalloutConstants.VALUE) + ", "
+              + columnValue.getValue().opt(CalloutConstants.CLASSIC_VALUE));
+    }
+    result.values.put("overwritten auxiliary inputs", overwrittenAuxiliaryInputs.toString());
+    for (JSONObject message : messages) {
+      result.messages.add(message.optString("severity") + ": " + message.optString("text"));
+    }
+    result.calledCallouts = calledCallouts.size();
+    return result;
+  }
+
+  private static class CalloutsResult {
+    private Map<String, String> values = new TreeMap<>();
+    private List<String> messages = new ArrayList<>();
+    private int calledCallouts;
+  }
+
+  /**
+   * Base class of the test callouts, which keeps track of their executions.
+   */
+  public abstract static class TestCallout extends SimpleCallout {
+    @Override
+    protected void execute(CalloutInfo info) throws ServletException {
+      executions.computeIfAbsent(getClass(), c -> new AtomicInteger()).incrementAndGet();
+      executionThreads.add(Thread.currentThread().getName());
+      compute(info);
+    }
+
+    protected abstract void compute(CalloutInfo info);
+
+    protected static int getIntParameter(CalloutInfo info, String field) {
+      String value = info.getStringParameter(field);
+      return value == null || value.isEmpty() ? 0 : Integer.parseInt(value);
+    }
+  }
+
+  /**
+   * Sets the sum of a and b.
+   */
+  public static class SumCallout extends TestCallout {
+    @Override
+    protected void compute(CalloutInfo info) {
+      info.addResult(SUM, Integer.toString(getIntParameter(info, A) + getIntParameter(info, B)));
+    }
+
+    @Override
+    public Set<String> getReadFields() {
+      return Set.of(A, B);
+    }
+  }
+
+  /**
+   * Sets b and the order type from the double of a.
+   */
+  public static class DoubleCallout extends TestCallout {
+    @Override
+    protected void compute(CalloutInfo info) {
+      int b = getIntParameter(info, A) * 2;
+      info.addResult(B, Integer.toString(b));
+      info.addResult(ORDER_TYPE, "T" + b);
+    }
+
+    @Override
+    public Set<String> getReadFields() {
+      return Set.of(A);
+    }
+  }
+
+  /**
+   * Shows a message with the value of b.
+   */
+  public static class MessageCallout extends TestCallout {
+    @Override
+    protected void compute(CalloutInfo info) {
+      info.addResult("MESSAGE", "b = " + info.getStringParameter(B));
+    }
+
+    @Override
+    public Set<String> getReadFields() {
+      return Set.of(B);
+    }
+  }
+
+  public static class SequentialSumCallout extends SumCallout {
+    @Override
+    public Set<String> getReadFields() {
+      return null;
+    }
+  }
+
+  public static class SequentialDoubleCallout extends DoubleCallout {
+    @Override
+    public Set<String> getReadFields() {
+      return null;
+    }
+  }
+
+  public static class SequentialMessageCallout extends MessageCallout {
+    @Override
+    public Set<String> getReadFields() {
+      return null;
+    }
+  }
+}
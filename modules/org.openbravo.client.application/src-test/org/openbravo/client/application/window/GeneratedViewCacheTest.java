@@ -0,0 +1,129 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.window;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThrows;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openbravo.base.exception.OBException;
+
+/**
+ * Test cases for the {@link GeneratedViewCache}
+ */
+public class GeneratedViewCacheTest {
+
+  private GeneratedViewCache viewCache;
+  private AtomicInteger generations;
+
+  @Before
+  public void initCache() {
+    viewCache = new GeneratedViewCache();
+    viewCache.init();
+    generations = new AtomicInteger();
+  }
+
+  @Test
+  public void viewIsGeneratedOnlyOnce() {
+    viewCache.getView("W1", "R1", "L1", "V1", this::generate);
+    String view = viewCache.getView("W1", "R1", "L1", "V1", this::generate);
+
+    assertThat(view, equalTo("view1"));
+    assertThat(generations.get(), equalTo(1));
+    assertThat(viewCache.getStats().hitCount(), equalTo(1L));
+  }
+
+  @Test
+  public void viewIsGeneratedPerRoleLanguageAndVersion() {
+    viewCache.getView("W1", "R1", "L1", "V1", this::generate);
+    viewCache.getView("W1", "R2", "L1", "V1", this::generate);
+    viewCache.getView("W1", "R1", "L2", "V1", this::generate);
+    viewCache.getView("W1", "R1", "L1", "V2", this::generate);
+
+    assertThat(generations.get(), equalTo(4));
+  }
+
+  @Test
+  public void concurrentRequestsGenerateViewOnlyOnce() throws Exception {
+    CountDownLatch generating = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> first = CompletableFuture
+        .supplyAsync(() -> viewCache.getView("W1", "R1", "L1", "V1", () -> {
+          generating.countDown();
+          await(release);
+          return generate();
+        }));
+    generating.await(5, TimeUnit.SECONDS);
+    CompletableFuture<String> second = CompletableFuture
+        .supplyAsync(() -> viewCache.getView("W1", "R1", "L1", "V1", this::generate));
+    release.countDown();
+
+    assertThat(first.get(5, TimeUnit.SECONDS), equalTo("view1"));
+    assertThat(second.get(5, TimeUnit.SECONDS), equalTo("view1"));
+    assertThat(generations.get(), equalTo(1));
+  }
+
+  @Test
+  public void failedGenerationIsNotCached() {
+    assertThrows(OBException.class, () -> viewCache.getView("W1", "R1", "L1", "V1", () -> {
+      throw new OBException("Error generating view");
+    }));
+    String view = viewCache.getView("W1", "R1", "L1", "V1", this::generate);
+
+    assertThat(view, equalTo("view1"));
+  }
+
+  @Test
+  public void viewsAreRegeneratedAfterInvalidation() {
+    viewCache.getView("W1", "R1", "L1", "V1", this::generate);
+    viewCache.invalidateAll();
+    viewCache.getView("W1", "R1", "L1", "V1", this::generate);
+
+    assertThat(generations.get(), equalTo(2));
+  }
+
+  @Test
+  public void viewsAreNotCachedIfDisabled() {
+    viewCache.setEnabled(false);
+    viewCache.getView("W1", "R1", "L1", "V1", this::generate);
+    viewCache.getView("W1", "R1", "L1", "V1", this::generate);
+
+    assertThat(generations.get(), equalTo(2));
+    assertThat(viewCache.getSize(), equalTo(0L));
+  }
+
+  private String generate() {
+    return "view" + generations.incrementAndGet();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -169,7 +169,8 @@ public class ParameterUtils {
   public static Object getParameterFixedValue(Map<String, String> parameters, Parameter parameter) {
     if (parameter.isEvaluateFixedValue()) {
       try {
-        return getJSExpressionResult(parameters, null, parameter.getFixedValue());
+        return getJSExpressionResult(parameters, null, parameter.getFixedValue(),
+            parameter.getId());
       } catch (Exception e) {
         // log.error(e.getMessage(), e);
         return null;
@@ -218,7 +219,8 @@ public class ParameterUtils {
       }
     } else {
       parameters.put("currentParam", parameter.getDBColumnName());
-      defaultValue = getJSExpressionResult(parameters, session, rawDefaultValue);
+      defaultValue = getJSExpressionResult(parameters, session, rawDefaultValue,
+          parameter.getId());
     }
     String inpName = "inp" + Sqlc.TransformaNombreColumna(parameter.getDBColumnName());
     if (!context.has(inpName)) {
@@ -269,9 +271,14 @@ public class ParameterUtils {
    * @throws ScriptException
    *           Error occurred in the script execution
    */
-  @SuppressWarnings("rawtypes")
   public static Object getJSExpressionResult(Map<String, String> parameters, HttpSession session,
       String expression) throws ScriptException {
+    return getJSExpressionResult(parameters, session, expression, null);
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static Object getJSExpressionResult(Map<String, String> parameters,
+      HttpSession session, String expression, String parameterId) throws ScriptException {
 
     Map<String, Object> bindings = new HashMap<>();
     if (session != null) {
@@ -280,7 +287,7 @@ public class ParameterUtils {
       bindings.put("OB", new OBBindings(OBContext.getOBContext(), parameters));
     }
 
-    Object result = OBScriptEngine.getInstance().eval(expression, bindings);
+    Object result = OBScriptEngine.getInstance().eval(parameterId, expression, bindings);
     if (result instanceof Map) {
       // complex js object, convert it into a JSON
       result = new JSONObject((Map) result);
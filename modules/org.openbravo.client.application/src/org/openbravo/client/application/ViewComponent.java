@@ -41,6 +41,7 @@ import org.openbravo.base.util.OBClassLoader;
 import org.openbravo.base.weld.WeldUtils;
 import org.openbravo.client.application.attachment.AttachmentUtils;
 import org.openbravo.client.application.attachment.AttachmentWindowComponent;
+import org.openbravo.client.application.window.GeneratedViewCache;
 import org.openbravo.client.application.window.ParameterWindowComponent;
 import org.openbravo.client.application.window.StandardWindowComponent;
 import org.openbravo.client.kernel.BaseComponent;
@@ -88,6 +89,9 @@ public class ViewComponent extends BaseComponent {
   @Inject
   private WeldUtils weldUtils;
 
+  @Inject
+  private GeneratedViewCache viewCache;
+
   @Override
   public String generate() {
     long t = System.currentTimeMillis();
@@ -109,7 +113,7 @@ public class ViewComponent extends BaseComponent {
         }
         verifyOldCalloutUse(window);
         verifyUnsupportedCustomQuerySelector(window);
-        return generateWindow(window);
+        return getWindowSource(window);
       } else if (viewId.startsWith("processDefinition_")) {
         String processId = viewId.substring("processDefinition_".length());
         Process process = OBDal.getInstance().get(Process.class, processId);
@@ -249,6 +253,21 @@ public class ViewComponent extends BaseComponent {
     }
   }
 
+  /**
+   * Returns the source of the window view. When no module is in development, it is taken from the
+   * {@link GeneratedViewCache} if it was already generated for the same role, language and version
+   * of the view.
+   */
+  private String getWindowSource(Window window) {
+    if (isInDevelopment()) {
+      // in development the generated class name is unique per request, it cannot be shared
+      return generateWindow(window);
+    }
+    OBContext obContext = OBContext.getOBContext();
+    return viewCache.getView(window.getId(), obContext.getRole().getId(),
+        obContext.getLanguage().getId(), getETag(), () -> generateWindow(window));
+  }
+
   protected String generateWindow(Window window) {
     standardWindowComponent.setWindow(window);
     standardWindowComponent.setParameters(getParameters());
@@ -11,7 +11,7 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2015-2020 Openbravo SLU
+ * All portions are Copyright (C) 2015-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -20,22 +20,25 @@
 package org.openbravo.client.application.attachment;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import javax.mail.internet.MimeUtility;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.LogManager;
@@ -276,6 +279,66 @@ public class AttachImplementationManager {
     }
   }
 
+  /**
+   * Method to download a file into an HTTP response. This method calls needed handler class.
+   * 
+   * The file is written without loading it in memory. Conditional requests based on the ETag of
+   * the file and single byte range requests are supported, so big files can be downloaded in parts
+   * or resumed.
+   * 
+   * @param attachmentId
+   *          the attachment Id that will be downloaded
+   * @param request
+   *          the request with the conditional and range headers
+   * @param response
+   *          the response where the file is written
+   * @throws OBException
+   *           if the attachment cannot be downloaded, it is thrown before writing into the response
+   */
+  public void download(String attachmentId, HttpServletRequest request,
+      HttpServletResponse response) throws OBException {
+    try {
+      OBContext.setAdminMode(true);
+      Attachment attachment = OBDal.getInstance().get(Attachment.class, attachmentId);
+
+      if (attachment == null) {
+        throw new OBException(OBMessageUtils.messageBD("OBUIAPP_NoAttachmentFound"));
+      }
+
+      checkReadableAccess(attachment);
+
+      AttachImplementation handler = getHandler(attachment.getAttachmentConf() == null ? "Default"
+          : attachment.getAttachmentConf().getAttachmentMethod().getValue());
+      if (handler == null) {
+        throw new OBException(OBMessageUtils.messageBD("OBUIAPP_NoMethod"));
+      }
+      File file = handler.downloadFile(attachment);
+      if (!file.exists()) {
+        throw new OBException(OBMessageUtils.messageBD("OBUIAPP_NoAttachmentFound"));
+      }
+
+      boolean isTempFile = handler.isTempFile();
+      try {
+        response.setContentType(StringUtils.isEmpty(attachment.getDataType()) ? "application/txt"
+            : attachment.getDataType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\""
+            + MimeUtility.encodeWord(attachment.getName().replace("\"", "\\\""), "utf-8", "Q")
+            + "\"");
+        AttachmentContentWriter.write(file, AttachmentContentWriter.getETag(attachmentId, file),
+            request, response, !isTempFile);
+      } finally {
+        if (isTempFile) {
+          deleteTempFile(file);
+        }
+      }
+    } catch (IOException e) {
+      throw new OBException(OBMessageUtils.messageBD("Error downloading file"), e);
+    } finally {
+      OBContext.restorePreviousMode();
+    }
+  }
+
   private void deleteTempFile(File file) {
     Path parent = file.toPath().getParent();
     Path tmpDir = Paths.get(TEMP_DIR);
@@ -305,61 +368,94 @@ public class AttachImplementationManager {
    */
 
   public void downloadAll(String tabId, String recordIds, OutputStream os) throws OBException {
+    downloadAll(tabId, recordIds, () -> os);
+  }
+
+  /**
+   * Method to download all the files related to the record, in a single .zip file written into an
+   * HTTP response. The files are not kept in memory and the ones whose content is already
+   * compressed are stored in the zip without compressing them again.
+   * 
+   * @param tabId
+   *          The tab Id where the download process is being executed
+   * @param recordIds
+   *          All RecordIds from where are downloading the documents
+   * @param response
+   *          the response where the zip is written
+   * @throws OBException
+   *           if any of the files cannot be downloaded, it is thrown before writing into the
+   *           response
+   */
+  public void downloadAll(String tabId, String recordIds, HttpServletResponse response)
+      throws OBException {
+    downloadAll(tabId, recordIds, () -> {
+      response.setContentType("application/zip");
+      response.setHeader("Content-Disposition", "attachment; filename=attachments.zip");
+      return response.getOutputStream();
+    });
+  }
+
+  private void downloadAll(String tabId, String recordIds, OutputStreamProvider osProvider)
+      throws OBException {
 
     try {
       OBContext.setAdminMode(true);
       Tab tab = OBDal.getInstance().get(Tab.class, tabId);
       String tableId = tab.getTable().getId();
-      final ZipOutputStream dest = new ZipOutputStream(os);
       HashMap<String, Integer> writtenFiles = new HashMap<String, Integer>();
       OBCriteria<Attachment> attachmentFiles = OBDao.getFilteredCriteria(Attachment.class,
           Restrictions.eq("table.id", tableId),
           Restrictions.in("record", (Object[]) recordIds.split(",")));
       attachmentFiles.setFilterOnReadableOrganization(false);
-      for (Attachment attachmentFile : attachmentFiles.list()) {
-        checkReadableAccess(attachmentFile);
-        AttachImplementation handler = getHandler(
-            attachmentFile.getAttachmentConf() == null ? "Default"
-                : attachmentFile.getAttachmentConf().getAttachmentMethod().getValue());
-        if (handler == null) {
-          throw new OBException(OBMessageUtils.messageBD("OBUIAPP_NoMethod"));
-        }
-        File file = handler.downloadFile(attachmentFile);
-        if (!file.exists()) {
-          throw new OBException(
-              OBMessageUtils.messageBD("OBUIAPP_NoAttachmentFound") + " :" + file.getName());
-        }
-        String zipName = "";
-        if (!writtenFiles.containsKey(file.getName())) {
-          zipName = file.getName();
-          writtenFiles.put(file.getName(), 0);
-        } else {
-          int num = writtenFiles.get(file.getName()) + 1;
-          int indDot = file.getName().lastIndexOf(".");
-          if (indDot == -1) {
-            // file has no extension
-            indDot = attachmentFile.getName().length();
+      // all the files are retrieved before writing anything, so any error is thrown before
+      // starting to write the zip
+      Map<String, File> zipEntries = new LinkedHashMap<>();
+      ArrayList<File> tempFiles = new ArrayList<>();
+      try {
+        for (Attachment attachmentFile : attachmentFiles.list()) {
+          checkReadableAccess(attachmentFile);
+          AttachImplementation handler = getHandler(
+              attachmentFile.getAttachmentConf() == null ? "Default"
+                  : attachmentFile.getAttachmentConf().getAttachmentMethod().getValue());
+          if (handler == null) {
+            throw new OBException(OBMessageUtils.messageBD("OBUIAPP_NoMethod"));
+          }
+          File file = handler.downloadFile(attachmentFile);
+          if (handler.isTempFile()) {
+            tempFiles.add(file);
           }
-          zipName = attachmentFile.getName().substring(0, indDot) + " (" + num + ")"
-              + attachmentFile.getName().substring(indDot);
-          writtenFiles.put(attachmentFile.getName(), num);
+          if (!file.exists()) {
+            throw new OBException(
+                OBMessageUtils.messageBD("OBUIAPP_NoAttachmentFound") + " :" + file.getName());
+          }
+          String zipName = "";
+          if (!writtenFiles.containsKey(file.getName())) {
+            zipName = file.getName();
+            writtenFiles.put(file.getName(), 0);
+          } else {
+            int num = writtenFiles.get(file.getName()) + 1;
+            int indDot = file.getName().lastIndexOf(".");
+            if (indDot == -1) {
+              // file has no extension
+              indDot = attachmentFile.getName().length();
+            }
+            zipName = attachmentFile.getName().substring(0, indDot) + " (" + num + ")"
+                + attachmentFile.getName().substring(indDot);
+            writtenFiles.put(attachmentFile.getName(), num);
+          }
+          zipEntries.put(zipName, file);
         }
-        byte[] buf = new byte[1024];
-        dest.putNextEntry(new ZipEntry(zipName));
 
-        FileInputStream in = new FileInputStream(file.toString());
-        int len;
-        while ((len = in.read(buf)) > 0) {
-          dest.write(buf, 0, len);
+        final ZipOutputStream dest = new ZipOutputStream(osProvider.getOutputStream());
+        for (Map.Entry<String, File> zipEntry : zipEntries.entrySet()) {
+          AttachmentContentWriter.writeZipEntry(dest, zipEntry.getKey(), zipEntry.getValue());
         }
-        dest.closeEntry();
-        in.close();
-        boolean isTempFile = handler.isTempFile();
-        if (isTempFile) {
-          deleteTempFile(file);
+        dest.close();
+      } finally {
+        for (File tempFile : tempFiles) {
+          deleteTempFile(tempFile);
         }
       }
-      dest.close();
 
     } catch (IOException e) {
       throw new OBException(OBMessageUtils.messageBD("OBUIAPP_ErrorWiththeFile"), e);
@@ -608,4 +704,9 @@ public class AttachImplementationManager {
     }
     return jsonValue;
   }
+
+  @FunctionalInterface
+  private interface OutputStreamProvider {
+    OutputStream getOutputStream() throws IOException;
+  }
 }
@@ -0,0 +1,319 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.attachment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.session.OBPropertiesProvider;
+
+/**
+ * Content addressed store used to deduplicate the attached files saved in the attachments folder.
+ * 
+ * Each different content is saved only once, as a blob named after its SHA-256 hash in the
+ * {@link #BLOBS_DIR} folder. The attachments keep their usual location, but instead of a copy of
+ * the content they are hard links to the blob, so the file system keeps the count of references of
+ * each blob. Blobs not referenced anymore are removed by {@link #collectGarbage()}, and the
+ * attachments saved before enabling the store are moved into it incrementally with
+ * {@link #migrate(Collection)}.
+ * 
+ * Files linked to a blob must never be modified in place, as that would change the content of all
+ * the attachments sharing it. They are always replaced by a new file instead. For this reason only
+ * the files of attachments are linked, never other files of the attachments folder which other
+ * processes may rewrite, and blobs are only created when they do not exist yet.
+ */
+class AttachmentBlobStore {
+  private static final Logger log = LogManager.getLogger();
+
+  static final String ENABLED_PROPERTY = "attach.deduplicate";
+  static final String BLOBS_DIR = ".blobs";
+  private static final String TMP_DIR = "tmp";
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final String LINK_COUNT_ATTRIBUTE = "unix:nlink";
+  // blobs are kept during this time even if not referenced, to give time to link them
+  private static final long GRACE_PERIOD = 60 * 60000;
+
+  private static AttachmentBlobStore instance;
+  private static boolean initialized;
+
+  private final Path attachmentsPath;
+  private final Path blobsPath;
+  private final Path tmpPath;
+
+  /**
+   * @return the store for the attachments folder, or null if deduplication is not enabled or the
+   *         file system of the attachments folder does not support hard links
+   */
+  static synchronized AttachmentBlobStore getInstance() {
+    if (!initialized) {
+      instance = createInstance();
+      initialized = true;
+    }
+    return instance;
+  }
+
+  private static AttachmentBlobStore createInstance() {
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    if (properties == null || !Boolean.parseBoolean(properties.getProperty(ENABLED_PROPERTY))) {
+      return null;
+    }
+    String attachPath = properties.getProperty("attach.path");
+    try {
+      AttachmentBlobStore store = new AttachmentBlobStore(Paths.get(attachPath));
+      if (!store.isSupported()) {
+        log.warn("Attachments cannot be deduplicated because the file system of {} does not "
+            + "support hard links", attachPath);
+        return null;
+      }
+      return store;
+    } catch (IOException e) {
+      log.error("Could not initialize the attachment store at {}", attachPath, e);
+      return null;
+    }
+  }
+
+  AttachmentBlobStore(Path attachmentsPath) throws IOException {
+    this.attachmentsPath = attachmentsPath.toAbsolutePath().normalize();
+    blobsPath = this.attachmentsPath.resolve(BLOBS_DIR);
+    tmpPath = blobsPath.resolve(TMP_DIR);
+    Files.createDirectories(tmpPath);
+  }
+
+  private boolean isSupported() {
+    try {
+      return Files.getFileStore(blobsPath).supportsFileAttributeView("unix");
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return true if the given file is inside the attachments folder, so it can be linked to the
+   *         blobs of this store
+   */
+  boolean contains(Path file) {
+    Path path = file.toAbsolutePath().normalize();
+    return path.startsWith(attachmentsPath) && !path.startsWith(blobsPath);
+  }
+
+  /**
+   * Saves the given content in the target file. The content is hashed while it is copied, in a
+   * single pass, and the target is linked to the blob with the same hash, creating it if it does
+   * not exist yet. If the target already exists it is replaced.
+   * 
+   * @return the hash of the content
+   */
+  String store(InputStream content, Path target) throws IOException {
+    Path tmpFile = tmpPath.resolve(UUID.randomUUID().toString());
+    try {
+      MessageDigest digest = getDigest();
+      try (InputStream is = new DigestInputStream(content, digest)) {
+        Files.copy(is, tmpFile);
+      }
+      String hash = Hex.encodeHexString(digest.digest());
+      Path blob = getBlobPath(hash);
+      Files.createDirectories(target.getParent());
+      try {
+        link(target, blob);
+      } catch (NoSuchFileException e) {
+        // new content, or a blob removed in the meantime because it was not referenced
+        addBlob(tmpFile, blob);
+        link(target, blob);
+      }
+      return hash;
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+  }
+
+  /**
+   * Saves the given file into the store and replaces it with a link to the blob with the same
+   * content. Files which are already links are skipped.
+   * 
+   * @return true if the file was replaced by a link to an already existing blob, so its space was
+   *         freed
+   */
+  boolean deduplicate(Path file) throws IOException {
+    if (getLinkCount(file) > 1) {
+      return false;
+    }
+    String hash = getHash(file);
+    Path blob = getBlobPath(hash);
+    try {
+      // the blob is hashed again to never link a file to a blob whose content was changed
+      if (!hash.equals(getHash(blob))) {
+        log.warn("Attachment blob {} does not match its hash, {} is not linked to it", blob, file);
+        return false;
+      }
+      link(file, blob);
+      return true;
+    } catch (NoSuchFileException e) {
+      Files.createDirectories(blob.getParent());
+      try {
+        // the file itself becomes the content of the new blob
+        Files.createLink(blob, file);
+      } catch (FileAlreadyExistsException ignore) {
+        // added concurrently, it will be linked in the next migration
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Moves into the store the given attachment files saved before enabling it, so they can be
+   * migrated incrementally. Files outside the attachments folder, missing or already linked are
+   * skipped.
+   * 
+   * @return the number of files moved into the store
+   */
+  int migrate(Collection<Path> files) {
+    int processed = 0;
+    int freed = 0;
+    for (Path file : files) {
+      try {
+        if (!contains(file) || !Files.isRegularFile(file) || getLinkCount(file) > 1) {
+          continue;
+        }
+        processed++;
+        if (deduplicate(file)) {
+          freed++;
+        }
+      } catch (IOException e) {
+        log.warn("Could not deduplicate attachment {}", file, e);
+      }
+    }
+    log.debug("Migrated {} attachment files, {} of them were duplicated", processed, freed);
+    return processed;
+  }
+
+  /**
+   * Removes the blobs which are not referenced by any attachment.
+   * 
+   * @return the number of blobs removed
+   */
+  int collectGarbage() throws IOException {
+    return collectGarbage(System.currentTimeMillis() - GRACE_PERIOD);
+  }
+
+  int collectGarbage(long modifiedBefore) throws IOException {
+    int removed = 0;
+    try (Stream<Path> files = Files.walk(blobsPath)) {
+      Iterator<Path> it = files.filter(path -> !path.startsWith(tmpPath))
+          .filter(Files::isRegularFile)
+          .iterator();
+      while (it.hasNext()) {
+        Path blob = it.next();
+        try {
+          if (getLinkCount(blob) == 1
+              && Files.getLastModifiedTime(blob).toMillis() < modifiedBefore) {
+            Files.delete(blob);
+            removed++;
+          }
+        } catch (NoSuchFileException ignore) {
+          // removed concurrently
+        }
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    log.debug("Removed {} unreferenced attachment blobs", removed);
+    return removed;
+  }
+
+  /**
+   * @return the file of an attachment, given its directory relative to the attachments folder
+   */
+  Path getAttachmentFile(String directory, String fileName) {
+    return attachmentsPath.resolve(directory).resolve(fileName);
+  }
+
+  Path getBlobPath(String hash) {
+    return blobsPath.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+  }
+
+  static int getLinkCount(Path file) throws IOException {
+    return (Integer) Files.getAttribute(file, LINK_COUNT_ATTRIBUTE);
+  }
+
+  /**
+   * Adds the blob as a new link to the temporary file. Creating a link fails if the blob already
+   * exists, so an existing blob is never replaced.
+   */
+  private void addBlob(Path tmpFile, Path blob) throws IOException {
+    Files.createDirectories(blob.getParent());
+    try {
+      Files.createLink(blob, tmpFile);
+    } catch (FileAlreadyExistsException ignore) {
+      // the same content was added concurrently
+    }
+  }
+
+  /**
+   * Makes the target a link to the blob. The link is created aside and then moved, so an existing
+   * target is atomically replaced instead of being overwritten in place. Blobs are never a target.
+   */
+  private void link(Path target, Path blob) throws IOException {
+    if (!contains(target)) {
+      throw new IOException("Cannot link " + target + " to an attachment blob");
+    }
+    Path tmpLink = tmpPath.resolve(UUID.randomUUID().toString());
+    Files.createLink(tmpLink, blob);
+    try {
+      Files.move(tmpLink, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmpLink);
+    }
+  }
+
+  private static String getHash(Path file) throws IOException {
+    try (DigestInputStream is = new DigestInputStream(Files.newInputStream(file), getDigest())) {
+      IOUtils.copy(is, NullOutputStream.NULL_OUTPUT_STREAM);
+      return Hex.encodeHexString(is.getMessageDigest().digest());
+    }
+  }
+
+  private static MessageDigest getDigest() {
+    try {
+      return MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.attachment;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.session.OBPropertiesProvider;
+import org.openbravo.client.kernel.ApplicationInitializer;
+import org.openbravo.dal.core.DalThreadCleaner;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.ad.utility.Attachment;
+import org.openbravo.model.ad.utility.AttachmentConfig;
+import org.openbravo.service.importprocess.ImportEntryManager;
+
+/**
+ * Starts the background maintenance of the {@link AttachmentBlobStore} when attachment
+ * deduplication is enabled: periodically it moves into the store a batch of the files of the
+ * attachments saved before enabling it and removes the blobs that are not referenced anymore.
+ * 
+ * Only the files of the attachments stored with the default attachment method are migrated, the
+ * rest of the files of the attachments folder are never linked to the store.
+ */
+@ApplicationScoped
+public class AttachmentBlobStoreInitializer implements ApplicationInitializer {
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String BATCH_SIZE_PROPERTY = "attach.deduplicate.migrationBatchSize";
+  private static final int DEFAULT_BATCH_SIZE = 1000;
+  private static final long MAINTENANCE_INTERVAL = 60 * 60000;
+
+  private ScheduledExecutorService executorService;
+  // only accessed by the maintenance task
+  private String lastMigratedId = "";
+  private boolean migrationFinished;
+
+  @Override
+  public void initialize() {
+    AttachmentBlobStore blobStore = AttachmentBlobStore.getInstance();
+    if (blobStore == null) {
+      return;
+    }
+    int migrationBatchSize = getMigrationBatchSize();
+    executorService = Executors.newSingleThreadScheduledExecutor(
+        new ImportEntryManager.DaemonThreadFactory("AttachmentStore"));
+    executorService.scheduleWithFixedDelay(() -> doMaintenance(blobStore, migrationBatchSize),
+        MAINTENANCE_INTERVAL, MAINTENANCE_INTERVAL, TimeUnit.MILLISECONDS);
+  }
+
+  /** Stops the maintenance task when the application is stopped. */
+  @PreDestroy
+  public void shutdown() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+      executorService = null;
+    }
+  }
+
+  private void doMaintenance(AttachmentBlobStore blobStore, int migrationBatchSize) {
+    try {
+      if (migrationBatchSize > 0 && !migrationFinished) {
+        migrateAttachments(blobStore, migrationBatchSize);
+      }
+      blobStore.collectGarbage();
+    } catch (IOException | RuntimeException e) {
+      // keep the task scheduled, it is retried in the next execution
+      log.error("Error maintaining the attachment store", e);
+    }
+  }
+
+  /**
+   * Migrates the files of the next batch of attachments, reading them in id order so each execution
+   * continues where the previous one finished.
+   */
+  private void migrateAttachments(AttachmentBlobStore blobStore, int batchSize) {
+    List<Object[]> attachments;
+    try {
+      OBContext.setOBContext("0", "0", "0", "0");
+      //@formatter:off
+      String hql = "select a.id, a." + Attachment.PROPERTY_TABLE + ".id,"
+          + "   a." + Attachment.PROPERTY_RECORD + ","
+          + "   a." + Attachment.PROPERTY_PATH + ","
+          + "   a." + Attachment.PROPERTY_NAME
+          + " from " + Attachment.ENTITY_NAME + " a"
+          + "   left join a." + Attachment.PROPERTY_ATTACHMENTCONF + " conf"
+          + " where a.id > :lastId"
+          + "   and (conf is null"
+          + "     or conf." + AttachmentConfig.PROPERTY_ATTACHMENTMETHOD + ".id = :defaultMethod)"
+          + " order by a.id";
+      //@formatter:on
+      attachments = OBDal.getInstance()
+          .getSession()
+          .createQuery(hql, Object[].class)
+          .setParameter("lastId", lastMigratedId)
+          .setParameter("defaultMethod", AttachmentUtils.DEFAULT_METHOD_ID)
+          .setMaxResults(batchSize)
+          .list();
+    } finally {
+      DalThreadCleaner.getInstance().cleanWithRollback();
+    }
+
+    List<Path> files = new ArrayList<>(attachments.size());
+    for (Object[] attachment : attachments) {
+      // attachments without path were saved in the old way, in a folder named tableId-recordId
+      String directory = attachment[3] != null ? (String) attachment[3]
+          : attachment[1] + "-" + attachment[2];
+      files.add(blobStore.getAttachmentFile(directory, (String) attachment[4]));
+    }
+    blobStore.migrate(files);
+
+    if (attachments.size() < batchSize) {
+      migrationFinished = true;
+      log.info("Migration of the existing attachments into the attachment store finished");
+    } else {
+      lastMigratedId = (String) attachments.get(attachments.size() - 1)[0];
+    }
+  }
+
+  private int getMigrationBatchSize() {
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    String batchSize = properties != null ? properties.getProperty(BATCH_SIZE_PROPERTY) : null;
+    if (batchSize == null) {
+      return DEFAULT_BATCH_SIZE;
+    }
+    try {
+      return Integer.parseInt(batchSize.trim());
+    } catch (NumberFormatException e) {
+      log.warn("Wrong value {} for property {}, using the default {}", batchSize,
+          BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE);
+      return DEFAULT_BATCH_SIZE;
+    }
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.client.application.attachment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Writes the content of the attachment files into the responses and zip files, without keeping the
+ * files in memory.
+ * 
+ * Single files support conditional requests (ETag) and byte range requests, so big files can be
+ * downloaded in parts or resumed. Files are transferred with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)} or, if the container supports
+ * it, directly by the container with sendfile.
+ */
+class AttachmentContentWriter {
+  private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  // file extensions whose content is already compressed, compressing them again is a waste of time
+  private static final Set<String> COMPRESSED_EXTENSIONS = Set.of("7z", "avi", "bz2", "docx",
+      "gif", "gz", "jpeg", "jpg", "mov", "mp3", "mp4", "odp", "ods", "odt", "pdf", "png", "pptx",
+      "rar", "tgz", "webp", "xlsx", "xz", "zip");
+
+  private AttachmentContentWriter() {
+  }
+
+  /**
+   * Returns the ETag that identifies the current content of a file.
+   */
+  static String getETag(String attachmentId, File file) {
+    return "\"" + attachmentId + "-" + Long.toHexString(file.length()) + "-"
+        + Long.toHexString(file.lastModified()) + "\"";
+  }
+
+  /**
+   * Writes the file into the response, taking into account the conditional and range headers of
+   * the request. The content type and disposition headers must be already set.
+   * 
+   * @param canSendFile
+   *          whether the file can be sent by the container after this method returns, it should be
+   *          false if the file is going to be deleted
+   */
+  static void write(File file, String eTag, HttpServletRequest request,
+      HttpServletResponse response, boolean canSendFile) throws IOException {
+    long length = file.length();
+    response.setHeader("Accept-Ranges", "bytes");
+    response.setHeader("ETag", eTag);
+    response.setDateHeader("Last-Modified", file.lastModified());
+
+    if (matchesETag(request.getHeader("If-None-Match"), eTag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    long[] range = null;
+    String ifRange = request.getHeader("If-Range");
+    if (ifRange == null || ifRange.equals(eTag)) {
+      range = getRange(request.getHeader("Range"), length);
+    }
+    if (range == null) {
+      range = new long[] { 0, length - 1 };
+    } else if (range.length == 0) {
+      response.setHeader("Content-Range", "bytes */" + length);
+      response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+      return;
+    } else {
+      response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+      response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+    }
+    long count = range[1] - range[0] + 1;
+    response.setContentLengthLong(count);
+    if (count == 0) {
+      return;
+    }
+
+    if (canSendFile && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      // the container sends the file directly from the file system to the socket
+      request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+      request.setAttribute(SENDFILE_START, range[0]);
+      request.setAttribute(SENDFILE_END, range[1] + 1);
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      transfer(channel, range[0], count, response.getOutputStream());
+    }
+  }
+
+  /**
+   * Parses a Range header for a file of the given length. Only single ranges are supported, other
+   * range requests are served with the complete file as permitted by RFC 7233.
+   * 
+   * @return the first and last position of the requested range; an empty array if the range cannot
+   *         be satisfied; or null if the whole file should be returned
+   */
+  static long[] getRange(String rangeHeader, long length) {
+    if (rangeHeader == null) {
+      return null;
+    }
+    Matcher matcher = RANGE_PATTERN.matcher(rangeHeader.trim());
+    if (!matcher.matches()) {
+      return null;
+    }
+    String start = matcher.group(1);
+    String end = matcher.group(2);
+    try {
+      if (start.isEmpty()) {
+        if (end.isEmpty()) {
+          return null;
+        }
+        // suffix range: the last bytes of the file
+        long suffix = Long.parseLong(end);
+        if (suffix == 0 || length == 0) {
+          return new long[0];
+        }
+        return new long[] { Math.max(0, length - suffix), length - 1 };
+      }
+      long first = Long.parseLong(start);
+      long last = end.isEmpty() ? length - 1 : Math.min(Long.parseLong(end), length - 1);
+      if (first >= length || first > last) {
+        return new long[0];
+      }
+      return new long[] { first, last };
+    } catch (NumberFormatException e) {
+      // too big numbers
+      return null;
+    }
+  }
+
+  private static boolean matchesETag(String ifNoneMatch, String eTag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.equals("*") || tag.equals(eTag) || tag.equals("W/" + eTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adds a file to a zip, storing it without compression if its content is already compressed.
+   */
+  static void writeZipEntry(ZipOutputStream zip, String entryName, File file) throws IOException {
+    ZipEntry entry = new ZipEntry(entryName);
+    entry.setTime(file.lastModified());
+    if (isCompressed(entryName)) {
+      // stored entries need their size and checksum before writing their content
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(file.length());
+      entry.setCompressedSize(file.length());
+      entry.setCrc(getCrc(file.toPath()));
+    }
+    zip.putNextEntry(entry);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      transfer(channel, 0, channel.size(), zip);
+    }
+    zip.closeEntry();
+  }
+
+  static boolean isCompressed(String fileName) {
+    int dot = fileName.lastIndexOf('.');
+    return dot != -1 && COMPRESSED_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase());
+  }
+
+  private static long getCrc(Path file) throws IOException {
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream is = Files.newInputStream(file)) {
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        crc.update(buffer, 0, read);
+      }
+    }
+    return crc.getValue();
+  }
+
+  private static void transfer(FileChannel channel, long position, long count, OutputStream os)
+      throws IOException {
+    // don't close the channel, it would close the output stream
+    WritableByteChannel target = Channels.newChannel(os);
+    long transferred = 0;
+    while (transferred < count) {
+      long n = channel.transferTo(position + transferred, count - transferred, target);
+      if (n <= 0) {
+        break;
+      }
+      transferred += n;
+    }
+    os.flush();
+  }
+}
@@ -51,7 +51,8 @@ import org.openbravo.model.ad.utility.ReprintableDocument;
 /**
  * Default implementation of Attachment Management. This method saves the attached files in the
  * "attach.path" folder of Openbravo server. It is the method used when no other configuration is
- * provided.
+ * provided. If the "attach.deduplicate" property is enabled, the files with the same content are
+ * stored only once using the {@link AttachmentBlobStore}.
  *
  */
 @ApplicationScoped
@@ -75,9 +76,17 @@ public class CoreAttachImplementation extends AttachImplementation
     uploadDir = new File(attachmentFolderPath + File.separator + fileDirPath);
     log.debug("Destination file before renaming: {}", uploadDir);
     try {
-      // moveFileToDirectory not used as it does not allow to overwrite the destination file if it
-      // exists.
-      FileUtils.copyFileToDirectory(file, uploadDir, true);
+      Path target = uploadDir.toPath().resolve(file.getName());
+      AttachmentBlobStore blobStore = getBlobStore(target);
+      if (blobStore != null) {
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+          blobStore.store(is, target);
+        }
+      } else {
+        // moveFileToDirectory not used as it does not allow to overwrite the destination file if
+        // it exists.
+        FileUtils.copyFileToDirectory(file, uploadDir, true);
+      }
       FileUtils.deleteQuietly(file);
     } catch (IOException e) {
       log.error("Error moving the file to: " + uploadDir, e);
@@ -136,6 +145,11 @@ public class CoreAttachImplementation extends AttachImplementation
   public void upload(ReprintableDocument document, InputStream inputStream) throws IOException {
     log.trace("Uploading reprintable document {}", document);
     Path path = getReprintableDocumentAttachmentPath(document);
+    AttachmentBlobStore blobStore = getBlobStore(path);
+    if (blobStore != null) {
+      blobStore.store(inputStream, path);
+      return;
+    }
     if (!Files.exists(path.getParent())) {
       Files.createDirectories(path.getParent());
     }
@@ -149,6 +163,15 @@ public class CoreAttachImplementation extends AttachImplementation
     Files.copy(path, outputStream);
   }
 
+  /**
+   * @return the store used to deduplicate the given file, or null if it must be saved as a regular
+   *         file
+   */
+  private static AttachmentBlobStore getBlobStore(Path file) {
+    AttachmentBlobStore blobStore = AttachmentBlobStore.getInstance();
+    return blobStore != null && blobStore.contains(file) ? blobStore : null;
+  }
+
   private Path getReprintableDocumentAttachmentPath(ReprintableDocument document) {
     ReprintableSourceDocument<?> sourceDocument = ReprintableSourceDocument
         .newSourceDocument(document);
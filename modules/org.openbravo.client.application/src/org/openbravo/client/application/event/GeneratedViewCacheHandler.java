@@ -0,0 +1,90 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.client.application.event;
+
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.client.application.window.GeneratedViewCache;
+import org.openbravo.client.kernel.event.EntityDeleteEvent;
+import org.openbravo.client.kernel.event.EntityNewEvent;
+import org.openbravo.client.kernel.event.EntityPersistenceEventObserver;
+import org.openbravo.client.kernel.event.EntityUpdateEvent;
+import org.openbravo.model.ad.datamodel.Column;
+import org.openbravo.model.ad.ui.AuxiliaryInput;
+import org.openbravo.model.ad.ui.Element;
+import org.openbravo.model.ad.ui.ElementTrl;
+import org.openbravo.model.ad.ui.Field;
+import org.openbravo.model.ad.ui.FieldGroup;
+import org.openbravo.model.ad.ui.FieldTrl;
+import org.openbravo.model.ad.ui.Tab;
+import org.openbravo.model.ad.ui.TabTrl;
+import org.openbravo.model.ad.ui.Window;
+import org.openbravo.model.ad.ui.WindowTrl;
+
+/**
+ * Listens to modifications in the Application Dictionary entities used to generate the window
+ * views. In case they are modified, the views cached in {@link GeneratedViewCache} are invalidated
+ * to generate them again.
+ */
+class GeneratedViewCacheHandler extends EntityPersistenceEventObserver {
+  @Inject
+  private GeneratedViewCache viewCache;
+
+  private static Entity[] entities = { ModelProvider.getInstance().getEntity(Window.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(WindowTrl.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Tab.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(TabTrl.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Field.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(FieldTrl.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(FieldGroup.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Column.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Element.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(ElementTrl.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(AuxiliaryInput.ENTITY_NAME) };
+
+  public void onNew(@Observes EntityNewEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    viewCache.invalidateAll();
+  }
+
+  public void onUpdate(@Observes EntityUpdateEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    viewCache.invalidateAll();
+  }
+
+  public void onDelete(@Observes EntityDeleteEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    viewCache.invalidateAll();
+  }
+
+  @Override
+  protected Entity[] getObservedEntities() {
+    return entities;
+  }
+}
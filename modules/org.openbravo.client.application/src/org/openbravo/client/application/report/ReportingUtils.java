@@ -23,6 +23,7 @@ import java.io.OutputStream;
 import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.AbstractList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -69,8 +70,11 @@ import net.sf.jasperreports.engine.export.ooxml.JRXlsxExporter;
 import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
 import net.sf.jasperreports.engine.util.JRSaver;
 import net.sf.jasperreports.engine.util.JRSwapFile;
+import net.sf.jasperreports.export.ExporterInput;
+import net.sf.jasperreports.export.ExporterInputItem;
 import net.sf.jasperreports.export.SimpleCsvReportConfiguration;
 import net.sf.jasperreports.export.SimpleExporterInput;
+import net.sf.jasperreports.export.SimpleExporterInputItem;
 import net.sf.jasperreports.export.SimpleHtmlExporterOutput;
 import net.sf.jasperreports.export.SimpleHtmlReportConfiguration;
 import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
@@ -1133,12 +1137,37 @@ public class ReportingUtils {
 
     configuration.setCreatingBatchModeBookmarks(createBookmarks);
     exporter.setConfiguration(configuration);
-    exporter.setExporterInput(SimpleExporterInput.getInstance(jasperPrintList));
+    exporter.setExporterInput(getLazyExporterInput(jasperPrintList));
     exporter.setExporterOutput(exporterOutput);
 
     exporter.exportReport();
   }
 
+  /**
+   * Returns an exporter input that does not access the elements of the list until they are
+   * exported. This allows to export the reports of a list that fills them on demand while the
+   * following ones are still being filled.
+   */
+  private static ExporterInput getLazyExporterInput(List<JasperPrint> jasperPrintList) {
+    List<ExporterInputItem> items = new AbstractList<ExporterInputItem>() {
+      @Override
+      public ExporterInputItem get(int index) {
+        return new SimpleExporterInputItem(jasperPrintList.get(index));
+      }
+
+      @Override
+      public int size() {
+        return jasperPrintList.size();
+      }
+    };
+    return new ExporterInput() {
+      @Override
+      public List<ExporterInputItem> getItems() {
+        return items;
+      }
+    };
+  }
+
   /**
    * Returns an encrypted PDF file into an output stream as result of the concatenation of the
    * JasperPrint objects list passed as parameter.
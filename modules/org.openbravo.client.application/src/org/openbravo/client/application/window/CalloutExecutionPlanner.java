@@ -0,0 +1,390 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.window;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codehaus.jettison.json.JSONObject;
+import org.openbravo.base.exception.OBException;
+import org.openbravo.base.session.OBPropertiesProvider;
+import org.openbravo.client.application.window.servlet.CalloutServletConfig;
+import org.openbravo.client.kernel.RequestContext;
+import org.openbravo.dal.core.DalThreadCleaner;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.erpCommon.ad_callouts.CalloutConstants;
+import org.openbravo.erpCommon.ad_callouts.SimpleCallout;
+import org.openbravo.jmx.ExtensionInstrumentation;
+import org.openbravo.jmx.ExtensionInstrumentation.ExtensionType;
+import org.openbravo.jmx.ExtensionInstrumentation.Measurement;
+import org.openbravo.service.importprocess.ImportEntryManager;
+
+/**
+ * Plans the execution of the callouts fired by the {@link FormInitializationComponent}, based on
+ * the fields each callout reads (see {@link SimpleCallout#getReadFields()}) and the fields it
+ * updates. It is used to:
+ * <ul>
+ * <li>Skip the re-invocations of a callout whose read and updated fields did not change since its
+ * previous execution, as executing it again would produce exactly the same values.</li>
+ * <li>Execute concurrently the thread safe callouts (see {@link SimpleCallout#isThreadSafe()})
+ * pending to be executed, and detect which of their results are not the ones that would have been
+ * obtained with a sequential execution, so that those callouts can be executed again.</li>
+ * </ul>
+ * Callouts not declaring the fields they read are always executed sequentially.
+ */
+class CalloutExecutionPlanner {
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String MAX_CONCURRENT_THREADS_PROPERTY = "callout.maxConcurrentThreads";
+  private static final int DEFAULT_MAX_CONCURRENT_THREADS = 4;
+
+  private static ExecutorService executorService;
+  private static int maxConcurrentThreads = -1;
+
+  private final Function<String, FieldValue> fieldValueProvider;
+  private final Map<CalloutCall, CalloutExecution> executions = new HashMap<>();
+
+  /**
+   * @param fieldValueProvider
+   *          function that returns the current value of a field given its name
+   */
+  CalloutExecutionPlanner(Function<String, FieldValue> fieldValueProvider) {
+    this.fieldValueProvider = fieldValueProvider;
+  }
+
+  /**
+   * Returns the current values of the fields read by a callout, including the field that triggered
+   * it. It must be invoked just before executing the callout.
+   */
+  Map<String, FieldValue> getReadValues(CalloutCall call, Set<String> readFields) {
+    Map<String, FieldValue> readValues = new LinkedHashMap<>();
+    for (String field : readFields) {
+      readValues.put(field, fieldValueProvider.apply(field));
+    }
+    readValues.put(call.getLastFieldChanged(),
+        fieldValueProvider.apply(call.getLastFieldChanged()));
+    return readValues;
+  }
+
+  /**
+   * Keeps track of the execution of a callout. It must be invoked once the result of the callout
+   * has been applied.
+   * 
+   * @param call
+   *          the executed callout call
+   * @param readValues
+   *          the values of the fields read by the callout before its execution, as returned by
+   *          {@link #getReadValues(CalloutCall, Set)}
+   * @param result
+   *          the result of the callout
+   */
+  void registerExecution(CalloutCall call, Map<String, FieldValue> readValues,
+      JSONObject result) {
+    if (!isRepeatable(result)) {
+      // the callout returned messages, code or combo entries: executing it again is not equivalent
+      // to skip it
+      executions.remove(call);
+      return;
+    }
+    Map<String, FieldValue> updatedValues = new HashMap<>();
+    for (String field : getUpdatedFields(result)) {
+      updatedValues.put(field, fieldValueProvider.apply(field));
+    }
+    executions.put(call, new CalloutExecution(readValues, updatedValues));
+  }
+
+  /**
+   * Checks whether executing the given callout call again would produce exactly the same values
+   * than its previous execution, because none of the fields it read or updated have changed since
+   * then.
+   * 
+   * @return {@code true} if the callout call can be skipped, {@code false} otherwise
+   */
+  boolean isRedundant(CalloutCall call) {
+    CalloutExecution execution = executions.get(call);
+    return execution != null && hasSameValues(execution.readValues)
+        && hasSameValues(execution.updatedValues);
+  }
+
+  private boolean hasSameValues(Map<String, FieldValue> values) {
+    for (Map.Entry<String, FieldValue> entry : values.entrySet()) {
+      FieldValue value = entry.getValue();
+      FieldValue currentValue = fieldValueProvider.apply(entry.getKey());
+      if (!Objects.equals(value.requestValue, currentValue.requestValue)
+          || !Objects.equals(value.columnValue, currentValue.columnValue)
+          || !Objects.equals(value.columnClassicValue, currentValue.columnClassicValue)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether a callout depends on the result of a callout executed before it, i.e., whether
+   * the previous callout updated any of the fields read by the callout.
+   * 
+   * @param readValues
+   *          the values of the fields read by the callout, as returned by
+   *          {@link #getReadValues(CalloutCall, Set)}
+   * @param previousResult
+   *          the result of the previous callout
+   * @return {@code true} if the callout depends on the previous result, {@code false} otherwise
+   */
+  static boolean dependsOn(Map<String, FieldValue> readValues, JSONObject previousResult) {
+    for (String field : getUpdatedFields(previousResult)) {
+      if (readValues.containsKey(field)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<String> getUpdatedFields(JSONObject result) {
+    List<String> fields = new ArrayList<>();
+    @SuppressWarnings("unchecked")
+    Iterator<String> keys = result.keys();
+    while (keys.hasNext()) {
+      String key = keys.next();
+      if (key.startsWith("inp")) {
+        fields.add(key);
+      }
+    }
+    return fields;
+  }
+
+  private static boolean isRepeatable(JSONObject result) {
+    @SuppressWarnings("unchecked")
+    Iterator<String> keys = result.keys();
+    while (keys.hasNext()) {
+      String key = keys.next();
+      if (!key.startsWith("inp")) {
+        return false;
+      }
+      JSONObject element = result.optJSONObject(key);
+      if (element == null || element.has(CalloutConstants.ENTRIES)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the maximum number of callouts that can be executed concurrently, if it is lower than 2
+   *         callouts are always executed sequentially
+   */
+  static int getMaxConcurrentCallouts() {
+    if (maxConcurrentThreads == -1) {
+      maxConcurrentThreads = readMaxConcurrentThreads();
+    }
+    return maxConcurrentThreads;
+  }
+
+  private static int readMaxConcurrentThreads() {
+    if (OBPropertiesProvider.getInstance().getOpenbravoProperties() == null) {
+      return DEFAULT_MAX_CONCURRENT_THREADS;
+    }
+    String value = OBPropertiesProvider.getInstance()
+        .getOpenbravoProperties()
+        .getProperty(MAX_CONCURRENT_THREADS_PROPERTY);
+    if (value == null) {
+      return DEFAULT_MAX_CONCURRENT_THREADS;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      log.warn("Wrong value for {} property: {}, defaulting to {}", MAX_CONCURRENT_THREADS_PROPERTY,
+          value, DEFAULT_MAX_CONCURRENT_THREADS);
+      return DEFAULT_MAX_CONCURRENT_THREADS;
+    }
+  }
+
+  private static synchronized ExecutorService getExecutorService() {
+    if (executorService == null) {
+      executorService = Executors.newFixedThreadPool(getMaxConcurrentCallouts(),
+          new ImportEntryManager.DaemonThreadFactory("Callout"));
+    }
+    return executorService;
+  }
+
+  /**
+   * Executes the given callouts concurrently. Each callout is executed in a separate thread, with
+   * its own DAL session and a copy of the current request where the field that triggered it is set.
+   * The current request is not modified, the results must be applied afterwards in the same order
+   * as the callouts were provided.
+   * 
+   * @param calls
+   *          the callout calls to execute
+   * @param callouts
+   *          the callout instances, one per call. They must not be shared with other threads.
+   * @return the result of each callout, in the same order as the calls
+   */
+  static List<JSONObject> executeConcurrently(List<CalloutCall> calls,
+      List<SimpleCallout> callouts) {
+    HttpServletRequest request = RequestContext.get().getRequest();
+    OBContext obContext = OBContext.getOBContext();
+    List<Future<JSONObject>> futures = new ArrayList<>(calls.size());
+    for (int i = 0; i < calls.size(); i++) {
+      CalloutCall call = calls.get(i);
+      SimpleCallout callout = callouts.get(i);
+      futures.add(getExecutorService().submit(() -> execute(call, callout, request, obContext)));
+    }
+    List<JSONObject> results = new ArrayList<>(calls.size());
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        results.add(futures.get(i).get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OBException(
+            "Interrupted while executing callout (class " + calls.get(i).getCalloutClassName() + ")",
+            e);
+      } catch (ExecutionException e) {
+        throw new OBException(
+            "Couldn't execute callout (class " + calls.get(i).getCalloutClassName() + ")",
+            e.getCause());
+      }
+    }
+    return results;
+  }
+
+  private static JSONObject execute(CalloutCall call, SimpleCallout callout,
+      HttpServletRequest request, OBContext obContext) throws Exception {
+    RequestContext.HttpServletRequestWrapper calloutRequest = new RequestContext.HttpServletRequestWrapper(
+        request);
+    calloutRequest.setParameter("inpLastFieldChanged", call.getLastFieldChanged());
+    calloutRequest.setParameter("inpOB3UIMode", "Y");
+    OBContext.setOBContext(obContext);
+    OBContext.setAdminMode(true);
+    try {
+      RequestContext requestContext = RequestContext.get();
+      requestContext.setRequest(calloutRequest);
+      callout.init(new CalloutServletConfig(call.getCalloutClassName(),
+          RequestContext.getServletContext()));
+      log.debug("Calling callout {} concurrently with field changed {}",
+          call.getCalloutClassName(), call.getLastFieldChanged());
+      try (Measurement measurement = ExtensionInstrumentation.getInstance()
+          .start(ExtensionType.CALLOUT, callout.getClass())) {
+        return callout.executeSimpleCallout(requestContext);
+      }
+    } finally {
+      OBContext.restorePreviousMode();
+      RequestContext.clear();
+      DalThreadCleaner.getInstance().cleanWithRollback();
+    }
+  }
+
+  /**
+   * A callout invocation: the callout class together with the field whose change triggered it.
+   */
+  static class CalloutCall {
+    private final String calloutClassName;
+    private final String lastFieldChanged;
+
+    CalloutCall(String calloutClassName, String lastFieldChanged) {
+      this.calloutClassName = calloutClassName;
+      this.lastFieldChanged = lastFieldChanged;
+    }
+
+    String getCalloutClassName() {
+      return calloutClassName;
+    }
+
+    String getLastFieldChanged() {
+      return lastFieldChanged;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof CalloutCall)) {
+        return false;
+      }
+      CalloutCall other = (CalloutCall) obj;
+      return calloutClassName.equals(other.calloutClassName)
+          && lastFieldChanged.equals(other.lastFieldChanged);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(calloutClassName, lastFieldChanged);
+    }
+
+    @Override
+    public String toString() {
+      return calloutClassName + " (" + lastFieldChanged + ")";
+    }
+  }
+
+  /**
+   * The value of a field as seen by the callouts: the value of its request parameter and, for the
+   * values which are not fields of the tab (like auxiliary inputs), the value and classic value
+   * kept in the column values. They are copied when the instance is created, so later changes in
+   * the column values do not affect it.
+   */
+  static class FieldValue {
+    private final String requestValue;
+    private final Object columnValue;
+    private final Object columnClassicValue;
+
+    /**
+     * @param requestValue
+     *          the value of the request parameter of the field
+     * @param columnValue
+     *          the column value of the field, {@code null} if it has no column value
+     */
+    FieldValue(String requestValue, JSONObject columnValue) {
+      this.requestValue = requestValue;
+      this.columnValue = columnValue == null ? null : columnValue.opt(CalloutConstants.VALUE);
+      this.columnClassicValue = columnValue == null ? null
+          : columnValue.opt(CalloutConstants.CLASSIC_VALUE);
+    }
+
+    @Override
+    public String toString() {
+      return requestValue + " (" + columnValue + ", " + columnClassicValue + ")";
+    }
+  }
+
+  private static class CalloutExecution {
+    private final Map<String, FieldValue> readValues;
+    private final Map<String, FieldValue> updatedValues;
+
+    private CalloutExecution(Map<String, FieldValue> readValues,
+        Map<String, FieldValue> updatedValues) {
+      this.readValues = readValues;
+      this.updatedValues = updatedValues;
+    }
+  }
+}
@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2010-2023 Openbravo SLU
+ * All portions are Copyright (C) 2010-2024 Openbravo SLU
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -23,9 +23,11 @@ import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.enterprise.inject.Any;
@@ -48,6 +50,8 @@ import org.openbravo.base.structure.BaseOBObject;
 import org.openbravo.client.application.ApplicationConstants;
 import org.openbravo.client.application.DynamicExpressionParser;
 import org.openbravo.client.application.Note;
+import org.openbravo.client.application.window.CalloutExecutionPlanner.CalloutCall;
+import org.openbravo.client.application.window.CalloutExecutionPlanner.FieldValue;
 import org.openbravo.client.application.window.servlet.CalloutServletConfig;
 import org.openbravo.client.kernel.BaseActionHandler;
 import org.openbravo.client.kernel.KernelUtils;
@@ -69,6 +73,9 @@ import org.openbravo.erpCommon.ad_callouts.CalloutInformationProvider;
 import org.openbravo.erpCommon.ad_callouts.SimpleCallout;
 import org.openbravo.erpCommon.ad_callouts.SimpleCalloutInformationProvider;
 import org.openbravo.erpCommon.utility.Utility;
+import org.openbravo.jmx.ExtensionInstrumentation;
+import org.openbravo.jmx.ExtensionInstrumentation.ExtensionType;
+import org.openbravo.jmx.ExtensionInstrumentation.Measurement;
 import org.openbravo.model.ad.datamodel.Column;
 import org.openbravo.model.ad.domain.ReferencedTable;
 import org.openbravo.model.ad.ui.AuxiliaryInput;
@@ -1464,7 +1471,13 @@ public class FormInitializationComponent extends BaseActionHandler {
 
   }
 
-  private List<String> runCallouts(Map<String, JSONObject> columnValues, Tab tab,
+  /**
+   * Executes the given callouts and the ones fired by the fields they change, applying their
+   * results to the column values, the request and the rest of lists and maps received.
+   * 
+   * @return the columns changed by the callouts
+   */
+  List<String> runCallouts(Map<String, JSONObject> columnValues, Tab tab,
       List<String> calledCallouts, List<String> calloutsToCall, List<String> lastfieldChangedList,
       List<JSONObject> messages, List<String> dynamicCols, List<String> jsExecuteCode,
       Map<String, Object> hiddenInputs, List<String> overwrittenAuxiliaryInputs) {
@@ -1474,6 +1487,8 @@ public class FormInitializationComponent extends BaseActionHandler {
     HashMap<String, Field> inpFields = buildInpField(fields);
     String lastCalledCallout = "";
     String lastFieldOfLastCalloutCalled = "";
+    CalloutExecutionPlanner planner = new CalloutExecutionPlanner(
+        field -> getFieldValue(field, columnValues, inpFields));
 
     while (!calloutsToCall.isEmpty() && calledCallouts.size() < MAX_CALLOUT_CALLS) {
       String calloutClassName = calloutsToCall.get(0);
@@ -1485,6 +1500,30 @@ public class FormInitializationComponent extends BaseActionHandler {
         lastfieldChangedList.remove(lastFieldChanged);
         continue;
       }
+      CalloutCall calloutCall = new CalloutCall(calloutClassName, lastFieldChanged);
+      if (planner.isRedundant(calloutCall)) {
+        // its fields did not change since its last execution, executing it again would not change
+        // any value
+        log.debug("Callout skipped, its fields did not change: " + calloutCall);
+        calloutsToCall.remove(calloutClassName);
+        lastfieldChangedList.remove(lastFieldChanged);
+        calledCallouts.add(calloutClassName.substring(calloutClassName.lastIndexOf(".") + 1));
+        RequestContext.get().setRequestParameter("inpLastFieldChanged", lastFieldChanged);
+        lastCalledCallout = calloutClassName;
+        lastFieldOfLastCalloutCalled = lastFieldChanged;
+        continue;
+      }
+      List<CalloutCall> concurrentCalls = getConcurrentCalloutCalls(calloutsToCall,
+          lastfieldChangedList, calloutInstances, MAX_CALLOUT_CALLS - calledCallouts.size());
+      if (concurrentCalls.size() > 1) {
+        CalloutCall lastCall = runConcurrentCallouts(columnValues, tab, calledCallouts,
+            calloutsToCall, lastfieldChangedList, messages, dynamicCols, jsExecuteCode,
+            hiddenInputs, overwrittenAuxiliaryInputs, changedCols, inpFields, planner,
+            concurrentCalls);
+        lastCalledCallout = lastCall.getCalloutClassName();
+        lastFieldOfLastCalloutCalled = lastCall.getLastFieldChanged();
+        continue;
+      }
       log.debug("Calling callout " + calloutClassName + " with field changed " + lastFieldChanged);
       Class<?> calloutClass;
       try {
@@ -1519,6 +1558,8 @@ public class FormInitializationComponent extends BaseActionHandler {
         CalloutServletConfig config = new CalloutServletConfig(calloutClassName,
             RequestContext.getServletContext());
         CalloutInformationProvider calloutResponseManager = null;
+        JSONObject result = null;
+        Map<String, FieldValue> readValues = null;
 
         // execute SimpleCallout callouts
         if (SimpleCallout.class.isAssignableFrom(calloutClass)) {
@@ -1526,8 +1567,16 @@ public class FormInitializationComponent extends BaseActionHandler {
           SimpleCallout calloutInstance = (SimpleCallout) calloutObject;
           calloutInstance.init(config);
 
+          Set<String> readFields = calloutInstance.getReadFields();
+          if (readFields != null) {
+            readValues = planner.getReadValues(calloutCall, readFields);
+          }
+
           // execute SimpleCallout callout
-          JSONObject result = calloutInstance.executeSimpleCallout(request);
+          try (Measurement measurement = ExtensionInstrumentation.getInstance()
+              .start(ExtensionType.CALLOUT, calloutClass)) {
+            result = calloutInstance.executeSimpleCallout(request);
+          }
 
           // updated info values of callouts infrastructure
           String calloutNameJS = calloutClassName.substring(calloutClassName.lastIndexOf(".") + 1);
@@ -1540,6 +1589,10 @@ public class FormInitializationComponent extends BaseActionHandler {
             messages, dynamicCols, jsExecuteCode, hiddenInputs, overwrittenAuxiliaryInputs,
             changedCols, inpFields, calloutClassName, request, calloutResponseManager);
 
+        if (readValues != null) {
+          planner.registerExecution(calloutCall, readValues, result);
+        }
+
         lastCalledCallout = calloutClassName;
         lastFieldOfLastCalloutCalled = lastFieldChanged;
       } catch (Exception e) {
@@ -1553,6 +1606,135 @@ public class FormInitializationComponent extends BaseActionHandler {
 
   }
 
+  /**
+   * Returns the callout calls at the beginning of the list of callouts to call that can be executed
+   * concurrently: consecutive calls of different callouts which are thread safe and declare the
+   * fields they read.
+   */
+  private List<CalloutCall> getConcurrentCalloutCalls(List<String> calloutsToCall,
+      List<String> lastfieldChangedList, Map<String, Object> calloutInstances, int maxCalls) {
+    List<CalloutCall> calls = new ArrayList<>();
+    int maxConcurrentCalls = Math.min(maxCalls, CalloutExecutionPlanner.getMaxConcurrentCallouts());
+    Set<String> calloutClassNames = new HashSet<>();
+    for (int i = 0; i < calloutsToCall.size() && calls.size() < maxConcurrentCalls; i++) {
+      String calloutClassName = calloutsToCall.get(i);
+      if (!calloutClassNames.add(calloutClassName)) {
+        break;
+      }
+      Object calloutObject = calloutInstances.get(calloutClassName);
+      if (calloutObject == null) {
+        try {
+          calloutObject = Class.forName(calloutClassName).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+          // it will be handled when executing the callout sequentially
+          break;
+        }
+        calloutInstances.put(calloutClassName, calloutObject);
+      }
+      if (!(calloutObject instanceof SimpleCallout)
+          || !((SimpleCallout) calloutObject).isThreadSafe()
+          || ((SimpleCallout) calloutObject).getReadFields() == null) {
+        break;
+      }
+      calls.add(new CalloutCall(calloutClassName, lastfieldChangedList.get(i)));
+    }
+    return calls;
+  }
+
+  /**
+   * Executes concurrently the given callout calls, which are the first ones of the list of callouts
+   * to call, and applies their results in order. If a callout depends on the result of a previous
+   * one, its result and the ones of the following callouts are discarded and those callouts are
+   * kept in the list to be executed again, so the resulting values are the same as the ones of a
+   * sequential execution.
+   * 
+   * @return the last callout call whose result has been applied
+   */
+  private CalloutCall runConcurrentCallouts(Map<String, JSONObject> columnValues, Tab tab,
+      List<String> calledCallouts, List<String> calloutsToCall, List<String> lastfieldChangedList,
+      List<JSONObject> messages, List<String> dynamicCols, List<String> jsExecuteCode,
+      Map<String, Object> hiddenInputs, List<String> overwrittenAuxiliaryInputs,
+      List<String> changedCols, HashMap<String, Field> inpFields,
+      CalloutExecutionPlanner planner, List<CalloutCall> calls) {
+    List<SimpleCallout> callouts = new ArrayList<>(calls.size());
+    List<Map<String, FieldValue>> readValues = new ArrayList<>(calls.size());
+    for (CalloutCall call : calls) {
+      SimpleCallout callout;
+      try {
+        // use a new instance per thread, as its connection provider must not be shared
+        callout = (SimpleCallout) Class.forName(call.getCalloutClassName())
+            .getDeclaredConstructor()
+            .newInstance();
+      } catch (Exception e) {
+        throw new OBException("Couldn't create callout (class " + call.getCalloutClassName() + ")",
+            e);
+      }
+      callouts.add(callout);
+      readValues.add(planner.getReadValues(call, callout.getReadFields()));
+    }
+    for (int i = 0; i < calls.size(); i++) {
+      calloutsToCall.remove(0);
+      lastfieldChangedList.remove(0);
+    }
+
+    List<JSONObject> results = CalloutExecutionPlanner.executeConcurrently(calls, callouts);
+
+    RequestContext request = RequestContext.get();
+    request.setRequestParameter("inpOB3UIMode", "Y");
+    CalloutCall lastCall = null;
+    for (int i = 0; i < calls.size(); i++) {
+      CalloutCall call = calls.get(i);
+      if (i > 0 && dependsOnPreviousResults(readValues.get(i), results.subList(0, i))) {
+        // discard this and the following results, these callouts are executed again
+        log.debug("Callout {} depends on the result of a previous callout, executing it again",
+            call);
+        for (int j = calls.size() - 1; j >= i; j--) {
+          calloutsToCall.add(0, calls.get(j).getCalloutClassName());
+          lastfieldChangedList.add(0, calls.get(j).getLastFieldChanged());
+        }
+        break;
+      }
+      String calloutClassName = call.getCalloutClassName();
+      request.setRequestParameter("inpLastFieldChanged", call.getLastFieldChanged());
+      calledCallouts.add(calloutClassName.substring(calloutClassName.lastIndexOf(".") + 1));
+      try {
+        manageUpdatedValuesForCallout(columnValues, tab, calloutsToCall, lastfieldChangedList,
+            messages, dynamicCols, jsExecuteCode, hiddenInputs, overwrittenAuxiliaryInputs,
+            changedCols, inpFields, calloutClassName, request,
+            new SimpleCalloutInformationProvider(results.get(i)));
+      } catch (Exception e) {
+        throw new OBException("Couldn't execute callout (class " + calloutClassName + ")", e);
+      }
+      planner.registerExecution(call, readValues.get(i), results.get(i));
+      lastCall = call;
+    }
+    return lastCall;
+  }
+
+  private boolean dependsOnPreviousResults(Map<String, FieldValue> readValues,
+      List<JSONObject> previousResults) {
+    for (JSONObject previousResult : previousResults) {
+      if (CalloutExecutionPlanner.dependsOn(readValues, previousResult)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the current value of a field, as seen by the callouts. For the values returned by
+   * callouts which are not fields of the tab (like auxiliary inputs) the value kept in the column
+   * values is also taken into account.
+   */
+  private FieldValue getFieldValue(String field, Map<String, JSONObject> columnValues,
+      Map<String, Field> inpFields) {
+    String value = RequestContext.get().getRequestParameter(field);
+    if (!inpFields.containsKey(field)) {
+      return new FieldValue(value, columnValues.get(field));
+    }
+    return new FieldValue(value, null);
+  }
+
   private void manageUpdatedValuesForCallout(Map<String, JSONObject> columnValues, Tab tab,
       List<String> calloutsToCall, List<String> lastfieldChangedList, List<JSONObject> messages,
       List<String> dynamicCols, List<String> jsExecuteCode, Map<String, Object> hiddenInputs,
@@ -0,0 +1,177 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.window;
+
+import java.util.Objects;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.session.OBPropertiesProvider;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Keeps in memory the JavaScript source generated for the standard windows, so it is not
+ * regenerated for every user opening the same window for the first time.
+ * 
+ * Entries are keyed by window, role, language and the version hash of the view (the same
+ * information used to compute its ETag, which includes the versions of the installed modules and
+ * the last changes in grid configuration and system preferences). As that version hash is
+ * recalculated from the database on each request, nodes in a cluster never serve a view generated
+ * for an older version of the Application Dictionary, stale entries are just no longer accessed
+ * and eventually evicted.
+ * 
+ * The cache is bounded by the {@code view.cache.maxSize} property (500 entries by default) and
+ * generation is done once per key: concurrent requests for a view which is being generated wait for
+ * that generation to complete instead of generating it again.
+ */
+@ApplicationScoped
+public class GeneratedViewCache {
+  private static final Logger log = LogManager.getLogger();
+  private static final String MAX_SIZE_PROPERTY = "view.cache.maxSize";
+  private static final long DEFAULT_MAX_SIZE = 500L;
+
+  private Cache<ViewKey, String> cache;
+  private boolean enabled;
+
+  /**
+   * Initializes an empty cache. This method is automatically invoked on creation.
+   */
+  @PostConstruct
+  public void init() {
+    long maxSize = getMaxSize();
+    cache = Caffeine.newBuilder().maximumSize(maxSize).recordStats().build();
+    enabled = maxSize > 0;
+    log.debug("Generated view cache initialized with max size {}", maxSize);
+  }
+
+  private long getMaxSize() {
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    String maxSize = properties != null ? properties.getProperty(MAX_SIZE_PROPERTY) : null;
+    if (maxSize == null) {
+      return DEFAULT_MAX_SIZE;
+    }
+    try {
+      return Long.parseLong(maxSize.trim());
+    } catch (NumberFormatException e) {
+      log.warn("Wrong value {} for property {}, using the default {}", maxSize, MAX_SIZE_PROPERTY,
+          DEFAULT_MAX_SIZE);
+      return DEFAULT_MAX_SIZE;
+    }
+  }
+
+  /**
+   * Returns the cached source of a view. If it is not cached yet, it is computed with the given
+   * generator and cached for subsequent invocations.
+   * 
+   * @param viewId
+   *          ID of the window
+   * @param roleId
+   *          ID of the role the view is generated for
+   * @param languageId
+   *          ID of the language the view is generated for
+   * @param versionHash
+   *          hash identifying the version of the view, typically its ETag
+   * @param generator
+   *          generates the source of the view in case it is not cached. If it fails, nothing is
+   *          cached and the exception is propagated to the caller.
+   * @return the generated source of the view
+   */
+  public String getView(String viewId, String roleId, String languageId, String versionHash,
+      Supplier<String> generator) {
+    if (!enabled) {
+      return generator.get();
+    }
+    ViewKey key = new ViewKey(viewId, roleId, languageId, versionHash);
+    return cache.get(key, k -> {
+      long t = System.currentTimeMillis();
+      String source = generator.get();
+      log.debug("View {} generated and cached for role {} and language {} in {} ms", viewId,
+          roleId, languageId, System.currentTimeMillis() - t);
+      return source;
+    });
+  }
+
+  /**
+   * Removes all the views from the cache
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+    log.debug("Generated view cache has been invalidated");
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  void setEnabled(boolean enabled) {
+    if (!enabled) {
+      invalidateAll();
+    }
+    this.enabled = enabled;
+  }
+
+  long getSize() {
+    return cache.estimatedSize();
+  }
+
+  CacheStats getStats() {
+    return cache.stats();
+  }
+
+  private static class ViewKey {
+    private final String viewId;
+    private final String roleId;
+    private final String languageId;
+    private final String versionHash;
+
+    private ViewKey(String viewId, String roleId, String languageId, String versionHash) {
+      this.viewId = viewId;
+      this.roleId = roleId;
+      this.languageId = languageId;
+      this.versionHash = versionHash;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(viewId, roleId, languageId, versionHash);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof ViewKey)) {
+        return false;
+      }
+      ViewKey other = (ViewKey) obj;
+      return Objects.equals(viewId, other.viewId) && Objects.equals(roleId, other.roleId)
+          && Objects.equals(languageId, other.languageId)
+          && Objects.equals(versionHash, other.versionHash);
+    }
+  }
+}
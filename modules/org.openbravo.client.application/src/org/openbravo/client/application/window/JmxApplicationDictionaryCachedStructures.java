@@ -33,9 +33,13 @@ public class JmxApplicationDictionaryCachedStructures
   @Inject
   private ApplicationDictionaryCachedStructures adcs;
 
+  @Inject
+  private GeneratedViewCache viewCache;
+
   @Override
   public void resetCache() {
     adcs.init();
+    viewCache.invalidateAll();
   }
 
   @Override
@@ -0,0 +1,84 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.client.application.window;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/** Exposes {@link GeneratedViewCache} as a JMX Bean. */
+@ApplicationScoped
+public class JmxGeneratedViewCache implements JmxGeneratedViewCacheMBean {
+  public static final String MBEAN_NAME = "GeneratedViewCache";
+
+  @Inject
+  private GeneratedViewCache viewCache;
+
+  @Override
+  public void clearCache() {
+    viewCache.invalidateAll();
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return viewCache.isEnabled();
+  }
+
+  @Override
+  public void setEnabled(boolean enabled) {
+    viewCache.setEnabled(enabled);
+  }
+
+  @Override
+  public long getSize() {
+    return viewCache.getSize();
+  }
+
+  @Override
+  public long getHitCount() {
+    return viewCache.getStats().hitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return viewCache.getStats().missCount();
+  }
+
+  @Override
+  public double getHitRate() {
+    return viewCache.getStats().hitRate();
+  }
+
+  @Override
+  public long getGenerationFailureCount() {
+    return viewCache.getStats().loadFailureCount();
+  }
+
+  @Override
+  public double getAverageGenerationTime() {
+    return viewCache.getStats().averageLoadPenalty() / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return viewCache.getStats().evictionCount();
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.client.application.window;
+
+/** Defines bean to expose {@link GeneratedViewCache} as a JMX Bean. */
+public interface JmxGeneratedViewCacheMBean {
+
+  /** Removes all the views from the cache. */
+  void clearCache();
+
+  /** Whether generated views are being cached. */
+  boolean isEnabled();
+
+  /** Enables or disables the cache. Disabling it also clears its contents. */
+  void setEnabled(boolean enabled);
+
+  /** Approximate number of views currently cached. */
+  long getSize();
+
+  /** Number of times a view was served from the cache. */
+  long getHitCount();
+
+  /** Number of times a view was not found in the cache and had to be generated. */
+  long getMissCount();
+
+  /** Ratio of requests served from the cache. */
+  double getHitRate();
+
+  /** Number of views whose generation failed. */
+  long getGenerationFailureCount();
+
+  /** Average time in milliseconds spent generating a view which was not cached. */
+  double getAverageGenerationTime();
+
+  /** Number of views evicted from the cache because of its size limit. */
+  long getEvictionCount();
+}
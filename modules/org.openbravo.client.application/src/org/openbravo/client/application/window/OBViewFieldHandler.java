@@ -1751,7 +1751,8 @@ public class OBViewFieldHandler {
       DynamicExpressionParser parser = new DynamicExpressionParser(translatedDisplayLogic, tab);
 
       try {
-        result = (Boolean) OBScriptEngine.getInstance().eval(parser.getJSExpression());
+        result = (Boolean) OBScriptEngine.getInstance()
+            .eval(fieldId, parser.getJSExpression(), Collections.emptyMap());
       } catch (ScriptException e) {
         log.error(
             "Error while evaluating the Display Logic at Server Level. Error in field with id: "
@@ -0,0 +1,185 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.kernel.test;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbravo.client.kernel.CompressingHttpServletResponse;
+
+/**
+ * Tests the compression of the responses done by {@link CompressingHttpServletResponse}.
+ */
+public class CompressingHttpServletResponseTest {
+  private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+
+  private HttpServletResponse servletResponse;
+  private ByteArrayOutputStream sentContent;
+
+  @Before
+  public void initResponse() throws IOException {
+    sentContent = new ByteArrayOutputStream();
+    servletResponse = mock(HttpServletResponse.class);
+    when(servletResponse.getCharacterEncoding()).thenReturn("UTF-8");
+    when(servletResponse.getStatus()).thenReturn(HttpServletResponse.SC_OK);
+    when(servletResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public void write(int b) {
+        sentContent.write(b);
+      }
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+      }
+    });
+  }
+
+  @Test
+  public void responseIsNotWrappedIfGzipIsNotAccepted() {
+    assertThat(wrap(null), sameInstance(servletResponse));
+    assertThat(wrap("deflate, br"), sameInstance(servletResponse));
+    assertThat(wrap("gzip;q=0, deflate"), sameInstance(servletResponse));
+  }
+
+  @Test
+  public void responseIsWrappedIfGzipIsAccepted() {
+    assertThat(wrap("gzip, deflate, br"), instanceOf(CompressingHttpServletResponse.class));
+    assertThat(wrap("deflate;q=0.5, gzip;q=1.0"), instanceOf(CompressingHttpServletResponse.class));
+  }
+
+  @Test
+  public void bigContentIsCompressed() throws IOException {
+    when(servletResponse.getContentType()).thenReturn(JSON_CONTENT_TYPE);
+    String content = getContent(20000);
+
+    writeAndFinish(content);
+
+    verify(servletResponse).setHeader("Content-Encoding", "gzip");
+    assertThat(sentContent.size() < content.length(), is(true));
+    assertThat(decompress(sentContent.toByteArray()), is(content));
+  }
+
+  @Test
+  public void smallContentIsNotCompressed() throws IOException {
+    when(servletResponse.getContentType()).thenReturn(JSON_CONTENT_TYPE);
+    String content = getContent(100);
+
+    writeAndFinish(content);
+
+    verify(servletResponse, never()).setHeader(eq("Content-Encoding"), anyString());
+    verify(servletResponse).setContentLength(content.length());
+    assertThat(sentContent.toString(StandardCharsets.UTF_8), is(content));
+  }
+
+  @Test
+  public void nonCompressibleContentIsNotCompressed() throws IOException {
+    when(servletResponse.getContentType()).thenReturn("application/pdf");
+    String content = getContent(20000);
+
+    writeAndFinish(content);
+
+    verify(servletResponse, never()).setHeader(eq("Content-Encoding"), anyString());
+    assertThat(sentContent.toString(StandardCharsets.UTF_8), is(content));
+  }
+
+  @Test
+  public void contentLengthOfCompressedContentIsNotSent() throws IOException {
+    when(servletResponse.getContentType()).thenReturn(JSON_CONTENT_TYPE);
+    String content = getContent(20000);
+    HttpServletResponse response = wrap("gzip");
+    response.setContentLength(content.length());
+    response.setHeader("Content-Length", Integer.toString(content.length()));
+    response.setIntHeader("Content-Length", content.length());
+    response.addIntHeader("content-length", content.length());
+    response.getWriter().write(content);
+    ((CompressingHttpServletResponse) response).finish();
+
+    verify(servletResponse, never()).setContentLength(anyInt());
+    verify(servletResponse, never()).setHeader(eq("Content-Length"), anyString());
+    verify(servletResponse, never()).setIntHeader(anyString(), anyInt());
+    verify(servletResponse, never()).addIntHeader(anyString(), anyInt());
+    assertThat(decompress(sentContent.toByteArray()), is(content));
+  }
+
+  @Test
+  public void flushedContentIsStreamed() throws IOException {
+    when(servletResponse.getContentType()).thenReturn(JSON_CONTENT_TYPE);
+    HttpServletResponse response = wrap("gzip");
+    PrintWriter writer = response.getWriter();
+    writer.write(getContent(100));
+    writer.flush();
+
+    assertThat(sentContent.size(), not(is(0)));
+    ((CompressingHttpServletResponse) response).finish();
+  }
+
+  private HttpServletResponse wrap(String acceptEncoding) {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getMethod()).thenReturn("GET");
+    when(request.getHeader("Accept-Encoding")).thenReturn(acceptEncoding);
+    return CompressingHttpServletResponse.wrap(request, servletResponse);
+  }
+
+  private void writeAndFinish(String content) throws IOException {
+    HttpServletResponse response = wrap("gzip");
+    response.getWriter().write(content);
+    ((CompressingHttpServletResponse) response).finish();
+  }
+
+  private String getContent(int length) {
+    return StringUtils.rightPad("{\"data\": [", length - 2, "{\"id\": 1}, ") + "]}";
+  }
+
+  private String decompress(byte[] content) throws IOException {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+      return IOUtils.toString(in, StandardCharsets.UTF_8);
+    }
+  }
+}
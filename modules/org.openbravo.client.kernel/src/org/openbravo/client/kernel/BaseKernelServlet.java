@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2009-2021 Openbravo SLU 
+ * All portions are Copyright (C) 2009-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -50,37 +50,46 @@ public abstract class BaseKernelServlet extends HttpSecureAppServlet {
   }
 
   @Override
-  public void service(final HttpServletRequest request, HttpServletResponse response)
+  public void service(final HttpServletRequest request, HttpServletResponse servletResponse)
       throws ServletException, IOException {
-    // encapsulate the response to catch any redirects
-    // redirects are done by the authentication manager
-    final KernelHttpServletResponse localResponse = new KernelHttpServletResponse(response);
-    RequestContext.get().setResponse(localResponse);
+    final HttpServletResponse response = CompressingHttpServletResponse.wrap(request,
+        servletResponse);
 
-    callServiceInSuper(request, localResponse);
+    try {
+      // encapsulate the response to catch any redirects
+      // redirects are done by the authentication manager
+      final KernelHttpServletResponse localResponse = new KernelHttpServletResponse(response);
+      RequestContext.get().setResponse(localResponse);
 
-    if (localResponse.isDoLogout()) {
-      logout(request, localResponse);
-    }
+      callServiceInSuper(request, localResponse);
+
+      if (localResponse.isDoLogout()) {
+        logout(request, localResponse);
+      }
 
-    if (localResponse.getRedirectTarget() != null) {
-      if (!response.isCommitted()) {
-        // get where the request originated
-        String referer = RequestContext.get().getRequest().getHeader("referer");
-        // if we can't get where the request originated, redirect to the Backoffice
-        if (referer == null) {
-          referer = localResponse.getRedirectTarget();
+      if (localResponse.getRedirectTarget() != null) {
+        if (!response.isCommitted()) {
+          // get where the request originated
+          String referer = RequestContext.get().getRequest().getHeader("referer");
+          // if we can't get where the request originated, redirect to the Backoffice
+          if (referer == null) {
+            referer = localResponse.getRedirectTarget();
+          }
+          // will this always work.... not if the writer is already closed
+          response.getWriter().write("window.location.href = '" + referer + "';");
+          response.setHeader("Content-Type", KernelConstants.JAVASCRIPT_CONTENTTYPE);
+          // prevent caching
+          response.setHeader(RESPONSE_HEADER_ETAG, "" + System.currentTimeMillis());
+          response.setDateHeader(RESPONSE_HEADER_LASTMODIFIED, System.currentTimeMillis());
+          response.setHeader(RESPONSE_HEADER_CACHE_CONTROL, RESPONSE_NO_CACHE);
         }
-        // will this always work.... not if the writer is already closed
-        response.getWriter().write("window.location.href = '" + referer + "';");
-        response.setHeader("Content-Type", KernelConstants.JAVASCRIPT_CONTENTTYPE);
-        // prevent caching
-        response.setHeader(RESPONSE_HEADER_ETAG, "" + System.currentTimeMillis());
-        response.setDateHeader(RESPONSE_HEADER_LASTMODIFIED, System.currentTimeMillis());
-        response.setHeader(RESPONSE_HEADER_CACHE_CONTROL, RESPONSE_NO_CACHE);
+      } else {
+        response.setStatus(200);
+      }
+    } finally {
+      if (response instanceof CompressingHttpServletResponse) {
+        ((CompressingHttpServletResponse) response).finish();
       }
-    } else {
-      response.setStatus(200);
     }
   }
 
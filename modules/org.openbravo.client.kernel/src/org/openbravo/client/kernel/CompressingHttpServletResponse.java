@@ -0,0 +1,398 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.kernel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.session.OBPropertiesProvider;
+
+/**
+ * A response that compresses with gzip its content when the client accepts it, the content type is
+ * one of the configured compressible types and the content is bigger than a configurable size.
+ * 
+ * The content is kept in memory until that size is reached, from then on it is compressed and
+ * streamed to the client as it is written. Smaller contents are sent uncompressed. The following
+ * properties in Openbravo.properties tune it:
+ * <ul>
+ * <li>{@code response.compression.enabled}: whether responses are compressed, true by default.
+ * <li>{@code response.compression.minSize}: minimum size in bytes of the compressed contents.
+ * <li>{@code response.compression.contentTypes}: comma separated list of compressible types.
+ * </ul>
+ * 
+ * {@link #finish()} must be invoked once the response has been completely written.
+ */
+public class CompressingHttpServletResponse extends HttpServletResponseWrapper {
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String ENABLED_PROPERTY = "response.compression.enabled";
+  private static final String MIN_SIZE_PROPERTY = "response.compression.minSize";
+  private static final String CONTENT_TYPES_PROPERTY = "response.compression.contentTypes";
+  private static final int DEFAULT_MIN_SIZE = 1024;
+  private static final String DEFAULT_CONTENT_TYPES = "application/json,application/javascript,"
+      + "text/javascript,text/css,text/html,text/plain,text/xml,text/csv";
+  private static final String GZIP = "gzip";
+
+  private static Settings settings;
+
+  private CompressingOutputStream outputStream;
+  private PrintWriter writer;
+
+  /**
+   * Wraps a response so its content is compressed, if compression is enabled and the request
+   * accepts gzip encoded contents.
+   * 
+   * @param request
+   *          the request being served
+   * @param response
+   *          the response to wrap
+   * @return a {@code CompressingHttpServletResponse} wrapping the response, or the response itself
+   *         if it cannot be compressed
+   */
+  public static HttpServletResponse wrap(HttpServletRequest request,
+      HttpServletResponse response) {
+    if (!getSettings().enabled || !acceptsGzip(request.getHeader("Accept-Encoding"))
+        || "HEAD".equals(request.getMethod())) {
+      return response;
+    }
+    return new CompressingHttpServletResponse(response);
+  }
+
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      String name = parts[0].trim();
+      if (!GZIP.equalsIgnoreCase(name) && !"*".equals(name)) {
+        continue;
+      }
+      for (int i = 1; i < parts.length; i++) {
+        String parameter = parts[i].replace(" ", "");
+        if (parameter.startsWith("q=") && parameter.substring(2).matches("0(\\.0*)?")) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static Settings getSettings() {
+    if (settings == null) {
+      settings = new Settings(OBPropertiesProvider.getInstance().getOpenbravoProperties());
+    }
+    return settings;
+  }
+
+  CompressingHttpServletResponse(HttpServletResponse response) {
+    super(response);
+  }
+
+  @Override
+  public ServletOutputStream getOutputStream() throws IOException {
+    if (writer != null) {
+      throw new IllegalStateException("getWriter() has already been called for this response");
+    }
+    return getCompressingOutputStream();
+  }
+
+  @Override
+  public PrintWriter getWriter() throws IOException {
+    if (writer == null) {
+      if (outputStream != null) {
+        throw new IllegalStateException(
+            "getOutputStream() has already been called for this response");
+      }
+      final CompressingOutputStream stream = getCompressingOutputStream();
+      writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding())) {
+        @Override
+        public void close() {
+          // the writer flushes the stream before closing it, this must not be taken as a request
+          // to start sending the content
+          stream.closing = true;
+          super.close();
+        }
+      };
+    }
+    return writer;
+  }
+
+  private CompressingOutputStream getCompressingOutputStream() {
+    if (outputStream == null) {
+      outputStream = new CompressingOutputStream(getSettings().minSize);
+    }
+    return outputStream;
+  }
+
+  @Override
+  public void setContentLength(int len) {
+    // the length is set when the content is not compressed once it is completely written
+  }
+
+  @Override
+  public void setContentLengthLong(long len) {
+    // the length is set when the content is not compressed once it is completely written
+  }
+
+  @Override
+  public void setHeader(String name, String value) {
+    if (!"Content-Length".equalsIgnoreCase(name)) {
+      super.setHeader(name, value);
+    }
+  }
+
+  @Override
+  public void addHeader(String name, String value) {
+    if (!"Content-Length".equalsIgnoreCase(name)) {
+      super.addHeader(name, value);
+    }
+  }
+
+  @Override
+  public void setIntHeader(String name, int value) {
+    if (!"Content-Length".equalsIgnoreCase(name)) {
+      super.setIntHeader(name, value);
+    }
+  }
+
+  @Override
+  public void addIntHeader(String name, int value) {
+    if (!"Content-Length".equalsIgnoreCase(name)) {
+      super.addIntHeader(name, value);
+    }
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+    if (writer != null) {
+      writer.flush();
+    } else if (outputStream != null) {
+      outputStream.flush();
+    }
+    super.flushBuffer();
+  }
+
+  @Override
+  public void resetBuffer() {
+    super.resetBuffer();
+    if (outputStream != null) {
+      outputStream.resetBuffer();
+    }
+  }
+
+  @Override
+  public void reset() {
+    super.reset();
+    if (outputStream != null) {
+      outputStream.resetBuffer();
+    }
+  }
+
+  /**
+   * Completes the response: sends the content still kept in memory or finishes the compressed
+   * stream. Nothing can be written to the response afterwards.
+   * 
+   * @throws IOException
+   *           if the content cannot be written
+   */
+  public void finish() throws IOException {
+    if (writer != null) {
+      writer.close();
+    } else if (outputStream != null) {
+      outputStream.close();
+    }
+  }
+
+  private boolean isCompressible() {
+    if (containsHeader("Content-Encoding")) {
+      return false;
+    }
+    int status = getStatus();
+    if (status == SC_NO_CONTENT || status == SC_NOT_MODIFIED) {
+      return false;
+    }
+    String contentType = getContentType();
+    if (contentType == null) {
+      return false;
+    }
+    String mimeType = StringUtils.substringBefore(contentType, ";").trim().toLowerCase(Locale.ROOT);
+    return getSettings().contentTypes.contains(mimeType);
+  }
+
+  /**
+   * Keeps the content in memory until the minimum size is reached, and then decides whether it is
+   * compressed or not.
+   */
+  private class CompressingOutputStream extends ServletOutputStream {
+    private final int minSize;
+    private ByteArrayOutputStream buffer;
+    private OutputStream target;
+    private boolean closing;
+    private boolean closed;
+
+    private CompressingOutputStream(int minSize) {
+      this.minSize = minSize;
+      buffer = new ByteArrayOutputStream(Math.min(minSize, 8192));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (closed) {
+        throw new IOException("The response has already been completed");
+      }
+      if (target == null) {
+        if (buffer.size() + len <= minSize) {
+          buffer.write(b, off, len);
+          return;
+        }
+        startStreaming(isCompressible());
+      }
+      target.write(b, off, len);
+    }
+
+    private void startStreaming(boolean compress) throws IOException {
+      ServletOutputStream responseStream = getResponse().getOutputStream();
+      if (compress) {
+        CompressingHttpServletResponse.super.setHeader("Content-Encoding", GZIP);
+        CompressingHttpServletResponse.super.addHeader("Vary", "Accept-Encoding");
+        target = new GZIPOutputStream(responseStream, 8192, true);
+      } else {
+        target = responseStream;
+      }
+      buffer.writeTo(target);
+      buffer = null;
+    }
+
+    private void resetBuffer() {
+      if (target != null) {
+        throw new IllegalStateException("The response content has already been sent");
+      }
+      buffer.reset();
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (closed || closing) {
+        return;
+      }
+      if (target == null) {
+        startStreaming(isCompressible());
+      }
+      target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (target == null) {
+        // small content, it is sent uncompressed with its length
+        getResponse().setContentLength(buffer.size());
+        ServletOutputStream responseStream = getResponse().getOutputStream();
+        buffer.writeTo(responseStream);
+        responseStream.close();
+        buffer = null;
+        return;
+      }
+      target.close();
+    }
+
+    @Override
+    public boolean isReady() {
+      try {
+        return getResponse().getOutputStream().isReady();
+      } catch (IOException e) {
+        log.error("Could not check whether the response is ready", e);
+        return false;
+      }
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      try {
+        getResponse().getOutputStream().setWriteListener(writeListener);
+      } catch (IOException e) {
+        log.error("Could not set the write listener of the response", e);
+      }
+    }
+  }
+
+  private static class Settings {
+    private final boolean enabled;
+    private final int minSize;
+    private final Set<String> contentTypes;
+
+    private Settings(Properties properties) {
+      String enabledValue = properties != null ? properties.getProperty(ENABLED_PROPERTY) : null;
+      enabled = enabledValue == null || "true".equalsIgnoreCase(enabledValue.trim())
+          || "yes".equalsIgnoreCase(enabledValue.trim());
+      minSize = getMinSize(properties != null ? properties.getProperty(MIN_SIZE_PROPERTY) : null);
+      String types = properties != null
+          ? properties.getProperty(CONTENT_TYPES_PROPERTY, DEFAULT_CONTENT_TYPES)
+          : DEFAULT_CONTENT_TYPES;
+      Set<String> typeSet = new HashSet<>();
+      for (String type : types.split(",")) {
+        if (StringUtils.isNotBlank(type)) {
+          typeSet.add(type.trim().toLowerCase(Locale.ROOT));
+        }
+      }
+      contentTypes = Collections.unmodifiableSet(typeSet);
+    }
+
+    private static int getMinSize(String value) {
+      if (value == null) {
+        return DEFAULT_MIN_SIZE;
+      }
+      try {
+        return Math.max(0, Integer.parseInt(value.trim()));
+      } catch (NumberFormatException e) {
+        log.warn("Wrong value {} for property {}, using the default {}", value, MIN_SIZE_PROPERTY,
+            DEFAULT_MIN_SIZE);
+        return DEFAULT_MIN_SIZE;
+      }
+    }
+  }
+}
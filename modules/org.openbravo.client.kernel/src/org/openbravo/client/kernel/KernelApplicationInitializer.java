@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2011-2018 Openbravo SLU 
+ * All portions are Copyright (C) 2011-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -20,17 +20,25 @@ package org.openbravo.client.kernel;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Properties;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.openbravo.base.expression.OBScriptEngine;
+import org.openbravo.base.secureApp.SessionAccessCache;
+import org.openbravo.base.session.OBPropertiesProvider;
 import org.openbravo.client.application.report.JmxReportCache;
 import org.openbravo.client.application.window.ApplicationDictionaryCachedStructures;
 import org.openbravo.client.application.window.JmxApplicationDictionaryCachedStructures;
+import org.openbravo.client.application.window.JmxGeneratedViewCache;
+import org.openbravo.client.kernel.event.EntityPersistenceEventDispatcher;
 import org.openbravo.dal.service.OBDal;
 import org.openbravo.erpCommon.utility.DateTimeData;
+import org.openbravo.erpCommon.utility.MessageBDCache;
+import org.openbravo.jmx.ExtensionInstrumentation;
 import org.openbravo.jmx.MBeanRegistry;
 import org.openbravo.model.ad.system.SystemInformation;
 import org.openbravo.service.db.DalConnectionProvider;
@@ -48,6 +56,14 @@ public class KernelApplicationInitializer implements ApplicationInitializer {
   private static final String javaDateTimeFormat = "dd-MM-yyyy HH:mm:ss";
   private static final long THRESHOLD = 5000; // 5 seconds
   private static final String PRODUCTION_INSTANCE = "P";
+  private static final String MESSAGE_CACHE_TTL_PROPERTY = "message.cache.timeToLive";
+  private static final long DEFAULT_MESSAGE_CACHE_TTL = 300; // 5 minutes
+  private static final String SESSION_CACHE_TTL_PROPERTY = "session.cache.timeToLive";
+  private static final long DEFAULT_SESSION_CACHE_TTL = 10; // 10 seconds
+  private static final String ACCESS_CACHE_TTL_PROPERTY = "access.cache.timeToLive";
+  private static final long DEFAULT_ACCESS_CACHE_TTL = 300; // 5 minutes
+  private static final String INSTRUMENTATION_PROPERTY = "extension.instrumentation.enabled";
+  private static final String INSTRUMENTATION_LOG_PROP = "extension.instrumentation.logInterval";
 
   @Inject
   private StaticResourceProvider resourceProvider;
@@ -61,13 +77,66 @@ public class KernelApplicationInitializer implements ApplicationInitializer {
   @Inject
   private JmxApplicationDictionaryCachedStructures adcsJmx;
 
+  @Inject
+  private JmxGeneratedViewCache viewCacheJmx;
+
+  @Inject
+  private EntityPersistenceEventDispatcher entityEventDispatcher;
+
   @Override
   public void initialize() {
     checkDatabaseAndTomcatDateTime();
+    enableMessageCache();
+    enableSessionAccessCache();
+    configureExtensionInstrumentation();
     registerMBeans();
     setModulesAsNotInDevelopment();
   }
 
+  private void enableMessageCache() {
+    long timeToLive = getLongProperty(MESSAGE_CACHE_TTL_PROPERTY, DEFAULT_MESSAGE_CACHE_TTL);
+    if (timeToLive > 0) {
+      MessageBDCache.getInstance().enable(timeToLive);
+    }
+  }
+
+  private void enableSessionAccessCache() {
+    long sessionTimeToLive = getLongProperty(SESSION_CACHE_TTL_PROPERTY, DEFAULT_SESSION_CACHE_TTL);
+    if (sessionTimeToLive > 0) {
+      SessionAccessCache.getInstance().enableSessionCache(sessionTimeToLive);
+    }
+    long accessTimeToLive = getLongProperty(ACCESS_CACHE_TTL_PROPERTY, DEFAULT_ACCESS_CACHE_TTL);
+    if (accessTimeToLive > 0) {
+      SessionAccessCache.getInstance().enableAccessCache(accessTimeToLive);
+    }
+  }
+
+  private void configureExtensionInstrumentation() {
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    if (properties != null && "true".equals(properties.getProperty(INSTRUMENTATION_PROPERTY))) {
+      ExtensionInstrumentation.getInstance().setEnabled(true);
+    }
+    long logInterval = getLongProperty(INSTRUMENTATION_LOG_PROP, 0);
+    if (logInterval > 0) {
+      ExtensionInstrumentation.getInstance().setLogInterval(logInterval);
+    }
+  }
+
+  private long getLongProperty(String property, long defaultValue) {
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    String value = properties != null ? properties.getProperty(property) : null;
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      log4j.warn("Wrong value {} for property {}, using the default {}", value, property,
+          defaultValue);
+      return defaultValue;
+    }
+  }
+
   private void checkDatabaseAndTomcatDateTime() {
     // This method checks if both Tomcat and DB are configured to use the same time. If there
     // is a difference bigger than a few seconds, it logs a warning.
@@ -107,6 +176,13 @@ public class KernelApplicationInitializer implements ApplicationInitializer {
     MBeanRegistry.registerMBean(KernelConstants.RESOURCE_COMPONENT_ID, resourceProvider);
     MBeanRegistry.registerMBean(JmxReportCache.MBEAN_NAME, reportCache);
     MBeanRegistry.registerMBean(JmxApplicationDictionaryCachedStructures.MBEAN_NAME, adcsJmx);
+    MBeanRegistry.registerMBean(JmxGeneratedViewCache.MBEAN_NAME, viewCacheJmx);
+    MBeanRegistry.registerMBean(MessageBDCache.MBEAN_NAME, MessageBDCache.getInstance());
+    MBeanRegistry.registerMBean(SessionAccessCache.MBEAN_NAME, SessionAccessCache.getInstance());
+    MBeanRegistry.registerMBean(EntityPersistenceEventDispatcher.MBEAN_NAME, entityEventDispatcher);
+    MBeanRegistry.registerMBean(ExtensionInstrumentation.MBEAN_NAME,
+        ExtensionInstrumentation.getInstance());
+    MBeanRegistry.registerMBean(OBScriptEngine.MBEAN_NAME, OBScriptEngine.getInstance());
   }
 
   private void setModulesAsNotInDevelopment() {
@@ -11,7 +11,7 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2010-2020 Openbravo SLU
+ * All portions are Copyright (C) 2010-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -19,8 +19,14 @@
 package org.openbravo.client.kernel;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Instance;
@@ -329,6 +335,7 @@ public class StaticResourceComponent extends BaseComponent {
         log.debug(
             "Resource " + outFile + " already existed, keeping it. Size - " + output.length());
       }
+      writeCompressedFile(outFile, output);
 
       if (!isInDevelopment()) {
         resourceProvider.putStaticResourceCachedInfo(appName, md5);
@@ -337,4 +344,26 @@ public class StaticResourceComponent extends BaseComponent {
       return md5;
     }
   }
+
+  /**
+   * Writes next to the generated file its gzip compressed version, so it can be served directly to
+   * the clients accepting it, without compressing it on every request.
+   */
+  private void writeCompressedFile(File outFile, String output) {
+    final File gzFile = new File(outFile.getPath() + ".gz");
+    if (gzFile.exists()) {
+      return;
+    }
+    final File tmpFile = new File(outFile.getPath() + ".gz.tmp");
+    try {
+      try (OutputStream out = new GZIPOutputStream(new FileOutputStream(tmpFile))) {
+        out.write(output.getBytes(StandardCharsets.UTF_8));
+      }
+      Files.move(tmpFile.toPath(), gzFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception e) {
+      log.error("Error writing compressed file: " + e.getMessage(), e);
+      FileUtils.deleteQuietly(tmpFile);
+    }
+  }
 }
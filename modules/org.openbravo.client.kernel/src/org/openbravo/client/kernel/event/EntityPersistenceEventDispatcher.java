@@ -0,0 +1,259 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.kernel.event;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.ObserverMethod;
+import javax.inject.Inject;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.weld.WeldUtils;
+import org.openbravo.dal.core.TriggerHandler;
+import org.openbravo.jmx.ExtensionInstrumentation;
+import org.openbravo.jmx.ExtensionInstrumentation.ExtensionType;
+import org.openbravo.jmx.ExtensionInstrumentation.Measurement;
+
+/**
+ * Delivers the {@link EntityPersistenceEvent}s to the observers which handle the entity of the
+ * event instead of firing them to all the observers of the event type.
+ * 
+ * The observers of each event type are resolved once and indexed by the entities returned by
+ * {@link EntityPersistenceEventObserver#getObservedEntities()}. Observers which are not an
+ * {@link EntityPersistenceEventObserver} or which override
+ * {@link EntityPersistenceEventObserver#isValidEvent(EntityPersistenceEvent)} can accept any
+ * entity, so they always receive the events. The observers are notified in the same order that CDI
+ * would use and the time spent by each of them is measured and exposed through JMX.
+ */
+@ApplicationScoped
+public class EntityPersistenceEventDispatcher implements EntityPersistenceEventDispatcherMBean {
+  public static final String MBEAN_NAME = "EntityPersistenceEventDispatcher";
+
+  private static final Logger log = LogManager.getLogger();
+
+  @Inject
+  private BeanManager beanManager;
+
+  @Inject
+  private WeldUtils weldUtils;
+
+  private final Map<Class<?>, ObserverIndex> indexes = new ConcurrentHashMap<>();
+  private final LongAdder dispatchedEvents = new LongAdder();
+  private final LongAdder skippedNotifications = new LongAdder();
+
+  /**
+   * Notifies the event to the observers of its type which handle the entity of its target instance.
+   * 
+   * @param event
+   *          the persistence event to dispatch
+   */
+  public void dispatch(EntityPersistenceEvent event) {
+    ObserverIndex index = getIndex(event);
+    List<IndexedObserver> observers;
+    if (TriggerHandler.getInstance().isDisabled()) {
+      // the indexed observers discard all the events while the triggers are disabled
+      observers = index.unindexedObservers;
+    } else {
+      observers = index.getObservers(event.getTargetInstance().getEntity());
+    }
+    dispatchedEvents.increment();
+    skippedNotifications.add(index.observerCount - observers.size());
+    for (IndexedObserver observer : observers) {
+      observer.notify(event);
+    }
+  }
+
+  private ObserverIndex getIndex(EntityPersistenceEvent event) {
+    ObserverIndex index = indexes.get(event.getClass());
+    if (index == null) {
+      // not using computeIfAbsent: instantiating the observers could dispatch other events
+      index = buildIndex(event);
+      ObserverIndex currentIndex = indexes.putIfAbsent(event.getClass(), index);
+      if (currentIndex != null) {
+        index = currentIndex;
+      }
+    }
+    return index;
+  }
+
+  private ObserverIndex buildIndex(EntityPersistenceEvent event) {
+    List<ObserverMethod<? super EntityPersistenceEvent>> observerMethods = new ArrayList<>(
+        beanManager.resolveObserverMethods(event));
+    // stable sort, observers with the same priority keep the order resolved by CDI
+    observerMethods.sort(Comparator.comparingInt(ObserverMethod::getPriority));
+
+    String eventType = event.getClass().getSimpleName();
+    List<IndexedObserver> observers = new ArrayList<>(observerMethods.size());
+    for (ObserverMethod<? super EntityPersistenceEvent> observerMethod : observerMethods) {
+      Class<?> beanClass = observerMethod.getBeanClass();
+      observers.add(new IndexedObserver(observerMethod,
+          beanClass.getName() + " (" + eventType + ")", getObservedEntityNames(beanClass)));
+    }
+    log.debug("Indexed {} observers of {}", observers.size(), eventType);
+    return new ObserverIndex(observers);
+  }
+
+  /**
+   * Returns the names of the entities observed by the given bean class or null if it can receive
+   * events of any entity.
+   */
+  private Set<String> getObservedEntityNames(Class<?> beanClass) {
+    if (!EntityPersistenceEventObserver.class.isAssignableFrom(beanClass)
+        || overridesIsValidEvent(beanClass)) {
+      return null;
+    }
+    try {
+      EntityPersistenceEventObserver observer = (EntityPersistenceEventObserver) weldUtils
+          .getInstance(beanClass);
+      Entity[] observedEntities = observer.getObservedEntities();
+      if (observedEntities == null) {
+        return null;
+      }
+      return Arrays.stream(observedEntities).map(Entity::getName).collect(Collectors.toSet());
+    } catch (Exception e) {
+      log.warn("Could not get the entities observed by {}, it will receive all the events",
+          beanClass.getName(), e);
+      return null;
+    }
+  }
+
+  private boolean overridesIsValidEvent(Class<?> beanClass) {
+    for (Class<?> clz = beanClass; clz != EntityPersistenceEventObserver.class; clz = clz
+        .getSuperclass()) {
+      for (Method method : clz.getDeclaredMethods()) {
+        if ("isValidEvent".equals(method.getName())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public long getDispatchedEventCount() {
+    return dispatchedEvents.sum();
+  }
+
+  @Override
+  public long getSkippedNotificationCount() {
+    return skippedNotifications.sum();
+  }
+
+  @Override
+  public String[] getObserverStatistics() {
+    return indexes.values()
+        .stream()
+        .flatMap(index -> index.observers.stream())
+        .filter(observer -> observer.invocations.sum() > 0)
+        .sorted(Comparator.comparingLong((IndexedObserver observer) -> observer.time.sum())
+            .reversed())
+        .map(IndexedObserver::getStatistics)
+        .toArray(String[]::new);
+  }
+
+  @Override
+  public void resetStatistics() {
+    dispatchedEvents.reset();
+    skippedNotifications.reset();
+    for (ObserverIndex index : indexes.values()) {
+      for (IndexedObserver observer : index.observers) {
+        observer.invocations.reset();
+        observer.time.reset();
+      }
+    }
+  }
+
+  @Override
+  public void rebuildIndexes() {
+    indexes.clear();
+  }
+
+  /** The observers of an event type, in notification order. */
+  private static class ObserverIndex {
+    private final List<IndexedObserver> observers;
+    private final List<IndexedObserver> unindexedObservers;
+    private final int observerCount;
+    private final Map<String, List<IndexedObserver>> observersByEntity = new ConcurrentHashMap<>();
+
+    private ObserverIndex(List<IndexedObserver> observers) {
+      this.observers = observers;
+      this.observerCount = observers.size();
+      this.unindexedObservers = Collections.unmodifiableList(observers.stream()
+          .filter(observer -> observer.entityNames == null)
+          .collect(Collectors.toList()));
+    }
+
+    private List<IndexedObserver> getObservers(Entity entity) {
+      return observersByEntity.computeIfAbsent(entity.getName(),
+          entityName -> Collections.unmodifiableList(observers.stream()
+              .filter(observer -> observer.entityNames == null
+                  || observer.entityNames.contains(entityName))
+              .collect(Collectors.toList())));
+    }
+  }
+
+  /** An observer method together with the entities it handles and its invocation statistics. */
+  private static class IndexedObserver {
+    private final ObserverMethod<? super EntityPersistenceEvent> observerMethod;
+    private final String name;
+    private final Set<String> entityNames;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder time = new LongAdder();
+
+    private IndexedObserver(ObserverMethod<? super EntityPersistenceEvent> observerMethod,
+        String name, Set<String> entityNames) {
+      this.observerMethod = observerMethod;
+      this.name = name;
+      this.entityNames = entityNames;
+    }
+
+    private void notify(EntityPersistenceEvent event) {
+      long start = System.nanoTime();
+      try (Measurement measurement = ExtensionInstrumentation.getInstance()
+          .start(ExtensionType.EVENT_HANDLER, observerMethod.getBeanClass())) {
+        observerMethod.notify(event);
+      } finally {
+        time.add(System.nanoTime() - start);
+        invocations.increment();
+      }
+    }
+
+    private String getStatistics() {
+      long count = invocations.sum();
+      double totalMillis = (double) time.sum() / TimeUnit.MILLISECONDS.toNanos(1);
+      return String.format("%s: %d invocations, %.3f ms total, %.3f ms average", name, count,
+          totalMillis, totalMillis / count);
+    }
+  }
+}
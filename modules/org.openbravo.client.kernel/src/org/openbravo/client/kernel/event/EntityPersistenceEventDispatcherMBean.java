@@ -0,0 +1,40 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.kernel.event;
+
+/** Exposes the statistics of the {@link EntityPersistenceEventDispatcher} as a JMX Bean. */
+public interface EntityPersistenceEventDispatcherMBean {
+
+  /** Number of entity persistence events dispatched to the observers. */
+  long getDispatchedEventCount();
+
+  /** Number of observer invocations avoided because the observer does not handle the entity. */
+  long getSkippedNotificationCount();
+
+  /**
+   * Invocation count and time spent by each observer, sorted by the total time in descending order.
+   */
+  String[] getObserverStatistics();
+
+  /** Resets the invocation counters and times of all the observers. */
+  void resetStatistics();
+
+  /** Discards the observer indexes, they are built again when the next events are dispatched. */
+  void rebuildIndexes();
+}
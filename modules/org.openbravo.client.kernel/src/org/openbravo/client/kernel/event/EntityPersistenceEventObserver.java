@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2011-2019 Openbravo SLU 
+ * All portions are Copyright (C) 2011-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -32,7 +32,10 @@ import org.openbravo.dal.core.TriggerHandler;
 public abstract class EntityPersistenceEventObserver {
 
   /**
-   * Must be implemented by subclass to signal which {@link Entity} types are observed.
+   * Must be implemented by subclass to signal which {@link Entity} types are observed. Unless
+   * {@link #isValidEvent(EntityPersistenceEvent)} is overridden, the
+   * {@link EntityPersistenceEventDispatcher} reads them once to decide which events are delivered
+   * to this observer, so the returned entities should not change.
    * 
    * @return the array of entity instances to observe.
    * @see #isValidEvent(EntityPersistenceEvent)
@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2011-2012 Openbravo SLU 
+ * All portions are Copyright (C) 2011-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -31,7 +31,8 @@ import org.openbravo.base.structure.BaseOBObject;
 import org.openbravo.base.structure.Traceable;
 
 /**
- * The interceptor which listens to persistence events and passes them on to observers.
+ * The interceptor which listens to persistence events and passes them on to observers. The entity
+ * events are delivered through the {@link EntityPersistenceEventDispatcher}.
  * 
  * @author mtaal
  */
@@ -41,13 +42,7 @@ public class PersistenceEventOBInterceptor extends EmptyInterceptor {
   private static final long serialVersionUID = 1L;
 
   @Inject
-  private Event<EntityNewEvent> entityNewEventProducer;
-
-  @Inject
-  private Event<EntityUpdateEvent> entityUpdateEventProducer;
-
-  @Inject
-  private Event<EntityDeleteEvent> entityDeleteEventProducer;
+  private EntityPersistenceEventDispatcher entityEventDispatcher;
 
   @Inject
   private Event<TransactionBeginEvent> transactionBeginEventProducer;
@@ -64,7 +59,7 @@ public class PersistenceEventOBInterceptor extends EmptyInterceptor {
     entityEvent.setCurrentState(state);
     entityEvent.setTypes(types);
     entityEvent.setId((String) id);
-    entityDeleteEventProducer.fire(entityEvent);
+    entityEventDispatcher.dispatch(entityEvent);
   }
 
   @Override
@@ -91,7 +86,7 @@ public class PersistenceEventOBInterceptor extends EmptyInterceptor {
     entityEvent.setCurrentState(state);
     entityEvent.setTypes(types);
     entityEvent.setId((String) id);
-    entityNewEventProducer.fire(entityEvent);
+    entityEventDispatcher.dispatch(entityEvent);
     return entityEvent.isStateUpdated();
   }
 
@@ -104,7 +99,7 @@ public class PersistenceEventOBInterceptor extends EmptyInterceptor {
     entityEvent.setPreviousState(previousState);
     entityEvent.setTypes(types);
     entityEvent.setId((String) id);
-    entityUpdateEventProducer.fire(entityEvent);
+    entityEventDispatcher.dispatch(entityEvent);
     return entityEvent.isStateUpdated();
   }
 
@@ -11,7 +11,7 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2010-2023 Openbravo SLU
+ * All portions are Copyright (C) 2010-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -33,7 +33,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
+import javax.inject.Inject;
 import javax.persistence.Tuple;
 import javax.persistence.TupleElement;
 
@@ -65,6 +67,7 @@ import org.openbravo.client.kernel.reference.YesNoUIDefinition;
 import org.openbravo.client.myob.WidgetClass;
 import org.openbravo.client.myob.WidgetInstance;
 import org.openbravo.client.myob.WidgetReference;
+import org.openbravo.client.querylist.QueryListResultCache.ResultKey;
 import org.openbravo.dal.core.OBContext;
 import org.openbravo.dal.service.OBCriteria;
 import org.openbravo.dal.service.OBDal;
@@ -93,6 +96,9 @@ public class QueryListDataSource extends ReadOnlyDataSourceService implements Po
   private static final Logger log = LogManager.getLogger();
   private static final String OPERATOR = "$OPERATOR";
 
+  @Inject
+  private QueryListResultCache resultCache;
+
   @Override
   public void checkFetchDatasourceAccess(Map<String, String> parameters) {
     // Check security: continue only if the widget instance is visible for current user/role
@@ -157,10 +163,6 @@ public class QueryListDataSource extends ReadOnlyDataSourceService implements Po
   @Override
   protected List<Map<String, Object>> getData(Map<String, String> parameters, int startRow,
       int endRow) {
-    // creation of formats is done here because they are not thread safe
-    final SimpleDateFormat xmlDateFormat = JsonUtils.createDateFormat();
-    final SimpleDateFormat xmlDateTimeFormat = JsonUtils.createDateTimeFormat();
-
     OBContext.setAdminMode();
     try {
       WidgetClass widgetClass = OBDal.getInstance()
@@ -188,141 +190,178 @@ public class QueryListDataSource extends ReadOnlyDataSourceService implements Po
       OBCQL_WidgetQuery widgetQueryInstance = widgetClass.getOBCQLWidgetQueryList().get(0);
       String HQL = widgetQueryInstance.getHQL();
       // Parse the HQL in case that optional filters are required
-      HQL = parseOptionalFilters(HQL, viewMode, parameters, columns, xmlDateFormat);
-      boolean fetchingSummaryFields = parameters.containsKey(JsonConstants.SUMMARY_PARAMETER);
-      if (fetchingSummaryFields) {
+      HQL = parseOptionalFilters(HQL, viewMode, parameters, columns,
+          JsonUtils.createDateFormat());
+      String summaryParameter = parameters.get(JsonConstants.SUMMARY_PARAMETER);
+      if (summaryParameter != null) {
         // if the request comes from the summary row, update the select clause so that it obtains
         // the values for the summary fields
-        HQL = updateHQLWithSummaryFields(HQL, parameters.get(JsonConstants.SUMMARY_PARAMETER),
-            widgetQueryInstance);
+        HQL = updateHQLWithSummaryFields(HQL, summaryParameter, widgetQueryInstance);
       }
 
       if (parameters.containsKey(JsonConstants.SORTBY_PARAMETER)) {
         HQL = updateSortByFields(HQL, parameters.get(JsonConstants.SORTBY_PARAMETER));
       }
 
-      Query<Tuple> widgetQuery = null;
-      try {
-        widgetQuery = OBDal.getInstance().getSession().createQuery(HQL, Tuple.class);
-      } catch (Exception e) {
-        if (fetchingSummaryFields) {
-          log.error("Exception while fetching the summary columns of the widget "
-              + widgetClass.getWidgetTitle()
-              + ". It is not supported using as summaries columns that are defined using a subquery, or that are defined using a summary function. \n Query = "
-              + HQL);
-        } else {
-          log.error("Exception while executing the HQL query to fetch the data of the widget "
-              + widgetClass.getWidgetTitle() + ". \n Query = " + HQL);
-        }
-        final List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
-        return result;
-      }
-
+      final Integer firstResult;
+      final Integer maxResults;
       if (!isExport && "widget".equals(viewMode) && !showAll) {
-        int rowsNumber = Integer.parseInt(
+        firstResult = null;
+        maxResults = Integer.parseInt(
             (parameters.get("rowsNumber") != null && !parameters.get("rowsNumber").equals("null"))
                 ? parameters.get("rowsNumber")
                 : "10");
-        widgetQuery.setMaxResults(rowsNumber);
       } else if (!isExport) {
-        if (startRow > 0) {
-          widgetQuery.setFirstResult(startRow);
-        }
-        if (endRow > startRow) {
-          widgetQuery.setMaxResults(endRow - startRow + 1);
-        }
+        firstResult = startRow > 0 ? startRow : null;
+        maxResults = endRow > startRow ? endRow - startRow + 1 : null;
+      } else {
+        firstResult = null;
+        maxResults = null;
       }
 
-      Set<String> params = widgetQuery.getParameterMetadata().getNamedParameterNames();
-      if (!params.isEmpty()) {
+      String widgetClassId = widgetClass.getId();
+      String widgetHQL = HQL;
+      if (!isExport && resultCache.isCached(widgetClassId)
+          && parameters.containsKey("serializedParameters")) {
+        // the parameter values are part of the key, so they are resolved before the query is
+        // created
         HashMap<String, Object> parameterValues = getParameterValues(parameters, widgetClass);
+        ResultKey key = new ResultKey(widgetClassId, widgetHQL, parameterValues, firstResult,
+            maxResults, summaryParameter, () -> executeQuery(widgetClassId, widgetHQL,
+                () -> parameterValues, firstResult, maxResults, summaryParameter, false));
+        // the result is copied as it can be sorted
+        return new ArrayList<>(resultCache.getData(key));
+      }
+      return executeQuery(widgetClassId, widgetHQL,
+          () -> getParameterValues(parameters, widgetClass), firstResult, maxResults,
+          summaryParameter, isExport);
+    } finally {
+      OBContext.restorePreviousMode();
+    }
+  }
 
-        for (String namedParam : params) {
-          boolean isParamSet = false;
-          if (parameterValues.containsKey(namedParam)) {
-            Object value = parameterValues.get(namedParam);
-            if (value instanceof Collection<?>) {
-              widgetQuery.setParameterList(namedParam, (Collection<?>) value);
-            } else if (value instanceof Object[]) {
-              widgetQuery.setParameterList(namedParam, (Object[]) value);
-            } else if (value instanceof String
-                && isDate(namedParam, widgetClass.getOBUIAPPParameterEMObkmoWidgetClassIDList())) {
-              widgetQuery.setParameter(namedParam, convertToDate((String) value));
-            } else {
-              widgetQuery.setParameter(namedParam, value);
-            }
-            isParamSet = true;
-          }
-          if (!isParamSet) {
-            // TODO: throw an exception
+  private List<Map<String, Object>> executeQuery(String widgetClassId, String HQL,
+      Supplier<HashMap<String, Object>> parameterValuesSupplier, Integer firstResult,
+      Integer maxResults, String summaryParameter, boolean isExport) {
+    // creation of formats is done here because they are not thread safe
+    final SimpleDateFormat xmlDateFormat = JsonUtils.createDateFormat();
+    final SimpleDateFormat xmlDateTimeFormat = JsonUtils.createDateTimeFormat();
+
+    WidgetClass widgetClass = OBDal.getInstance().get(WidgetClass.class, widgetClassId);
+    List<OBCQL_QueryColumn> columns = QueryListUtils
+        .getColumns(widgetClass.getOBCQLWidgetQueryList().get(0));
+    boolean fetchingSummaryFields = summaryParameter != null;
+
+    Query<Tuple> widgetQuery = null;
+    try {
+      widgetQuery = OBDal.getInstance().getSession().createQuery(HQL, Tuple.class);
+    } catch (Exception e) {
+      if (fetchingSummaryFields) {
+        log.error("Exception while fetching the summary columns of the widget "
+            + widgetClass.getWidgetTitle()
+            + ". It is not supported using as summaries columns that are defined using a subquery, or that are defined using a summary function. \n Query = "
+            + HQL);
+      } else {
+        log.error("Exception while executing the HQL query to fetch the data of the widget "
+            + widgetClass.getWidgetTitle() + ". \n Query = " + HQL);
+      }
+      final List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
+      return result;
+    }
+
+    if (firstResult != null) {
+      widgetQuery.setFirstResult(firstResult);
+    }
+    if (maxResults != null) {
+      widgetQuery.setMaxResults(maxResults);
+    }
+
+    Set<String> params = widgetQuery.getParameterMetadata().getNamedParameterNames();
+    if (!params.isEmpty()) {
+      HashMap<String, Object> parameterValues = parameterValuesSupplier.get();
+
+      for (String namedParam : params) {
+        boolean isParamSet = false;
+        if (parameterValues.containsKey(namedParam)) {
+          Object value = parameterValues.get(namedParam);
+          if (value instanceof Collection<?>) {
+            widgetQuery.setParameterList(namedParam, (Collection<?>) value);
+          } else if (value instanceof Object[]) {
+            widgetQuery.setParameterList(namedParam, (Object[]) value);
+          } else if (value instanceof String
+              && isDate(namedParam, widgetClass.getOBUIAPPParameterEMObkmoWidgetClassIDList())) {
+            widgetQuery.setParameter(namedParam, convertToDate((String) value));
+          } else {
+            widgetQuery.setParameter(namedParam, value);
           }
+          isParamSet = true;
+        }
+        if (!isParamSet) {
+          // TODO: throw an exception
         }
       }
+    }
 
-      final List<Map<String, Object>> result = new ArrayList<>();
+    final List<Map<String, Object>> result = new ArrayList<>();
 
-      if (fetchingSummaryFields) {
-        // process the response for the summary row
-        Map<String, Object> summaryData = new LinkedHashMap<>();
-        try {
-          JSONObject summaryFieldsObject = new JSONObject(
-              parameters.get(JsonConstants.SUMMARY_PARAMETER));
-          Tuple uniqueResult = widgetQuery.uniqueResult();
-          Iterator<?> summaryFieldNameIterator = summaryFieldsObject.keys();
-          int i = 0;
-          while (summaryFieldNameIterator.hasNext()) {
-            String summaryFieldName = (String) summaryFieldNameIterator.next();
-            summaryData.put(summaryFieldName, uniqueResult.get(i++));
-          }
-          summaryData.put("isGridSummary", true);
-        } catch (Exception e) {
-          log.error("Exception fetching summary columns of the widget "
-              + widgetClass.getWidgetTitle() + ". \n Query = " + HQL, e);
+    if (fetchingSummaryFields) {
+      // process the response for the summary row
+      Map<String, Object> summaryData = new LinkedHashMap<>();
+      try {
+        JSONObject summaryFieldsObject = new JSONObject(summaryParameter);
+        Tuple uniqueResult = widgetQuery.uniqueResult();
+        Iterator<?> summaryFieldNameIterator = summaryFieldsObject.keys();
+        int i = 0;
+        while (summaryFieldNameIterator.hasNext()) {
+          String summaryFieldName = (String) summaryFieldNameIterator.next();
+          summaryData.put(summaryFieldName, uniqueResult.get(i++));
         }
-        result.add(summaryData);
+        summaryData.put("isGridSummary", true);
+      } catch (Exception e) {
+        log.error("Exception fetching summary columns of the widget "
+            + widgetClass.getWidgetTitle() + ". \n Query = " + HQL, e);
+      }
+      result.add(summaryData);
 
-      } else {
-        // process the response for the grid
-        for (Tuple tuple : widgetQuery.list()) {
-          final Map<String, Object> data = new LinkedHashMap<>();
-
-          for (OBCQL_QueryColumn column : columns) {
-            UIDefinition uiDefinition = UIDefinitionController.getInstance()
-                .getUIDefinition(column.getReference());
-            DomainType domainType = uiDefinition.getDomainType();
-            for (TupleElement<?> tupleElement : tuple.getElements()) {
-              String alias = tupleElement.getAlias();
-              if (alias == null) {
-                continue;
-              } else if (alias.equals(column.getDisplayExpression())
-                  || (!isExport && alias.equals(column.getLinkExpression()))) {
-                Object value = tuple.get(tupleElement.getAlias());
-                if (domainType instanceof DateDomainType && value != null) {
-                  value = xmlDateFormat.format(value);
-                } else if (value instanceof Timestamp && value != null) {
-                  value = xmlDateTimeFormat.format(value);
-                  value = JsonUtils.convertToCorrectXSDFormat((String) value);
-                }
-
-                if (domainType instanceof BooleanDomainType && value instanceof String) {
-                  value = ((PrimitiveDomainType) domainType).createFromString((String) value);
-                }
-
-                if (!isExport) {
-                  data.put(tupleElement.getAlias(), value);
-                } else {
-                  data.put(QueryListUtils.getColumnLabel(column), value);
-                }
+    } else {
+      // process the response for the grid
+      for (Tuple tuple : widgetQuery.list()) {
+        final Map<String, Object> data = new LinkedHashMap<>();
+
+        for (OBCQL_QueryColumn column : columns) {
+          UIDefinition uiDefinition = UIDefinitionController.getInstance()
+              .getUIDefinition(column.getReference());
+          DomainType domainType = uiDefinition.getDomainType();
+          for (TupleElement<?> tupleElement : tuple.getElements()) {
+            String alias = tupleElement.getAlias();
+            if (alias == null) {
+              continue;
+            } else if (alias.equals(column.getDisplayExpression())
+                || (!isExport && alias.equals(column.getLinkExpression()))) {
+              Object value = tuple.get(tupleElement.getAlias());
+              if (domainType instanceof DateDomainType && value != null) {
+                value = xmlDateFormat.format(value);
+              } else if (value instanceof Timestamp && value != null) {
+                value = xmlDateTimeFormat.format(value);
+                value = JsonUtils.convertToCorrectXSDFormat((String) value);
+              }
+
+              if (domainType instanceof BooleanDomainType && value instanceof String) {
+                value = ((PrimitiveDomainType) domainType).createFromString((String) value);
+              }
+
+              if (!isExport) {
+                data.put(tupleElement.getAlias(), value);
+              } else {
+                data.put(QueryListUtils.getColumnLabel(column), value);
               }
             }
           }
-          result.add(data);
         }
+        result.add(data);
       }
-      return result;
-    } finally {
-      OBContext.restorePreviousMode();
     }
+    return result;
   }
 
   /**
@@ -0,0 +1,274 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.querylist;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.session.OBPropertiesProvider;
+import org.openbravo.cache.TimeInvalidatedCache;
+import org.openbravo.dal.core.DalThreadCleaner;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.jmx.MBeanRegistry;
+import org.openbravo.service.importprocess.ImportEntryManager;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Keeps in memory for a short time the results of the Query/List widgets, so the users requesting
+ * the same data share a single execution of the widget query.
+ * 
+ * Caching is enabled per widget, listing the ids of their widget classes in the
+ * {@code querylist.cache.widgets} property, as only the widgets whose data can be some seconds
+ * outdated should be cached. The results are kept during {@code querylist.cache.timeToLive}
+ * seconds (60 by default), keyed by the final query with all its parameter values and paging, and
+ * by the role, client, organization and language of the user. Results read again when they are
+ * about to expire are refreshed in background, so the users of frequently refreshed widgets do not
+ * wait for the query.
+ */
+@ApplicationScoped
+public class QueryListResultCache implements QueryListResultCacheMBean {
+  private static final Logger log = LogManager.getLogger();
+  public static final String MBEAN_NAME = "QueryListResultCache";
+  private static final String WIDGETS_PROPERTY = "querylist.cache.widgets";
+  private static final String TTL_PROPERTY = "querylist.cache.timeToLive";
+  private static final long DEFAULT_TTL = 60;
+  private static final int REFRESH_THREADS = 2;
+
+  private Set<String> cachedWidgets = Collections.emptySet();
+  private TimeInvalidatedCache<ResultKey, List<Map<String, Object>>> cache;
+  private ExecutorService refreshExecutor;
+  private final LongAdder refreshCount = new LongAdder();
+
+  @PostConstruct
+  private void init() {
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    String widgets = properties != null ? properties.getProperty(WIDGETS_PROPERTY) : null;
+    if (StringUtils.isBlank(widgets)) {
+      return;
+    }
+    cachedWidgets = new HashSet<>();
+    for (String widgetClassId : widgets.split(",")) {
+      if (StringUtils.isNotBlank(widgetClassId)) {
+        cachedWidgets.add(widgetClassId.trim());
+      }
+    }
+    long timeToLive = getTimeToLive(properties);
+    refreshExecutor = Executors.newFixedThreadPool(REFRESH_THREADS,
+        new ImportEntryManager.DaemonThreadFactory("QueryListCache"));
+    cache = TimeInvalidatedCache.newBuilder()
+        .name("QueryListResultCache")
+        .expireAfterDuration(Duration.ofSeconds(timeToLive))
+        .refreshAfterDuration(Duration.ofMillis(TimeUnit.SECONDS.toMillis(timeToLive) * 3 / 4))
+        .executor(refreshExecutor)
+        .recordStats()
+        .build(this::load);
+    MBeanRegistry.registerMBean(MBEAN_NAME, this);
+    log.info("Caching results of {} Query/List widgets during {} seconds", cachedWidgets.size(),
+        timeToLive);
+  }
+
+  private long getTimeToLive(Properties properties) {
+    String timeToLive = properties.getProperty(TTL_PROPERTY);
+    if (timeToLive == null) {
+      return DEFAULT_TTL;
+    }
+    try {
+      long value = Long.parseLong(timeToLive.trim());
+      if (value > 0) {
+        return value;
+      }
+    } catch (NumberFormatException ignore) {
+      // use the default
+    }
+    log.warn("Wrong value {} for property {}, using the default {}", timeToLive, TTL_PROPERTY,
+        DEFAULT_TTL);
+    return DEFAULT_TTL;
+  }
+
+  /**
+   * @return true if the results of the given widget class are cached
+   */
+  boolean isCached(String widgetClassId) {
+    return cache != null && cachedWidgets.contains(widgetClassId);
+  }
+
+  /**
+   * Returns the result of the query identified by the given key, executing it only if it is not
+   * already cached. Concurrent requests of a result which is not cached wait for a single
+   * execution of the query.
+   * 
+   * @return the rows of the result, they must not be modified
+   */
+  List<Map<String, Object>> getData(ResultKey key) {
+    return cache.get(key);
+  }
+
+  private List<Map<String, Object>> load(ResultKey key) {
+    if (OBContext.getOBContext() != null) {
+      // first load, executed by the thread of the request
+      return Collections.unmodifiableList(key.query.get());
+    }
+    // refresh, executed in background with the context of the user who requested the result
+    refreshCount.increment();
+    try {
+      OBContext.setOBContext(key.userId, key.roleId, key.clientId, key.orgId, key.languageCode);
+      OBContext.setAdminMode();
+      try {
+        return Collections.unmodifiableList(key.query.get());
+      } finally {
+        OBContext.restorePreviousMode();
+      }
+    } finally {
+      DalThreadCleaner.getInstance().cleanWithRollback();
+    }
+  }
+
+  @Override
+  public void clearCache() {
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+  }
+
+  @Override
+  public long getSize() {
+    return cache != null ? cache.estimatedSize() : 0;
+  }
+
+  @Override
+  public long getHitCount() {
+    return getStats().hitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return getStats().missCount();
+  }
+
+  @Override
+  public double getHitRate() {
+    return getStats().hitRate();
+  }
+
+  @Override
+  public long getRefreshCount() {
+    return refreshCount.sum();
+  }
+
+  @Override
+  public long getQueryFailureCount() {
+    return getStats().loadFailureCount();
+  }
+
+  @Override
+  public double getAverageQueryTime() {
+    return getStats().averageLoadPenalty() / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  private CacheStats getStats() {
+    return cache != null ? cache.getStats() : CacheStats.empty();
+  }
+
+  /**
+   * Identifies a widget query result: the query and its parameters, together with the access scope
+   * of the user. It also keeps the query to execute and the user who requested it, which are not
+   * part of its identity, to refresh the result in background.
+   */
+  static class ResultKey {
+    private final String widgetClassId;
+    private final String hql;
+    private final String parameterValues;
+    private final Integer firstResult;
+    private final Integer maxResults;
+    private final String summary;
+    private final String roleId;
+    private final String clientId;
+    private final String orgId;
+    private final String languageCode;
+    private final String userId;
+    private final Supplier<List<Map<String, Object>>> query;
+
+    ResultKey(String widgetClassId, String hql, Map<String, Object> parameterValues,
+        Integer firstResult, Integer maxResults, String summary,
+        Supplier<List<Map<String, Object>>> query) {
+      this.widgetClassId = widgetClassId;
+      this.hql = hql;
+      // values can be JSON arrays, which do not implement equals
+      this.parameterValues = new TreeMap<>(parameterValues).toString();
+      this.firstResult = firstResult;
+      this.maxResults = maxResults;
+      this.summary = summary;
+      this.query = query;
+      OBContext context = OBContext.getOBContext();
+      roleId = context.getRole().getId();
+      clientId = context.getCurrentClient().getId();
+      orgId = context.getCurrentOrganization().getId();
+      languageCode = context.getLanguage().getLanguage();
+      userId = context.getUser().getId();
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(widgetClassId, hql, parameterValues, firstResult, maxResults, summary,
+          roleId, clientId, orgId, languageCode);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof ResultKey)) {
+        return false;
+      }
+      ResultKey other = (ResultKey) obj;
+      return Objects.equals(widgetClassId, other.widgetClassId) && Objects.equals(hql, other.hql)
+          && Objects.equals(parameterValues, other.parameterValues)
+          && Objects.equals(firstResult, other.firstResult)
+          && Objects.equals(maxResults, other.maxResults) && Objects.equals(summary, other.summary)
+          && Objects.equals(roleId, other.roleId) && Objects.equals(clientId, other.clientId)
+          && Objects.equals(orgId, other.orgId)
+          && Objects.equals(languageCode, other.languageCode);
+    }
+
+    @Override
+    public String toString() {
+      return widgetClassId + " role " + roleId + " org " + orgId;
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.querylist;
+
+/** Defines bean to expose {@link QueryListResultCache} as a JMX Bean. */
+public interface QueryListResultCacheMBean {
+
+  /** Removes all the results from the cache. */
+  void clearCache();
+
+  /** Approximate number of results currently cached. */
+  long getSize();
+
+  /** Number of times a result was served from the cache. */
+  long getHitCount();
+
+  /** Number of times a result was not found in the cache and the query had to be executed. */
+  long getMissCount();
+
+  /** Ratio of requests served from the cache. */
+  double getHitRate();
+
+  /** Number of queries executed to refresh results in background before they expired. */
+  long getRefreshCount();
+
+  /** Number of queries which failed. */
+  long getQueryFailureCount();
+
+  /** Average time in milliseconds spent executing a query. */
+  double getAverageQueryTime();
+}
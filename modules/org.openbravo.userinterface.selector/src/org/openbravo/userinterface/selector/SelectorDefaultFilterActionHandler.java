@@ -108,7 +108,8 @@ public class SelectorDefaultFilterActionHandler extends BaseActionHandler {
       JSONArray idFilters = new JSONArray();
       for (SelectorField f : selFields) {
         try {
-          exprResult = OBScriptEngine.getInstance().eval(f.getDefaultExpression(), bindings);
+          exprResult = OBScriptEngine.getInstance()
+              .eval(f.getId(), f.getDefaultExpression(), bindings);
           Object bobId = null;
 
           if (exprResult != null && !exprResult.equals("") && !exprResult.equals("''")) {
@@ -151,7 +152,7 @@ public class SelectorDefaultFilterActionHandler extends BaseActionHandler {
       Object dynamicFilterExpression = null;
       if (sel.getFilterExpression() != null) {
         dynamicFilterExpression = OBScriptEngine.getInstance()
-            .eval(sel.getFilterExpression(), bindings);
+            .eval(sel.getId(), sel.getFilterExpression(), bindings);
         result.put(SelectorConstants.PARAM_FILTER_EXPRESSION, dynamicFilterExpression.toString());
       }
 
@@ -0,0 +1,166 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.base.expression;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import org.openbravo.base.expression.ExpressionCompiler.CompiledExpression;
+
+/**
+ * Checks that the expressions compiled by the {@link ExpressionCompiler} are evaluated to the same
+ * result Rhino evaluates them to.
+ */
+@RunWith(Parameterized.class)
+public class ExpressionCompilerTest {
+
+  @Parameter(0)
+  public String expression;
+
+  @Parameter(1)
+  public boolean compilable;
+
+  @Parameters(name = "{0}")
+  public static Collection<Object[]> parameters() {
+    return Arrays.asList(new Object[][] { //
+        { "'Y'", true }, //
+        { "\"INFO\"", true }, //
+        { "'a\\'b'", true }, //
+        { "10", true }, //
+        { "-3", true }, //
+        { "10.5", true }, //
+        { "10.0", true }, //
+        { "true", true }, //
+        { "false;", true }, //
+        { "null", true }, //
+        { "('Y')", true }, //
+        { "'Y' === 'Y' && 'Y' === 'N'", true }, //
+        { "'null' === 'Y' || 'Y' !== 'N'", true }, //
+        { "!('Y' === 'N')", true }, //
+        { "str === 'abc'", true }, //
+        { "str == 'abc' && bool", true }, //
+        { "num === 5 && dec == 5", true }, //
+        { "num == '5'", true }, //
+        { "bool == 1", true }, //
+        { "nothing == null", true }, //
+        { "!nothing", true }, //
+        { "'10' < '9'", true }, //
+        { "'10' < 9", true }, //
+        { "num >= 5 && num <= 5.0 && num > -1", true }, //
+        { "str && 'z'", true }, //
+        { "'' || 'b'", true }, //
+        { "str", true }, //
+        { "bean.getName()", true }, //
+        { "bean.name", true }, //
+        { "bean.getBean().getValue('x')", true }, //
+        { "bean.getNothing()", true }, //
+        { "'' || 0", false }, //
+        { "num", false }, //
+        { "bean.getName() === 'name'", false }, //
+        { "typeof str", false }, //
+        { "if (str === 'abc') {'a'} else {'b'}", false }, //
+        { "'a' + 'b'", false }, //
+        { "0x10", false }, //
+        { "010", false }, //
+        { "num == 05", false }, //
+        { "0.5 < 1 && 0 == 0", true }, //
+        { "new String('a') == 'a'", false }, //
+        { "num == '0x5'", false }, //
+    });
+  }
+
+  @After
+  public void enableCompiler() {
+    OBScriptEngine.getInstance().setCompilerEnabled(true);
+  }
+
+  @Test
+  public void compiledExpressionIsEvaluatedAsInRhino() throws Exception {
+    Object rhinoResult = evaluateWithRhino();
+    if (compilable) {
+      CompiledExpression compiledExpression = ExpressionCompiler.compile(expression);
+      assertThat(compiledExpression.evaluate(getBindings()), equalTo(rhinoResult));
+    } else {
+      assertThrows(UnsupportedExpressionException.class,
+          () -> ExpressionCompiler.compile(expression).evaluate(getBindings()));
+    }
+  }
+
+  @Test
+  public void engineEvaluatesAsInRhino() throws Exception {
+    Object rhinoResult = evaluateWithRhino();
+    Object result = OBScriptEngine.getInstance().eval("owner", expression, getBindings());
+    assertThat(result, equalTo(rhinoResult));
+  }
+
+  private Object evaluateWithRhino() throws Exception {
+    OBScriptEngine engine = OBScriptEngine.getInstance();
+    engine.setCompilerEnabled(false);
+    try {
+      return engine.eval(expression, getBindings());
+    } finally {
+      engine.setCompilerEnabled(true);
+    }
+  }
+
+  private static Map<String, Object> getBindings() {
+    Map<String, Object> bindings = new HashMap<>();
+    bindings.put("str", "abc");
+    bindings.put("num", 5);
+    bindings.put("dec", new BigDecimal("5.0"));
+    bindings.put("bool", true);
+    bindings.put("nothing", null);
+    bindings.put("bean", new TestBean());
+    return bindings;
+  }
+
+  /**
+   * Java object accessed from the expressions
+   */
+  public static class TestBean {
+    public String getName() {
+      return "name";
+    }
+
+    public TestBean getBean() {
+      return this;
+    }
+
+    public String getValue(String key) {
+      return "value-" + key;
+    }
+
+    public Object getNothing() {
+      return null;
+    }
+  }
+}
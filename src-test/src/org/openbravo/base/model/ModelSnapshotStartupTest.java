@@ -0,0 +1,120 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.base.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.Properties;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openbravo.base.session.OBPropertiesProvider;
+import org.openbravo.test.base.OBBaseTest;
+
+/**
+ * Compares building the runtime model reading the database metadata from the catalog and from the
+ * model snapshot, as it is done on startup. The queries executed are compared instead of the time
+ * spent, which is only logged.
+ */
+public class ModelSnapshotStartupTest extends OBBaseTest {
+  private static final Logger log = LogManager.getLogger();
+  private static final String SNAPSHOT_PATH_PROPERTY = "model.snapshot.path";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private ModelProvider currentModelProvider;
+  private String currentSnapshotPath;
+
+  @Before
+  public void keepCurrentModel() {
+    currentModelProvider = ModelProvider.getInstance();
+    currentSnapshotPath = getProperties().getProperty(SNAPSHOT_PATH_PROPERTY);
+  }
+
+  @After
+  public void restoreCurrentModel() {
+    if (currentSnapshotPath == null) {
+      getProperties().remove(SNAPSHOT_PATH_PROPERTY);
+    } else {
+      getProperties().setProperty(SNAPSHOT_PATH_PROPERTY, currentSnapshotPath);
+    }
+    ModelProvider.setInstance(currentModelProvider);
+  }
+
+  @Test
+  public void modelBuiltFromSnapshotIsTheSameAndExecutesLessQueries() {
+    getProperties().remove(SNAPSHOT_PATH_PROPERTY);
+    ModelProvider fromCatalog = buildModel();
+
+    getProperties().setProperty(SNAPSHOT_PATH_PROPERTY,
+        folder.getRoot().toPath().resolve("model.snapshot").toString());
+    ModelProvider generatingSnapshot = buildModel();
+    ModelProvider fromSnapshot = buildModel();
+
+    log.info(
+        "Model built in {} ms reading the catalog, {} ms generating the snapshot, {} ms reading it."
+            + " Metadata read in {} ms from the catalog, {} ms from the snapshot",
+        fromCatalog.getModelBuildTime(), generatingSnapshot.getModelBuildTime(),
+        fromSnapshot.getModelBuildTime(), fromCatalog.getMetadataReadTime(),
+        fromSnapshot.getMetadataReadTime());
+
+    assertThat(generatingSnapshot.isMetadataFromSnapshot(), equalTo(false));
+    assertThat(fromSnapshot.isMetadataFromSnapshot(), equalTo(true));
+    // the catalog is read with 2 queries, the version of the snapshot is computed with 1 query
+    assertThat(fromCatalog.getMetadataQueryCount(), equalTo(2L));
+    assertThat(generatingSnapshot.getMetadataQueryCount(), equalTo(3L));
+    assertThat(fromSnapshot.getMetadataQueryCount(), equalTo(1L));
+    assertThat(fromSnapshot.getModelQueryCount(),
+        equalTo(fromCatalog.getModelQueryCount() - 1));
+    assertSameModel(fromCatalog, fromSnapshot);
+  }
+
+  private ModelProvider buildModel() {
+    ModelProvider modelProvider = new ModelProvider();
+    // the model is built using the current instance
+    ModelProvider.setInstance(modelProvider);
+    modelProvider.getModel();
+    return modelProvider;
+  }
+
+  private void assertSameModel(ModelProvider expected, ModelProvider actual) {
+    assertThat(actual.getModel().size(), equalTo(expected.getModel().size()));
+    for (Entity expectedEntity : expected.getModel()) {
+      Entity actualEntity = actual.getEntity(expectedEntity.getName());
+      assertThat(expectedEntity.getName(), actualEntity.getUniqueConstraints().size(),
+          equalTo(expectedEntity.getUniqueConstraints().size()));
+      for (Property expectedProperty : expectedEntity.getProperties()) {
+        Property actualProperty = actualEntity.getProperty(expectedProperty.getName());
+        assertThat(expectedProperty.toString(), actualProperty.isMandatory(),
+            equalTo(expectedProperty.isMandatory()));
+      }
+    }
+  }
+
+  private static Properties getProperties() {
+    return OBPropertiesProvider.getInstance().getOpenbravoProperties();
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.base.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openbravo.base.session.UniqueConstraintColumn;
+
+/**
+ * Tests for the {@link ModelSnapshot} class
+ */
+public class ModelSnapshotTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void snapshotIsReadWithSameVersion() {
+    Path file = folder.getRoot().toPath().resolve("model.snapshot");
+    createSnapshot("1").write(file);
+
+    ModelSnapshot snapshot = ModelSnapshot.read(file, "1");
+
+    assertThat(snapshot.getVersion(), equalTo("1"));
+    assertThat(snapshot.getColumnMandatories().get("C_ORDER;DOCUMENTNO"), equalTo(true));
+    assertThat(snapshot.getUniqueConstraintColumns().get(0).getUniqueConstraintName(),
+        equalTo("C_ORDER_DOCUMENTNO_UN"));
+  }
+
+  @Test
+  public void snapshotIsNotReadWithDifferentVersion() {
+    Path file = folder.getRoot().toPath().resolve("model.snapshot");
+    createSnapshot("1").write(file);
+
+    assertThat(ModelSnapshot.read(file, "2"), nullValue());
+  }
+
+  @Test
+  public void snapshotIsReplaced() {
+    Path file = folder.getRoot().toPath().resolve("model.snapshot");
+    createSnapshot("1").write(file);
+    createSnapshot("2").write(file);
+
+    assertThat(ModelSnapshot.read(file, "2").getVersion(), equalTo("2"));
+  }
+
+  @Test
+  public void missingSnapshotIsNotRead() {
+    assertThat(ModelSnapshot.read(folder.getRoot().toPath().resolve("none"), "1"), nullValue());
+  }
+
+  @Test
+  public void corruptedSnapshotIsNotRead() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("model.snapshot");
+    Files.write(file, new byte[] { 1, 2, 3 });
+
+    assertThat(ModelSnapshot.read(file, "1"), nullValue());
+  }
+
+  private ModelSnapshot createSnapshot(String version) {
+    Map<String, Boolean> columnMandatories = new HashMap<>();
+    columnMandatories.put("C_ORDER;DOCUMENTNO", true);
+    UniqueConstraintColumn uniqueConstraintColumn = new UniqueConstraintColumn();
+    uniqueConstraintColumn.setTableName("C_ORDER");
+    uniqueConstraintColumn.setColumnName("DOCUMENTNO");
+    uniqueConstraintColumn.setUniqueConstraintName("C_ORDER_DOCUMENTNO_UN");
+    List<UniqueConstraintColumn> uniqueConstraintColumns = new ArrayList<>();
+    uniqueConstraintColumns.add(uniqueConstraintColumn);
+    return new ModelSnapshot(version, columnMandatories, uniqueConstraintColumns);
+  }
+}
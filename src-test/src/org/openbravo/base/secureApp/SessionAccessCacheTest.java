@@ -0,0 +1,209 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.base.secureApp;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.Date;
+
+import javax.servlet.ServletException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbravo.base.provider.OBProvider;
+import org.openbravo.base.weld.test.WeldBaseTest;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.service.OBCriteria;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.ad.access.ProcessAccess;
+import org.openbravo.model.ad.access.Role;
+import org.openbravo.model.ad.access.Session;
+import org.openbravo.model.ad.access.WindowAccess;
+import org.openbravo.model.ad.system.Client;
+import org.openbravo.model.ad.ui.Process;
+import org.openbravo.model.ad.ui.Window;
+import org.openbravo.model.common.enterprise.Organization;
+import org.openbravo.service.db.DalConnectionProvider;
+import org.openbravo.test.base.TestConstants;
+
+/**
+ * Test cases for the {@link SessionAccessCache}. The deactivated sessions and revoked accesses
+ * must not be kept in the cache once the changes are committed.
+ */
+public class SessionAccessCacheTest extends WeldBaseTest {
+  private static final long TIME_TO_LIVE_SECONDS = 3600;
+  private static final String SALES_ORDER_WINDOW_ID = "143";
+
+  private SessionAccessCache cache = SessionAccessCache.getInstance();
+  private String sessionId;
+  private String roleId;
+
+  @Before
+  public void enableCache() {
+    setSystemAdministratorContext();
+    cache.enableSessionCache(TIME_TO_LIVE_SECONDS);
+    cache.enableAccessCache(TIME_TO_LIVE_SECONDS);
+  }
+
+  @After
+  public void cleanUp() {
+    cache.disable();
+    OBDal.getInstance().rollbackAndClose();
+    OBContext.setAdminMode(true);
+    try {
+      if (sessionId != null) {
+        OBDal.getInstance().remove(OBDal.getInstance().get(Session.class, sessionId));
+      }
+      if (roleId != null) {
+        OBDal.getInstance().remove(OBDal.getInstance().get(Role.class, roleId));
+      }
+      OBDal.getInstance().commitAndClose();
+    } finally {
+      OBContext.restorePreviousMode();
+    }
+  }
+
+  @Test
+  public void deactivatedSessionIsRejectedAfterCommit() throws ServletException {
+    sessionId = createSession();
+    assertThat(isSessionActive(), equalTo(true));
+
+    OBDal.getInstance().get(Session.class, sessionId).setSessionActive(false);
+    OBDal.getInstance().commitAndClose();
+
+    assertThat(isSessionActive(), equalTo(false));
+  }
+
+  @Test
+  public void inactiveSessionIsNotCached() throws ServletException {
+    sessionId = createSession();
+    OBDal.getInstance().get(Session.class, sessionId).setSessionActive(false);
+    OBDal.getInstance().commitAndClose();
+
+    assertThat(isSessionActive(), equalTo(false));
+    assertThat(cache.getCachedSessions(), equalTo(0L));
+  }
+
+  @Test
+  public void revokedWindowAccessIsDeniedAfterCommit() throws ServletException {
+    roleId = createRole();
+    WindowAccess windowAccess = OBProvider.getInstance().get(WindowAccess.class);
+    windowAccess.setClient(getClient());
+    windowAccess.setOrganization(getOrganization());
+    windowAccess.setRole(OBDal.getInstance().get(Role.class, roleId));
+    windowAccess.setWindow(OBDal.getInstance().get(Window.class, SALES_ORDER_WINDOW_ID));
+    OBDal.getInstance().save(windowAccess);
+    OBDal.getInstance().commitAndClose();
+    assertThat(isGranted("W", SALES_ORDER_WINDOW_ID), equalTo(true));
+
+    OBDal.getInstance().get(WindowAccess.class, windowAccess.getId()).setActive(false);
+    OBDal.getInstance().commitAndClose();
+
+    assertThat(isGranted("W", SALES_ORDER_WINDOW_ID), equalTo(false));
+  }
+
+  @Test
+  public void revokedProcessAccessIsDeniedAfterCommit() throws ServletException {
+    roleId = createRole();
+    OBCriteria<Process> processCriteria = OBDal.getInstance().createCriteria(Process.class);
+    processCriteria.setMaxResults(1);
+    String processId = processCriteria.uniqueResult().getId();
+    ProcessAccess processAccess = OBProvider.getInstance().get(ProcessAccess.class);
+    processAccess.setClient(getClient());
+    processAccess.setOrganization(getOrganization());
+    processAccess.setRole(OBDal.getInstance().get(Role.class, roleId));
+    processAccess.setProcess(OBDal.getInstance().get(Process.class, processId));
+    OBDal.getInstance().save(processAccess);
+    OBDal.getInstance().commitAndClose();
+    assertThat(isGranted("P", processId), equalTo(true));
+
+    OBDal.getInstance().remove(OBDal.getInstance().get(ProcessAccess.class, processAccess.getId()));
+    OBDal.getInstance().commitAndClose();
+
+    assertThat(isGranted("P", processId), equalTo(false));
+  }
+
+  @Test
+  public void disabledCacheQueriesTheDatabase() throws ServletException {
+    sessionId = createSession();
+    assertThat(isSessionActive(), equalTo(true));
+
+    // deactivated without DAL events, so the cached session is not discarded
+    OBDal.getInstance()
+        .getSession()
+        .createQuery("update " + Session.ENTITY_NAME + " set " + Session.PROPERTY_SESSIONACTIVE
+            + " = false where id = :id")
+        .setParameter("id", sessionId)
+        .executeUpdate();
+    OBDal.getInstance().commitAndClose();
+    assertThat(isSessionActive(), equalTo(true));
+
+    cache.disable();
+
+    assertThat(cache.isSessionCacheEnabled(), equalTo(false));
+    assertThat(isSessionActive(), equalTo(false));
+  }
+
+  private boolean isSessionActive() throws ServletException {
+    return cache.isSessionActive(new DalConnectionProvider(false), sessionId);
+  }
+
+  private boolean isGranted(String type, String id) throws ServletException {
+    return cache.getAccessDecision(new DalConnectionProvider(false), roleId, type, id).isGranted();
+  }
+
+  private String createSession() {
+    Session session = OBProvider.getInstance().get(Session.class);
+    session.setClient(OBDal.getInstance().getProxy(Client.class, TestConstants.Clients.SYSTEM));
+    session.setOrganization(getOrganization());
+    session.setCreationDate(new Date());
+    session.setUpdated(new Date());
+    session.setWebSession("SessionAccessCacheTest");
+    session.setRemoteAddress("127.0.0.1");
+    session.setRemoteHost("localhost");
+    session.setSessionActive(true);
+    session.setLoginStatus("S");
+    session.setUsername("Openbravo");
+    OBDal.getInstance().save(session);
+    OBDal.getInstance().commitAndClose();
+    return session.getId();
+  }
+
+  private String createRole() {
+    Role role = OBProvider.getInstance().get(Role.class);
+    role.setClient(getClient());
+    role.setOrganization(getOrganization());
+    role.setName("Session Access Cache Test " + System.currentTimeMillis());
+    role.setUserLevel(" CO");
+    role.setManual(true);
+    OBDal.getInstance().save(role);
+    OBDal.getInstance().commitAndClose();
+    return role.getId();
+  }
+
+  private static Client getClient() {
+    return OBDal.getInstance().getProxy(Client.class, TestConstants.Clients.FB_GRP);
+  }
+
+  private static Organization getOrganization() {
+    return OBDal.getInstance().getProxy(Organization.class, TestConstants.Orgs.MAIN);
+  }
+}
@@ -11,7 +11,7 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2022-2023 Openbravo SLU
+ * All portions are Copyright (C) 2022-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -263,6 +263,41 @@ public class TimeInvalidatedCacheTest {
     assertThat("Removal listener is executed", executed, equalTo(true));
   }
 
+  @Test
+  public void entryShouldBeRefreshedBeforeExpiration() {
+    FakeTicker ticker = new FakeTicker();
+    ValueTest.value = "oldValue";
+
+    TimeInvalidatedCache<String, String> cache = TimeInvalidatedCache.newBuilder()
+        .name("TestCache")
+        .expireAfterDuration(Duration.ofSeconds(5))
+        .refreshAfterDuration(Duration.ofSeconds(3))
+        .executor(Runnable::run)
+        .ticker(ticker)
+        .build(key -> ValueTest.value);
+    assertEquals("oldValue", cache.get("testKey"));
+    ValueTest.value = "newValue";
+
+    ticker.advance(Duration.ofSeconds(4));
+    // the read triggering the refresh still gets the old value
+    assertEquals("oldValue", cache.get("testKey"));
+    assertEquals("newValue", cache.get("testKey"));
+  }
+
+  @Test
+  public void statsShouldBeRecorded() {
+    TimeInvalidatedCache<String, String> cache = TimeInvalidatedCache.newBuilder()
+        .name("TestCache")
+        .recordStats()
+        .build(key -> "TestValue");
+    cache.get("testKey");
+    cache.get("testKey");
+
+    assertEquals(1, cache.getStats().missCount());
+    assertEquals(1, cache.getStats().hitCount());
+    assertEquals(1, cache.estimatedSize());
+  }
+
   private TimeInvalidatedCache<String, String> initializeCache(UnaryOperator<String> buildMethod) {
     return TimeInvalidatedCache.newBuilder()
         .name("TestCache")
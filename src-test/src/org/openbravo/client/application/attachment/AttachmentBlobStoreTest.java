@@ -0,0 +1,177 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.attachment;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test cases for the {@link AttachmentBlobStore}
+ */
+public class AttachmentBlobStoreTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  private Path attachments;
+  private AttachmentBlobStore store;
+
+  @Before
+  public void initStore() throws IOException {
+    attachments = tmp.newFolder("attachments").toPath();
+    store = new AttachmentBlobStore(attachments);
+  }
+
+  @Test
+  public void sameContentIsStoredOnce() throws IOException {
+    Path file1 = attachments.resolve("259/0F3/logo.png");
+    Path file2 = attachments.resolve("318/A10/logo.png");
+
+    String hash1 = store(file1, "logo");
+    String hash2 = store(file2, "logo");
+
+    assertThat(hash1, equalTo(hash2));
+    assertThat(read(file1), equalTo("logo"));
+    assertThat(read(file2), equalTo("logo"));
+    assertThat(AttachmentBlobStore.getLinkCount(store.getBlobPath(hash1)), equalTo(3));
+  }
+
+  @Test
+  public void replacedFileDoesNotChangeOtherReferences() throws IOException {
+    Path file1 = attachments.resolve("259/0F3/doc.txt");
+    Path file2 = attachments.resolve("318/A10/doc.txt");
+    String hash = store(file1, "v1");
+    store(file2, "v1");
+
+    store(file1, "v2");
+
+    assertThat(read(file1), equalTo("v2"));
+    assertThat(read(file2), equalTo("v1"));
+    assertThat(AttachmentBlobStore.getLinkCount(store.getBlobPath(hash)), equalTo(2));
+  }
+
+  @Test
+  public void unreferencedBlobsAreCollected() throws IOException {
+    Path file1 = attachments.resolve("259/0F3/a.txt");
+    Path file2 = attachments.resolve("259/0F3/b.txt");
+    String removedHash = store(file1, "removed");
+    String keptHash = store(file2, "kept");
+    Files.delete(file1);
+
+    int removed = store.collectGarbage(Long.MAX_VALUE);
+
+    assertThat(removed, equalTo(1));
+    assertThat(Files.exists(store.getBlobPath(removedHash)), equalTo(false));
+    assertThat(Files.exists(store.getBlobPath(keptHash)), equalTo(true));
+  }
+
+  @Test
+  public void recentBlobsAreNotCollected() throws IOException {
+    Path file = attachments.resolve("259/0F3/a.txt");
+    String hash = store(file, "content");
+    Files.delete(file);
+
+    store.collectGarbage();
+
+    assertThat(Files.exists(store.getBlobPath(hash)), equalTo(true));
+  }
+
+  @Test
+  public void existingFilesAreMigratedIncrementally() throws IOException {
+    Path file1 = write(attachments.resolve("259/0F3/a.txt"), "duplicated");
+    Path file2 = write(attachments.resolve("259/A10/b.txt"), "duplicated");
+    Path file3 = write(attachments.resolve("318/0F3/c.txt"), "unique");
+
+    assertThat(store.migrate(Arrays.asList(file1, file2)), equalTo(2));
+    assertThat(store.migrate(Arrays.asList(file3)), equalTo(1));
+    assertThat(store.migrate(Arrays.asList(file1, file2, file3)), equalTo(0));
+
+    assertThat(AttachmentBlobStore.getLinkCount(file1), equalTo(3));
+    assertThat(AttachmentBlobStore.getLinkCount(file2), equalTo(3));
+    assertThat(AttachmentBlobStore.getLinkCount(file3), equalTo(2));
+    assertThat(read(file1), equalTo("duplicated"));
+    assertThat(read(file3), equalTo("unique"));
+  }
+
+  @Test
+  public void onlyGivenFilesInsideTheAttachmentsFolderAreMigrated() throws IOException {
+    Path attachment = write(attachments.resolve("259/0F3/a.txt"), "content");
+    Path export = write(attachments.resolve("lang/es_ES/a.xml"), "content");
+    Path outside = write(tmp.newFolder("other").toPath().resolve("a.txt"), "content");
+
+    assertThat(store.migrate(Arrays.asList(attachment, outside)), equalTo(1));
+
+    assertThat(AttachmentBlobStore.getLinkCount(attachment), equalTo(2));
+    assertThat(AttachmentBlobStore.getLinkCount(export), equalTo(1));
+    assertThat(AttachmentBlobStore.getLinkCount(outside), equalTo(1));
+  }
+
+  @Test
+  public void filesAreNotLinkedToAModifiedBlob() throws IOException {
+    Path file1 = attachments.resolve("259/0F3/a.txt");
+    String hash = store(file1, "original");
+    Files.write(store.getBlobPath(hash), "modified".getBytes(StandardCharsets.UTF_8));
+    Path file2 = write(attachments.resolve("318/A10/b.txt"), "original");
+
+    store.migrate(Arrays.asList(file2));
+
+    assertThat(AttachmentBlobStore.getLinkCount(file2), equalTo(1));
+    assertThat(read(file2), equalTo("original"));
+  }
+
+  @Test
+  public void existingBlobIsNotReplaced() throws IOException {
+    Path file1 = attachments.resolve("259/0F3/a.txt");
+    String hash = store(file1, "content");
+    Path blob = store.getBlobPath(hash);
+    Object blobKey = Files.readAttributes(blob, BasicFileAttributes.class).fileKey();
+    Files.delete(file1);
+
+    store(attachments.resolve("318/A10/b.txt"), "content");
+
+    assertThat(Files.readAttributes(blob, BasicFileAttributes.class).fileKey(),
+        equalTo(blobKey));
+  }
+
+  private String store(Path file, String content) throws IOException {
+    return store.store(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), file);
+  }
+
+  private Path write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.client.application.attachment;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test cases for the {@link AttachmentContentWriter}
+ */
+public class AttachmentContentWriterTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void wholeFileIsReturnedWithoutRange() {
+    assertThat(AttachmentContentWriter.getRange(null, 100), nullValue());
+  }
+
+  @Test
+  public void boundedRange() {
+    assertThat(AttachmentContentWriter.getRange("bytes=0-9", 100), equalTo(new long[] { 0, 9 }));
+  }
+
+  @Test
+  public void rangeEndIsLimitedToFileLength() {
+    assertThat(AttachmentContentWriter.getRange("bytes=90-200", 100),
+        equalTo(new long[] { 90, 99 }));
+  }
+
+  @Test
+  public void openEndedRange() {
+    assertThat(AttachmentContentWriter.getRange("bytes=40-", 100), equalTo(new long[] { 40, 99 }));
+  }
+
+  @Test
+  public void suffixRange() {
+    assertThat(AttachmentContentWriter.getRange("bytes=-10", 100), equalTo(new long[] { 90, 99 }));
+  }
+
+  @Test
+  public void unsatisfiableRange() {
+    assertThat(AttachmentContentWriter.getRange("bytes=100-", 100).length, equalTo(0));
+    assertThat(AttachmentContentWriter.getRange("bytes=50-10", 100).length, equalTo(0));
+  }
+
+  @Test
+  public void multipleRangesReturnWholeFile() {
+    assertThat(AttachmentContentWriter.getRange("bytes=0-9,20-29", 100), nullValue());
+  }
+
+  @Test
+  public void compressedFormatsAreDetected() {
+    assertThat(AttachmentContentWriter.isCompressed("invoice.PDF"), equalTo(true));
+    assertThat(AttachmentContentWriter.isCompressed("photo.jpg"), equalTo(true));
+    assertThat(AttachmentContentWriter.isCompressed("notes.txt"), equalTo(false));
+    assertThat(AttachmentContentWriter.isCompressed("README"), equalTo(false));
+  }
+
+  @Test
+  public void compressedFilesAreStoredInZip() throws IOException {
+    File pdf = createFile("invoice.pdf", "%PDF-1.4 content");
+    File txt = createFile("notes.txt", "plain text content");
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(os)) {
+      AttachmentContentWriter.writeZipEntry(zip, "invoice.pdf", pdf);
+      AttachmentContentWriter.writeZipEntry(zip, "notes.txt", txt);
+    }
+
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(os.toByteArray()))) {
+      ZipEntry entry = zip.getNextEntry();
+      assertThat(entry.getMethod(), equalTo(ZipEntry.STORED));
+      assertThat(IOUtils.toString(zip, StandardCharsets.UTF_8), equalTo("%PDF-1.4 content"));
+
+      entry = zip.getNextEntry();
+      assertThat(entry.getMethod(), equalTo(ZipEntry.DEFLATED));
+      assertThat(IOUtils.toString(zip, StandardCharsets.UTF_8), equalTo("plain text content"));
+    }
+  }
+
+  private File createFile(String name, String content) throws IOException {
+    File file = tmp.newFile(name);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
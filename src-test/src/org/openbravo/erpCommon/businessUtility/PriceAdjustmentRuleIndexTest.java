@@ -0,0 +1,291 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.erpCommon.businessUtility;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.openbravo.erpCommon.businessUtility.PriceAdjustment.getApplicablePriceAdjustments;
+import static org.openbravo.erpCommon.businessUtility.PriceAdjustment.getApplicablePriceAdjustmentsWithQuery;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.apache.commons.lang.time.DateUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbravo.base.provider.OBProvider;
+import org.openbravo.base.structure.BaseOBObject;
+import org.openbravo.base.weld.test.WeldBaseTest;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.ad.system.Client;
+import org.openbravo.model.common.businesspartner.BusinessPartner;
+import org.openbravo.model.common.enterprise.Organization;
+import org.openbravo.model.common.order.Order;
+import org.openbravo.model.common.plm.Characteristic;
+import org.openbravo.model.common.plm.CharacteristicValue;
+import org.openbravo.model.common.plm.Product;
+import org.openbravo.model.pricing.priceadjustment.PriceAdjustment;
+import org.openbravo.model.pricing.priceadjustment.PromotionType;
+import org.openbravo.test.base.TestConstants;
+
+/**
+ * Tests that the {@link PriceAdjustmentRuleIndex} returns the same Price Adjustments as evaluating
+ * all of them with the query, and measures both when calculating the discounts of the lines of an
+ * order.
+ */
+public class PriceAdjustmentRuleIndexTest extends WeldBaseTest {
+  private static final Logger log = LogManager.getLogger();
+
+  // products of different categories, the water bottle has a value of the characteristic
+  private static final String JUICE_ID = TEST_PRODUCT_ID;
+  private static final String PINEAPPLE_JUICE_ID = "C970393BDF6C43E2B030D23482D88EED";
+  private static final String WATER_BOTTLE_ID = "86970C18B9084CC6A1759A94249DAFD0";
+  private static final String CHARACTERISTIC_ID = "7B619A9E101F4F9B9E664B6CD877FC0D";
+  private static final String CHARACTERISTIC_VALUE_ID = "F37B3C00292E4FA3AC34395E2DBE7AE1";
+
+  private static final List<String> PRODUCTS = Arrays.asList(JUICE_ID, PINEAPPLE_JUICE_ID,
+      WATER_BOTTLE_ID);
+  private static final List<BigDecimal> QUANTITIES = Arrays.asList(BigDecimal.ONE,
+      new BigDecimal("5"), BigDecimal.TEN, new BigDecimal("11"));
+  private static final List<Integer> ORDER_DAYS = Arrays.asList(-20, -5, 0, 6, 20);
+  private static final int ORDER_LINES = 300;
+
+  @Inject
+  private PriceAdjustmentRuleIndex ruleIndex;
+
+  private int priority;
+
+  @Before
+  public void createDiscounts() {
+    setTestAdminContext();
+    Order order = newOrder(0);
+    BusinessPartner bp = order.getBusinessPartner();
+    Product juice = OBDal.getInstance().get(Product.class, JUICE_ID);
+
+    newDiscount("All products");
+    addDefinition(newDiscount("Juice excluded"), "PricingAdjustmentProduct", "product", juice);
+    addDefinition(onlyThoseDefined(newDiscount("Only juice"), "includedProducts"),
+        "PricingAdjustmentProduct", "product", juice);
+    addDefinition(newDiscount("Juice category excluded"), "PricingAdjustmentProductCategory",
+        "productCategory", juice.getProductCategory());
+    addDefinition(
+        onlyThoseDefined(newDiscount("Only juice category"), "includedProductCategories"),
+        "PricingAdjustmentProductCategory", "productCategory", juice.getProductCategory());
+    addCharacteristic(newDiscount("Characteristic excluded"));
+    addCharacteristic(
+        onlyThoseDefined(newDiscount("Only characteristic"), "includedCharacteristics"));
+    addDefinition(newDiscount("Price list excluded"), "PricingAdjustmentPriceList", "priceList",
+        order.getPriceList());
+    addDefinition(onlyThoseDefined(newDiscount("Only price list"), "includePriceLists"),
+        "PricingAdjustmentPriceList", "priceList", order.getPriceList());
+    addDefinition(newDiscount("Business partner excluded"), "PricingAdjustmentBusinessPartner",
+        "businessPartner", bp);
+    addDefinition(
+        onlyThoseDefined(newDiscount("Only business partner category"), "includedBPCategories"),
+        "PricingAdjustmentBusinessPartnerGroup", "businessPartnerCategory",
+        bp.getBusinessPartnerCategory());
+
+    newDiscount("Future").setStartingDate(daysFromToday(10));
+    PriceAdjustment expired = newDiscount("Expired");
+    expired.setStartingDate(daysFromToday(-30));
+    expired.setEndingDate(daysFromToday(-15));
+
+    PriceAdjustment quantities = newDiscount("From 5 to 10 units");
+    quantities.setMinQuantity(new BigDecimal("5"));
+    quantities.setMaxQuantity(BigDecimal.TEN);
+
+    newDiscount("Other organization")
+        .setOrganization(OBDal.getInstance().get(Organization.class, TestConstants.Orgs.US));
+
+    PriceAdjustment orgExcluded = newDiscount("Organization excluded");
+    orgExcluded.setEndingDate(daysFromToday(10));
+    addOrganization(orgExcluded);
+    PriceAdjustment onlyOrg = onlyThoseDefined(newDiscount("Only organization"),
+        "includedOrganizations");
+    onlyOrg.setEndingDate(daysFromToday(10));
+    addOrganization(onlyOrg);
+
+    OBDal.getInstance().flush();
+  }
+
+  @After
+  public void cleanUp() {
+    OBDal.getInstance().rollbackAndClose();
+    ruleIndex.invalidate(TEST_CLIENT_ID);
+  }
+
+  @Test
+  public void indexReturnsTheSameDiscountsAsTheQuery() {
+    for (String productId : PRODUCTS) {
+      Product product = OBDal.getInstance().get(Product.class, productId);
+      for (int days : ORDER_DAYS) {
+        Order order = newOrder(days);
+        for (BigDecimal qty : QUANTITIES) {
+          assertThat("Discounts of " + product.getName() + " ordered " + qty + " at day " + days,
+              getIds(getApplicablePriceAdjustments(order, qty, product, false)),
+              equalTo(getIds(getApplicablePriceAdjustmentsWithQuery(order, qty, product))));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void savedDiscountIsAppliedWithoutWaitingForTheRulesToExpire() {
+    Order order = newOrder(0);
+    Product juice = OBDal.getInstance().get(Product.class, JUICE_ID);
+    List<String> discounts = getIds(
+        getApplicablePriceAdjustments(order, BigDecimal.ONE, juice, false));
+
+    PriceAdjustment discount = newDiscount("New discount");
+    OBDal.getInstance().flush();
+
+    List<String> discountsAfterSave = getIds(
+        getApplicablePriceAdjustments(order, BigDecimal.ONE, juice, false));
+    assertThat(discounts, not(hasItem(discount.getId())));
+    assertThat(discountsAfterSave, hasItem(discount.getId()));
+    assertThat(discountsAfterSave,
+        equalTo(getIds(getApplicablePriceAdjustmentsWithQuery(order, BigDecimal.ONE, juice))));
+  }
+
+  @Test
+  public void discountsOfOrderLinesWithIndexAndWithQuery() {
+    Order order = newOrder(0);
+    List<Product> products = PRODUCTS.stream()
+        .map(id -> OBDal.getInstance().get(Product.class, id))
+        .collect(Collectors.toList());
+
+    // the rules are loaded before measuring
+    getApplicablePriceAdjustments(order, BigDecimal.ONE, products.get(0), false);
+    getApplicablePriceAdjustmentsWithQuery(order, BigDecimal.ONE, products.get(0));
+
+    List<List<String>> indexDiscounts = new ArrayList<>();
+    long t = System.currentTimeMillis();
+    for (int line = 0; line < ORDER_LINES; line++) {
+      indexDiscounts.add(getIds(getApplicablePriceAdjustments(order, getQty(line),
+          products.get(line % products.size()), false)));
+    }
+    long indexTime = System.currentTimeMillis() - t;
+
+    List<List<String>> queryDiscounts = new ArrayList<>();
+    t = System.currentTimeMillis();
+    for (int line = 0; line < ORDER_LINES; line++) {
+      queryDiscounts.add(getIds(getApplicablePriceAdjustmentsWithQuery(order, getQty(line),
+          products.get(line % products.size()))));
+    }
+    long queryTime = System.currentTimeMillis() - t;
+
+    log.info("Discounts of {} order lines calculated in {} ms with the rule index and in {} ms "
+        + "with the query", ORDER_LINES, indexTime, queryTime);
+    assertThat(indexDiscounts, equalTo(queryDiscounts));
+  }
+
+  private static BigDecimal getQty(int line) {
+    return QUANTITIES.get(line % QUANTITIES.size());
+  }
+
+  private static Order newOrder(int days) {
+    Order testOrder = OBDal.getInstance().get(Order.class, TEST_ORDER_ID);
+    Order order = OBProvider.getInstance().get(Order.class);
+    order.setClient(testOrder.getClient());
+    order.setOrganization(OBDal.getInstance().get(Organization.class, TEST_ORG_ID));
+    order.setPriceList(testOrder.getPriceList());
+    order.setBusinessPartner(testOrder.getBusinessPartner());
+    order.setCurrency(testOrder.getCurrency());
+    order.setOrderDate(daysFromToday(days));
+    return order;
+  }
+
+  private PriceAdjustment newDiscount(String name) {
+    priority += 10;
+    PriceAdjustment discount = OBProvider.getInstance().get(PriceAdjustment.class);
+    discount.setClient(OBDal.getInstance().getProxy(Client.class, TEST_CLIENT_ID));
+    discount.setOrganization(
+        OBDal.getInstance().getProxy(Organization.class, TestConstants.Orgs.FB_GROUP));
+    discount.setName("Rule index test - " + name);
+    discount.setDiscountType(OBDal.getInstance()
+        .getProxy(PromotionType.class, PriceAdjustmentRuleIndex.PRICE_ADJUSTMENT_TYPE_ID));
+    discount.setPriority(new BigDecimal(priority));
+    discount.setStartingDate(daysFromToday(-10));
+    discount.setPriceAdjustmentScope("A");
+    discount.setPriceAdjustmentType("P");
+    discount.setDiscount(BigDecimal.TEN);
+    discount.setApplyNext(true);
+    OBDal.getInstance().save(discount);
+    return discount;
+  }
+
+  private static PriceAdjustment onlyThoseDefined(PriceAdjustment discount, String property) {
+    discount.set(property, "N");
+    return discount;
+  }
+
+  private static void addDefinition(PriceAdjustment discount, String entityName, String property,
+      BaseOBObject value) {
+    BaseOBObject definition = newDefinition(discount, entityName, "priceAdjustment");
+    definition.set(property, value);
+    OBDal.getInstance().save(definition);
+  }
+
+  private static void addOrganization(PriceAdjustment discount) {
+    BaseOBObject definition = newDefinition(discount, "PricingAdjustmentOrganization",
+        "priceAdjustment");
+    definition.set("organization", OBDal.getInstance().get(Organization.class, TEST_ORG_ID));
+    definition.set("startingDate", daysFromToday(-5));
+    definition.set("endingDate", daysFromToday(5));
+    OBDal.getInstance().save(definition);
+  }
+
+  private static void addCharacteristic(PriceAdjustment discount) {
+    BaseOBObject definition = newDefinition(discount, "PricingAdjustmentCharacteristic", "offer");
+    definition.set("characteristic",
+        OBDal.getInstance().getProxy(Characteristic.class, CHARACTERISTIC_ID));
+    definition.set("chValue",
+        OBDal.getInstance().getProxy(CharacteristicValue.class, CHARACTERISTIC_VALUE_ID));
+    OBDal.getInstance().save(definition);
+  }
+
+  private static BaseOBObject newDefinition(PriceAdjustment discount, String entityName,
+      String discountProperty) {
+    BaseOBObject definition = (BaseOBObject) OBProvider.getInstance().get(entityName);
+    definition.set("client", discount.getClient());
+    definition.set("organization", discount.getOrganization());
+    definition.set(discountProperty, discount);
+    return definition;
+  }
+
+  private static Date daysFromToday(int days) {
+    return DateUtils.truncate(DateUtils.addDays(new Date(), days), Calendar.DATE);
+  }
+
+  private static List<String> getIds(List<PriceAdjustment> discounts) {
+    return discounts.stream().map(PriceAdjustment::getId).collect(Collectors.toList());
+  }
+}
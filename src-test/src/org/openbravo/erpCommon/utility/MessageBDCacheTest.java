@@ -0,0 +1,107 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.erpCommon.utility;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import javax.servlet.ServletException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openbravo.database.ConnectionProvider;
+import org.openbravo.service.db.DalConnectionProvider;
+import org.openbravo.test.base.OBBaseTest;
+
+/**
+ * Tests the {@link MessageBDCache} class
+ */
+public class MessageBDCacheTest extends OBBaseTest {
+  private static final String LANGUAGE = "en_US";
+  private static final String MESSAGE = "NotSelected";
+  private static final String COLUMN_NAME = "AD_Client_ID";
+  private static final String UNKNOWN_CODE = "__UnknownMessageCode__";
+
+  private MessageBDCache cache;
+  private ConnectionProvider conn;
+
+  @Before
+  public void initCache() {
+    cache = new MessageBDCache();
+    cache.enable(300);
+    conn = new DalConnectionProvider(false);
+  }
+
+  @Test
+  public void cachedMessageIsTheSameAsInDatabase() throws ServletException {
+    assertThat(cache.getMessage(conn, MESSAGE, LANGUAGE),
+        equalTo(MessageBDData.message(conn, LANGUAGE, MESSAGE)));
+  }
+
+  @Test
+  public void cachedColumnNameIsTheSameAsInDatabase() throws ServletException {
+    assertThat(cache.getMessage(conn, COLUMN_NAME, LANGUAGE),
+        equalTo(MessageBDData.columnname(conn, LANGUAGE, COLUMN_NAME)));
+  }
+
+  @Test
+  public void unknownCodeReturnsEmptyMessage() throws ServletException {
+    assertThat(cache.getMessage(conn, UNKNOWN_CODE, LANGUAGE), equalTo(""));
+    assertThat(cache.getMessage(conn, UNKNOWN_CODE, LANGUAGE), equalTo(""));
+    assertThat(cache.getHitCount(), equalTo(1L));
+  }
+
+  @Test
+  public void nullCodeReturnsEmptyMessage() throws ServletException {
+    assertThat(cache.getMessage(conn, null, LANGUAGE), equalTo(""));
+  }
+
+  @Test
+  public void cachedColumnNamesAreLimited() throws ServletException {
+    cache = new MessageBDCache(2);
+    cache.enable(300);
+    for (int i = 0; i < 5; i++) {
+      assertThat(cache.getMessage(conn, UNKNOWN_CODE + i, LANGUAGE), equalTo(""));
+    }
+    assertThat(cache.getCachedColumnNames(LANGUAGE), equalTo(2));
+  }
+
+  @Test
+  public void messagesAreReadOncePerLanguage() throws ServletException {
+    cache.getMessage(conn, MESSAGE, LANGUAGE);
+    cache.getMessage(conn, MESSAGE, LANGUAGE);
+    cache.getMessage(conn, COLUMN_NAME, LANGUAGE);
+    cache.getMessage(conn, COLUMN_NAME, LANGUAGE);
+
+    assertThat(cache.getMissCount(), equalTo(2L));
+    assertThat(cache.getHitCount(), equalTo(2L));
+    assertThat(cache.getCachedLanguages(), equalTo(1));
+  }
+
+  @Test
+  public void messagesAreReadAgainAfterInvalidation() throws ServletException {
+    cache.getMessage(conn, MESSAGE, LANGUAGE);
+    cache.invalidate();
+    cache.getMessage(conn, MESSAGE, LANGUAGE);
+
+    assertThat(cache.getMissCount(), equalTo(2L));
+    assertThat(cache.getHitCount(), equalTo(0L));
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.erpCommon.utility.poc;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openbravo.model.common.enterprise.EmailServerConfiguration;
+
+/**
+ * Tests the {@link EmailOutboxProcessor} class
+ */
+public class EmailOutboxProcessorTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void emailIsKeptInTheQueue() throws JSONException, IOException {
+    EmailServerConfiguration conf = mock(EmailServerConfiguration.class);
+    when(conf.getId()).thenReturn("TEST");
+    Date sentDate = new Date();
+    File attachment = tmp.newFile("invoice.pdf");
+    Files.write(attachment.toPath(), "Invoice content".getBytes(StandardCharsets.UTF_8));
+    EmailInfo email = new EmailInfo.Builder().setRecipientTO("to@example.com")
+        .setReplyTo("reply@example.com")
+        .setSubject("Invoice")
+        .setContent("<p>Content</p>")
+        .setContentType("text/html; charset=utf-8")
+        .setSentDate(sentDate)
+        .setAttachments(Arrays.asList(attachment))
+        .setHeaderExtras(Arrays.asList("X-Header", "value"))
+        .build();
+
+    JSONObject json = new JSONObject(EmailOutboxProcessor.toJSON(conf, email).toString());
+    // the attachment can be removed once the email is queued
+    Files.delete(attachment.toPath());
+    EmailInfo queuedEmail = EmailOutboxProcessor.toEmailInfo(json,
+        tmp.newFolder("outbox").toPath());
+
+    assertThat(json.getString("emailServerConfigurationId"), equalTo("TEST"));
+    assertThat(queuedEmail.getRecipientTO(), equalTo(email.getRecipientTO()));
+    assertThat(queuedEmail.getRecipientCC(), nullValue());
+    assertThat(queuedEmail.getReplyTo(), equalTo(email.getReplyTo()));
+    assertThat(queuedEmail.getSubject(), equalTo(email.getSubject()));
+    assertThat(queuedEmail.getContent(), equalTo(email.getContent()));
+    assertThat(queuedEmail.getContentType(), equalTo(email.getContentType()));
+    assertThat(queuedEmail.getSentDate(), equalTo(sentDate));
+    assertThat(queuedEmail.getAttachments().size(), equalTo(1));
+    File queuedAttachment = queuedEmail.getAttachments().get(0);
+    assertThat(queuedAttachment.getName(), equalTo("invoice.pdf"));
+    assertThat(new String(Files.readAllBytes(queuedAttachment.toPath()), StandardCharsets.UTF_8),
+        equalTo("Invoice content"));
+    assertThat(queuedEmail.getHeaderExtras(), equalTo(email.getHeaderExtras()));
+  }
+
+  @Test
+  public void emailIsRetriedOnceItsNextAttemptIsReached() throws JSONException {
+    JSONObject json = new JSONObject();
+    json.put(EmailOutboxProcessor.NEXT_ATTEMPT, 1000L);
+    assertThat(EmailOutboxProcessor.isRetryDue(json, 999L), equalTo(false));
+    assertThat(EmailOutboxProcessor.isRetryDue(json, 1000L), equalTo(true));
+  }
+
+  @Test
+  public void emailWithoutMoreAttemptsIsNotRetried() {
+    assertThat(EmailOutboxProcessor.isRetryDue(new JSONObject(), Long.MAX_VALUE), equalTo(false));
+  }
+
+  @Test
+  public void retryDelayIncreasesAfterEachAttempt() {
+    for (int attempt = 2; attempt < EmailOutboxProcessor.MAX_ATTEMPTS; attempt++) {
+      assertThat(EmailOutboxProcessor.getRetryDelay(attempt),
+          greaterThan(EmailOutboxProcessor.getRetryDelay(attempt - 1)));
+    }
+  }
+
+  @Test
+  public void retryDelayIsLimited() {
+    assertThat(EmailOutboxProcessor.getRetryDelay(100), lessThanOrEqualTo(3_600_000L));
+  }
+}
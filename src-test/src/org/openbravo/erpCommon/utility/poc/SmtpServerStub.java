@@ -0,0 +1,123 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.erpCommon.utility.poc;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal SMTP server running in the same JVM, used to test email sending without a real server.
+ * It accepts every message and keeps the received ones in memory.
+ */
+class SmtpServerStub implements Closeable {
+  private final ServerSocket serverSocket;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final AtomicInteger connections = new AtomicInteger();
+  private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+  SmtpServerStub() throws IOException {
+    serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    executor.submit(this::accept);
+  }
+
+  int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /** @return the number of connections opened by the clients */
+  int getConnections() {
+    return connections.get();
+  }
+
+  /** @return the data of the received messages */
+  List<String> getMessages() {
+    return messages;
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        connections.incrementAndGet();
+        executor.submit(() -> handle(socket));
+      } catch (IOException e) {
+        // server closed
+      }
+    }
+  }
+
+  private void handle(Socket socket) {
+    try (Socket s = socket;
+        BufferedReader in = new BufferedReader(
+            new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+        PrintWriter out = new PrintWriter(
+            new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII), true)) {
+      reply(out, "220 localhost SMTP stub");
+      String line;
+      while ((line = in.readLine()) != null) {
+        String command = line.toUpperCase();
+        if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+          reply(out, "250 localhost");
+        } else if (command.startsWith("DATA")) {
+          reply(out, "354 End data with <CR><LF>.<CR><LF>");
+          StringBuilder data = new StringBuilder();
+          while ((line = in.readLine()) != null && !".".equals(line)) {
+            data.append(line).append("\n");
+          }
+          messages.add(data.toString());
+          reply(out, "250 OK");
+        } else if (command.startsWith("QUIT")) {
+          reply(out, "221 Bye");
+          return;
+        } else {
+          // MAIL, RCPT, RSET, NOOP
+          reply(out, "250 OK");
+        }
+      }
+    } catch (IOException e) {
+      // connection closed by the client
+    }
+  }
+
+  private static void reply(PrintWriter out, String response) {
+    out.print(response + "\r\n");
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.erpCommon.utility.poc;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link SmtpTransportPool} against an in-process SMTP server
+ */
+public class SmtpTransportPoolTest {
+  private static final String KEY = "test";
+
+  private SmtpServerStub server;
+  private SmtpTransportPool pool;
+  private Session session;
+
+  @Before
+  public void startServer() throws IOException {
+    server = new SmtpServerStub();
+    pool = new SmtpTransportPool(2, 60_000);
+    Properties props = new Properties();
+    props.put("mail.transport.protocol", "smtp");
+    props.put("mail.smtp.host", "localhost");
+    props.put("mail.smtp.port", String.valueOf(server.getPort()));
+    session = Session.getInstance(props);
+  }
+
+  @After
+  public void stopServer() throws IOException {
+    pool.clear();
+    server.close();
+  }
+
+  @Test
+  public void connectionIsReusedForSeveralMessages() throws MessagingException {
+    for (int i = 0; i < 10; i++) {
+      send(KEY);
+    }
+    assertThat(server.getMessages().size(), equalTo(10));
+    assertThat(server.getConnections(), equalTo(1));
+  }
+
+  @Test
+  public void connectionsAreNotSharedBetweenConfigurations() throws MessagingException {
+    send(KEY);
+    send("other");
+    send(KEY);
+    assertThat(server.getConnections(), equalTo(2));
+    assertThat(pool.getIdleCount(), equalTo(2));
+  }
+
+  @Test
+  public void concurrentlyBorrowedConnectionsAreDifferent() throws MessagingException {
+    Transport t1 = pool.borrow(KEY, session);
+    Transport t2 = pool.borrow(KEY, session);
+    Transport t3 = pool.borrow(KEY, session);
+    pool.release(KEY, t1);
+    pool.release(KEY, t2);
+    pool.release(KEY, t3);
+    assertThat(server.getConnections(), equalTo(3));
+    assertThat(pool.getIdleCount(), equalTo(2));
+  }
+
+  @Test
+  public void invalidatedConnectionIsNotReused() throws MessagingException {
+    Transport transport = pool.borrow(KEY, session);
+    pool.invalidate(transport);
+    send(KEY);
+    assertThat(server.getConnections(), equalTo(2));
+  }
+
+  @Test
+  public void expiredConnectionIsNotReused() throws MessagingException {
+    pool = new SmtpTransportPool(2, -1);
+    send(KEY);
+    send(KEY);
+    assertThat(server.getConnections(), equalTo(2));
+  }
+
+  @Test
+  public void idleConnectionsAreClosedAfterTheIdleTimeout()
+      throws MessagingException, InterruptedException {
+    pool = new SmtpTransportPool(2, 50);
+    send(KEY);
+    Thread.sleep(100);
+    pool.closeExpired();
+    assertThat(pool.getIdleCount(), equalTo(0));
+  }
+
+  @Test
+  public void recentlyUsedConnectionsAreKeptOpen() throws MessagingException {
+    send(KEY);
+    pool.closeExpired();
+    assertThat(pool.getIdleCount(), equalTo(1));
+  }
+
+  private void send(String key) throws MessagingException {
+    MimeMessage message = new MimeMessage(session);
+    message.setFrom(new InternetAddress("sender@example.com"));
+    message.setRecipient(Message.RecipientType.TO, new InternetAddress("recipient@example.com"));
+    message.setSubject("Test");
+    message.setText("Test message");
+    Transport transport = pool.borrow(key, session);
+    transport.sendMessage(message, message.getAllRecipients());
+    pool.release(key, transport);
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.materialmgmt;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.hibernate.criterion.Restrictions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbravo.base.provider.OBProvider;
+import org.openbravo.base.weld.test.WeldBaseTest;
+import org.openbravo.dal.core.DalUtil;
+import org.openbravo.dal.service.OBCriteria;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.ad.utility.Image;
+import org.openbravo.model.common.enterprise.Organization;
+import org.openbravo.model.common.plm.Characteristic;
+import org.openbravo.model.common.plm.CharacteristicValue;
+import org.openbravo.model.common.plm.Product;
+import org.openbravo.model.common.plm.ProductCharacteristic;
+import org.openbravo.model.common.plm.ProductCharacteristicConf;
+import org.openbravo.model.pricing.pricelist.ProductPrice;
+import org.openbravo.test.base.TestConstants;
+
+/**
+ * Tests the {@link VariantAutomaticGenerationProcess} class
+ */
+public class VariantAutomaticGenerationProcessTest extends WeldBaseTest {
+
+  private static final BigDecimal RED_PRICE = BigDecimal.TEN;
+  private static final BigDecimal GREEN_PRICE = new BigDecimal("12");
+
+  private Characteristic color;
+  private Characteristic size;
+  private Map<String, CharacteristicValue> values = new HashMap<>();
+  private Image genericImage;
+  private Image redImage;
+
+  @Before
+  public void createCharacteristics() {
+    setTestAdminContext();
+    color = newCharacteristic("Variant Generation Test Color", "Red", "R", "Green", "G", "Blue",
+        "B");
+    size = newCharacteristic("Variant Generation Test Size", "Small", "S", "Medium", "M", "Large",
+        "L", "Extra Large", "XL");
+    genericImage = newImage("Variant Generation Test Generic");
+    redImage = newImage("Variant Generation Test Red");
+  }
+
+  @After
+  public void cleanUp() {
+    OBDal.getInstance().rollbackAndClose();
+  }
+
+  @Test
+  public void variantsInsertedInBatchesAreTheSameAsInsertedOneByOne() {
+    String oneByOneId = newGenericProduct("VGT-1");
+    String batchedId = newGenericProduct("VGT-2");
+    OBDal.getInstance().flush();
+    OBDal.getInstance().getSession().clear();
+
+    assertThat(new VariantAutomaticGenerationProcess(1).generateVariants(oneByOneId, false),
+        equalTo(12));
+    // 12 variants in batches of 5, so the last batch is not complete
+    assertThat(new VariantAutomaticGenerationProcess(5).generateVariants(batchedId, false),
+        equalTo(12));
+
+    List<List<Object>> variants = getVariants(oneByOneId);
+    assertThat(variants, hasSize(12));
+    assertThat(getVariants(batchedId), equalTo(variants));
+  }
+
+  @Test
+  public void variantsGetThePriceAndImageOfTheirCharacteristicValues() {
+    String genericId = newGenericProduct("VGT-1");
+    OBDal.getInstance().flush();
+    OBDal.getInstance().getSession().clear();
+
+    new VariantAutomaticGenerationProcess().generateVariants(genericId, false);
+
+    Product generic = OBDal.getInstance().get(Product.class, genericId);
+    for (Product variant : generic.getProductGenericProductList()) {
+      String description = variant.getCharacteristicDescription();
+      boolean red = description.contains(": Red");
+      assertThat(description, variant.getImage().getName(),
+          equalTo(red ? redImage.getName() : genericImage.getName()));
+      if (red || description.contains(": Green")) {
+        for (ProductPrice price : variant.getPricingProductPriceList()) {
+          if (price.getPriceListVersion().getPriceList().isSalesPriceList()) {
+            assertThat(description, price.getStandardPrice(),
+                comparesEqualTo(red ? RED_PRICE : GREEN_PRICE));
+          }
+        }
+      }
+      assertThat(description, variant.getProductCharacteristicValueList(), hasSize(2));
+    }
+  }
+
+  /**
+   * Creates a characteristic with the given value names and codes
+   */
+  private Characteristic newCharacteristic(String name, String... valueNamesAndCodes) {
+    Characteristic characteristic = OBProvider.getInstance().get(Characteristic.class);
+    characteristic
+        .setOrganization(OBDal.getInstance().getProxy(Organization.class, TestConstants.Orgs.MAIN));
+    characteristic.setName(name);
+    characteristic.setVariant(true);
+    OBDal.getInstance().save(characteristic);
+    for (int i = 0; i < valueNamesAndCodes.length; i += 2) {
+      values.put(valueNamesAndCodes[i + 1],
+          ProductCharacteristicTestUtils.createCharacteristicValue(valueNamesAndCodes[i],
+              valueNamesAndCodes[i + 1], characteristic.getId()));
+    }
+    return characteristic;
+  }
+
+  private static Image newImage(String name) {
+    Image image = OBProvider.getInstance().get(Image.class);
+    image
+        .setOrganization(OBDal.getInstance().getProxy(Organization.class, TestConstants.Orgs.MAIN));
+    image.setName(name);
+    image.setMimetype("image/png");
+    image.setBindaryData(name.getBytes(StandardCharsets.UTF_8));
+    OBDal.getInstance().save(image);
+    return image;
+  }
+
+  /**
+   * Creates a generic product with the prices of the test product, with a color characteristic that
+   * defines the price and the image, and a size characteristic
+   */
+  private String newGenericProduct(String searchKey) {
+    Product testProduct = OBDal.getInstance().get(Product.class, TEST_PRODUCT_ID);
+    Product generic = (Product) DalUtil.copy(testProduct, false);
+    generic.setSearchKey(searchKey);
+    generic.setName("Variant Generation Test");
+    generic.setGeneric(true);
+    generic.setImage(genericImage);
+    OBDal.getInstance().save(generic);
+    for (ProductPrice price : testProduct.getPricingProductPriceList()) {
+      ProductPrice genericPrice = (ProductPrice) DalUtil.copy(price, false);
+      genericPrice.setProduct(generic);
+      OBDal.getInstance().save(genericPrice);
+    }
+
+    ProductCharacteristic productColor = newProductCharacteristic(generic, color, 10L);
+    productColor.setDefinesPrice(true);
+    productColor.setDefinesImage(true);
+    newConfiguration(productColor, "R", RED_PRICE, redImage);
+    newConfiguration(productColor, "G", GREEN_PRICE, null);
+    newConfiguration(productColor, "B", null, null);
+
+    ProductCharacteristic productSize = newProductCharacteristic(generic, size, 20L);
+    newConfiguration(productSize, "S", null, null);
+    newConfiguration(productSize, "M", null, null);
+    newConfiguration(productSize, "L", null, null);
+    newConfiguration(productSize, "XL", null, null);
+    return generic.getId();
+  }
+
+  private static ProductCharacteristic newProductCharacteristic(Product product,
+      Characteristic characteristic, long sequenceNumber) {
+    ProductCharacteristic productCharacteristic = OBProvider.getInstance()
+        .get(ProductCharacteristic.class);
+    productCharacteristic.setOrganization(product.getOrganization());
+    productCharacteristic.setProduct(product);
+    productCharacteristic.setCharacteristic(characteristic);
+    productCharacteristic.setSequenceNumber(sequenceNumber);
+    productCharacteristic.setVariant(true);
+    productCharacteristic.setExplodeConfigurationTab(false);
+    OBDal.getInstance().save(productCharacteristic);
+    return productCharacteristic;
+  }
+
+  private void newConfiguration(ProductCharacteristic productCharacteristic, String code,
+      BigDecimal price, Image image) {
+    ProductCharacteristicConf configuration = OBProvider.getInstance()
+        .get(ProductCharacteristicConf.class);
+    configuration.setOrganization(productCharacteristic.getOrganization());
+    configuration.setCharacteristicOfProduct(productCharacteristic);
+    configuration.setCharacteristicValue(values.get(code));
+    configuration.setCode(code);
+    configuration.setNetUnitPrice(price);
+    configuration.setImage(image);
+    productCharacteristic.getProductCharacteristicConfList().add(configuration);
+    OBDal.getInstance().save(configuration);
+  }
+
+  /**
+   * Returns the search key suffix, name, descriptions, prices, image and characteristic values of
+   * the variants of the given generic product, sorted by search key
+   */
+  private static List<List<Object>> getVariants(String genericProductId) {
+    Product generic = OBDal.getInstance().get(Product.class, genericProductId);
+    OBCriteria<Product> criteria = OBDal.getInstance().createCriteria(Product.class);
+    criteria.add(Restrictions.eq(Product.PROPERTY_GENERICPRODUCT, generic));
+    criteria.addOrderBy(Product.PROPERTY_SEARCHKEY, true);
+
+    List<List<Object>> variants = new ArrayList<>();
+    for (Product variant : criteria.list()) {
+      variants.add(Arrays.asList(
+          variant.getSearchKey().substring(generic.getSearchKey().length()), variant.getName(),
+          variant.getDescription(), variant.getCharacteristicDescription(), getPrices(variant),
+          getImage(variant), getCharacteristicValues(variant)));
+    }
+    return variants;
+  }
+
+  private static Map<String, List<BigDecimal>> getPrices(Product variant) {
+    return variant.getPricingProductPriceList()
+        .stream()
+        .collect(Collectors.toMap(price -> price.getPriceListVersion().getId(),
+            price -> Arrays.asList(price.getStandardPrice(), price.getListPrice(),
+                price.getPriceLimit())));
+  }
+
+  private static List<String> getImage(Product variant) {
+    Image image = variant.getImage();
+    if (image == null) {
+      return null;
+    }
+    return Arrays.asList(image.getName(), image.getMimetype(),
+        Base64.getEncoder().encodeToString(image.getBindaryData()));
+  }
+
+  private static List<List<String>> getCharacteristicValues(Product variant) {
+    return variant.getProductCharacteristicValueList()
+        .stream()
+        .map(value -> Arrays.asList(value.getCharacteristic().getId(),
+            value.getCharacteristicValue().getId()))
+        .sorted(Comparator.comparing(value -> value.get(0)))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test cases for the {@link ConcurrencyLimitedExecutorService}
+ */
+public class ConcurrencyLimitedExecutorServiceTest {
+  private static final Logger log = LogManager.getLogger();
+
+  private ExecutorService executor;
+
+  @Before
+  public void createExecutor() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void shutdownExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void concurrencyIsLimited() throws InterruptedException {
+    ConcurrencyLimitedExecutorService limitedExecutor = new ConcurrencyLimitedExecutorService(
+        executor, 3);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    int tasks = 50;
+    CountDownLatch completed = new CountDownLatch(tasks);
+
+    for (int i = 0; i < tasks; i++) {
+      limitedExecutor.execute(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        sleep(5);
+        running.decrementAndGet();
+        completed.countDown();
+      });
+    }
+
+    assertThat(completed.await(10, TimeUnit.SECONDS), equalTo(true));
+    assertThat(maxRunning.get(), lessThanOrEqualTo(3));
+  }
+
+  @Test
+  public void tasksWaitInQueueUntilASlotIsFree() throws InterruptedException {
+    ConcurrencyLimitedExecutorService limitedExecutor = new ConcurrencyLimitedExecutorService(
+        executor, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch secondExecuted = new CountDownLatch(1);
+
+    limitedExecutor.execute(() -> await(release));
+    limitedExecutor.execute(secondExecuted::countDown);
+
+    assertThat(limitedExecutor.getRunningCount(), equalTo(1));
+    assertThat(limitedExecutor.getQueuedCount(), equalTo(1));
+
+    release.countDown();
+
+    assertThat(secondExecuted.await(5, TimeUnit.SECONDS), equalTo(true));
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void tasksAreRejectedAfterShutdown() {
+    ConcurrencyLimitedExecutorService limitedExecutor = new ConcurrencyLimitedExecutorService(
+        executor, 1);
+    limitedExecutor.shutdown();
+
+    limitedExecutor.execute(() -> {
+    });
+  }
+
+  @Test
+  public void shutdownDoesNotShutdownTheSharedExecutor() throws InterruptedException {
+    ConcurrencyLimitedExecutorService limitedExecutor = new ConcurrencyLimitedExecutorService(
+        executor, 1);
+
+    limitedExecutor.shutdown();
+
+    assertThat(limitedExecutor.awaitTermination(1, TimeUnit.SECONDS), equalTo(true));
+    assertThat(executor.isShutdown(), equalTo(false));
+  }
+
+  @Test
+  public void concurrencyIsLimitedUnderLoad() throws IOException, InterruptedException {
+    int maxConcurrency = 8;
+    int requests = 200;
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    AtomicInteger receivedRequests = new AtomicInteger();
+    ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", exchange -> {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      receivedRequests.incrementAndGet();
+      sleep(10);
+      inFlight.decrementAndGet();
+      byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    });
+    server.setExecutor(serverExecutor);
+    server.start();
+    ExecutorService fixedPool = Executors.newFixedThreadPool(maxConcurrency);
+    try {
+      URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/test");
+      HttpClient client = HttpClient.newHttpClient();
+
+      long limitedTime = sendRequests(
+          new ConcurrencyLimitedExecutorService(executor, maxConcurrency), client, uri, requests);
+
+      assertThat(receivedRequests.get(), equalTo(requests));
+      assertThat(maxInFlight.get(), lessThanOrEqualTo(maxConcurrency));
+      assertThat(maxInFlight.get(), greaterThan(1));
+
+      maxInFlight.set(0);
+      long fixedPoolTime = sendRequests(fixedPool, client, uri, requests);
+
+      assertThat(receivedRequests.get(), equalTo(2 * requests));
+      assertThat(maxInFlight.get(), lessThanOrEqualTo(maxConcurrency));
+      log.info("{} requests sent in {} ms limiting the concurrency to {} and in {} ms with a fixed "
+          + "pool of {} threads", requests, limitedTime, maxConcurrency, fixedPoolTime,
+          maxConcurrency);
+    } finally {
+      fixedPool.shutdownNow();
+      server.stop(0);
+      serverExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Sends the given number of requests from tasks executed by the given executor service and waits
+   * for all of them to complete
+   * 
+   * @return the time in milliseconds spent to complete all the requests
+   */
+  private static long sendRequests(ExecutorService executorService, HttpClient client, URI uri,
+      int requests) throws InterruptedException {
+    CountDownLatch completed = new CountDownLatch(requests);
+    AtomicInteger failed = new AtomicInteger();
+    long start = System.nanoTime();
+    for (int i = 0; i < requests; i++) {
+      executorService.execute(() -> {
+        try {
+          client.send(HttpRequest.newBuilder(uri).GET().build(), BodyHandlers.ofString());
+        } catch (IOException e) {
+          failed.incrementAndGet();
+        } catch (InterruptedException e) {
+          failed.incrementAndGet();
+          Thread.currentThread().interrupt();
+        } finally {
+          completed.countDown();
+        }
+      });
+    }
+    assertThat(completed.await(30, TimeUnit.SECONDS), equalTo(true));
+    assertThat(failed.get(), equalTo(0));
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
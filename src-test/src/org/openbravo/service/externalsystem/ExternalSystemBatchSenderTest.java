@@ -0,0 +1,166 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.service.externalsystem;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.openbravo.test.base.TestConstants.Orgs.MAIN;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.apache.commons.io.IOUtils;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbravo.base.provider.OBProvider;
+import org.openbravo.base.weld.test.WeldBaseTest;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.ad.utility.Protocol;
+import org.openbravo.model.common.enterprise.Organization;
+import org.openbravo.test.base.TestConstants;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for the {@link ExternalSystemBatchSender} class. The records are sent to a stub HTTP server
+ * started locally by the tests.
+ */
+public class ExternalSystemBatchSenderTest extends WeldBaseTest {
+
+  @Inject
+  private ExternalSystemBatchSender batchSender;
+
+  private HttpServer server;
+  private BlockingQueue<String> receivedPayloads;
+  private String externalSystemId;
+
+  @Before
+  public void init() throws IOException {
+    receivedPayloads = new LinkedBlockingQueue<>();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", exchange -> {
+      try (InputStream is = exchange.getRequestBody()) {
+        receivedPayloads.add(IOUtils.toString(is, StandardCharsets.UTF_8));
+      }
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+    });
+    server.start();
+
+    setTestAdminContext();
+    ExternalSystemData externalSystemData = OBProvider.getInstance()
+        .get(ExternalSystemData.class);
+    externalSystemData.setOrganization(OBDal.getInstance().getProxy(Organization.class, MAIN));
+    externalSystemData.setName("Test");
+    externalSystemData.setSearchKey("Test");
+    externalSystemData
+        .setProtocol(OBDal.getInstance().getProxy(Protocol.class, TestConstants.Protocols.HTTP));
+    OBDal.getInstance().save(externalSystemData);
+
+    HttpExternalSystemData httpExternalSystemData = OBProvider.getInstance()
+        .get(HttpExternalSystemData.class);
+    httpExternalSystemData.setOrganization(OBDal.getInstance().getProxy(Organization.class, MAIN));
+    httpExternalSystemData.setURL("http://localhost:" + server.getAddress().getPort());
+    httpExternalSystemData.setRequestMethod("POST");
+    httpExternalSystemData.setAuthorizationType("NOAUTH");
+    httpExternalSystemData.setExternalSystem(externalSystemData);
+    httpExternalSystemData.setActive(true);
+    externalSystemData.getExternalSystemHttpList().add(httpExternalSystemData);
+    OBDal.getInstance().save(httpExternalSystemData);
+    OBDal.getInstance().commitAndClose();
+    externalSystemId = externalSystemData.getId();
+  }
+
+  @After
+  public void cleanUp() {
+    server.stop(0);
+    OBDal.getInstance().rollbackAndClose();
+    OBDal.getInstance()
+        .getSession()
+        .createQuery("DELETE FROM " + HttpExternalSystemData.ENTITY_NAME
+            + " WHERE externalSystem.id = :id")
+        .setParameter("id", externalSystemId)
+        .executeUpdate();
+    OBDal.getInstance()
+        .getSession()
+        .createQuery("DELETE FROM " + ExternalSystemData.ENTITY_NAME + " WHERE id = :id")
+        .setParameter("id", externalSystemId)
+        .executeUpdate();
+    OBDal.getInstance().commitAndClose();
+  }
+
+  @Test
+  public void recordsAreSentInBatchAfterCommit() throws Exception {
+    startTransaction();
+    batchSender.send(externalSystemId, "1", new JSONObject(Map.of("name", "first")));
+    batchSender.send(externalSystemId, "2", new JSONObject(Map.of("name", "second")));
+    OBDal.getInstance().commitAndClose();
+
+    JSONArray data = getReceivedData();
+
+    assertThat(data.length(), equalTo(2));
+    assertThat(data.getJSONObject(0).getString("name"), equalTo("first"));
+    assertThat(data.getJSONObject(1).getString("name"), equalTo("second"));
+  }
+
+  @Test
+  public void repeatedRecordsAreCoalesced() throws Exception {
+    startTransaction();
+    batchSender.send(externalSystemId, "1", new JSONObject(Map.of("name", "first")));
+    batchSender.send(externalSystemId, "1", new JSONObject(Map.of("name", "updated")));
+    OBDal.getInstance().commitAndClose();
+
+    JSONArray data = getReceivedData();
+
+    assertThat(data.length(), equalTo(1));
+    assertThat(data.getJSONObject(0).getString("name"), equalTo("updated"));
+  }
+
+  @Test
+  public void recordsAreNotSentAfterRollback() throws Exception {
+    startTransaction();
+    batchSender.send(externalSystemId, "1", new JSONObject(Map.of("name", "first")));
+    OBDal.getInstance().rollbackAndClose();
+
+    assertThat(receivedPayloads.poll(3, TimeUnit.SECONDS), nullValue());
+  }
+
+  private void startTransaction() {
+    // the records are registered within the current transaction
+    OBDal.getInstance().get(ExternalSystemData.class, externalSystemId);
+  }
+
+  private JSONArray getReceivedData() throws InterruptedException, JSONException {
+    String payload = receivedPayloads.poll(10, TimeUnit.SECONDS);
+    return new JSONObject(payload).getJSONArray("data");
+  }
+}
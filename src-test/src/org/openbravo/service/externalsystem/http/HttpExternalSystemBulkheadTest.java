@@ -0,0 +1,200 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.service.externalsystem.http;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbravo.service.externalsystem.ExternalSystemResponse;
+import org.openbravo.service.externalsystem.ExternalSystemResponse.Type;
+import org.openbravo.service.externalsystem.ExternalSystemResponseBuilder;
+import org.openbravo.service.externalsystem.http.HttpExternalSystemBulkhead.CircuitState;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test cases for the {@link HttpExternalSystemBulkhead}. The requests are sent to a stub HTTP
+ * server started locally by the tests.
+ */
+public class HttpExternalSystemBulkheadTest {
+
+  private HttpServer server;
+  private HttpClient client;
+  private AtomicInteger receivedRequests;
+  private volatile int responseStatus;
+
+  @Before
+  public void startServer() throws IOException {
+    receivedRequests = new AtomicInteger();
+    responseStatus = 200;
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", exchange -> {
+      receivedRequests.incrementAndGet();
+      byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(responseStatus, body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    });
+    server.start();
+    client = HttpClient.newHttpClient();
+  }
+
+  @After
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  public void requestsAreQueuedWhenMaxInFlightIsReached() {
+    HttpExternalSystemBulkhead bulkhead = newBulkhead(1, 1, 5, 1000);
+    CompletableFuture<ExternalSystemResponse> firstResponse = new CompletableFuture<>();
+    CompletableFuture<ExternalSystemResponse> secondResponse = new CompletableFuture<>();
+
+    CompletableFuture<ExternalSystemResponse> first = bulkhead.execute(() -> firstResponse);
+    CompletableFuture<ExternalSystemResponse> second = bulkhead.execute(() -> secondResponse);
+
+    assertThat(bulkhead.getInFlight(), equalTo(1));
+    assertThat(bulkhead.getQueued(), equalTo(1));
+
+    firstResponse.complete(successResponse());
+
+    assertThat(first.join().getType(), equalTo(Type.SUCCESS));
+    assertThat(bulkhead.getInFlight(), equalTo(1));
+    assertThat(bulkhead.getQueued(), equalTo(0));
+
+    secondResponse.complete(successResponse());
+
+    assertThat(second.join().getType(), equalTo(Type.SUCCESS));
+    assertThat(bulkhead.getInFlight(), equalTo(0));
+    assertThat(bulkhead.getRequestCount(), equalTo(2L));
+  }
+
+  @Test
+  public void requestsAreRejectedWhenQueueIsFull() {
+    HttpExternalSystemBulkhead bulkhead = newBulkhead(1, 1, 5, 1000);
+    bulkhead.execute(CompletableFuture::new);
+    bulkhead.execute(CompletableFuture::new);
+
+    ExternalSystemResponse response = bulkhead.execute(this::send).join();
+
+    assertThat(response.getType(), equalTo(Type.ERROR));
+    assertThat(bulkhead.getRejectedCount(), equalTo(1L));
+    assertThat(receivedRequests.get(), equalTo(0));
+  }
+
+  @Test
+  public void circuitIsOpenedAfterConsecutiveFailures() {
+    HttpExternalSystemBulkhead bulkhead = newBulkhead(5, 5, 2, 60000);
+    responseStatus = 503;
+
+    bulkhead.execute(this::send).join();
+    assertThat(bulkhead.getCircuit(), equalTo(CircuitState.CLOSED));
+    bulkhead.execute(this::send).join();
+    assertThat(bulkhead.getCircuit(), equalTo(CircuitState.OPEN));
+
+    ExternalSystemResponse response = bulkhead.execute(this::send).join();
+
+    assertThat(response.getType(), equalTo(Type.ERROR));
+    assertThat(receivedRequests.get(), equalTo(2));
+    assertThat(bulkhead.getShortCircuitedCount(), equalTo(1L));
+    assertThat(bulkhead.getErrorCount(), equalTo(2L));
+  }
+
+  @Test
+  public void clientErrorsDoNotOpenTheCircuit() {
+    HttpExternalSystemBulkhead bulkhead = newBulkhead(5, 5, 2, 60000);
+    responseStatus = 404;
+
+    bulkhead.execute(this::send).join();
+    bulkhead.execute(this::send).join();
+
+    assertThat(bulkhead.getCircuit(), equalTo(CircuitState.CLOSED));
+  }
+
+  @Test
+  public void circuitIsClosedAfterSuccessfulProbe() throws InterruptedException {
+    HttpExternalSystemBulkhead bulkhead = newBulkhead(5, 5, 1, 50);
+    responseStatus = 500;
+    bulkhead.execute(this::send).join();
+    assertThat(bulkhead.getCircuit(), equalTo(CircuitState.OPEN));
+
+    Thread.sleep(100);
+    responseStatus = 200;
+    ExternalSystemResponse response = bulkhead.execute(this::send).join();
+
+    assertThat(response.getType(), equalTo(Type.SUCCESS));
+    assertThat(bulkhead.getCircuit(), equalTo(CircuitState.CLOSED));
+  }
+
+  @Test
+  public void circuitIsReopenedAfterFailedProbe() throws InterruptedException {
+    HttpExternalSystemBulkhead bulkhead = newBulkhead(5, 5, 1, 50);
+    responseStatus = 500;
+    bulkhead.execute(this::send).join();
+
+    Thread.sleep(100);
+    bulkhead.execute(this::send).join();
+
+    assertThat(bulkhead.getCircuit(), equalTo(CircuitState.OPEN));
+    assertThat(receivedRequests.get(), equalTo(2));
+  }
+
+  private HttpExternalSystemBulkhead newBulkhead(int maxInFlight, int maxQueued,
+      int failureThreshold, long openDuration) {
+    return new HttpExternalSystemBulkhead("Test", maxInFlight, maxQueued, failureThreshold,
+        openDuration, Runnable::run);
+  }
+
+  private CompletableFuture<ExternalSystemResponse> send() {
+    HttpRequest request = HttpRequest
+        .newBuilder(URI.create("http://localhost:" + server.getAddress().getPort() + "/test"))
+        .GET()
+        .build();
+    return client.sendAsync(request, BodyHandlers.ofString()).thenApply(response -> {
+      ExternalSystemResponseBuilder builder = ExternalSystemResponseBuilder.newBuilder()
+          .withStatusCode(response.statusCode());
+      if (response.statusCode() >= 200 && response.statusCode() <= 299) {
+        return builder.withData(response.body()).withType(Type.SUCCESS).build();
+      }
+      return builder.withError(response.body()).build();
+    });
+  }
+
+  private ExternalSystemResponse successResponse() {
+    return ExternalSystemResponseBuilder.newBuilder()
+        .withStatusCode(200)
+        .withType(Type.SUCCESS)
+        .build();
+  }
+}
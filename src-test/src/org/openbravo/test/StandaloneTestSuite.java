@@ -25,12 +25,18 @@ import org.openbravo.advpaymentmngt.test.DocumentNumberGeneration;
 import org.openbravo.authentication.hashing.PasswordHashing;
 import org.openbravo.authentication.oauth2.OAuth2SignInProviderTest;
 import org.openbravo.authentication.oauth2.OAuth2TokenAuthenticationManagerTest;
+import org.openbravo.base.expression.ExpressionCompilerTest;
+import org.openbravo.base.model.ModelSnapshotStartupTest;
+import org.openbravo.base.model.ModelSnapshotTest;
 import org.openbravo.base.model.NamingUtilTest;
+import org.openbravo.base.secureApp.SessionAccessCacheTest;
 import org.openbravo.base.weld.test.testinfrastructure.CdiInfrastructure;
 import org.openbravo.base.weld.test.testinfrastructure.DalPersistanceEventTest;
 import org.openbravo.base.weld.test.testinfrastructure.ParameterizedCdi;
 import org.openbravo.base.weld.test.testinfrastructure.ParameterizedCdiWithSkip;
 import org.openbravo.cache.TimeInvalidatedCacheTest;
+import org.openbravo.client.application.attachment.AttachmentBlobStoreTest;
+import org.openbravo.client.application.attachment.AttachmentContentWriterTest;
 import org.openbravo.client.application.attachment.ReprintableDocumentTest;
 import org.openbravo.client.application.test.ADCSInitialization;
 import org.openbravo.client.application.test.ADCSTest;
@@ -42,7 +48,11 @@ import org.openbravo.client.application.test.MenuTemplateTest;
 import org.openbravo.client.application.test.MenuTest;
 import org.openbravo.client.application.test.SelectionPoolConfigurationTest;
 import org.openbravo.client.application.test.event.DatasourceEventObserver;
+import org.openbravo.client.application.test.event.EntityPersistenceEventDispatcherTest;
 import org.openbravo.client.application.test.event.PersistanceObserver;
+import org.openbravo.client.application.window.CalloutExecutionPlannerTest;
+import org.openbravo.client.application.window.FormInitializationComponentCalloutTest;
+import org.openbravo.client.application.window.GeneratedViewCacheTest;
 import org.openbravo.client.application.window.OBViewFieldHandlerFieldSorterTest;
 import org.openbravo.client.kernel.CSSMinifier;
 import org.openbravo.client.kernel.freemarker.test.FreemarkerTemplateProcessorTest;
@@ -50,22 +60,31 @@ import org.openbravo.client.kernel.freemarker.test.GenerateComponentTest;
 import org.openbravo.client.kernel.freemarker.test.LabelTest;
 import org.openbravo.client.kernel.reference.materialmgmt.RelevantCharacteristicAdditionalPropertyResolverTest;
 import org.openbravo.client.kernel.reference.materialmgmt.RelevantCharacteristicQueryHookTest;
+import org.openbravo.client.kernel.test.CompressingHttpServletResponseTest;
 import org.openbravo.client.kernel.test.CompressionTest;
 import org.openbravo.dal.security.SecurityCheckerTest;
 import org.openbravo.dal.service.DataPoolCheckerTest;
+import org.openbravo.erpCommon.businessUtility.PriceAdjustmentRuleIndexTest;
 import org.openbravo.erpCommon.info.ClassicSelectorTest;
+import org.openbravo.erpCommon.utility.MessageBDCacheTest;
 import org.openbravo.erpCommon.utility.OBDateUtilsTest;
+import org.openbravo.erpCommon.utility.poc.EmailOutboxProcessorTest;
+import org.openbravo.erpCommon.utility.poc.SmtpTransportPoolTest;
 import org.openbravo.event.CharacteristicEventHandlerTest;
 import org.openbravo.event.ProductEventHandlerTest;
 import org.openbravo.materialmgmt.PurchaseDocumentLineTest;
 import org.openbravo.materialmgmt.RelevantCharacteristicFieldTerminologyChecker;
 import org.openbravo.materialmgmt.RelevantCharacteristicPropertyTest;
+import org.openbravo.materialmgmt.VariantAutomaticGenerationProcessTest;
 import org.openbravo.scheduling.ProcessBundleSerializationTest;
 import org.openbravo.scheduling.ProcessSchedulingTest;
 import org.openbravo.scheduling.trigger.MisfirePolicyTest;
 import org.openbravo.scheduling.trigger.TriggerProviderTest;
+import org.openbravo.service.ConcurrencyLimitedExecutorServiceTest;
 import org.openbravo.service.datasource.ModelDataSourceServiceTest;
+import org.openbravo.service.externalsystem.ExternalSystemBatchSenderTest;
 import org.openbravo.service.externalsystem.ExternalSystemProviderTest;
+import org.openbravo.service.externalsystem.http.HttpExternalSystemBulkheadTest;
 import org.openbravo.service.externalsystem.http.HttpExternalSystemDataCreationTest;
 import org.openbravo.service.externalsystem.http.OAuth2AccessTokenTest;
 import org.openbravo.service.json.AdvancedQueryBuilderTest;
@@ -146,6 +165,7 @@ import org.openbravo.test.role.inheritance.RoleInheritanceTestSuite;
 import org.openbravo.test.security.AccessLevelTest;
 import org.openbravo.test.security.AllowedOrganizationsTest;
 import org.openbravo.test.security.BOBInClosestOrgTest;
+import org.openbravo.test.security.BulkCrossOrganizationReference;
 import org.openbravo.test.security.BypassAccessLevelCheck;
 import org.openbravo.test.security.CrossOrganizationUI;
 import org.openbravo.test.security.CrossOrganizationUICDI;
@@ -162,6 +182,7 @@ import org.openbravo.test.storageBin.StorageBinTest;
 import org.openbravo.test.system.CryptoUtilities;
 import org.openbravo.test.system.ErrorTextParserIntegrationTest;
 import org.openbravo.test.system.ErrorTextParserTest;
+import org.openbravo.test.system.ExtensionInstrumentationTest;
 import org.openbravo.test.system.ImportEntryBuilderTest;
 import org.openbravo.test.system.ImportEntrySizeTest;
 import org.openbravo.test.system.Issue29934Test;
@@ -229,6 +250,7 @@ import org.openbravo.userinterface.selectors.test.ExpressionsTest;
     ComputedColumnsTest.class, //
     DatasourceEventObserver.class, //
     PersistanceObserver.class, //
+    EntityPersistenceEventDispatcherTest.class, //
     ImageTest.class, //
     SecurityCheckerTest.class, //
 
@@ -255,6 +277,8 @@ import org.openbravo.userinterface.selectors.test.ExpressionsTest;
     ADCSTest.class, //
     DBModifiedTest.class, //
     NamingUtilTest.class,
+    ModelSnapshotTest.class, //
+    ModelSnapshotStartupTest.class, //
 
     // modularity
     DatasetServiceTest.class, //
@@ -268,12 +292,14 @@ import org.openbravo.userinterface.selectors.test.ExpressionsTest;
     EntityAccessTest.class, //
     WritableReadableOrganizationClientTest.class, //
     StandardCrossOrganizationReference.class, //
+    BulkCrossOrganizationReference.class, //
     BypassAccessLevelCheck.class, //
     CrossOrganizationUI.class, //
     CrossOrganizationUICDI.class, //
     OBContextCollectionsTest.class, //
     PasswordStrengthCheckerTest.class, //
     BOBInClosestOrgTest.class, //
+    SessionAccessCacheTest.class, //
 
     // system
     SystemServiceTest.class, //
@@ -289,6 +315,7 @@ import org.openbravo.userinterface.selectors.test.ExpressionsTest;
     OBContextTest.class, //
     JSONSerialization.class, //
     PasswordHashing.class, //
+    ExtensionInstrumentationTest.class, //
 
     // xml
     ClientExportImportTest.class, //
@@ -315,6 +342,7 @@ import org.openbravo.userinterface.selectors.test.ExpressionsTest;
 
     // Price List
     PriceListTest.class, //
+    PriceAdjustmentRuleIndexTest.class, //
 
     // costing
     TestCosting.class, //
@@ -329,6 +357,7 @@ import org.openbravo.userinterface.selectors.test.ExpressionsTest;
     CharacteristicEventHandlerTest.class, //
     RelevantCharacteristicPropertyTest.class, //
     RelevantCharacteristicFieldTerminologyChecker.class, //
+    VariantAutomaticGenerationProcessTest.class, //
 
     // POValidations
     PurchaseDocumentLineTest.class, //
@@ -357,6 +386,9 @@ import org.openbravo.userinterface.selectors.test.ExpressionsTest;
     GenerateTypesJSTest.class, //
     MenuTest.class, //
     OBViewFieldHandlerFieldSorterTest.class, //
+    GeneratedViewCacheTest.class, //
+    CalloutExecutionPlannerTest.class, //
+    FormInitializationComponentCalloutTest.class, //
     MenuTemplateTest.class, //
     DisplayLogicAtServerLevelTest.class, //
     CSSMinifier.class, //
@@ -366,6 +398,7 @@ import org.openbravo.userinterface.selectors.test.ExpressionsTest;
     GenerateComponentTest.class, //
     LabelTest.class, //
     CompressionTest.class, //
+    CompressingHttpServletResponseTest.class, //
     RelevantCharacteristicQueryHookTest.class, //
     RelevantCharacteristicAdditionalPropertyResolverTest.class, //
 
@@ -386,6 +419,8 @@ import org.openbravo.userinterface.selectors.test.ExpressionsTest;
 
     // attachments and reprintable documents
     ReprintableDocumentTest.class, //
+    AttachmentContentWriterTest.class, //
+    AttachmentBlobStoreTest.class, //
 
     // db
     SqlCallableStatement.class, //
@@ -406,7 +441,9 @@ import org.openbravo.userinterface.selectors.test.ExpressionsTest;
 
     // external system
     ExternalSystemProviderTest.class, //
+    ExternalSystemBatchSenderTest.class, //
     HttpExternalSystemDataCreationTest.class, //
+    HttpExternalSystemBulkheadTest.class, //
     OAuth2AccessTokenTest.class,
 
     // synchronization events
@@ -425,6 +462,8 @@ import org.openbravo.userinterface.selectors.test.ExpressionsTest;
     OAuth2SignInProviderTest.class, //
     OAuth2TokenAuthenticationManagerTest.class, //
     TimeInvalidatedCacheTest.class, //
+    ConcurrencyLimitedExecutorServiceTest.class, //
+    ExpressionCompilerTest.class, //
     ProductEventHandlerTest.class, //
 
     // Cancel and Replace Tests
@@ -470,8 +509,13 @@ import org.openbravo.userinterface.selectors.test.ExpressionsTest;
     // Utilities to manage dates
     OBDateUtilsTest.class,
 
+    // In memory cache of messages
+    MessageBDCacheTest.class,
+
     // Email Configuration by differents organization
     SendEmailTest.class,
+    SmtpTransportPoolTest.class, //
+    EmailOutboxProcessorTest.class, //
 
     // Purchase Order Status Transition Test
     PurchaseOrderStatusTransitionTest.class
@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2008-2021 Openbravo SLU
+ * All portions are Copyright (C) 2008-2024 Openbravo SLU
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -39,6 +39,8 @@ import static org.openbravo.test.base.TestConstants.Orgs.US_WEST;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -148,6 +150,44 @@ public class AllowedOrganizationsTest extends OBBaseTest {
     }
   }
 
+  @Test
+  public void naturalTreeCheckIsConsistentWithNaturalTree() {
+    Set<String> naturalTree = osp.getNaturalTree(testingOrgId);
+    for (String orgId : ORG_NAMES.keySet()) {
+      // org 0 is in everyones natural tree
+      boolean expected = MAIN.equals(orgId) || naturalTree.contains(orgId);
+      assertThat(ORG_NAMES.get(orgId) + " is in natural tree of " + testingOrgId,
+          osp.isInNaturalTree(testingOrgId, orgId), is(expected));
+    }
+  }
+
+  @Test
+  public void returnedTreesCanBeModifiedByTheCaller() {
+    Set<String> expectedNaturalTree = new HashSet<>(osp.getNaturalTreeView(testingOrgId));
+    Set<String> expectedChildOrgs = new HashSet<>(osp.getChildOrg(testingOrgId));
+
+    osp.getNaturalTree(testingOrgId).retainAll(Collections.singleton(testingOrgId));
+    osp.getParentTree(testingOrgId, true).clear();
+    osp.getChildTree(testingOrgId, false).add(MAIN);
+    osp.getChildOrg(testingOrgId).add(MAIN);
+
+    assertThat(osp.getNaturalTree(testingOrgId), is(expectedNaturalTree));
+    assertThat(osp.getNaturalTreeView(testingOrgId), is(expectedNaturalTree));
+    assertThat(osp.getChildOrg(testingOrgId), is(expectedChildOrgs));
+  }
+
+  @Test
+  public void ancestorAndDescendantChecksAreConsistentWithTrees() {
+    Set<String> parentTree = osp.getParentTree(testingOrgId, false);
+    Set<String> childTree = osp.getChildTree(testingOrgId, false);
+    for (String orgId : ORG_NAMES.keySet()) {
+      assertThat(ORG_NAMES.get(orgId) + " is ancestor of " + testingOrgId,
+          osp.isAncestor(orgId, testingOrgId), is(parentTree.contains(orgId)));
+      assertThat(ORG_NAMES.get(orgId) + " is descendant of " + testingOrgId,
+          osp.isDescendant(orgId, testingOrgId), is(childTree.contains(orgId)));
+    }
+  }
+
   @Test
   public void parentOrganization() {
     assumeThat(testingOrgId, not("Dummy"));
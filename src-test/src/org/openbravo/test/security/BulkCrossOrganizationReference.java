@@ -0,0 +1,105 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.test.security;
+
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Test;
+import org.openbravo.base.exception.OBSecurityException;
+import org.openbravo.base.provider.OBProvider;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.common.enterprise.Organization;
+import org.openbravo.model.common.order.Order;
+import org.openbravo.model.common.order.OrderLine;
+
+/**
+ * Test cases covering the cross organization reference checks when many objects referencing the
+ * same organizations are flushed at once. The time taken by the flush is logged to measure the
+ * cost of the checks.
+ */
+public class BulkCrossOrganizationReference extends CrossOrganizationReference {
+  private static final Logger log = LogManager.getLogger();
+
+  private static final int NUMBER_OF_LINES = 500;
+
+  /** Moving many lines to an organization in the natural tree of their references is allowed */
+  @Test
+  public void bulkLineUpdateInNaturalTreeIsAllowed() {
+    List<OrderLine> lines = createOrderLines();
+
+    for (OrderLine line : lines) {
+      line.setOrganization(OBDal.getInstance().getProxy(Organization.class, QA_TEST_ORG_ID));
+    }
+
+    long t = System.currentTimeMillis();
+    OBDal.getInstance().flush();
+    log.info("Checked references of {} updated order lines in {} ms", NUMBER_OF_LINES,
+        System.currentTimeMillis() - t);
+  }
+
+  /** A cross organization reference is detected even after many valid references were checked */
+  @Test
+  public void bulkLineUpdateWithCrossOrgReferenceIsIllegal() {
+    List<OrderLine> lines = createOrderLines();
+
+    for (OrderLine line : lines) {
+      line.setOrganization(OBDal.getInstance().getProxy(Organization.class, QA_TEST_ORG_ID));
+    }
+    lines.get(lines.size() - 1)
+        .setOrganization(OBDal.getInstance().getProxy(Organization.class, USA_ORG));
+
+    assertThrows(OBSecurityException.class, () -> OBDal.getInstance().flush());
+  }
+
+  @After
+  public void rollback() {
+    OBDal.getInstance().rollbackAndClose();
+  }
+
+  private List<OrderLine> createOrderLines() {
+    Order order = createOrder(SPAIN_ORG, SPAIN_WAREHOUSE);
+    OrderLine baseLine = createOrderLine(order);
+    List<OrderLine> lines = new ArrayList<>(NUMBER_OF_LINES);
+    lines.add(baseLine);
+    long t = System.currentTimeMillis();
+    for (int i = 1; i < NUMBER_OF_LINES; i++) {
+      OrderLine line = OBProvider.getInstance().get(OrderLine.class);
+      for (String property : new String[] { OrderLine.PROPERTY_SALESORDER,
+          OrderLine.PROPERTY_ORGANIZATION, OrderLine.PROPERTY_ORDERDATE,
+          OrderLine.PROPERTY_WAREHOUSE, OrderLine.PROPERTY_PRODUCT, OrderLine.PROPERTY_UOM,
+          OrderLine.PROPERTY_ORDEREDQUANTITY, OrderLine.PROPERTY_CURRENCY,
+          OrderLine.PROPERTY_TAX }) {
+        line.set(property, baseLine.get(property));
+      }
+      line.setLineNo(100L + i);
+      OBDal.getInstance().save(line);
+      lines.add(line);
+    }
+    OBDal.getInstance().flush();
+    log.info("Inserted {} order lines in {} ms", NUMBER_OF_LINES, System.currentTimeMillis() - t);
+    return lines;
+  }
+}
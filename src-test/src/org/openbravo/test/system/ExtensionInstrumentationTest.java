@@ -0,0 +1,114 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.test.system;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbravo.jmx.ExtensionInstrumentation;
+import org.openbravo.jmx.ExtensionInstrumentation.ExtensionType;
+import org.openbravo.jmx.ExtensionInstrumentation.Measurement;
+
+/**
+ * Tests the statistics collected by {@link ExtensionInstrumentation}.
+ */
+public class ExtensionInstrumentationTest {
+
+  private ExtensionInstrumentation instrumentation;
+  private boolean wasEnabled;
+
+  @Before
+  public void resetStatistics() {
+    instrumentation = ExtensionInstrumentation.getInstance();
+    wasEnabled = instrumentation.isEnabled();
+    instrumentation.reset();
+  }
+
+  @After
+  public void restoreInstrumentation() {
+    instrumentation.setEnabled(wasEnabled);
+    instrumentation.reset();
+  }
+
+  @Test
+  public void invocationsAreNotMeasuredWhenDisabled() {
+    instrumentation.setEnabled(false);
+    try (Measurement measurement = instrumentation.start(ExtensionType.CALLOUT, getClass())) {
+      instrumentation.queryExecuted();
+    }
+    assertThat(instrumentation.getStatistics().length, is(0));
+  }
+
+  @Test
+  public void invocationsAndQueriesAreCountedPerExtension() {
+    instrumentation.setEnabled(true);
+    for (int i = 0; i < 3; i++) {
+      try (Measurement measurement = instrumentation.start(ExtensionType.EVENT_HANDLER,
+          getClass())) {
+        instrumentation.queryExecuted();
+        instrumentation.queryExecuted();
+      }
+    }
+    try (Measurement measurement = instrumentation.start(ExtensionType.CALLOUT, String.class)) {
+      // nothing to do
+    }
+
+    String[] statistics = instrumentation.getStatistics();
+    assertThat(statistics.length, is(2));
+    String handlerStatistics = statistics[0].startsWith("EVENT_HANDLER") ? statistics[0]
+        : statistics[1];
+    assertThat(handlerStatistics, startsWith("EVENT_HANDLER " + getClass().getName() + ": "));
+    assertThat(handlerStatistics, containsString(": 3 invocations"));
+    assertThat(handlerStatistics, containsString(", 6 queries"));
+  }
+
+  @Test
+  public void slowInvocationsAreCountedInTheirHistogramBucket() throws InterruptedException {
+    instrumentation.setEnabled(true);
+    try (Measurement measurement = instrumentation.start(ExtensionType.PROCESS_RUNNER_HOOK,
+        getClass())) {
+      Thread.sleep(60);
+    }
+
+    // it can take longer than expected, so it is only checked it is not in any bucket below 50 ms
+    String statistics = instrumentation.getStatistics()[0];
+    assertThat(statistics, containsString("[<1 ms: 0, <5 ms: 0, <10 ms: 0, <50 ms: 0, "));
+  }
+
+  @Test
+  public void queriesOfNestedExtensionsAreIncludedInTheOuterOne() {
+    instrumentation.setEnabled(true);
+    try (Measurement outer = instrumentation.start(ExtensionType.CALLOUT, getClass())) {
+      instrumentation.queryExecuted();
+      try (Measurement inner = instrumentation.start(ExtensionType.EVENT_HANDLER, getClass())) {
+        instrumentation.queryExecuted();
+      }
+    }
+
+    for (String statistics : instrumentation.getStatistics()) {
+      String expectedQueries = statistics.startsWith("CALLOUT") ? ", 2 queries" : ", 1 queries";
+      assertThat(statistics, containsString(expectedQueries));
+    }
+  }
+}
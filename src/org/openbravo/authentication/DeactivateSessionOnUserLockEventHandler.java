@@ -25,13 +25,18 @@ import org.apache.logging.log4j.Logger;
 import org.openbravo.base.model.Entity;
 import org.openbravo.base.model.ModelProvider;
 import org.openbravo.base.model.Property;
+import org.openbravo.base.secureApp.SessionAccessCache;
 import org.openbravo.client.kernel.event.EntityPersistenceEventObserver;
 import org.openbravo.client.kernel.event.EntityUpdateEvent;
+import org.openbravo.client.kernel.event.TransactionBeginEvent;
+import org.openbravo.client.kernel.event.TransactionCompletedEvent;
 import org.openbravo.dal.service.OBDal;
 import org.openbravo.model.ad.access.User;
 
 /**
- * Automatically deactivates the sessions of users that are being locked
+ * Automatically deactivates the sessions of users that are being locked. The cached sessions are
+ * discarded again once the transaction is completed, so sessions read as active before the
+ * deactivation was committed are not kept.
  */
 class DeactivateSessionOnUserLockEventHandler extends EntityPersistenceEventObserver {
 
@@ -42,11 +47,17 @@ class DeactivateSessionOnUserLockEventHandler extends EntityPersistenceEventObse
 
   private static final Entity[] ENTITIES = { userEntity };
 
+  private static ThreadLocal<Boolean> sessionsDeactivated = new ThreadLocal<>();
+
   @Override
   protected Entity[] getObservedEntities() {
     return ENTITIES;
   }
 
+  public void onTransactionBegin(@Observes TransactionBeginEvent event) {
+    sessionsDeactivated.remove();
+  }
+
   public void onUpdate(@Observes EntityUpdateEvent event) {
     if (!isValidEvent(event)) {
       return;
@@ -68,9 +79,19 @@ class DeactivateSessionOnUserLockEventHandler extends EntityPersistenceEventObse
         .createNativeQuery(updateSql)
         .setParameter("username", user.getUsername())
         .executeUpdate();
+    SessionAccessCache.getInstance().invalidateSessions();
+    sessionsDeactivated.set(Boolean.TRUE);
     log.debug("{} session(s) were deactivated after locking user {}", updates, user.getUsername());
   }
 
+  public void onTransactionCompleted(@Observes TransactionCompletedEvent event) {
+    boolean deactivated = Boolean.TRUE.equals(sessionsDeactivated.get());
+    sessionsDeactivated.remove();
+    if (deactivated) {
+      SessionAccessCache.getInstance().invalidateSessions();
+    }
+  }
+
   private boolean justTransitionedToLocked(EntityUpdateEvent event, User user) {
     return user.isLocked() && !((boolean) event.getPreviousState(lockedProperty));
   }
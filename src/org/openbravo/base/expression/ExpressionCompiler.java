@@ -0,0 +1,638 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.base.expression;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import javax.script.ScriptException;
+
+/**
+ * Compiles the subset of JavaScript commonly used in the Application Dictionary expressions (display
+ * and read only logic, default values, selector filters...) into Java objects which can be
+ * evaluated without entering a Rhino context.
+ * 
+ * The supported subset is:
+ * <ul>
+ * <li>String, number, boolean and null literals.
+ * <li>Variables defined in the bindings.
+ * <li>Comparison operators: {@code ===, !==, ==, !=, <, <=, >, >=}.
+ * <li>Logical operators: {@code &&, ||, !} and parenthesis.
+ * <li>As the whole expression, a chain of method invocations and bean properties on a binding, like
+ * {@code OB.getContext().getCurrentClient().id}. Methods can only receive literal arguments.
+ * </ul>
+ * 
+ * Any other construction makes {@link #compile(String)} throw an
+ * {@link UnsupportedExpressionException}. The same exception is thrown on evaluation when the values
+ * of the bindings cannot be handled with the same semantics JavaScript would apply, in both cases
+ * the expression should be evaluated with Rhino.
+ */
+class ExpressionCompiler {
+
+  private ExpressionCompiler() {
+  }
+
+  /**
+   * An expression compiled into Java objects
+   */
+  interface CompiledExpression {
+    /**
+     * Evaluates the expression with the given bindings.
+     * 
+     * @throws UnsupportedExpressionException
+     *           if the bindings cannot be handled by the compiled expression
+     * @throws ScriptException
+     *           if an error occurs invoking a Java method
+     */
+    Object evaluate(Map<String, Object> bindings)
+        throws UnsupportedExpressionException, ScriptException;
+  }
+
+  /**
+   * Compiles the given expression
+   * 
+   * @throws UnsupportedExpressionException
+   *           if the expression is not part of the supported subset
+   */
+  static CompiledExpression compile(String expression) throws UnsupportedExpressionException {
+    Parser parser = new Parser(tokenize(expression));
+    return parser.parseExpression();
+  }
+
+  private enum TokenType {
+    STRING, NUMBER, IDENTIFIER, OPERATOR, END
+  }
+
+  private static class Token {
+    private final TokenType type;
+    private final String text;
+    private final Object value;
+
+    private Token(TokenType type, String text, Object value) {
+      this.type = type;
+      this.text = text;
+      this.value = value;
+    }
+
+    private boolean is(String operator) {
+      return type == TokenType.OPERATOR && text.equals(operator);
+    }
+  }
+
+  private static final Pattern DECIMAL_NUMBER = Pattern
+      .compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
+  private static final List<String> OPERATORS = Arrays.asList("===", "!==", "==", "!=", "<=",
+      ">=", "&&", "||", "<", ">", "!", "(", ")", ".", ",", "-", ";");
+
+  private static List<Token> tokenize(String expression) throws UnsupportedExpressionException {
+    List<Token> tokens = new ArrayList<>();
+    int i = 0;
+    int length = expression.length();
+    while (i < length) {
+      char c = expression.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '\'' || c == '"') {
+        StringBuilder value = new StringBuilder();
+        int j = i + 1;
+        while (j < length && expression.charAt(j) != c) {
+          char current = expression.charAt(j);
+          if (current == '\\') {
+            j++;
+            if (j >= length || "'\"\\".indexOf(expression.charAt(j)) == -1) {
+              throw new UnsupportedExpressionException("Unsupported escape sequence");
+            }
+            current = expression.charAt(j);
+          } else if (current == '\n' || current == '\r') {
+            throw new UnsupportedExpressionException("Unterminated string");
+          }
+          value.append(current);
+          j++;
+        }
+        if (j >= length) {
+          throw new UnsupportedExpressionException("Unterminated string");
+        }
+        tokens.add(new Token(TokenType.STRING, expression.substring(i, j + 1), value.toString()));
+        i = j + 1;
+      } else if (Character.isDigit(c)) {
+        int j = i;
+        while (j < length && (Character.isDigit(expression.charAt(j))
+            || expression.charAt(j) == '.')) {
+          j++;
+        }
+        if (j < length && Character.isJavaIdentifierPart(expression.charAt(j))) {
+          // exponents, hexadecimal numbers or invalid identifiers
+          throw new UnsupportedExpressionException("Unsupported number");
+        }
+        String number = expression.substring(i, j);
+        if (number.length() > 1 && c == '0' && Character.isDigit(number.charAt(1))) {
+          // octal in Rhino, not decimal
+          throw new UnsupportedExpressionException("Unsupported number " + number);
+        }
+        try {
+          tokens.add(new Token(TokenType.NUMBER, number, Double.valueOf(number)));
+        } catch (NumberFormatException e) {
+          throw new UnsupportedExpressionException("Unsupported number " + number);
+        }
+        i = j;
+      } else if (Character.isJavaIdentifierStart(c) && c != '$') {
+        int j = i + 1;
+        while (j < length && Character.isJavaIdentifierPart(expression.charAt(j))
+            && expression.charAt(j) != '$') {
+          j++;
+        }
+        tokens.add(new Token(TokenType.IDENTIFIER, expression.substring(i, j), null));
+        i = j;
+      } else {
+        String operator = getOperator(expression, i);
+        tokens.add(new Token(TokenType.OPERATOR, operator, null));
+        i += operator.length();
+      }
+    }
+    tokens.add(new Token(TokenType.END, "", null));
+    return tokens;
+  }
+
+  private static String getOperator(String expression, int position)
+      throws UnsupportedExpressionException {
+    for (String operator : OPERATORS) {
+      if (expression.startsWith(operator, position)) {
+        return operator;
+      }
+    }
+    throw new UnsupportedExpressionException(
+        "Unsupported character " + expression.charAt(position));
+  }
+
+  /**
+   * Recursive descent parser, each parse method corresponds to a level of operator precedence
+   */
+  private static class Parser {
+    private final List<Token> tokens;
+    private int position;
+
+    private Parser(List<Token> tokens) {
+      this.tokens = tokens;
+    }
+
+    private CompiledExpression parseExpression() throws UnsupportedExpressionException {
+      CompiledExpression result;
+      Token first = peek();
+      if (first.type == TokenType.IDENTIFIER && peek(1).is(".")) {
+        // member access is only supported as the whole expression: its result is a Java object
+        // whose semantics within JavaScript operators are not the ones of the JavaScript primitives
+        result = parseMemberChain();
+      } else if (isNumericExpression()) {
+        result = parseNumber();
+      } else {
+        CompiledExpression expression = parseOr();
+        result = bindings -> {
+          Object value = expression.evaluate(bindings);
+          if (value instanceof Number) {
+            // the numeric type returned by Rhino depends on the context the number is used in
+            throw new UnsupportedExpressionException("Numeric result");
+          }
+          return value;
+        };
+      }
+      while (peek().is(";")) {
+        next();
+      }
+      if (peek().type != TokenType.END) {
+        throw new UnsupportedExpressionException("Unexpected token " + peek().text);
+      }
+      return result;
+    }
+
+    private boolean isNumericExpression() {
+      int i = 0;
+      if (peek(i).is("-")) {
+        i++;
+      }
+      if (peek(i).type != TokenType.NUMBER) {
+        return false;
+      }
+      i++;
+      while (peek(i).is(";")) {
+        i++;
+      }
+      return peek(i).type == TokenType.END;
+    }
+
+    private CompiledExpression parseNumber() throws UnsupportedExpressionException {
+      boolean negative = false;
+      if (peek().is("-")) {
+        next();
+        negative = true;
+      }
+      double number = (Double) next().value;
+      Object value = toJavaScriptNumber(negative ? -number : number);
+      return bindings -> value;
+    }
+
+    private CompiledExpression parseOr() throws UnsupportedExpressionException {
+      CompiledExpression left = parseAnd();
+      while (peek().is("||")) {
+        next();
+        CompiledExpression l = left;
+        CompiledExpression r = parseAnd();
+        left = bindings -> {
+          Object leftValue = l.evaluate(bindings);
+          return isTrue(leftValue) ? leftValue : r.evaluate(bindings);
+        };
+      }
+      return left;
+    }
+
+    private CompiledExpression parseAnd() throws UnsupportedExpressionException {
+      CompiledExpression left = parseEquality();
+      while (peek().is("&&")) {
+        next();
+        CompiledExpression l = left;
+        CompiledExpression r = parseEquality();
+        left = bindings -> {
+          Object leftValue = l.evaluate(bindings);
+          return isTrue(leftValue) ? r.evaluate(bindings) : leftValue;
+        };
+      }
+      return left;
+    }
+
+    private CompiledExpression parseEquality() throws UnsupportedExpressionException {
+      CompiledExpression left = parseRelational();
+      while (peek().is("===") || peek().is("!==") || peek().is("==") || peek().is("!=")) {
+        String operator = next().text;
+        CompiledExpression l = left;
+        CompiledExpression r = parseRelational();
+        switch (operator) {
+          case "===":
+            left = bindings -> strictEquals(l.evaluate(bindings), r.evaluate(bindings));
+            break;
+          case "!==":
+            left = bindings -> !strictEquals(l.evaluate(bindings), r.evaluate(bindings));
+            break;
+          case "==":
+            left = bindings -> looseEquals(l.evaluate(bindings), r.evaluate(bindings));
+            break;
+          default:
+            left = bindings -> !looseEquals(l.evaluate(bindings), r.evaluate(bindings));
+        }
+      }
+      return left;
+    }
+
+    private CompiledExpression parseRelational() throws UnsupportedExpressionException {
+      CompiledExpression left = parseUnary();
+      while (peek().is("<") || peek().is("<=") || peek().is(">") || peek().is(">=")) {
+        String operator = next().text;
+        CompiledExpression l = left;
+        CompiledExpression r = parseUnary();
+        switch (operator) {
+          case "<":
+            left = bindings -> lessThan(l.evaluate(bindings), r.evaluate(bindings), false);
+            break;
+          case "<=":
+            left = bindings -> lessThan(l.evaluate(bindings), r.evaluate(bindings), true);
+            break;
+          case ">":
+            left = bindings -> lessThan(r.evaluate(bindings), l.evaluate(bindings), false);
+            break;
+          default:
+            left = bindings -> lessThan(r.evaluate(bindings), l.evaluate(bindings), true);
+        }
+      }
+      return left;
+    }
+
+    private CompiledExpression parseUnary() throws UnsupportedExpressionException {
+      if (peek().is("!")) {
+        next();
+        CompiledExpression operand = parseUnary();
+        return bindings -> !isTrue(operand.evaluate(bindings));
+      }
+      if (peek().is("-") && peek(1).type == TokenType.NUMBER) {
+        next();
+        double number = -((Double) next().value);
+        return bindings -> number;
+      }
+      return parsePrimary();
+    }
+
+    private CompiledExpression parsePrimary() throws UnsupportedExpressionException {
+      Token token = next();
+      switch (token.type) {
+        case STRING:
+          Object string = token.value;
+          return bindings -> string;
+        case NUMBER:
+          Object number = token.value;
+          return bindings -> number;
+        case IDENTIFIER:
+          return parseIdentifier(token);
+        default:
+          if (token.is("(")) {
+            CompiledExpression expression = parseOr();
+            expect(")");
+            return expression;
+          }
+          throw new UnsupportedExpressionException("Unexpected token " + token.text);
+      }
+    }
+
+    private CompiledExpression parseIdentifier(Token token) throws UnsupportedExpressionException {
+      switch (token.text) {
+        case "true":
+          return bindings -> Boolean.TRUE;
+        case "false":
+          return bindings -> Boolean.FALSE;
+        case "null":
+          return bindings -> null;
+        default:
+          if (peek().is("(") || peek().is(".")) {
+            throw new UnsupportedExpressionException("Unsupported member access " + token.text);
+          }
+          String name = token.text;
+          return bindings -> getPrimitiveVariable(bindings, name);
+      }
+    }
+
+    private CompiledExpression parseMemberChain() throws UnsupportedExpressionException {
+      String root = next().text;
+      List<MemberAccess> members = new ArrayList<>();
+      while (peek().is(".")) {
+        next();
+        Token member = next();
+        if (member.type != TokenType.IDENTIFIER) {
+          throw new UnsupportedExpressionException("Unexpected token " + member.text);
+        }
+        if (peek().is("(")) {
+          next();
+          List<Object> arguments = new ArrayList<>();
+          while (!peek().is(")")) {
+            if (!arguments.isEmpty()) {
+              expect(",");
+            }
+            Token argument = next();
+            if (argument.type != TokenType.STRING) {
+              throw new UnsupportedExpressionException("Only string arguments are supported");
+            }
+            arguments.add(argument.value);
+          }
+          next();
+          members.add(new MemberAccess(member.text, arguments.toArray()));
+        } else {
+          members.add(new MemberAccess(member.text, null));
+        }
+      }
+      return bindings -> {
+        Object value = getVariable(bindings, root);
+        for (MemberAccess member : members) {
+          value = member.access(value);
+        }
+        return value;
+      };
+    }
+
+    private void expect(String operator) throws UnsupportedExpressionException {
+      Token token = next();
+      if (!token.is(operator)) {
+        throw new UnsupportedExpressionException("Expected " + operator + " but was " + token.text);
+      }
+    }
+
+    private Token peek() {
+      return peek(0);
+    }
+
+    private Token peek(int offset) {
+      return tokens.get(Math.min(position + offset, tokens.size() - 1));
+    }
+
+    private Token next() {
+      Token token = peek();
+      if (position < tokens.size() - 1) {
+        position++;
+      }
+      return token;
+    }
+  }
+
+  /**
+   * Invocation of a method or read of a bean property on a Java object
+   */
+  private static class MemberAccess {
+    private final String name;
+    private final Object[] arguments;
+    private final Map<Class<?>, Method> methods = new ConcurrentHashMap<>();
+
+    private MemberAccess(String name, Object[] arguments) {
+      this.name = name;
+      this.arguments = arguments;
+    }
+
+    private Object access(Object target) throws UnsupportedExpressionException, ScriptException {
+      if (target == null || target instanceof String || target instanceof Number
+          || target instanceof Boolean) {
+        // let Rhino deal with errors and with the members of JavaScript primitives
+        throw new UnsupportedExpressionException("Unsupported member access on " + target);
+      }
+      Class<?> targetClass = target.getClass();
+      if (!Modifier.isPublic(targetClass.getModifiers())) {
+        throw new UnsupportedExpressionException("Unsupported member access on " + targetClass);
+      }
+      Method method = methods.get(targetClass);
+      if (method == null) {
+        method = arguments != null ? findMethod(targetClass) : findGetter(targetClass);
+        if (method != null) {
+          methods.put(targetClass, method);
+        }
+      }
+      try {
+        if (method != null) {
+          return method.invoke(target, arguments != null ? arguments : new Object[0]);
+        }
+        return getPublicField(targetClass).get(target);
+      } catch (InvocationTargetException e) {
+        throw new ScriptException(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+      } catch (IllegalAccessException e) {
+        throw new UnsupportedExpressionException("Cannot access " + name);
+      }
+    }
+
+    private Method findMethod(Class<?> targetClass) throws UnsupportedExpressionException {
+      Method found = null;
+      for (Method candidate : targetClass.getMethods()) {
+        if (!candidate.getName().equals(name)
+            || candidate.getParameterCount() != arguments.length) {
+          continue;
+        }
+        if (found != null) {
+          // overloaded methods are resolved by Rhino
+          throw new UnsupportedExpressionException("Overloaded method " + name);
+        }
+        for (Class<?> parameterType : candidate.getParameterTypes()) {
+          if (!parameterType.isAssignableFrom(String.class)) {
+            throw new UnsupportedExpressionException("Unsupported parameters in " + name);
+          }
+        }
+        found = candidate;
+      }
+      if (found == null) {
+        throw new UnsupportedExpressionException("Method not found " + name);
+      }
+      return found;
+    }
+
+    private Method findGetter(Class<?> targetClass) throws UnsupportedExpressionException {
+      for (Method method : targetClass.getMethods()) {
+        if (method.getName().equals(name)) {
+          // in Rhino methods take precedence over bean properties with the same name
+          throw new UnsupportedExpressionException("Method accessed as property " + name);
+        }
+      }
+      String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+      for (String getterName : Arrays.asList("get" + capitalized, "is" + capitalized)) {
+        try {
+          Method getter = targetClass.getMethod(getterName);
+          if (getterName.startsWith("get") || getter.getReturnType() == boolean.class) {
+            return getter;
+          }
+        } catch (NoSuchMethodException ignore) {
+          // try next option
+        }
+      }
+      return null;
+    }
+
+    private Field getPublicField(Class<?> targetClass) throws UnsupportedExpressionException {
+      try {
+        return targetClass.getField(name);
+      } catch (NoSuchFieldException e) {
+        throw new UnsupportedExpressionException("Property not found " + name);
+      }
+    }
+  }
+
+  private static Object getVariable(Map<String, Object> bindings, String name)
+      throws UnsupportedExpressionException {
+    if (!bindings.containsKey(name)) {
+      // undefined variables and JavaScript globals are handled by Rhino
+      throw new UnsupportedExpressionException("Unknown variable " + name);
+    }
+    return bindings.get(name);
+  }
+
+  private static Object getPrimitiveVariable(Map<String, Object> bindings, String name)
+      throws UnsupportedExpressionException {
+    Object value = getVariable(bindings, name);
+    if (value != null && !(value instanceof String) && !(value instanceof Number)
+        && !(value instanceof Boolean)) {
+      throw new UnsupportedExpressionException("Unsupported value for variable " + name);
+    }
+    return value;
+  }
+
+  /**
+   * Converts a number into the same Java type Rhino returns for it
+   */
+  private static Object toJavaScriptNumber(double number) {
+    if (number == Math.rint(number) && number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE
+        && !(number == 0 && 1 / number < 0)) {
+      return (int) number;
+    }
+    return number;
+  }
+
+  private static boolean isTrue(Object value) {
+    if (value == null) {
+      return false;
+    }
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    if (value instanceof Number) {
+      double number = ((Number) value).doubleValue();
+      return number != 0 && !Double.isNaN(number);
+    }
+    return !((String) value).isEmpty();
+  }
+
+  private static boolean strictEquals(Object left, Object right) {
+    if (left == null || right == null) {
+      return left == right;
+    }
+    if (left instanceof Number && right instanceof Number) {
+      return ((Number) left).doubleValue() == ((Number) right).doubleValue();
+    }
+    return left.getClass() == right.getClass() && left.equals(right);
+  }
+
+  private static boolean looseEquals(Object left, Object right)
+      throws UnsupportedExpressionException {
+    if (left == null || right == null) {
+      return left == right;
+    }
+    if (left.getClass() == right.getClass()
+        || (left instanceof Number && right instanceof Number)) {
+      return strictEquals(left, right);
+    }
+    return toNumber(left) == toNumber(right);
+  }
+
+  private static boolean lessThan(Object left, Object right, boolean orEqual)
+      throws UnsupportedExpressionException {
+    if (left instanceof String && right instanceof String) {
+      int comparison = ((String) left).compareTo((String) right);
+      return orEqual ? comparison <= 0 : comparison < 0;
+    }
+    double leftNumber = toNumber(left);
+    double rightNumber = toNumber(right);
+    return orEqual ? leftNumber <= rightNumber : leftNumber < rightNumber;
+  }
+
+  private static double toNumber(Object value) throws UnsupportedExpressionException {
+    if (value == null) {
+      return 0;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    if (value instanceof Boolean) {
+      return (Boolean) value ? 1 : 0;
+    }
+    String string = ((String) value).trim();
+    if (string.isEmpty()) {
+      return 0;
+    }
+    if (!DECIMAL_NUMBER.matcher(string).matches()) {
+      // Java and JavaScript differ in how other numeric formats are converted
+      throw new UnsupportedExpressionException("Unsupported numeric conversion of " + string);
+    }
+    return Double.parseDouble(string);
+  }
+}
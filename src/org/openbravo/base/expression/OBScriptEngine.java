@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2018-2023 Openbravo SLU 
+ * All portions are Copyright (C) 2018-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -21,7 +21,9 @@ package org.openbravo.base.expression;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.script.ScriptException;
 
@@ -33,17 +35,38 @@ import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.Undefined;
+import org.openbravo.base.expression.ExpressionCompiler.CompiledExpression;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 /**
  * Class that wraps a ScriptEngine and that should be used to evaluate javascript scripts
  * 
  * It is a singleton, and it takes advantage of the thread safety of ScriptEngine
  * 
+ * Before using Rhino, it tries to compile the script with the {@link ExpressionCompiler}, which
+ * handles the subset of JavaScript typically used in the Application Dictionary expressions without
+ * entering a Rhino context. Rhino is used only for the scripts the compiler cannot handle.
  */
-public class OBScriptEngine {
+public class OBScriptEngine implements OBScriptEngineMBean {
+  public static final String MBEAN_NAME = "OBScriptEngine";
+
   private static final Logger log = LogManager.getLogger();
-  private Map<String, Script> scriptCache = new ConcurrentHashMap<>();
+  private static final long MAX_CACHED_SCRIPTS = 5_000L;
+  private static final long MAX_CACHED_EXPRESSIONS = 10_000L;
+
+  private Cache<String, Script> scriptCache = Caffeine.newBuilder()
+      .maximumSize(MAX_CACHED_SCRIPTS)
+      .build();
+  private Cache<ExpressionKey, Optional<CompiledExpression>> compiledExpressionCache = Caffeine
+      .newBuilder()
+      .maximumSize(MAX_CACHED_EXPRESSIONS)
+      .build();
   private ScriptableObject sharedScope;
+  private volatile boolean compilerEnabled = true;
+  private LongAdder compiledEvaluations = new LongAdder();
+  private LongAdder rhinoEvaluations = new LongAdder();
 
   private static OBScriptEngine instance = new OBScriptEngine();
 
@@ -65,13 +88,64 @@ public class OBScriptEngine {
   }
 
   public Object eval(String script, Map<String, Object> properties) throws ScriptException {
+    return eval(null, script, properties);
+  }
+
+  /**
+   * Evaluates a script whose compiled version is cached for the given owner.
+   * 
+   * @param ownerId
+   *          identifies the Application Dictionary element the script belongs to (a field, a
+   *          parameter...), it can be null if the script does not belong to any element.
+   * @param script
+   *          the script to evaluate
+   * @param properties
+   *          variables available to the script
+   * @return the result of evaluating the script
+   * @throws ScriptException
+   *           if there is an error compiling or evaluating the script
+   */
+  public Object eval(String ownerId, String script, Map<String, Object> properties)
+      throws ScriptException {
+    if (compilerEnabled) {
+      Optional<CompiledExpression> compiledExpression = compiledExpressionCache
+          .get(new ExpressionKey(ownerId, script), key -> compile(script));
+      if (compiledExpression.isPresent()) {
+        try {
+          Object result = compiledExpression.get().evaluate(properties);
+          compiledEvaluations.increment();
+          return toJavaResult(result);
+        } catch (UnsupportedExpressionException e) {
+          log.trace("Evaluating script with Rhino: {}. {}", script, e.getMessage());
+        } catch (ScriptException e) {
+          log.error("Error evaluating script: {}", script, e);
+          throw e;
+        }
+      }
+    }
+    rhinoEvaluations.increment();
+    return evalWithRhino(script, properties);
+  }
+
+  private Optional<CompiledExpression> compile(String script) {
+    try {
+      return Optional.of(ExpressionCompiler.compile(script));
+    } catch (UnsupportedExpressionException e) {
+      log.debug("Script cannot be compiled, it will be evaluated with Rhino: {}. {}", script,
+          e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  private Object evalWithRhino(String script, Map<String, Object> properties)
+      throws ScriptException {
     Object result = null;
 
     Context cx = Context.enter();
     try {
       Script compiledScript;
       try {
-        compiledScript = scriptCache.computeIfAbsent(script, scriptDef -> {
+        compiledScript = scriptCache.get(script, scriptDef -> {
           Script compileScriptToCache = cx.compileString(scriptDef, "js", 0, null);
           log.debug("Cached script: {}", scriptDef);
           return compileScriptToCache;
@@ -102,6 +176,10 @@ public class OBScriptEngine {
       Context.exit();
     }
 
+    return toJavaResult(result);
+  }
+
+  private Object toJavaResult(Object result) {
     // Sometimes rhino evaluates to "undefined" when it should evaluate to null
     // This transforms all undefined results to null
     // Related issue: https://github.com/mozilla/rhino/issues/760
@@ -110,4 +188,80 @@ public class OBScriptEngine {
     }
     return result;
   }
+
+  @Override
+  public boolean isCompilerEnabled() {
+    return compilerEnabled;
+  }
+
+  @Override
+  public void setCompilerEnabled(boolean compilerEnabled) {
+    this.compilerEnabled = compilerEnabled;
+  }
+
+  @Override
+  public long getCompiledEvaluations() {
+    return compiledEvaluations.sum();
+  }
+
+  @Override
+  public long getRhinoEvaluations() {
+    return rhinoEvaluations.sum();
+  }
+
+  @Override
+  public double getRhinoFallbackRate() {
+    long compiled = compiledEvaluations.sum();
+    long rhino = rhinoEvaluations.sum();
+    return compiled + rhino == 0 ? 0 : (double) rhino / (compiled + rhino);
+  }
+
+  @Override
+  public long getCachedExpressions() {
+    return compiledExpressionCache.estimatedSize();
+  }
+
+  @Override
+  public long getCachedScripts() {
+    return scriptCache.estimatedSize();
+  }
+
+  @Override
+  public void clearCache() {
+    compiledExpressionCache.invalidateAll();
+    scriptCache.invalidateAll();
+  }
+
+  @Override
+  public void resetStatistics() {
+    compiledEvaluations.reset();
+    rhinoEvaluations.reset();
+  }
+
+  private static class ExpressionKey {
+    private final String ownerId;
+    private final String script;
+
+    private ExpressionKey(String ownerId, String script) {
+      this.ownerId = ownerId;
+      this.script = script;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(ownerId, script);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof ExpressionKey)) {
+        return false;
+      }
+      ExpressionKey other = (ExpressionKey) obj;
+      return Objects.equals(ownerId, other.ownerId) && Objects.equals(script, other.script);
+    }
+  }
 }
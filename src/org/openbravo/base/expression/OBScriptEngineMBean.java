@@ -0,0 +1,52 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.base.expression;
+
+/**
+ * Defines the MBean to monitor the {@link OBScriptEngine}
+ */
+public interface OBScriptEngineMBean {
+
+  /** Whether scripts are tried to be compiled before evaluating them with Rhino */
+  boolean isCompilerEnabled();
+
+  /** Enables or disables the compilation of scripts, when disabled all of them use Rhino */
+  void setCompilerEnabled(boolean compilerEnabled);
+
+  /** Number of evaluations done without Rhino */
+  long getCompiledEvaluations();
+
+  /** Number of evaluations done with Rhino */
+  long getRhinoEvaluations();
+
+  /** Ratio of evaluations which fell back to Rhino */
+  double getRhinoFallbackRate();
+
+  /** Approximate number of compiled expressions in cache */
+  long getCachedExpressions();
+
+  /** Approximate number of Rhino scripts in cache */
+  long getCachedScripts();
+
+  /** Removes all the compiled expressions and scripts from the cache */
+  void clearCache();
+
+  /** Resets the evaluation counters */
+  void resetStatistics();
+}
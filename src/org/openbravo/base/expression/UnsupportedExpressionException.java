@@ -0,0 +1,32 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.base.expression;
+
+/**
+ * Thrown by the {@link ExpressionCompiler} when an expression, or the values it is evaluated with,
+ * cannot be handled without the JavaScript engine. It is not an error: the caller is expected to
+ * evaluate the expression with Rhino instead.
+ */
+class UnsupportedExpressionException extends Exception {
+  private static final long serialVersionUID = 1L;
+
+  UnsupportedExpressionException(String message) {
+    super(message, null, false, false);
+  }
+}
@@ -19,6 +19,8 @@
 
 package org.openbravo.base.model;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -27,10 +29,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import javax.persistence.criteria.CriteriaBuilder;
@@ -97,8 +101,16 @@ public class ModelProvider implements OBSingleton {
   private HashMap<Entity, List<String>> entitiesWithFile = null;
   private List<Module> modules;
   private Session initsession;
+  // time spent building the model and reading the database metadata, to compare the startup with
+  // and without the model snapshot
+  private long modelBuildTime;
+  private long metadataReadTime;
+  private boolean metadataFromSnapshot;
+  private long modelQueryCount;
+  private long metadataQueryCount;
 
   private static final String TABLEBASEDTABLE = "Table";
+  private static final String MODEL_SNAPSHOT_PATH_PROPERTY = "model.snapshot.path";
 
   private static final Set<String> ENTITIES_WITHOUT_ALL_CHILD_PROPERTIES = new HashSet<>(
       Arrays.asList("org.openbravo.model.ad.system.Client",
@@ -163,6 +175,7 @@ public class ModelProvider implements OBSingleton {
 
   private void initialize() {
     log.info("Building runtime model");
+    final long t0 = System.currentTimeMillis();
     // Caching model (tables, table-references, search-references,
     // list-references)
     // Changed to use the SessionHandler directly because the dal
@@ -198,8 +211,11 @@ public class ModelProvider implements OBSingleton {
       // to the reference
       final List<RefTable> refTables = list(initsession, RefTable.class);
       final List<RefSearch> refSearches = list(initsession, RefSearch.class);
-      list(initsession, RefList.class);
+      final List<RefList> refLists = list(initsession, RefList.class);
       modules = retrieveModules(initsession);
+      // computed from the objects already read, without querying them again
+      final long lastUpdateModelTime = getLastUpdateTime(tables, references, cols, refTables,
+          refSearches, refLists);
       tables = removeInvalidTables(tables);
 
       // maintained for api support of the
@@ -287,10 +303,12 @@ public class ModelProvider implements OBSingleton {
       log.debug("Setting virtual property for many-to-one id's");
       setVirtualPropertiesForReferenceId();
 
-      buildUniqueConstraints(initsession, sessionFactoryController);
+      final ModelSnapshot snapshot = getModelSnapshot(initsession, sessionFactoryController,
+          lastUpdateModelTime);
 
-      final Map<String, Boolean> colMandatories = getColumnMandatories(initsession,
-          sessionFactoryController);
+      buildUniqueConstraints(snapshot.getUniqueConstraintColumns());
+
+      final Map<String, Boolean> colMandatories = snapshot.getColumnMandatories();
 
       // initialize the name and also set the mandatory value on the basis
       // of the real not-null in the database!
@@ -359,6 +377,33 @@ public class ModelProvider implements OBSingleton {
       sessionFactoryController.getSessionFactory().close();
     }
     clearLists();
+    modelBuildTime = System.currentTimeMillis() - t0;
+    modelQueryCount = sessionFactoryController.getExecutedStatements();
+    log.info(
+        "Runtime model built in {} ms with {} queries, database metadata read from {} in {} ms with {} queries",
+        modelBuildTime, modelQueryCount,
+        metadataFromSnapshot ? "model snapshot" : "database catalog", metadataReadTime,
+        metadataQueryCount);
+  }
+
+  long getModelBuildTime() {
+    return modelBuildTime;
+  }
+
+  long getMetadataReadTime() {
+    return metadataReadTime;
+  }
+
+  long getModelQueryCount() {
+    return modelQueryCount;
+  }
+
+  long getMetadataQueryCount() {
+    return metadataQueryCount;
+  }
+
+  boolean isMetadataFromSnapshot() {
+    return metadataFromSnapshot;
   }
 
   private void setTranslatableColumns(List<Column> translatableColumns) {
@@ -468,17 +513,7 @@ public class ModelProvider implements OBSingleton {
     final Session session = sessionFactoryController.getSessionFactory().openSession();
     final Transaction tx = session.beginTransaction();
     try {
-      // compute the last updated time
-      long currentLastTimeUpdated = 0;
-      currentLastTimeUpdated = getLastUpdated(Table.class, currentLastTimeUpdated, session);
-      currentLastTimeUpdated = getLastUpdated(Column.class, currentLastTimeUpdated, session);
-      currentLastTimeUpdated = getLastUpdated(RefTable.class, currentLastTimeUpdated, session);
-      currentLastTimeUpdated = getLastUpdated(RefSearch.class, currentLastTimeUpdated, session);
-      currentLastTimeUpdated = getLastUpdated(RefList.class, currentLastTimeUpdated, session);
-      currentLastTimeUpdated = getLastUpdated(Module.class, currentLastTimeUpdated, session);
-      currentLastTimeUpdated = getLastUpdated(Package.class, currentLastTimeUpdated, session);
-      currentLastTimeUpdated = getLastUpdated(Reference.class, currentLastTimeUpdated, session);
-      return currentLastTimeUpdated;
+      return computeLastUpdateModelTime(session);
     } finally {
       tx.commit();
       session.close();
@@ -486,6 +521,19 @@ public class ModelProvider implements OBSingleton {
     }
   }
 
+  private long computeLastUpdateModelTime(Session session) {
+    long currentLastTimeUpdated = 0;
+    currentLastTimeUpdated = getLastUpdated(Table.class, currentLastTimeUpdated, session);
+    currentLastTimeUpdated = getLastUpdated(Column.class, currentLastTimeUpdated, session);
+    currentLastTimeUpdated = getLastUpdated(RefTable.class, currentLastTimeUpdated, session);
+    currentLastTimeUpdated = getLastUpdated(RefSearch.class, currentLastTimeUpdated, session);
+    currentLastTimeUpdated = getLastUpdated(RefList.class, currentLastTimeUpdated, session);
+    currentLastTimeUpdated = getLastUpdated(Module.class, currentLastTimeUpdated, session);
+    currentLastTimeUpdated = getLastUpdated(Package.class, currentLastTimeUpdated, session);
+    currentLastTimeUpdated = getLastUpdated(Reference.class, currentLastTimeUpdated, session);
+    return currentLastTimeUpdated;
+  }
+
   private <T extends ModelObject> long getLastUpdated(Class<T> clz, long currentLastTime,
       Session session) {
     final ModelObject mo = queryLastUpdateObject(session, clz);
@@ -658,6 +706,99 @@ public class ModelProvider implements OBSingleton {
     return tables;
   }
 
+  /**
+   * Returns the database metadata required to build the model. If the model.snapshot.path property
+   * is set, it is read from the snapshot stored in that file as long as it is not outdated,
+   * otherwise it is read from the database catalog and the snapshot is (re)generated.
+   */
+  private ModelSnapshot getModelSnapshot(Session session,
+      ModelSessionFactoryController sessionFactoryController, long lastUpdateModelTime) {
+    final long t0 = System.currentTimeMillis();
+    final long queries = sessionFactoryController.getExecutedStatements();
+    final Path snapshotFile = getModelSnapshotFile();
+    String version = null;
+    if (snapshotFile != null) {
+      version = computeModelSnapshotVersion(session, sessionFactoryController,
+          lastUpdateModelTime);
+      final ModelSnapshot snapshot = version == null ? null
+          : ModelSnapshot.read(snapshotFile, version);
+      if (snapshot != null) {
+        log.info("Read database metadata from model snapshot {}", snapshotFile);
+        metadataFromSnapshot = true;
+        metadataReadTime = System.currentTimeMillis() - t0;
+        metadataQueryCount = sessionFactoryController.getExecutedStatements() - queries;
+        return snapshot;
+      }
+    }
+    final ModelSnapshot snapshot = new ModelSnapshot(version,
+        getColumnMandatories(session, sessionFactoryController),
+        getUniqueConstraintColumns(session, sessionFactoryController));
+    metadataFromSnapshot = false;
+    metadataReadTime = System.currentTimeMillis() - t0;
+    metadataQueryCount = sessionFactoryController.getExecutedStatements() - queries;
+    if (version != null) {
+      snapshot.write(snapshotFile);
+    }
+    return snapshot;
+  }
+
+  private Path getModelSnapshotFile() {
+    final Properties obProperties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    final String path = obProperties == null ? null
+        : obProperties.getProperty(MODEL_SNAPSHOT_PATH_PROPERTY);
+    if (path == null || path.isBlank()) {
+      return null;
+    }
+    return Paths.get(path.trim());
+  }
+
+  /**
+   * The version of the snapshot changes whenever the model is updated in the Application Dictionary
+   * or the database is updated. It also includes the metadata queries, which depend on the database
+   * and its user.
+   * 
+   * The last update of the tables, columns and references is computed from the objects already
+   * read to build the model. The modules and packages, which are not completely read, and the last
+   * database update are read with a single query.
+   * 
+   * @return the current version or {@code null} if it cannot be computed
+   */
+  private String computeModelSnapshotVersion(Session session,
+      SessionFactoryController sessionFactoryController, long lastUpdateModelTime) {
+    try {
+      final Object[] lastUpdates = (Object[]) session.createNativeQuery(
+          "select i.last_dbupdate, (select max(m.updated) from ad_module m),"
+              + " (select max(p.updated) from ad_package p) from ad_system_info i")
+          .uniqueResult();
+      long lastUpdateTime = lastUpdateModelTime;
+      for (int i = 1; i < lastUpdates.length; i++) {
+        if (lastUpdates[i] instanceof Date) {
+          lastUpdateTime = Math.max(lastUpdateTime, ((Date) lastUpdates[i]).getTime());
+        }
+      }
+      final String queries = sessionFactoryController.getColumnMetadataQuery()
+          + sessionFactoryController.getUniqueConstraintQuery();
+      return lastUpdateTime + ";" + (lastUpdates[0] == null ? "" : lastUpdates[0].toString())
+          + ";" + queries.hashCode();
+    } catch (Exception e) {
+      log.warn("Could not compute the version of the model snapshot, it will not be used", e);
+      return null;
+    }
+  }
+
+  @SafeVarargs
+  private static long getLastUpdateTime(List<? extends ModelObject>... modelObjectLists) {
+    long lastUpdateTime = 0;
+    for (List<? extends ModelObject> modelObjects : modelObjectLists) {
+      for (ModelObject modelObject : modelObjects) {
+        if (modelObject.getUpdated() != null) {
+          lastUpdateTime = Math.max(lastUpdateTime, modelObject.getUpdated().getTime());
+        }
+      }
+    }
+    return lastUpdateTime;
+  }
+
   private Map<String, Boolean> getColumnMandatories(Session session,
       SessionFactoryController sfController) {
     final String columnQry = sfController.getColumnMetadataQuery();
@@ -681,10 +822,7 @@ public class ModelProvider implements OBSingleton {
   }
 
   // Build unique constraints
-  private void buildUniqueConstraints(Session session,
-      SessionFactoryController sessionFactoryController) {
-    final List<UniqueConstraintColumn> uniqueConstraintColumns = getUniqueConstraintColumns(session,
-        sessionFactoryController);
+  private void buildUniqueConstraints(List<UniqueConstraintColumn> uniqueConstraintColumns) {
     Entity entity = null;
     UniqueConstraint uniqueConstraint = null;
     for (final UniqueConstraintColumn uniqueConstraintColumn : uniqueConstraintColumns) {
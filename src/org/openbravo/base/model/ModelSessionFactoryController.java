@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2008-2023 Openbravo SLU 
+ * All portions are Copyright (C) 2008-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -22,10 +22,13 @@ package org.openbravo.base.model;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hibernate.CallbackException;
 import org.hibernate.EmptyInterceptor;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
 import org.hibernate.type.Type;
 import org.openbravo.base.session.SessionFactoryController;
 import org.openbravo.base.util.Check;
@@ -40,6 +43,7 @@ import org.openbravo.base.util.Check;
 public class ModelSessionFactoryController extends SessionFactoryController {
 
   private List<Class<?>> additionalClasses = new ArrayList<Class<?>>();
+  private final AtomicLong executedStatements = new AtomicLong();
 
   @Override
   protected void mapModel(Configuration cfg) {
@@ -61,6 +65,22 @@ public class ModelSessionFactoryController extends SessionFactoryController {
     configuration.setInterceptor(new LocalInterceptor());
   }
 
+  @Override
+  protected void setStatementInspector(Configuration configuration) {
+    configuration.getProperties()
+        .put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+          executedStatements.incrementAndGet();
+          return sql;
+        });
+  }
+
+  /**
+   * @return the number of statements executed with the sessions of this session factory
+   */
+  public long getExecutedStatements() {
+    return executedStatements.get();
+  }
+
   // an interceptor which fails on all updates
   private class LocalInterceptor extends EmptyInterceptor {
 
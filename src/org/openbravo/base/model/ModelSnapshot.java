@@ -0,0 +1,135 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.base.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.session.UniqueConstraintColumn;
+
+/**
+ * A serializable snapshot of the database metadata used by the {@link ModelProvider} to build the
+ * runtime model: the not-null setting of the columns and the unique constraints. Reading this
+ * metadata from the database catalog is expensive, so it is written to disk and reused in
+ * subsequent startups as long as its version matches the current one.
+ * 
+ * The version is computed from the last time the model was updated in the Application Dictionary
+ * (see {@link ModelProvider#computeLastUpdateModelTime()}) and the last time the database was
+ * updated.
+ */
+class ModelSnapshot implements Serializable {
+  private static final long serialVersionUID = 1L;
+  private static final Logger log = LogManager.getLogger();
+
+  private final String version;
+  private final Map<String, Boolean> columnMandatories;
+  private final List<UniqueConstraintColumn> uniqueConstraintColumns;
+
+  ModelSnapshot(String version, Map<String, Boolean> columnMandatories,
+      List<UniqueConstraintColumn> uniqueConstraintColumns) {
+    this.version = version;
+    this.columnMandatories = columnMandatories;
+    this.uniqueConstraintColumns = uniqueConstraintColumns;
+  }
+
+  String getVersion() {
+    return version;
+  }
+
+  Map<String, Boolean> getColumnMandatories() {
+    return columnMandatories;
+  }
+
+  List<UniqueConstraintColumn> getUniqueConstraintColumns() {
+    return uniqueConstraintColumns;
+  }
+
+  /**
+   * Reads the snapshot stored in the given file.
+   * 
+   * @param file
+   *          the file where the snapshot is stored
+   * @param expectedVersion
+   *          the current version of the model
+   * @return the snapshot or {@code null} if the file does not exist, it cannot be read or it
+   *         contains a snapshot of a different version
+   */
+  static ModelSnapshot read(Path file, String expectedVersion) {
+    if (!Files.isReadable(file)) {
+      return null;
+    }
+    try (InputStream is = Files.newInputStream(file);
+        ObjectInputStream ois = new ObjectInputStream(is)) {
+      ModelSnapshot snapshot = (ModelSnapshot) ois.readObject();
+      if (!expectedVersion.equals(snapshot.getVersion())) {
+        log.info("Model snapshot {} is outdated, it will be regenerated", file);
+        return null;
+      }
+      return snapshot;
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      log.warn("Could not read model snapshot {}, it will be regenerated", file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes this snapshot in the given file. The snapshot is written in a temporary file which then
+   * replaces the existing one, so that other nodes never read a partially written snapshot.
+   * 
+   * @param file
+   *          the file where the snapshot is stored
+   */
+  void write(Path file) {
+    Path tmpFile = null;
+    try {
+      Path dir = file.toAbsolutePath().getParent();
+      Files.createDirectories(dir);
+      tmpFile = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+      try (OutputStream os = Files.newOutputStream(tmpFile);
+          ObjectOutputStream oos = new ObjectOutputStream(os)) {
+        oos.writeObject(this);
+      }
+      Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      tmpFile = null;
+    } catch (IOException e) {
+      log.warn("Could not write model snapshot {}", file, e);
+    } finally {
+      if (tmpFile != null) {
+        try {
+          Files.deleteIfExists(tmpFile);
+        } catch (IOException e) {
+          log.debug("Could not delete temporary model snapshot {}", tmpFile, e);
+        }
+      }
+    }
+  }
+}
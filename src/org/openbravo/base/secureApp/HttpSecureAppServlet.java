@@ -245,7 +245,7 @@ public class HttpSecureAppServlet extends HttpBaseServlet {
       // is done by the fillSessionArguments below
       if (!variables.isLoggingIn()) {
         // log in process is completed, check whether the session in db is still active
-        loggedOK = SeguridadData.loggedOK(cp, variables.getDBSession());
+        loggedOK = SessionAccessCache.getInstance().isSessionActive(cp, variables.getDBSession());
         if (!loggedOK) {
           if (request.getSession(false) != null
               && "Y".equals(request.getSession().getAttribute("forceLogin"))) {
@@ -536,20 +536,18 @@ public class HttpSecureAppServlet extends HttpBaseServlet {
       Role role = OBContext.getOBContext().getRole();
       boolean isAutomaticRole = RoleAccessUtils.isAutoRole(role.getId());
       ConnectionProvider cp = new DalConnectionProvider(false);
-      final String accessLevel = SeguridadData.selectAccessLevel(cp, type, id);
+      final SessionAccessCache.AccessDecision access = SessionAccessCache.getInstance()
+          .getAccessDecision(cp, vars.getRole(), type, id);
+      final String accessLevel = access.getAccessLevel();
       vars.setSessionValue("#CurrentAccessLevel", accessLevel);
       if (type.equals("W")) {
-        return hasLevelAccess(vars, accessLevel) && (isAutomaticRole
-            || (SeguridadData.selectAccess(cp, vars.getRole(), "TABLE", id).equals("0")
-                && !SeguridadData.selectAccess(cp, vars.getRole(), type, id).equals("0")));
+        return hasLevelAccess(vars, accessLevel) && (isAutomaticRole || access.isGranted());
       } else if (type.equals("S")) {
-        return isAutomaticRole
-            || !SeguridadData.selectAccessSearch(cp, vars.getRole(), id).equals("0");
+        return isAutomaticRole || access.isGranted();
       } else if (type.equals("C")) {
         return true;
       } else {
-        return hasLevelAccess(vars, accessLevel) && (isAutomaticRole
-            || !SeguridadData.selectAccess(cp, vars.getRole(), type, id).equals("0"));
+        return hasLevelAccess(vars, accessLevel) && (isAutomaticRole || access.isGranted());
       }
     } catch (final Exception e) {
       log4j.error("Error checking access: ", e);
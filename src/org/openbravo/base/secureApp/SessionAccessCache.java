@@ -0,0 +1,280 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.base.secureApp;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.ServletException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.exception.OBException;
+import org.openbravo.cache.TimeInvalidatedCache;
+import org.openbravo.database.ConnectionProvider;
+
+/**
+ * Keeps in memory the results of the checks done by {@link HttpSecureAppServlet} on every request:
+ * whether the session of the request is still active in the database and whether the role of the
+ * user can access the requested window, process, report or form.
+ * 
+ * Only active sessions are cached, during a short time, so a session deactivated in other node of a
+ * cluster is detected once that time expires. Sessions deactivated in this node are removed from
+ * the cache as soon as they are deactivated.
+ * 
+ * Access decisions are kept per role and are discarded whenever the accesses of the role are
+ * modified in this node, or after a configurable time as this is not notified to other nodes.
+ * 
+ * The cache is disabled by default, so all the checks are done in the database unless it is enabled
+ * when the application starts.
+ */
+public class SessionAccessCache implements SessionAccessCacheMBean {
+  public static final String MBEAN_NAME = "SessionAccessCache";
+
+  private static final Logger log = LogManager.getLogger();
+  private static final SessionAccessCache INSTANCE = new SessionAccessCache();
+
+  private volatile TimeInvalidatedCache<String, Boolean> activeSessions;
+  private volatile TimeInvalidatedCache<String, Map<String, AccessDecision>> accessByRole;
+
+  /**
+   * @return the singleton instance of the cache
+   */
+  public static SessionAccessCache getInstance() {
+    return INSTANCE;
+  }
+
+  SessionAccessCache() {
+  }
+
+  /**
+   * Enables the cache of active sessions.
+   * 
+   * @param timeToLiveSeconds
+   *          time after which an active session is checked again in the database
+   */
+  public void enableSessionCache(long timeToLiveSeconds) {
+    activeSessions = TimeInvalidatedCache.newBuilder()
+        .name("Active Sessions")
+        .expireAfterDuration(Duration.ofSeconds(timeToLiveSeconds))
+        .recordStats()
+        .build(sessionId -> null);
+    log.debug("Active session cache enabled, time to live: {} seconds", timeToLiveSeconds);
+  }
+
+  /**
+   * Enables the cache of access decisions.
+   * 
+   * @param timeToLiveSeconds
+   *          time after which the access decisions of a role are checked again in the database
+   */
+  public void enableAccessCache(long timeToLiveSeconds) {
+    accessByRole = TimeInvalidatedCache.newBuilder()
+        .name("Role Access Decisions")
+        .expireAfterDuration(Duration.ofSeconds(timeToLiveSeconds))
+        .recordStats()
+        .build(roleId -> new ConcurrentHashMap<>());
+    log.debug("Access decision cache enabled, time to live: {} seconds", timeToLiveSeconds);
+  }
+
+  /**
+   * Disables the cache and removes all the cached entries.
+   */
+  public void disable() {
+    activeSessions = null;
+    accessByRole = null;
+  }
+
+  @Override
+  public boolean isSessionCacheEnabled() {
+    return activeSessions != null;
+  }
+
+  @Override
+  public boolean isAccessCacheEnabled() {
+    return accessByRole != null;
+  }
+
+  /**
+   * Checks whether a session is active.
+   * 
+   * @param conn
+   *          the connection provider used to check the sessions not cached yet
+   * @param sessionId
+   *          the id of the AD_Session
+   * @return true if the session is active, false otherwise
+   * @throws ServletException
+   *           if the session cannot be read from the database
+   */
+  boolean isSessionActive(ConnectionProvider conn, String sessionId) throws ServletException {
+    TimeInvalidatedCache<String, Boolean> sessions = activeSessions;
+    if (sessions == null || sessionId == null) {
+      return SeguridadData.loggedOK(conn, sessionId);
+    }
+    try {
+      // inactive sessions are not cached, the loader returns null for them
+      return sessions.get(sessionId, id -> isLoggedIn(conn, id)) != null;
+    } catch (OBException e) {
+      if (e.getCause() instanceof ServletException) {
+        throw (ServletException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static Boolean isLoggedIn(ConnectionProvider conn, String sessionId) {
+    try {
+      return SeguridadData.loggedOK(conn, sessionId) ? Boolean.TRUE : null;
+    } catch (ServletException e) {
+      throw new OBException(e);
+    }
+  }
+
+  /**
+   * Returns the access level of a window, process, report or form and whether the role has been
+   * granted access to it.
+   * 
+   * @param conn
+   *          the connection provider used to read the decisions not cached yet
+   * @param roleId
+   *          the id of the role
+   * @param type
+   *          the type of element
+   * @param id
+   *          the id of the element
+   * @return the access decision for the element
+   * @throws ServletException
+   *           if the access cannot be read from the database
+   */
+  AccessDecision getAccessDecision(ConnectionProvider conn, String roleId, String type, String id)
+      throws ServletException {
+    TimeInvalidatedCache<String, Map<String, AccessDecision>> access = accessByRole;
+    if (access == null || roleId == null) {
+      return loadAccessDecision(conn, roleId, type, id);
+    }
+    Map<String, AccessDecision> roleAccess = access.get(roleId);
+    String key = type + "|" + id;
+    AccessDecision decision = roleAccess.get(key);
+    if (decision == null) {
+      decision = loadAccessDecision(conn, roleId, type, id);
+      roleAccess.put(key, decision);
+    }
+    return decision;
+  }
+
+  private AccessDecision loadAccessDecision(ConnectionProvider conn, String roleId, String type,
+      String id) throws ServletException {
+    final String accessLevel = SeguridadData.selectAccessLevel(conn, type, id);
+    boolean granted;
+    if (type.equals("W")) {
+      granted = SeguridadData.selectAccess(conn, roleId, "TABLE", id).equals("0")
+          && !SeguridadData.selectAccess(conn, roleId, type, id).equals("0");
+    } else if (type.equals("S")) {
+      granted = !SeguridadData.selectAccessSearch(conn, roleId, id).equals("0");
+    } else if (type.equals("C")) {
+      granted = true;
+    } else {
+      granted = !SeguridadData.selectAccess(conn, roleId, type, id).equals("0");
+    }
+    return new AccessDecision(accessLevel, granted);
+  }
+
+  /**
+   * Removes a session from the cache, it should be invoked whenever a session is deactivated.
+   * 
+   * @param sessionId
+   *          the id of the deactivated AD_Session
+   */
+  public void invalidateSession(String sessionId) {
+    TimeInvalidatedCache<String, Boolean> sessions = activeSessions;
+    if (sessions != null && sessionId != null) {
+      sessions.invalidate(sessionId);
+    }
+  }
+
+  @Override
+  public void invalidateSessions() {
+    TimeInvalidatedCache<String, Boolean> sessions = activeSessions;
+    if (sessions != null) {
+      sessions.invalidateAll();
+    }
+  }
+
+  /**
+   * Removes the access decisions of a role, it should be invoked whenever its accesses change.
+   * 
+   * @param roleId
+   *          the id of the role
+   */
+  public void invalidateRole(String roleId) {
+    TimeInvalidatedCache<String, Map<String, AccessDecision>> access = accessByRole;
+    if (access != null && roleId != null) {
+      access.invalidate(roleId);
+    }
+  }
+
+  @Override
+  public void invalidateAccess() {
+    TimeInvalidatedCache<String, Map<String, AccessDecision>> access = accessByRole;
+    if (access != null) {
+      access.invalidateAll();
+    }
+  }
+
+  @Override
+  public long getCachedSessions() {
+    TimeInvalidatedCache<String, Boolean> sessions = activeSessions;
+    return sessions != null ? sessions.estimatedSize() : 0;
+  }
+
+  @Override
+  public double getSessionHitRatio() {
+    TimeInvalidatedCache<String, Boolean> sessions = activeSessions;
+    return sessions != null ? sessions.getStats().hitRate() : 0;
+  }
+
+  @Override
+  public long getCachedRoles() {
+    TimeInvalidatedCache<String, Map<String, AccessDecision>> access = accessByRole;
+    return access != null ? access.estimatedSize() : 0;
+  }
+
+  /**
+   * The access level of an element and whether a role has been granted access to it. The access
+   * level still needs to be checked against the user level of the session.
+   */
+  static class AccessDecision {
+    private final String accessLevel;
+    private final boolean granted;
+
+    private AccessDecision(String accessLevel, boolean granted) {
+      this.accessLevel = accessLevel;
+      this.granted = granted;
+    }
+
+    String getAccessLevel() {
+      return accessLevel;
+    }
+
+    boolean isGranted() {
+      return granted;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.base.secureApp;
+
+/**
+ * Exposes the statistics of the {@link SessionAccessCache} through JMX and allows to invalidate it.
+ */
+public interface SessionAccessCacheMBean {
+
+  /**
+   * @return whether the active sessions are cached
+   */
+  public boolean isSessionCacheEnabled();
+
+  /**
+   * @return whether the access decisions are cached
+   */
+  public boolean isAccessCacheEnabled();
+
+  /**
+   * @return the approximate number of active sessions currently cached
+   */
+  public long getCachedSessions();
+
+  /**
+   * @return the ratio of session checks resolved from the cache, between 0 and 1
+   */
+  public double getSessionHitRatio();
+
+  /**
+   * @return the approximate number of roles whose access decisions are currently cached
+   */
+  public long getCachedRoles();
+
+  /**
+   * Removes all the cached sessions, they will be checked again in the database when needed.
+   */
+  public void invalidateSessions();
+
+  /**
+   * Removes all the cached access decisions, they will be read again from the database when needed.
+   */
+  public void invalidateAccess();
+}
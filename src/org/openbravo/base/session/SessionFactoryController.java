@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2008-2018 Openbravo SLU 
+ * All portions are Copyright (C) 2008-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -150,6 +150,7 @@ public abstract class SessionFactoryController {
       configuration = buildConfiguration();
       mapModel(configuration);
       setInterceptor(configuration);
+      setStatementInspector(configuration);
 
       final Properties properties = getOpenbravoProperties();
       bbddUser = properties.getProperty(AvailableSettings.USER);
@@ -308,6 +309,9 @@ public abstract class SessionFactoryController {
   protected void setInterceptor(Configuration configuration) {
   }
 
+  protected void setStatementInspector(Configuration configuration) {
+  }
+
   /**
    * Returns a query which is specific for Postgres or Oracle.
    * 
@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2008-2010 Openbravo SLU 
+ * All portions are Copyright (C) 2008-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -19,6 +19,8 @@
 
 package org.openbravo.base.session;
 
+import java.io.Serializable;
+
 /**
  * Helper class which combines the relevant information of a column used within an UniqueConstraint.
  * It contains a table, columnname and uniqueconstraintname.
@@ -26,7 +28,8 @@ package org.openbravo.base.session;
  * @author mtaal
  */
 
-public class UniqueConstraintColumn {
+public class UniqueConstraintColumn implements Serializable {
+  private static final long serialVersionUID = 1L;
 
   private String tableName;
   private String columnName;
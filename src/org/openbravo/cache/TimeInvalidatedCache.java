@@ -11,7 +11,7 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2022 Openbravo SLU
+ * All portions are Copyright (C) 2022-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -27,6 +27,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
 /**
  * Cache API that allows creating a cache whose entries will be invalidated after a period of time
@@ -173,6 +174,25 @@ public class TimeInvalidatedCache<K, V> {
     logger.trace("Cache {} has been invalidated(all keys).", name);
   }
 
+  /**
+   * Returns the statistics of the cache. They are only accumulated if the cache was built with
+   * {@link TimeInvalidatedCacheBuilder#recordStats()}, otherwise all of them are zero.
+   * 
+   * @return a snapshot of the statistics of the cache
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Returns the approximate number of entries in the cache
+   * 
+   * @return the approximate number of entries
+   */
+  public long estimatedSize() {
+    return cache.estimatedSize();
+  }
+
   /**
    * Name of the cache
    * 
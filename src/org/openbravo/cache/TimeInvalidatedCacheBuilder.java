@@ -11,7 +11,7 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2022-2023 Openbravo SLU
+ * All portions are Copyright (C) 2022-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -20,6 +20,7 @@ package org.openbravo.cache;
 
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -57,6 +58,9 @@ public class TimeInvalidatedCacheBuilder<K, V> {
   private static Logger logger = LogManager.getLogger();
 
   private Duration expireDuration;
+  private Duration refreshDuration;
+  private Executor executor;
+  private boolean recordStats;
   private Ticker ticker;
   private String name;
   private BiConsumer<Map.Entry<K, V>, String> removalListener;
@@ -99,6 +103,15 @@ public class TimeInvalidatedCacheBuilder<K, V> {
 
     Caffeine<Object, Object> cacheBuilder = Caffeine.newBuilder();
     cacheBuilder.expireAfterWrite(expireDuration);
+    if (refreshDuration != null) {
+      cacheBuilder.refreshAfterWrite(refreshDuration);
+    }
+    if (executor != null) {
+      cacheBuilder.executor(executor);
+    }
+    if (recordStats) {
+      cacheBuilder.recordStats();
+    }
     if (ticker != null) {
       cacheBuilder.ticker(ticker);
     }
@@ -145,6 +158,46 @@ public class TimeInvalidatedCacheBuilder<K, V> {
     return this;
   }
 
+  /**
+   * Sets the duration after which an entry is refreshed in background. The refresh is triggered by
+   * the first read of the entry after this period, which still gets the old value, so frequently
+   * read entries are reloaded before they expire and their readers never wait for them. If not
+   * invoked, entries are not refreshed.
+   *
+   * @param duration
+   *          Duration of time after which the entry is refreshed, it should be shorter than the
+   *          expiration duration
+   * @return this object
+   */
+  public TimeInvalidatedCacheBuilder<K, V> refreshAfterDuration(Duration duration) {
+    this.refreshDuration = duration;
+    return this;
+  }
+
+  /**
+   * Sets the executor used to run the background refreshes and the removal listener. If not
+   * invoked, {@link java.util.concurrent.ForkJoinPool#commonPool()} is used.
+   *
+   * @param executorToSet
+   *          Executor to run the asynchronous tasks of the cache
+   * @return this object
+   */
+  public TimeInvalidatedCacheBuilder<K, V> executor(Executor executorToSet) {
+    this.executor = executorToSet;
+    return this;
+  }
+
+  /**
+   * Enables the accumulation of the statistics of the cache, which can be retrieved with
+   * {@link TimeInvalidatedCache#getStats()}.
+   *
+   * @return this object
+   */
+  public TimeInvalidatedCacheBuilder<K, V> recordStats() {
+    this.recordStats = true;
+    return this;
+  }
+
   /**
    * Internal API, used only for testing
    *
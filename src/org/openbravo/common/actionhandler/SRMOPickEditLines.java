@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2011-2018 Openbravo SLU 
+ * All portions are Copyright (C) 2011-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -20,7 +20,6 @@ package org.openbravo.common.actionhandler;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +38,7 @@ import org.openbravo.client.kernel.RequestContext;
 import org.openbravo.dal.core.OBContext;
 import org.openbravo.dal.service.OBDal;
 import org.openbravo.dal.service.OBDao;
+import org.openbravo.erpCommon.businessUtility.TaxResolutionMemo;
 import org.openbravo.erpCommon.utility.OBMessageUtils;
 import org.openbravo.financial.FinancialUtils;
 import org.openbravo.materialmgmt.UOMUtil;
@@ -51,7 +51,6 @@ import org.openbravo.model.common.uom.UOM;
 import org.openbravo.model.financialmgmt.tax.TaxRate;
 import org.openbravo.model.materialmgmt.transaction.ShipmentInOutLine;
 import org.openbravo.model.pricing.pricelist.ProductPrice;
-import org.openbravo.service.db.CallStoredProcedure;
 import org.openbravo.service.db.DalConnectionProvider;
 import org.openbravo.service.db.DbUtility;
 import org.openbravo.service.json.JsonUtils;
@@ -80,7 +79,10 @@ public class SRMOPickEditLines extends BaseProcessActionHandler {
 
       if (order != null) {
         List<String> idList = OBDao.getIDListFromOBObject(order.getOrderLineList());
-        createOrderLines(jsonRequest, idList);
+        // the lines without tax of the same product share the same tax resolution
+        try (TaxResolutionMemo taxResolutionMemo = TaxResolutionMemo.open()) {
+          createOrderLines(jsonRequest, idList);
+        }
       }
 
     } catch (Exception e) {
@@ -221,23 +223,12 @@ public class SRMOPickEditLines extends BaseProcessActionHandler {
       } else {
         String taxId = "";
         if (JsonUtils.isValueEmpty(selectedLine.get("tax").toString())) {
-          List<Object> parameters = new ArrayList<Object>();
-
-          parameters.add(product.getId());
-          parameters.add(order.getOrderDate());
-          parameters.add(order.getOrganization().getId());
-          parameters.add(order.getWarehouse().getId());
-          parameters.add(order.getInvoiceAddress().getId());
-          parameters.add(order.getPartnerAddress().getId());
-
-          if (order.getProject() != null) {
-            parameters.add(order.getProject().getId());
-          } else {
-            parameters.add(null);
-          }
-          parameters.add(order.isSalesTransaction() ? "Y" : "N");
-
-          taxId = (String) CallStoredProcedure.getInstance().call("C_Gettax", parameters, null);
+          taxId = TaxResolutionMemo.getTax(new TaxResolutionMemo.Key(product.getId(),
+              order.getOrderDate(), order.getOrganization().getId(),
+              order.getWarehouse().getId(), order.getInvoiceAddress().getId(),
+              order.getPartnerAddress().getId(),
+              order.getProject() != null ? order.getProject().getId() : null,
+              order.isSalesTransaction()));
           if (taxId == null || "".equals(taxId)) {
             Map<String, String> errorParameters = new HashMap<String, String>();
             errorParameters.put("product", product.getName());
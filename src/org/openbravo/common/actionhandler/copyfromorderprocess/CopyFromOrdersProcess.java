@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2017 Openbravo SLU 
+ * All portions are Copyright (C) 2017-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -42,6 +42,7 @@ import org.openbravo.client.kernel.ComponentProvider;
 import org.openbravo.dal.core.OBContext;
 import org.openbravo.dal.service.OBCriteria;
 import org.openbravo.dal.service.OBDal;
+import org.openbravo.erpCommon.businessUtility.TaxResolutionMemo;
 import org.openbravo.erpCommon.utility.OBMessageUtils;
 import org.openbravo.model.ad.process.ProcessInstance;
 import org.openbravo.model.common.order.Order;
@@ -83,8 +84,9 @@ public class CopyFromOrdersProcess {
   public int copyOrderLines(final Order processingOrderParam, final JSONArray selectedOrders) {
     this.processingOrder = processingOrderParam;
     OBContext.setAdminMode(true);
-    try {
+    try (TaxResolutionMemo taxResolutionMemo = TaxResolutionMemo.open()) {
       long startTime = System.currentTimeMillis();
+      resolveTaxes(taxResolutionMemo, selectedOrders);
       int createdOrderLinesCount = createOrderLinesFromSelectedOrders(selectedOrders);
       processExplodeBOMOrderLines();
       long endTime = System.currentTimeMillis();
@@ -96,12 +98,44 @@ public class CopyFromOrdersProcess {
     }
   }
 
+  /**
+   * Resolves with a single query the taxes of all the products that are going to be copied, so
+   * they are not resolved line by line.
+   * 
+   * @param taxResolutionMemo
+   *          The memo where the resolved taxes are kept during the process
+   * @param selectedOrders
+   *          The selected orders from which the lines will be copied.
+   */
+  private void resolveTaxes(final TaxResolutionMemo taxResolutionMemo,
+      final JSONArray selectedOrders) {
+    final List<String> selectedOrderIds = new ArrayList<>();
+    for (int index = 0; index < selectedOrders.length(); index++) {
+      selectedOrderIds.add(getSelectedOrderInPosition(selectedOrders, index).getId());
+    }
+    if (selectedOrderIds.isEmpty()) {
+      return;
+    }
+    OBCriteria<OrderLine> obc = OBDal.getInstance().createCriteria(OrderLine.class);
+    obc.add(Restrictions.in(OrderLine.PROPERTY_SALESORDER + ".id", selectedOrderIds));
+    obc.add(Restrictions.isNull(OrderLine.PROPERTY_BOMPARENT));
+    obc.add(Restrictions.isNull(OrderLine.PROPERTY_ORDERDISCOUNT));
+    obc.add(Restrictions.isNotNull(OrderLine.PROPERTY_PRODUCT));
+    obc.setProjection(
+        Projections.distinct(Projections.property(OrderLine.PROPERTY_PRODUCT + ".id")));
+    final List<String> productIds = new ArrayList<>();
+    for (Object productId : (List<?>) obc.list()) {
+      productIds.add((String) productId);
+    }
+    taxResolutionMemo.resolve(UpdateTax.getTaxKeys(productIds, processingOrder));
+  }
+
   /**
    * Creates order lines from selected orders. Iterates all the selected orders and copies it's
    * lines to the processing order
    * 
    * @param selectedOrders
-   *          The selected orders from the lines will be copied.
+   *          The selected orders from which the lines will be copied.
    * @return The created order lines count
    */
   private int createOrderLinesFromSelectedOrders(final JSONArray selectedOrders) {
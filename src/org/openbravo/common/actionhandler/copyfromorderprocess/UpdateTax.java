@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2017-2020 Openbravo SLU 
+ * All portions are Copyright (C) 2017-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -19,37 +19,32 @@
 
 package org.openbravo.common.actionhandler.copyfromorderprocess;
 
-import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import javax.enterprise.context.Dependent;
-import javax.servlet.ServletException;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.time.DateFormatUtils;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.openbravo.base.exception.OBException;
-import org.openbravo.base.session.OBPropertiesProvider;
 import org.openbravo.client.kernel.ComponentProvider.Qualifier;
 import org.openbravo.dal.service.OBCriteria;
 import org.openbravo.dal.service.OBDal;
-import org.openbravo.erpCommon.businessUtility.Tax;
+import org.openbravo.erpCommon.businessUtility.TaxResolutionMemo;
 import org.openbravo.model.common.businesspartner.BusinessPartner;
 import org.openbravo.model.common.businesspartner.Location;
 import org.openbravo.model.common.order.Order;
 import org.openbravo.model.common.order.OrderLine;
 import org.openbravo.model.common.plm.Product;
 import org.openbravo.model.financialmgmt.tax.TaxRate;
-import org.openbravo.service.db.DalConnectionProvider;
 
 @Dependent
 @Qualifier(CopyFromOrdersProcessImplementationInterface.COPY_FROM_ORDER_PROCESS_HOOK_QUALIFIER)
 class UpdateTax implements CopyFromOrdersProcessImplementationInterface {
   private static final String ALTERNATE_TAX_BASE_AMOUNT_WITH_TAXAMOUNT = "TBATAX";
   private static final String ALTERNATE_TAX_BASE_AMOUNT = "TBA";
-  private static final Logger log = LogManager.getLogger();
 
   @Override
   public int getOrder() {
@@ -84,10 +79,28 @@ class UpdateTax implements CopyFromOrdersProcessImplementationInterface {
    * @param product
    *          The product where taxes are searching for
    * @return The Tax ID or an exception if it is not found
-   * @throws IOException
-   * @throws ServletException
    */
   private String getCurrentTaxId(final Product product, final Order processingOrder) {
+    String taxID = TaxResolutionMemo
+        .getTax(getTaxKeys(Collections.singletonList(product.getId()), processingOrder).get(0));
+    if (StringUtils.isEmpty(taxID)) {
+      throw new OBException("@TaxNotFound@");
+    }
+    return taxID;
+  }
+
+  /**
+   * Returns the parameters used to resolve the tax of each of the given products when they are
+   * added to the processing order
+   * 
+   * @param productIds
+   *          The IDs of the products
+   * @param processingOrder
+   *          The order where the lines are created
+   * @return the tax resolution keys, in the same order as the given products
+   */
+  static List<TaxResolutionMemo.Key> getTaxKeys(final List<String> productIds,
+      final Order processingOrder) {
     String bpBillToLocationId = (processingOrder.getInvoiceAddress() != null)
         ? processingOrder.getInvoiceAddress().getId()
         : getMaxBusinessPartnerLocationId(processingOrder.getBusinessPartner());
@@ -98,22 +111,12 @@ class UpdateTax implements CopyFromOrdersProcessImplementationInterface {
     String orderProjectId = processingOrder.getProject() != null
         ? processingOrder.getProject().getId()
         : "";
-    String strDatePromised = DateFormatUtils.format(processingOrder.getScheduledDeliveryDate(),
-        OBPropertiesProvider.getInstance().getOpenbravoProperties().getProperty("dateFormat.java"));
-
-    String taxID;
-    try {
-      taxID = Tax.get(new DalConnectionProvider(), product.getId(), strDatePromised,
-          processingOrder.getOrganization().getId(), orderWarehouseId, bpBillToLocationId,
-          bpLocationId, orderProjectId, processingOrder.isSalesTransaction());
-    } catch (IOException | ServletException e) {
-      log.error("Error in CopyFromOrdersProcess while retrieving the TaxID for a Product", e);
-      throw new OBException(e);
-    }
-    if (StringUtils.isEmpty(taxID)) {
-      throw new OBException("@TaxNotFound@");
-    }
-    return taxID;
+    return productIds.stream()
+        .map(productId -> new TaxResolutionMemo.Key(productId,
+            processingOrder.getScheduledDeliveryDate(), processingOrder.getOrganization().getId(),
+            orderWarehouseId, bpBillToLocationId, bpLocationId, orderProjectId,
+            processingOrder.isSalesTransaction()))
+        .collect(Collectors.toList());
   }
 
   /**
@@ -123,7 +126,7 @@ class UpdateTax implements CopyFromOrdersProcessImplementationInterface {
    *          The business partner where the location will be searched
    * @return the last business partner location ID
    */
-  private String getMaxBusinessPartnerLocationId(final BusinessPartner businessPartner) {
+  private static String getMaxBusinessPartnerLocationId(final BusinessPartner businessPartner) {
     OBCriteria<Location> obc = OBDal.getInstance().createCriteria(Location.class);
     obc.add(Restrictions.eq(Location.PROPERTY_BUSINESSPARTNER, businessPartner));
     obc.add(Restrictions.eq(Location.PROPERTY_ACTIVE, true));
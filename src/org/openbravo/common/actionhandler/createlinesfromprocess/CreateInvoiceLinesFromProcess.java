@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2018-2020 Openbravo SLU 
+ * All portions are Copyright (C) 2018-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -42,6 +42,7 @@ import org.openbravo.client.kernel.ComponentProvider;
 import org.openbravo.dal.core.OBContext;
 import org.openbravo.dal.service.OBCriteria;
 import org.openbravo.dal.service.OBDal;
+import org.openbravo.erpCommon.businessUtility.TaxResolutionMemo;
 import org.openbravo.model.common.invoice.Invoice;
 import org.openbravo.model.common.invoice.InvoiceLine;
 import org.openbravo.model.common.order.OrderLine;
@@ -83,7 +84,8 @@ public class CreateInvoiceLinesFromProcess {
   public int createInvoiceLinesFromDocumentLines(final JSONArray selectedLinesParam,
       final Invoice currentInvoice, final Class<? extends BaseOBObject> selectedLinesFromClass) {
     OBContext.setAdminMode(true);
-    try {
+    // keep the taxes resolved for the lines not related to an order line during the process
+    try (TaxResolutionMemo taxResolutionMemo = TaxResolutionMemo.open()) {
       validateAndSetLinesFromClassOrThrowException(selectedLinesFromClass);
       // Initialize the line number with the last one in the processing invoice.
       lastLineNo = getLastLineNoOfCurrentInvoice(currentInvoice);
@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2018-2020 Openbravo SLU 
+ * All portions are Copyright (C) 2018-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -19,23 +19,17 @@
 
 package org.openbravo.common.actionhandler.createlinesfromprocess;
 
-import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.Date;
 
 import javax.enterprise.context.Dependent;
-import javax.servlet.ServletException;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.time.DateFormatUtils;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import org.openbravo.base.exception.OBException;
-import org.openbravo.base.session.OBPropertiesProvider;
 import org.openbravo.client.kernel.ComponentProvider.Qualifier;
 import org.openbravo.dal.service.OBDal;
-import org.openbravo.erpCommon.businessUtility.Tax;
+import org.openbravo.erpCommon.businessUtility.TaxResolutionMemo;
 import org.openbravo.model.common.enterprise.Organization;
 import org.openbravo.model.common.enterprise.Warehouse;
 import org.openbravo.model.common.order.OrderLine;
@@ -43,13 +37,10 @@ import org.openbravo.model.common.plm.Product;
 import org.openbravo.model.financialmgmt.tax.TaxRate;
 import org.openbravo.model.materialmgmt.transaction.ShipmentInOutLine;
 import org.openbravo.model.project.Project;
-import org.openbravo.service.db.DalConnectionProvider;
 
 @Dependent
 @Qualifier(CreateLinesFromProcessHook.CREATE_LINES_FROM_PROCESS_HOOK_QUALIFIER)
 class UpdateTax extends CreateLinesFromProcessHook {
-  private static final Logger log = LogManager.getLogger();
-
   @Override
   public int getOrder() {
     return -10;
@@ -78,8 +69,6 @@ class UpdateTax extends CreateLinesFromProcessHook {
    * @param product
    *          The product where taxes are searching for
    * @return The Tax ID or an exception if it is not found
-   * @throws IOException
-   * @throws ServletException
    */
   private String getCurrentTaxId(final Product product) {
     String taxID = "";
@@ -99,19 +88,10 @@ class UpdateTax extends CreateLinesFromProcessHook {
       Date scheduledDeliveryDate = copiedFromIOLine.getShipmentReceipt().getMovementDate();
 
       String bpLocationId = getInvoice().getPartnerAddress().getId();
-      String strDatePromised = DateFormatUtils.format(scheduledDeliveryDate,
-          OBPropertiesProvider.getInstance()
-              .getOpenbravoProperties()
-              .getProperty("dateFormat.java"));
-
-      try {
-        taxID = Tax.get(new DalConnectionProvider(), product.getId(), strDatePromised,
-            organization.getId(), (warehouse != null) ? warehouse.getId() : "", bpLocationId,
-            bpLocationId, (project != null) ? project.getId() : "", isSalesTransaction);
-      } catch (IOException | ServletException e) {
-        log.error("Error in CopyFromProcess while retrieving the TaxID for a Product", e);
-        throw new OBException(e);
-      }
+      taxID = TaxResolutionMemo.getTax(new TaxResolutionMemo.Key(product.getId(),
+          scheduledDeliveryDate, organization.getId(),
+          (warehouse != null) ? warehouse.getId() : "", bpLocationId, bpLocationId,
+          (project != null) ? project.getId() : "", isSalesTransaction));
       if (StringUtils.isEmpty(taxID)) {
         throw new OBException("@TaxNotFound@");
       }
@@ -11,7 +11,7 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2012-2019 Openbravo SLU
+ * All portions are Copyright (C) 2012-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  *************************************************************************
@@ -84,10 +84,10 @@ public class CostingBackground extends DalBaseProcess implements KillableProcess
       final String where = " as o"
           + " where exists ("
           + "    select 1 from CostingRule as cr"
-          + "    where ad_isorgincluded(o.id, cr.organization.id, client.id) <> -1 "
+          + "    where isOrgIncluded(o.id, cr.organization.id, client.id) "
           + "      and cr.validated is true"
           + "    )"
-          + " and ad_isorgincluded(o.id, :orgId, :clientId) <> -1 ";
+          + " and isOrgIncluded(o.id, :orgId, :clientId) ";
       //@formatter:on
       OBQuery<Organization> orgQry = OBDal.getInstance().createQuery(Organization.class, where);
       orgQry.setNamedParameter("orgId", bundle.getContext().getOrganization());
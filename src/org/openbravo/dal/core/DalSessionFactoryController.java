@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2008-2018 Openbravo SLU 
+ * All portions are Copyright (C) 2008-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -31,8 +31,11 @@ import javax.inject.Inject;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.dialect.function.SQLFunction;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
 import org.openbravo.base.exception.OBException;
 import org.openbravo.base.model.ModelProvider;
 import org.openbravo.base.session.SessionFactoryController;
@@ -89,12 +92,19 @@ public class DalSessionFactoryController extends SessionFactoryController {
     configuration.setInterceptor(new OBInterceptor());
   }
 
+  @Override
+  protected void setStatementInspector(Configuration configuration) {
+    configuration.getProperties()
+        .setProperty(AvailableSettings.STATEMENT_INSPECTOR,
+            QueryCountStatementInspector.class.getName());
+  }
+
   @Override
   protected Map<String, SQLFunction> getSQLFunctions() {
     if (sqlFunctions != null) {
       return sqlFunctions;
     }
-    sqlFunctions = new HashMap<>();
+    sqlFunctions = getCoreSQLFunctions();
     if (sqlFunctionRegisters == null) {
       return sqlFunctions;
     }
@@ -109,6 +119,35 @@ public class DalSessionFactoryController extends SessionFactoryController {
   }
 
   void setSQLFunctions(Map<String, SQLFunction> sqlFunctions) {
-    this.sqlFunctions = sqlFunctions;
+    this.sqlFunctions = getCoreSQLFunctions();
+    if (sqlFunctions != null) {
+      this.sqlFunctions.putAll(sqlFunctions);
+    }
+  }
+
+  /**
+   * Returns the SQL functions used by core queries, they are registered even if there is no
+   * {@link SQLFunctionRegister} available.
+   */
+  private static Map<String, SQLFunction> getCoreSQLFunctions() {
+    Map<String, SQLFunction> coreFunctions = new HashMap<>();
+    coreFunctions.put("isOrgIncluded", getIsOrgIncludedFunction());
+    return coreFunctions;
+  }
+
+  /**
+   * Boolean predicate equivalent to {@code ad_isorgincluded(orgId, parentOrgId, clientId) <> -1}
+   * which is resolved with an indexed lookup on the AD_Org_Tree closure table instead of invoking
+   * the PL function for every row, so the database can plan it as a semi-join. Usage:
+   * {@code where isOrgIncluded(o.id, :parentOrgId, :clientId)}.
+   * <p>
+   * As AD_Org_Tree is populated when organizations are set as ready, the same restrictions of
+   * ad_isorgincluded apply. Note it does not include the special case of ad_isorgincluded that
+   * considers the * organization included in itself for any existing client.
+   */
+  private static SQLFunction getIsOrgIncludedFunction() {
+    return new SQLFunctionTemplate(StandardBasicTypes.BOOLEAN,
+        "exists (select 1 from ad_org_tree org_tree where org_tree.ad_org_id = ?1"
+            + " and org_tree.ad_parent_org_id = ?2 and org_tree.ad_client_id = ?3)");
   }
 }
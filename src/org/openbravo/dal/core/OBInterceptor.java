@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2008-2020 Openbravo SLU 
+ * All portions are Copyright (C) 2008-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -27,7 +27,9 @@ import static org.openbravo.model.common.enterprise.Organization.PROPERTY_UPDATE
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -68,6 +70,9 @@ public class OBInterceptor extends EmptyInterceptor {
 
   private static ThreadLocal<Boolean> disableCheckReferencedOrganizations = new ThreadLocal<Boolean>();
 
+  // natural tree checks done during the current flush, keyed by the ids of the organizations
+  private static ThreadLocal<Map<String, Boolean>> naturalTreeChecksInFlush = new ThreadLocal<>();
+
   /**
    * If true is passed and we are in adminMode then the update info (updated/updatedBy) is not
    * updated when an object gets updated.
@@ -307,8 +312,7 @@ public class OBInterceptor extends EmptyInterceptor {
             || property.isImage();
 
         if (!skipCrossOrgCheck && !obObject.getEntity().isVirtualEntity()
-            && !obContext.getOrganizationStructureProvider(o1.getClient().getId())
-                .isInNaturalTree(o1, o2)) {
+            && !isInNaturalTree(obContext, o1, o2)) {
           throw new OBSecurityException("Entity " + bob.getIdentifier() + " (" + bob.getEntityName()
               + ") with organization " + o1.getIdentifier() + " references an entity "
               + obObject.getIdentifier() + " through its property " + property
@@ -319,6 +323,22 @@ public class OBInterceptor extends EmptyInterceptor {
     }
   }
 
+  /**
+   * Checks if org2 is in the natural tree of org1. The result is kept until the end of the current
+   * flush, so the check is done only once per pair of organizations even if many objects in the
+   * flush reference objects of the same organizations.
+   */
+  private boolean isInNaturalTree(OBContext obContext, Organization org1, Organization org2) {
+    final Map<String, Boolean> checks = naturalTreeChecksInFlush.get();
+    if (checks == null) {
+      return obContext.getOrganizationStructureProvider(org1.getClient().getId())
+          .isInNaturalTree(org1, org2);
+    }
+    return checks.computeIfAbsent(org1.getId() + "|" + org2.getId(),
+        key -> obContext.getOrganizationStructureProvider(org1.getClient().getId())
+            .isInNaturalTree(org1, org2));
+  }
+
   // general event handler does new and update
   protected void doEvent(Object object, Object[] currentState, String[] propertyNames) {
     try {
@@ -437,6 +457,7 @@ public class OBInterceptor extends EmptyInterceptor {
   @Override
   @SuppressWarnings({ "rawtypes" })
   public void postFlush(Iterator entities) {
+    naturalTreeChecksInFlush.remove();
     while (entities.hasNext()) {
       final BaseOBObject bob = (BaseOBObject) entities.next();
       bob.setNewOBObject(false);
@@ -466,6 +487,7 @@ public class OBInterceptor extends EmptyInterceptor {
 
   @Override
   public void afterTransactionCompletion(Transaction tx) {
+    naturalTreeChecksInFlush.remove();
     if (getInterceptorListener() != null) {
       getInterceptorListener().afterTransactionCompletion(tx);
     }
@@ -483,6 +505,8 @@ public class OBInterceptor extends EmptyInterceptor {
   @SuppressWarnings({ "rawtypes" })
   @Override
   public void preFlush(Iterator entities) {
+    // a new map on each flush, the organization tree could have changed since the previous one
+    naturalTreeChecksInFlush.set(new HashMap<>());
     if (getInterceptorListener() != null) {
       getInterceptorListener().preFlush(entities);
     }
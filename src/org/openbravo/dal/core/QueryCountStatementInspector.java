@@ -0,0 +1,36 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.dal.core;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.openbravo.jmx.ExtensionInstrumentation;
+
+/**
+ * Counts the statements prepared by Hibernate, so the queries executed by the extensions measured
+ * by {@link ExtensionInstrumentation} are attributed to them. The statements are not modified.
+ */
+public class QueryCountStatementInspector implements StatementInspector {
+  private static final long serialVersionUID = 1L;
+
+  @Override
+  public String inspect(String sql) {
+    ExtensionInstrumentation.getInstance().queryExecuted();
+    return sql;
+  }
+}
@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2016-2018 Openbravo SLU 
+ * All portions are Copyright (C) 2016-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -62,7 +62,7 @@ public class AcctSchemaStructureProvider implements OBNotSingleton {
       OBContext.setAdminMode(true);
       String where = " select a.id" + " from OrganizationAcctSchema as oas"
           + " join oas.accountingSchema as a" + " where oas.client.id = :clientId"
-          + " and (ad_isorgincluded(:orgId, oas.organization.id, oas.client.id) <> -1 or :orgId = '0')"
+          + " and (isOrgIncluded(:orgId, oas.organization.id, oas.client.id) or :orgId = '0')"
           + " and a.active = true" + " and oas.active = true" + " group by a.id";
 
       final Query<String> qry = OBDal.getInstance().getSession().createQuery(where, String.class);
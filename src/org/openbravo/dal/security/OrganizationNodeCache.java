@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2022 Openbravo SLU 
+ * All portions are Copyright (C) 2022-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -20,12 +20,17 @@
 package org.openbravo.dal.security;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -41,6 +46,10 @@ import org.openbravo.dal.service.OBDal;
  * changes (i.e. a new organization is added to Openbravo or an existing organization is moved in
  * the hierarchy, some time will passed until the update is reflected on the cache (see
  * expireAfterDuration in cache builder)
+ * <p>
+ * Each tree is encoded with nested intervals: the nodes are numbered in pre-order and every node
+ * keeps the range of numbers of its subtree, so checking if an organization is an ancestor or a
+ * descendant of another one is just a comparison of integers.
  */
 public class OrganizationNodeCache implements OBSingleton {
 
@@ -101,12 +110,44 @@ public class OrganizationNodeCache implements OBSingleton {
     for (Entry<String, OrgNode> nodeEntry : orgNodes.entrySet()) {
       nodeEntry.getValue().resolve(orgNodes, nodeEntry.getKey());
     }
+    computeIntervals(orgNodes);
 
     log.debug("Client {} initialized in {} ms", clientId,
         String.format("%.3f", (System.nanoTime() - t) / 1_000_000d));
     return orgNodes;
   }
 
+  /**
+   * Numbers the nodes in pre-order, keeping in each node the number of the last node of its subtree.
+   * The tree is traversed iteratively to support any depth. Nodes not reachable from a root (which
+   * could only happen with a corrupted tree with cycles) are left without interval.
+   */
+  private static void computeIntervals(Map<String, OrgNode> orgNodes) {
+    int counter = 0;
+    Deque<OrgNode> pending = new ArrayDeque<>();
+    for (OrgNode root : orgNodes.values()) {
+      if (root.parentNodeId != null && orgNodes.containsKey(root.parentNodeId)) {
+        continue;
+      }
+      pending.push(root);
+      while (!pending.isEmpty()) {
+        OrgNode node = pending.peek();
+        if (node.pre == -1) {
+          node.pre = counter++;
+          for (String childId : node.getChildren()) {
+            OrgNode child = orgNodes.get(childId);
+            if (child.pre == -1) {
+              pending.push(child);
+            }
+          }
+        } else {
+          pending.pop();
+          node.post = counter - 1;
+        }
+      }
+    }
+  }
+
   /**
    * Returns the organization nodes of a given client
    * 
@@ -137,6 +178,16 @@ public class OrganizationNodeCache implements OBSingleton {
 
     private List<String> children = new ArrayList<>();
 
+    // nested interval of the node: pre-order number of the node and of the last node of its subtree
+    private int pre = -1;
+    private int post = -1;
+
+    // lazily computed views, immutable as the node is shared by all the threads
+    private Set<String> childOrgs;
+    private Set<String> parentTree;
+    private Set<String> childTree;
+    private Set<String> naturalTree;
+
     void addChild(String childId) {
       children.add(childId);
     }
@@ -165,5 +216,73 @@ public class OrganizationNodeCache implements OBSingleton {
     List<String> getChildren() {
       return children;
     }
+
+    boolean hasInterval() {
+      return pre != -1;
+    }
+
+    /**
+     * @return true if this node is the given node or one of its ancestors. Both nodes must have an
+     *         interval.
+     */
+    boolean contains(OrgNode node) {
+      return pre <= node.pre && node.pre <= post;
+    }
+
+    Set<String> getChildOrgs() {
+      if (childOrgs == null) {
+        childOrgs = Collections.unmodifiableSet(new HashSet<>(children));
+      }
+      return childOrgs;
+    }
+
+    /**
+     * @return the ids of this node and of all its ancestors
+     */
+    Set<String> getParentTree(Map<String, OrgNode> orgNodes, String nodeId) {
+      if (parentTree == null) {
+        Set<String> result = new HashSet<>();
+        result.add(nodeId);
+        String parentId = parentNodeId;
+        while (parentId != null && result.add(parentId)) {
+          OrgNode parent = orgNodes.get(parentId);
+          parentId = parent != null ? parent.parentNodeId : null;
+        }
+        parentTree = Collections.unmodifiableSet(result);
+      }
+      return parentTree;
+    }
+
+    /**
+     * @return the ids of this node and of all its descendants
+     */
+    Set<String> getChildTree(Map<String, OrgNode> orgNodes, String nodeId) {
+      if (childTree == null) {
+        Set<String> result = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.push(nodeId);
+        while (!pending.isEmpty()) {
+          String id = pending.pop();
+          OrgNode node = orgNodes.get(id);
+          if (result.add(id) && node != null) {
+            node.children.forEach(pending::push);
+          }
+        }
+        childTree = Collections.unmodifiableSet(result);
+      }
+      return childTree;
+    }
+
+    /**
+     * @return the ids of the ancestors and descendants of this node, including itself
+     */
+    Set<String> getNaturalTree(Map<String, OrgNode> orgNodes, String nodeId) {
+      if (naturalTree == null) {
+        Set<String> result = new HashSet<>(getParentTree(orgNodes, nodeId));
+        result.addAll(getChildTree(orgNodes, nodeId));
+        naturalTree = Collections.unmodifiableSet(result);
+      }
+      return naturalTree;
+    }
   }
 }
@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2008-2023 Openbravo SLU 
+ * All portions are Copyright (C) 2008-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -20,11 +20,13 @@
 package org.openbravo.dal.security;
 
 import java.lang.reflect.Field;
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -35,7 +37,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.openbravo.base.provider.OBNotSingleton;
 import org.openbravo.base.structure.BaseOBObject;
-import org.openbravo.base.util.Check;
 import org.openbravo.dal.core.OBContext;
 import org.openbravo.dal.security.OrganizationNodeCache.OrgNode;
 import org.openbravo.dal.service.OBDal;
@@ -88,21 +89,26 @@ public class OrganizationStructureProvider implements OBNotSingleton {
    * @param orgId
    *          the id of the organization for which the natural tree is determined.
    * @return the natural tree of the organization.
+   * @see #getNaturalTreeView(String)
    */
   public Set<String> getNaturalTree(String orgId) {
-    long t = System.nanoTime();
+    return new HashSet<>(getNaturalTreeView(orgId));
+  }
+
+  /**
+   * Returns the natural tree of an organization as an unmodifiable set shared until the
+   * organization cache is refreshed. It avoids copying the tree when it is only read.
+   * 
+   * @param orgId
+   *          the id of the organization for which the natural tree is determined.
+   * @return the natural tree of the organization, as an unmodifiable set.
+   */
+  public Set<String> getNaturalTreeView(String orgId) {
     OrgNode node = getNode(orgId);
     if (node == null) {
-      return new HashSet<>(Arrays.asList(orgId));
-    } else {
-      Set<String> result = new HashSet<>(getParentTree(orgId, true));
-      result.addAll(getChildTree(orgId, false));
-      if (log.isTraceEnabled()) {
-        log.trace("getNaturalTree {} - {} ms", orgId,
-            String.format("%.3f", (System.nanoTime() - t) / 1_000_000d));
-      }
-      return result;
+      return Collections.singleton(orgId);
     }
+    return node.getNaturalTree(orgNodes, orgId);
   }
 
   /**
@@ -115,18 +121,71 @@ public class OrganizationStructureProvider implements OBNotSingleton {
    * @return true if org2 is in the natural tree of org1, false otherwise
    */
   public boolean isInNaturalTree(Organization org1, Organization org2) {
-    final String id1 = org1.getId();
-    final String id2 = org2.getId();
+    return isInNaturalTree(org1.getId(), org2.getId());
+  }
 
+  /**
+   * Checks if an organization (orgId2) is in the natural tree of another organization (orgId1),
+   * i.e., if any of them is an ancestor of the other one or if both are the same organization.
+   * 
+   * @param orgId1
+   *          the id of the organization whose natural tree is used to check if orgId2 is present
+   * @param orgId2
+   *          the id of the organization checked in the natural tree of orgId1
+   * @return true if orgId2 is in the natural tree of orgId1, false otherwise
+   */
+  public boolean isInNaturalTree(String orgId1, String orgId2) {
     // org 0 is in everyones natural tree, and the other way around
-    if ("0".equals(id1) || "0".equals(id2)) {
+    if ("0".equals(orgId1) || "0".equals(orgId2)) {
       return true;
     }
 
-    final Set<String> ids = getNaturalTree(id1);
-    Check.isNotNull(ids, "Organization with id " + id1
-        + " does not have a computed natural tree, does this organization exist?");
-    return ids.contains(id2);
+    OrgNode node1 = getNode(orgId1);
+    if (node1 == null) {
+      return orgId1.equals(orgId2);
+    }
+    OrgNode node2 = getNode(orgId2);
+    if (node2 != null && node1.hasInterval() && node2.hasInterval()) {
+      return node1.contains(node2) || node2.contains(node1);
+    }
+    return getNaturalTreeView(orgId1).contains(orgId2);
+  }
+
+  /**
+   * Checks if an organization is an ancestor of another one.
+   * 
+   * @param ancestorId
+   *          the id of the organization checked as ancestor
+   * @param orgId
+   *          the id of the organization whose parent tree is checked
+   * @return true if ancestorId is in the parent tree of orgId, not being the same organization
+   */
+  public boolean isAncestor(String ancestorId, String orgId) {
+    if (ancestorId.equals(orgId)) {
+      return false;
+    }
+    OrgNode node = getNode(orgId);
+    if (node == null) {
+      return false;
+    }
+    OrgNode ancestor = getNode(ancestorId);
+    if (ancestor != null && ancestor.hasInterval() && node.hasInterval()) {
+      return ancestor.contains(node);
+    }
+    return node.getParentTree(orgNodes, orgId).contains(ancestorId);
+  }
+
+  /**
+   * Checks if an organization is a descendant of another one.
+   * 
+   * @param descendantId
+   *          the id of the organization checked as descendant
+   * @param orgId
+   *          the id of the organization whose child tree is checked
+   * @return true if descendantId is in the child tree of orgId, not being the same organization
+   */
+  public boolean isDescendant(String descendantId, String orgId) {
+    return isAncestor(orgId, descendantId);
   }
 
   /**
@@ -137,20 +196,29 @@ public class OrganizationStructureProvider implements OBNotSingleton {
    * @param includeOrg
    *          if true, returns also the given organization as part of the tree
    * @return the parent organization tree of the organization.
+   * @see #getParentTreeView(String, boolean)
    */
   public Set<String> getParentTree(String orgId, boolean includeOrg) {
-    String parentOrg = getParentOrg(orgId);
-    Set<String> result = new HashSet<String>();
-
-    if (includeOrg) {
-      result.add(orgId);
-    }
+    return new HashSet<>(getParentTreeView(orgId, includeOrg));
+  }
 
-    while (parentOrg != null) {
-      result.add(parentOrg);
-      parentOrg = getParentOrg(parentOrg);
+  /**
+   * Returns the parent organization tree of an organization as an unmodifiable set shared until
+   * the organization cache is refreshed. It avoids copying the tree when it is only read.
+   * 
+   * @param orgId
+   *          the id of the organization for which the parent organization tree is determined.
+   * @param includeOrg
+   *          if true, returns also the given organization as part of the tree
+   * @return the parent organization tree of the organization, as an unmodifiable set.
+   */
+  public Set<String> getParentTreeView(String orgId, boolean includeOrg) {
+    OrgNode node = getNode(orgId);
+    if (node == null) {
+      return includeOrg ? Collections.singleton(orgId) : Collections.emptySet();
     }
-    return result;
+    Set<String> parentTree = node.getParentTree(orgNodes, orgId);
+    return includeOrg ? parentTree : new ExcludingSet(parentTree, orgId);
   }
 
   /**
@@ -215,24 +283,29 @@ public class OrganizationStructureProvider implements OBNotSingleton {
    * @param includeOrg
    *          if true, returns also the given organization as part of the tree
    * @return the child organization tree of the organization.
+   * @see #getChildTreeView(String, boolean)
    */
   public Set<String> getChildTree(String orgId, boolean includeOrg) {
-    OrgNode node = getNode(orgId);
-    Set<String> result = new HashSet<>();
-    if (includeOrg) {
-      result.add(orgId);
-    }
+    return new HashSet<>(getChildTreeView(orgId, includeOrg));
+  }
 
+  /**
+   * Returns the child organization tree of an organization as an unmodifiable set shared until the
+   * organization cache is refreshed. It avoids copying the tree when it is only read.
+   * 
+   * @param orgId
+   *          the id of the organization for which the child organization tree is determined.
+   * @param includeOrg
+   *          if true, returns also the given organization as part of the tree
+   * @return the child organization tree of the organization, as an unmodifiable set.
+   */
+  public Set<String> getChildTreeView(String orgId, boolean includeOrg) {
+    OrgNode node = getNode(orgId);
     if (node == null) {
-      return result;
-    }
-
-    Set<String> childOrgs = getChildOrg(orgId);
-
-    for (String co : childOrgs) {
-      result.addAll(getChildTree(co, true));
+      return includeOrg ? Collections.singleton(orgId) : Collections.emptySet();
     }
-    return result;
+    Set<String> childTree = node.getChildTree(orgNodes, orgId);
+    return includeOrg ? childTree : new ExcludingSet(childTree, orgId);
   }
 
   /**
@@ -248,12 +321,7 @@ public class OrganizationStructureProvider implements OBNotSingleton {
     if (node == null) {
       return new HashSet<>(0);
     }
-
-    Set<String> os = new HashSet<>(node.getChildren().size());
-    for (String child : node.getChildren()) {
-      os.add(child);
-    }
-    return os;
+    return new HashSet<>(node.getChildOrgs());
   }
 
   public String getClientId() {
@@ -332,7 +400,7 @@ public class OrganizationStructureProvider implements OBNotSingleton {
     OBContext.setAdminMode(true);
     List<Organization> childLegalEntitiesList = new ArrayList<Organization>();
     try {
-      for (final String orgId : getChildTree(org.getId(), false)) {
+      for (final String orgId : getChildTreeView(org.getId(), false)) {
         OrgNode node = getNode(orgId);
         if (node != null && node.isLegalEntity) {
           childLegalEntitiesList.add(OBDal.getInstance().get(Organization.class, orgId));
@@ -537,7 +605,7 @@ public class OrganizationStructureProvider implements OBNotSingleton {
 
   private <T extends BaseOBObject> Optional<BaseOBObject> getBOBInClosestOrgInChildTree(
       Collection<T> bobs, String orgId) {
-    Set<String> childTree = getChildTree(orgId, false);
+    Set<String> childTree = getChildTreeView(orgId, false);
     List<BaseOBObject> closest = bobs.stream()
         .filter(bob -> getOrgId(bob) != null && childTree.contains(getOrgId(bob)))
         .collect(Collectors.toList());
@@ -559,6 +627,35 @@ public class OrganizationStructureProvider implements OBNotSingleton {
     return bobs.stream().sorted(Comparator.comparing(bob -> (String) bob.getId())).findFirst();
   }
 
+  /**
+   * Unmodifiable view of a set without one of its elements, used to return the parent and child
+   * trees without the organization itself without copying them.
+   */
+  private static class ExcludingSet extends AbstractSet<String> {
+    private final Set<String> set;
+    private final String excluded;
+
+    private ExcludingSet(Set<String> set, String excluded) {
+      this.set = set;
+      this.excluded = excluded;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return !excluded.equals(o) && set.contains(o);
+    }
+
+    @Override
+    public int size() {
+      return set.contains(excluded) ? set.size() - 1 : set.size();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return set.stream().filter(id -> !excluded.equals(id)).iterator();
+    }
+  }
+
   private String getOrgId(BaseOBObject bob) {
     if (Organization.ENTITY_NAME.equals(bob.getEntity().getName())) {
       return (String) bob.getId();
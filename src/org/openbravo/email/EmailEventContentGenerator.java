@@ -11,7 +11,7 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2013 Openbravo SLU
+ * All portions are Copyright (C) 2013-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  *************************************************************************
@@ -80,8 +80,10 @@ public interface EmailEventContentGenerator {
   public boolean preventsOthersExecution();
 
   /**
-   * Asynchronous emails are sent in a separate thread not waiting them to finish to continue the
-   * rest of the execution flow.
+   * Asynchronous emails are queued in the current transaction and sent in background once it is
+   * committed, not waiting them to be sent to continue the rest of the execution flow. They are
+   * retried if sending them fails. If the transaction is rolled back or it is never committed, the
+   * email is not sent.
    */
   public boolean isAsynchronous();
 
@@ -11,7 +11,7 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2013-2018 Openbravo SLU
+ * All portions are Copyright (C) 2013-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  *************************************************************************
@@ -59,6 +59,12 @@ public class EmailEventManager {
    * This method is invoked when an event for sending emails is generated. It looks for all
    * {@link EmailEventContentGenerator} classes listening to this event and generates an email using
    * them.
+   * <p>
+   * The emails of asynchronous generators (see {@link EmailEventContentGenerator#isAsynchronous()})
+   * are queued in the current DAL transaction: they are only sent if it is committed, and they are
+   * discarded if it is rolled back. Requests and processes commit it when they finish, other
+   * callers must commit it explicitly, for example with
+   * {@code OBDal.getInstance().commitAndClose()}.
    * 
    * @param event
    *          Name of the event to send emails for
@@ -66,7 +72,7 @@ public class EmailEventManager {
    *          Email address of the email's recipient
    * @param data
    *          Object that the EmailEventContentGenerator will receive to generate the email
-   * @return <code>true</code> in case at least one email has been sent
+   * @return <code>true</code> in case at least one email has been sent or queued
    * @throws EmailEventException
    *           is thrown in case of problems sending the email or getting the email server
    *           configuration
@@ -100,13 +106,8 @@ public class EmailEventManager {
             .build();
 
         if (gen.isAsynchronous()) {
-          new Thread(() -> {
-            try {
-              EmailManager.sendEmail(mailConfig, email);
-            } catch (Exception e) {
-              log.error("Failed to send email for event {} with generator {}.", event, gen, e);
-            }
-          }).start();
+          // queued in the current transaction, it is sent in background once committed
+          EmailManager.queueEmail(mailConfig, email);
         } else {
           EmailManager.sendEmail(mailConfig, email);
         }
@@ -11,7 +11,7 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2010-2016 Openbravo SLU
+ * All portions are Copyright (C) 2010-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -22,6 +22,7 @@ import java.math.BigDecimal;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.servlet.ServletException;
 
@@ -98,6 +99,36 @@ public abstract class SimpleCallout extends DelegateConnectionProvider {
     return info.getJSONObjectResult();
   }
 
+  /**
+   * Returns the names of the fields (for example {@code inpmProductId}) read by this callout. It is
+   * used by the {@code FormInitializationComponent} to plan the execution of the callouts: a
+   * callout that declares the fields it reads is not executed again if none of them (neither the
+   * fields it updated) changed since its previous execution in the same request.
+   * <p>
+   * Callouts overriding this method must ensure that their result depends only on the values of
+   * the returned fields and on the field that triggered them.
+   * 
+   * @return the set of fields read by this callout or {@code null} if they are unknown, which is the
+   *         default
+   */
+  public Set<String> getReadFields() {
+    return null;
+  }
+
+  /**
+   * Returns whether this callout can be executed concurrently with other callouts that do not
+   * depend on the fields it updates. This is only taken into account if the callout also declares
+   * the fields it reads with {@link #getReadFields()}.
+   * <p>
+   * Thread safe callouts are executed in a separate thread with their own DAL session, therefore
+   * they should not update the database or the http session nor rely on changes not committed yet.
+   * 
+   * @return {@code true} if the callout can be executed concurrently, {@code false} by default
+   */
+  public boolean isThreadSafe() {
+    return false;
+  }
+
   /**
    * Helper class that contains all data to access callout information and servlet information
    */
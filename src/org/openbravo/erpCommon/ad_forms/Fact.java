@@ -11,7 +11,7 @@
  * Portions created by Jorg Janke are Copyright (C) 1999-2001 Jorg Janke, parts
  * created by ComPiere are Copyright (C) ComPiere, Inc.;   All Rights Reserved.
  * Contributor(s): Openbravo SLU
- * Contributions are Copyright (C) 2001-2019 Openbravo S.L.U.
+ * Contributions are Copyright (C) 2001-2024 Openbravo S.L.U.
  ******************************************************************************
  */
 package org.openbravo.erpCommon.ad_forms;
@@ -503,9 +503,11 @@ public class Fact {
       return true;
     }
     Set<String> recordID2Set = new HashSet<String>();
+    // lines are inserted together once all of them have been computed
+    FactAcctBatchInsert batch = new FactAcctBatchInsert(con, conn);
     for (int i = 0; i < m_lines.size(); i++) {
       FactLine fl = (FactLine) m_lines.get(i);
-      if (!fl.save(con, conn, vars)) { // abort on first error
+      if (!fl.save(batch, conn, vars)) { // abort on first error
         log4jFact.warn("Save (fact): aborted. i=" + i);
         return false;
       }
@@ -513,6 +515,10 @@ public class Fact {
         recordID2Set.add(fl.getM_RecordID2());
       }
     }
+    if (!batch.execute()) {
+      log4jFact.warn("Save (fact): aborted inserting lines");
+      return false;
+    }
     if (!recordID2Set.isEmpty()) {
       for (Set<String> recordID2 : splitRecordID2Set(recordID2Set, 1000)) {
         // Update Balancing Date [Open Balances project]
@@ -0,0 +1,144 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.erpCommon.ad_forms;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.data.UtilSql;
+import org.openbravo.database.ConnectionProvider;
+import org.openbravo.database.SessionInfo;
+import org.openbravo.service.db.QueryTimeOutUtil;
+
+/**
+ * Collects the Fact_Acct records of a {@link Fact} and inserts them within the given transaction
+ * using JDBC batches, so a document generating many accounting lines does not require a database
+ * round trip per line.
+ * 
+ * The values are added in the same order and with the same conversions as
+ * FactLineData.insertFactAct.
+ */
+class FactAcctBatchInsert {
+  private static final Logger log = LogManager.getLogger();
+
+  private static final int BATCH_SIZE = 1000;
+
+  private static final String INSERT_SQL = "INSERT INTO Fact_Acct"
+      + " (Fact_Acct_ID, AD_Client_ID, AD_Org_ID, IsActive, Created, CreatedBy, Updated, UpdatedBy,"
+      + " C_AcctSchema_ID, Account_ID, AcctValue, AcctDescription, DateTrx, DateAcct,"
+      + " C_Period_ID, AD_Table_ID, Record_ID, Line_ID,"
+      + " GL_Category_ID, C_Tax_ID, PostingType, C_Currency_ID,"
+      + " AmtSourceDR, AmtSourceCR, AmtAcctDR, AmtAcctCR,"
+      + " C_UOM_ID, Qty, M_Locator_ID, M_Product_ID, C_BPartner_ID, AD_OrgTrx_ID, C_LocFrom_ID,"
+      + " C_LocTo_ID, C_SalesRegion_ID, C_Project_ID, C_Campaign_ID, C_Activity_ID, User1_ID,"
+      + " User2_ID, Description, Fact_Acct_Group_ID, SeqNo, DocBaseType,"
+      + " Record_ID2, A_Asset_ID, C_WithHolding_ID, C_DocType_ID, C_Costcenter_ID, FactAcctType)"
+      + " VALUES"
+      + " (?, ?, ?, 'Y', now(), ?, now(), ?,"
+      + " ?, ?, ?, ?, TO_DATE(?), TO_DATE(?),"
+      + " ?, ?, ?, ?,"
+      + " ?, ?, ?, ?,"
+      + " TO_NUMBER(?), TO_NUMBER(?), TO_NUMBER(?), TO_NUMBER(?),"
+      + " ?, TO_NUMBER(?), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, TO_NUMBER(?), ?,"
+      + " ?, ?, ?, ?, ?, ?)";
+
+  private final Connection con;
+  private final ConnectionProvider conn;
+  private final List<String[]> records = new ArrayList<>();
+
+  FactAcctBatchInsert(Connection con, ConnectionProvider conn) {
+    this.con = con;
+    this.conn = conn;
+  }
+
+  /**
+   * Adds a Fact_Acct record to be inserted when {@link #execute()} is invoked.
+   * 
+   * @param values
+   *          the values of the record, in the order of the parameters of the insert statement
+   */
+  void add(String... values) {
+    records.add(values);
+  }
+
+  /**
+   * Inserts all the pending records.
+   * 
+   * @return true if every record was inserted, false if any of them failed. In that case the
+   *         records inserted in the same transaction are not reverted, as it happened when inserting
+   *         them one by one.
+   */
+  boolean execute() {
+    if (records.isEmpty()) {
+      return true;
+    }
+    PreparedStatement st = null;
+    try {
+      st = conn.getPreparedStatement(con, INSERT_SQL);
+      QueryTimeOutUtil.getInstance().setQueryTimeOut(st, SessionInfo.getQueryProfile());
+      int pending = 0;
+      for (String[] values : records) {
+        for (int i = 0; i < values.length; i++) {
+          UtilSql.setValue(st, i + 1, 12, null, values[i]);
+        }
+        st.addBatch();
+        pending++;
+        if (pending == BATCH_SIZE) {
+          if (!allInserted(st.executeBatch())) {
+            return false;
+          }
+          pending = 0;
+        }
+      }
+      return pending == 0 || allInserted(st.executeBatch());
+    } catch (BatchUpdateException e) {
+      log.warn("Error inserting Fact_Acct records",
+          e.getNextException() != null ? e.getNextException() : e);
+      return false;
+    } catch (SQLException e) {
+      log.warn("Error inserting Fact_Acct records", e);
+      return false;
+    } finally {
+      records.clear();
+      try {
+        if (st != null) {
+          conn.releaseTransactionalPreparedStatement(st);
+        }
+      } catch (Exception e) {
+        log.error("Error during release of Fact_Acct insert statement", e);
+      }
+    }
+  }
+
+  private static boolean allInserted(int[] updateCounts) {
+    for (int count : updateCounts) {
+      if (count != 1 && count != Statement.SUCCESS_NO_INFO) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
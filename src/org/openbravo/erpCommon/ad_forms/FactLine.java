@@ -11,7 +11,7 @@
  * Portions created by Jorg Janke are Copyright (C) 1999-2001 Jorg Janke, parts
  * created by ComPiere are Copyright (C) ComPiere, Inc.;   All Rights Reserved.
  * Contributor(s): Openbravo SLU
- * Contributions are Copyright (C) 2001-2019 Openbravo S.L.U.
+ * Contributions are Copyright (C) 2001-2024 Openbravo S.L.U.
  ******************************************************************************
  */
 package org.openbravo.erpCommon.ad_forms;
@@ -571,6 +571,18 @@ public class FactLine {
    */
   public boolean save(Connection con, ConnectionProvider conn, VariablesSecureApp vars)
       throws ServletException {
+    FactAcctBatchInsert batch = new FactAcctBatchInsert(con, conn);
+    return save(batch, conn, vars) && batch.execute();
+  } // save
+
+  /**
+   * Computes the Fact_Acct record of this line and adds it to the given batch, which is in charge
+   * of inserting it.
+   * 
+   * @return false if the record cannot be created, true otherwise
+   */
+  boolean save(FactAcctBatchInsert batch, ConnectionProvider conn, VariablesSecureApp vars)
+      throws ServletException {
     /**
      * Fill variables
      */
@@ -922,9 +934,9 @@ public class FactLine {
         log4jFactLine.debug("FactLine - m_C_WithHolding_ID "
             + ((m_docLine != null) ? m_docLine.m_C_WithHolding_ID : ""));
 
-        no = FactLineData.insertFactAct(con, conn, m_Fact_Acct_ID, AD_Client_ID, AD_Org_ID,
-            vars.getUser(), m_C_AcctSchema_ID, Account_ID, cuenta[0].value, cuenta[0].description,
-            DateDoc, DateAcct, C_Period_ID, m_AD_Table_ID, m_Record_ID, m_Line_ID, m_GL_Category_ID,
+        batch.add(m_Fact_Acct_ID, AD_Client_ID, AD_Org_ID, vars.getUser(), vars.getUser(),
+            m_C_AcctSchema_ID, Account_ID, cuenta[0].value, cuenta[0].description, DateDoc,
+            DateAcct, C_Period_ID, m_AD_Table_ID, m_Record_ID, m_Line_ID, m_GL_Category_ID,
             C_Tax_ID, m_PostingType, m_C_Currency_ID, m_AmtSourceDr, m_AmtSourceCr, m_AmtAcctDr,
             m_AmtAcctCr, C_UOM_ID, Qty, m_M_Locator_ID, M_Product_ID, C_BPartner_ID, AD_OrgTrx_ID,
             C_LocFrom_ID, C_LocTo_ID, C_SalesRegion_ID, C_Project_ID, C_Campaign_ID, C_Activity_ID,
@@ -932,7 +944,8 @@ public class FactLine {
             m_DocBaseType, m_Record_ID2, (m_docLine != null) ? m_docLine.m_A_Asset_ID : "",
             (m_docLine != null) ? m_docLine.m_C_WithHolding_ID : "", m_docVO.C_DocType_ID,
             C_Costcenter_ID, (m_docVO.m_IsOpening.equals("Y")) ? "O" : "N");
-        log4jFactLine.debug("FactLine - After insertFactAct");
+        no = 1;
+        log4jFactLine.debug("FactLine - After adding Fact_Acct record to batch");
       }
       // if (m_docVO.m_IsOpening.equals("Y"))
       // FactLineData.updateFactAcct(con, conn, m_AD_Table_ID, m_Record_ID);
@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2014-2023 Openbravo SLU
+ * All portions are Copyright (C) 2014-2024 Openbravo SLU
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -21,8 +21,12 @@ package org.openbravo.erpCommon.businessUtility;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Instance;
@@ -59,6 +63,9 @@ public class PriceAdjustment {
   @Any
   private Instance<PriceAdjustmentHqlExtension> extensions;
 
+  @Inject
+  private PriceAdjustmentRuleIndex ruleIndex;
+
   /**
    * Calculates price actual from price standard applying the Price Adjustments that fit the rules.
    * 
@@ -169,36 +176,99 @@ public class PriceAdjustment {
     return priceStd;
   }
 
-  private static List<org.openbravo.model.pricing.priceadjustment.PriceAdjustment> getApplicablePriceAdjustments(
+  /**
+   * Returns the Price Adjustments that can be applied, sorted by priority and id, or in the reverse
+   * order if requested. The {@link PriceAdjustmentRuleIndex} is used to discard the ones that
+   * cannot be applied.
+   */
+  static List<org.openbravo.model.pricing.priceadjustment.PriceAdjustment> getApplicablePriceAdjustments(
       final BaseOBObject orderOrInvoice, final BigDecimal qty, final Product product,
       final boolean reverse) {
 
-    final String hql = getHQLApplicablePriceAdjustments();
+    final PriceAdjustment priceAdInstance = WeldUtils
+        .getInstanceFromStaticBeanManager(PriceAdjustment.class);
+    final String clientId = ((Client) orderOrInvoice.get(Invoice.PROPERTY_CLIENT)).getId();
+    final String orgId = ((Organization) orderOrInvoice.get(Invoice.PROPERTY_ORGANIZATION))
+        .getId();
+    final String priceListId = ((PriceList) orderOrInvoice.get(Invoice.PROPERTY_PRICELIST))
+        .getId();
+    final BusinessPartner bp = (BusinessPartner) orderOrInvoice
+        .get(Invoice.PROPERTY_BUSINESSPARTNER);
+    final Date date = orderOrInvoice instanceof Invoice
+        ? ((Invoice) orderOrInvoice).getInvoiceDate()
+        : ((Order) orderOrInvoice).getOrderDate();
+
+    // discard in memory the discounts that cannot be applied, most lines do not get any of them
+    final List<PriceAdjustmentRuleIndex.Rule> candidates = priceAdInstance.ruleIndex
+        .getApplicableRules(clientId, orgId, priceListId, bp.getId(),
+            bp.getBusinessPartnerCategory() != null ? bp.getBusinessPartnerCategory().getId()
+                : null,
+            product != null ? product.getId() : null,
+            product != null && product.getProductCategory() != null
+                ? product.getProductCategory().getId()
+                : null,
+            date, qty);
+
+    final List<org.openbravo.model.pricing.priceadjustment.PriceAdjustment> queryList;
+    if (candidates.isEmpty()) {
+      queryList = Collections.emptyList();
+    } else if (!priceAdInstance.hasExtensions()
+        && candidates.stream().noneMatch(PriceAdjustmentRuleIndex.Rule::isVerificationRequired)) {
+      queryList = candidates.stream()
+          .map(rule -> OBDal.getInstance()
+              .get(org.openbravo.model.pricing.priceadjustment.PriceAdjustment.class,
+                  rule.getId()))
+          .filter(Objects::nonNull)
+          .collect(Collectors.toList());
+    } else {
+      // the candidates are verified with the complete query, which includes the characteristics
+      // and the extensions
+      queryList = priceAdInstance.queryApplicablePriceAdjustments(orderOrInvoice, qty, product,
+          candidates.stream()
+              .map(PriceAdjustmentRuleIndex.Rule::getId)
+              .collect(Collectors.toList()));
+    }
+
+    return reverse ? reverseResultList(queryList) : queryList;
+  }
+
+  /**
+   * Returns the Price Adjustments that can be applied, sorted by priority and id, evaluating all of
+   * them with a query without using the {@link PriceAdjustmentRuleIndex}. It allows to verify that
+   * the index returns the same Price Adjustments.
+   */
+  static List<org.openbravo.model.pricing.priceadjustment.PriceAdjustment> getApplicablePriceAdjustmentsWithQuery(
+      final BaseOBObject orderOrInvoice, final BigDecimal qty, final Product product) {
+    return WeldUtils.getInstanceFromStaticBeanManager(PriceAdjustment.class)
+        .queryApplicablePriceAdjustments(orderOrInvoice, qty, product, null);
+  }
 
-    final OBQuery<org.openbravo.model.pricing.priceadjustment.PriceAdjustment> hqlQuery = OBDal
+  private List<org.openbravo.model.pricing.priceadjustment.PriceAdjustment> queryApplicablePriceAdjustments(
+      final BaseOBObject orderOrInvoice, final BigDecimal qty, final Product product,
+      final List<String> candidateIds) {
+    final BusinessPartner bp = (BusinessPartner) orderOrInvoice
+        .get(Invoice.PROPERTY_BUSINESSPARTNER);
+    final Date date = orderOrInvoice instanceof Invoice
+        ? ((Invoice) orderOrInvoice).getInvoiceDate()
+        : ((Order) orderOrInvoice).getOrderDate();
+    final OBQuery<org.openbravo.model.pricing.priceadjustment.PriceAdjustment> query = OBDal
         .getInstance()
-        .createQuery(org.openbravo.model.pricing.priceadjustment.PriceAdjustment.class, hql)
+        .createQuery(org.openbravo.model.pricing.priceadjustment.PriceAdjustment.class,
+            getHQLApplicablePriceAdjustments(candidateIds != null))
         .setNamedParameter("clientId",
             ((Client) orderOrInvoice.get(Invoice.PROPERTY_CLIENT)).getId())
         .setNamedParameter("orgId",
             ((Organization) orderOrInvoice.get(Invoice.PROPERTY_ORGANIZATION)).getId())
         .setNamedParameter("priceListId",
             ((PriceList) orderOrInvoice.get(Invoice.PROPERTY_PRICELIST)).getId())
-        .setNamedParameter("bpId",
-            ((BusinessPartner) orderOrInvoice.get(Invoice.PROPERTY_BUSINESSPARTNER)).getId());
-
-    if (orderOrInvoice instanceof Invoice) {
-      hqlQuery.setNamedParameter("date", ((Invoice) orderOrInvoice).getInvoiceDate());
-    } else {
-      hqlQuery.setNamedParameter("date", ((Order) orderOrInvoice).getOrderDate());
-    }
-
-    final List<org.openbravo.model.pricing.priceadjustment.PriceAdjustment> queryList = hqlQuery
+        .setNamedParameter("bpId", bp.getId())
+        .setNamedParameter("date", date)
         .setNamedParameter("qty", qty)
-        .setNamedParameter("productId", (product != null ? product.getId() : ""))
-        .list();
-
-    return reverse ? reverseResultList(queryList) : queryList;
+        .setNamedParameter("productId", (product != null ? product.getId() : ""));
+    if (candidateIds != null) {
+      query.setNamedParameter("candidateIds", candidateIds);
+    }
+    return query.list();
   }
 
   private static List<org.openbravo.model.pricing.priceadjustment.PriceAdjustment> reverseResultList(
@@ -216,13 +286,18 @@ public class PriceAdjustment {
     return result;
   }
 
-  private static String getHQLApplicablePriceAdjustments() {
+  private boolean hasExtensions() {
+    return extensions != null && extensions.iterator().hasNext();
+  }
+
+  private String getHQLApplicablePriceAdjustments(boolean onlyCandidates) {
     //@formatter:off
     String hql = 
             "as p" +
             " where active = true" +
+            (onlyCandidates ? "   and p.id in (:candidateIds)" : "") +
             "   and client.id = :clientId" +
-            "   and ad_isorgincluded(:orgId, p.organization.id, p.client.id) <> -1" +
+            "   and isOrgIncluded(:orgId, p.organization.id, p.client.id)" +
             "   and (endingDate is null or trunc(endingDate) + 1 > :date)" +
             "   and trunc(startingDate)<=:date" +
             "   and p.discountType.id = '5D4BAF6BB86D4D2C9ED3D5A6FC051579'" +
@@ -374,12 +449,8 @@ public class PriceAdjustment {
             "   ))";
     //@formatter:on
 
-    final PriceAdjustment priceAdInstance = WeldUtils
-        .getInstanceFromStaticBeanManager(PriceAdjustment.class);
-
-    if (priceAdInstance.extensions != null) {
-      for (Iterator<? extends Object> extIter = priceAdInstance.extensions.iterator(); extIter
-          .hasNext();) {
+    if (extensions != null) {
+      for (Iterator<? extends Object> extIter = extensions.iterator(); extIter.hasNext();) {
         final PriceAdjustmentHqlExtension ext = (PriceAdjustmentHqlExtension) extIter.next();
         hql += ext.getHQLStringExtension();
       }
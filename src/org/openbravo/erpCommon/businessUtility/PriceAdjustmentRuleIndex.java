@@ -0,0 +1,375 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.erpCommon.businessUtility;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+
+import org.apache.commons.lang.time.DateUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.session.OBPropertiesProvider;
+import org.openbravo.cache.TimeInvalidatedCache;
+import org.openbravo.client.kernel.event.TransactionBeginEvent;
+import org.openbravo.client.kernel.event.TransactionCompletedEvent;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.service.OBDal;
+
+/**
+ * Keeps in memory, per client, the rules of the active Price Adjustment discounts so the ones that
+ * can be applied to a line are determined without querying the database. The rules are reloaded
+ * when any of the discounts of the client or their price list, business partner, business partner
+ * category, product, product category, organization or characteristic definitions change.
+ * 
+ * The rules defined by product characteristics are not evaluated in memory: the discounts with
+ * characteristics are returned as candidates that require to be verified with a query.
+ * 
+ * The reload on changes only happens in the node where the discounts are modified: the rest of the
+ * nodes of a cluster see the changes when the rules expire, after the time in seconds given by the
+ * priceadjustment.cache.timeToLive property (60 by default).
+ * 
+ * @see PriceAdjustment
+ */
+@ApplicationScoped
+public class PriceAdjustmentRuleIndex {
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String TTL_PROPERTY = "priceadjustment.cache.timeToLive";
+  private static final long DEFAULT_TTL = 60;
+
+  static final String PRICE_ADJUSTMENT_TYPE_ID = "5D4BAF6BB86D4D2C9ED3D5A6FC051579";
+
+  private static final Comparator<Rule> PRIORITY_ORDER = Comparator
+      .comparing((Rule rule) -> rule.priority, Comparator.nullsLast(Comparator.naturalOrder()))
+      .thenComparing(rule -> rule.id);
+
+  private static final ThreadLocal<Set<String>> invalidatedClients = new ThreadLocal<>();
+
+  private TimeInvalidatedCache<String, List<Rule>> rulesByClient;
+
+  @PostConstruct
+  private void init() {
+    rulesByClient = TimeInvalidatedCache.newBuilder()
+        .name("Price Adjustment Rules")
+        .expireAfterDuration(Duration.ofSeconds(getTimeToLive()))
+        .build(this::loadRules);
+  }
+
+  private long getTimeToLive() {
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    String timeToLive = properties != null ? properties.getProperty(TTL_PROPERTY) : null;
+    if (timeToLive == null) {
+      return DEFAULT_TTL;
+    }
+    try {
+      long value = Long.parseLong(timeToLive.trim());
+      if (value > 0) {
+        return value;
+      }
+    } catch (NumberFormatException ignore) {
+      // use the default
+    }
+    log.warn("Wrong value {} for property {}, using the default {}", timeToLive, TTL_PROPERTY,
+        DEFAULT_TTL);
+    return DEFAULT_TTL;
+  }
+
+  /**
+   * Returns the rules of the Price Adjustment discounts that can be applied with the given
+   * parameters, sorted by priority and id.
+   */
+  List<Rule> getApplicableRules(String clientId, String orgId, String priceListId,
+      String businessPartnerId, String businessPartnerCategoryId, String productId,
+      String productCategoryId, Date date, BigDecimal qty) {
+    if (date == null || qty == null) {
+      return Collections.emptyList();
+    }
+    List<Rule> rules = rulesByClient.get(clientId);
+    if (rules.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Set<String> orgParentTree = OBContext.getOBContext()
+        .getOrganizationStructureProvider(clientId)
+        .getParentTreeView(orgId, true);
+    List<Rule> applicableRules = new ArrayList<>();
+    for (Rule rule : rules) {
+      if (orgParentTree.contains(rule.orgId) && rule.validity.contains(date)
+          && (rule.minQty == null || rule.minQty.compareTo(qty) <= 0)
+          && (rule.maxQty == null || rule.maxQty.compareTo(qty) >= 0)
+          && isIncluded(rule.includePriceLists, rule.priceLists, priceListId)
+          && isIncluded(rule.includeBusinessPartners, rule.businessPartners, businessPartnerId)
+          && isIncluded(rule.includeBPCategories, rule.bpCategories, businessPartnerCategoryId)
+          && isIncluded(rule.includeProducts, rule.products, productId)
+          && isIncluded(rule.includeProductCategories, rule.productCategories,
+              productCategoryId)
+          && isOrganizationIncluded(rule, orgId, date)
+          && (rule.hasCharacteristics || "Y".equals(rule.includeCharacteristics))) {
+        applicableRules.add(rule);
+      }
+    }
+    return applicableRules;
+  }
+
+  /**
+   * Discards the rules kept for the given client, they will be loaded again on next use. As the
+   * change is not visible by other threads until the current transaction is completed, the rules
+   * are discarded again at that point.
+   * 
+   * @param clientId
+   *          the ID of the client whose discounts have changed
+   */
+  public void invalidate(String clientId) {
+    rulesByClient.invalidate(clientId);
+    Set<String> clients = invalidatedClients.get();
+    if (clients == null) {
+      clients = new HashSet<>();
+      invalidatedClients.set(clients);
+    }
+    clients.add(clientId);
+  }
+
+  public void onTransactionBegin(@Observes TransactionBeginEvent event) {
+    invalidatedClients.remove();
+  }
+
+  public void onTransactionCompleted(@Observes TransactionCompletedEvent event) {
+    Set<String> clients = invalidatedClients.get();
+    invalidatedClients.remove();
+    if (clients != null) {
+      clients.forEach(rulesByClient::invalidate);
+    }
+  }
+
+  private static boolean isIncluded(String includeAll, Set<String> defined, String id) {
+    if ("Y".equals(includeAll)) {
+      return id == null || !defined.contains(id);
+    }
+    return "N".equals(includeAll) && id != null && defined.contains(id);
+  }
+
+  private static boolean isOrganizationIncluded(Rule rule, String orgId, Date date) {
+    boolean defined = rule.organizations.getOrDefault(orgId, Collections.emptyList())
+        .stream()
+        .anyMatch(validity -> validity.contains(date));
+    if ("Y".equals(rule.includeOrganizations)) {
+      return !defined;
+    }
+    return "N".equals(rule.includeOrganizations) && defined;
+  }
+
+  private List<Rule> loadRules(String clientId) {
+    OBContext.setAdminMode(true);
+    try {
+      Map<String, Rule> rules = new HashMap<>();
+      //@formatter:off
+      String hql =
+              "select p.id, p.organization.id, p.priority, p.startingDate, p.endingDate," +
+              "   p.minQuantity, p.maxQuantity, p.includePriceLists, p.includedBusinessPartners," +
+              "   p.includedBPCategories, p.includedProducts, p.includedProductCategories," +
+              "   p.includedOrganizations, p.includedCharacteristics" +
+              "  from PricingAdjustment p" +
+              " where p.client.id = :clientId" +
+              "   and p.active = true" +
+              "   and p.discountType.id = :discountTypeId";
+      //@formatter:on
+      for (Object[] row : OBDal.getInstance()
+          .getSession()
+          .createQuery(hql, Object[].class)
+          .setParameter("clientId", clientId)
+          .setParameter("discountTypeId", PRICE_ADJUSTMENT_TYPE_ID)
+          .list()) {
+        Rule rule = new Rule((String) row[0], (String) row[1], (BigDecimal) row[2],
+            new Validity((Date) row[3], (Date) row[4]), (BigDecimal) row[5], (BigDecimal) row[6]);
+        rule.includePriceLists = (String) row[7];
+        rule.includeBusinessPartners = (String) row[8];
+        rule.includeBPCategories = (String) row[9];
+        rule.includeProducts = (String) row[10];
+        rule.includeProductCategories = (String) row[11];
+        rule.includeOrganizations = (String) row[12];
+        rule.includeCharacteristics = (String) row[13];
+        rules.put(rule.id, rule);
+      }
+      if (rules.isEmpty()) {
+        return Collections.emptyList();
+      }
+
+      loadDefinitions(clientId, "PricingAdjustmentPriceList", "e.priceList.id", rules,
+          (rule, id) -> rule.priceLists.add(id));
+      loadDefinitions(clientId, "PricingAdjustmentBusinessPartner", "e.businessPartner.id", rules,
+          (rule, id) -> rule.businessPartners.add(id));
+      loadDefinitions(clientId, "PricingAdjustmentBusinessPartnerGroup",
+          "e.businessPartnerCategory.id", rules, (rule, id) -> rule.bpCategories.add(id));
+      loadDefinitions(clientId, "PricingAdjustmentProduct", "e.product.id", rules,
+          (rule, id) -> rule.products.add(id));
+      loadDefinitions(clientId, "PricingAdjustmentProductCategory", "e.productCategory.id", rules,
+          (rule, id) -> rule.productCategories.add(id));
+      loadOrganizations(clientId, rules);
+      loadCharacteristics(clientId, rules);
+
+      List<Rule> sortedRules = new ArrayList<>(rules.values());
+      sortedRules.sort(PRIORITY_ORDER);
+      return Collections.unmodifiableList(sortedRules);
+    } finally {
+      OBContext.restorePreviousMode();
+    }
+  }
+
+  private void loadDefinitions(String clientId, String entityName, String idProperty,
+      Map<String, Rule> rules, BiConsumer<Rule, String> consumer) {
+    //@formatter:off
+    String hql =
+            "select e.priceAdjustment.id, " + idProperty +
+            "  from " + entityName + " e" +
+            " where e.client.id = :clientId" +
+            "   and e.active = true";
+    //@formatter:on
+    for (Object[] row : OBDal.getInstance()
+        .getSession()
+        .createQuery(hql, Object[].class)
+        .setParameter("clientId", clientId)
+        .list()) {
+      Rule rule = rules.get(row[0]);
+      if (rule != null) {
+        consumer.accept(rule, (String) row[1]);
+      }
+    }
+  }
+
+  private void loadOrganizations(String clientId, Map<String, Rule> rules) {
+    //@formatter:off
+    String hql =
+            "select e.priceAdjustment.id, e.organization.id, e.startingDate, e.endingDate" +
+            "  from PricingAdjustmentOrganization e" +
+            " where e.client.id = :clientId" +
+            "   and e.active = true";
+    //@formatter:on
+    for (Object[] row : OBDal.getInstance()
+        .getSession()
+        .createQuery(hql, Object[].class)
+        .setParameter("clientId", clientId)
+        .list()) {
+      Rule rule = rules.get(row[0]);
+      if (rule != null) {
+        rule.organizations.computeIfAbsent((String) row[1], k -> new ArrayList<>())
+            .add(new Validity((Date) row[2], (Date) row[3]));
+      }
+    }
+  }
+
+  private void loadCharacteristics(String clientId, Map<String, Rule> rules) {
+    //@formatter:off
+    String hql =
+            "select distinct e.offer.id" +
+            "  from PricingAdjustmentCharacteristic e" +
+            " where e.client.id = :clientId";
+    //@formatter:on
+    for (String priceAdjustmentId : OBDal.getInstance()
+        .getSession()
+        .createQuery(hql, String.class)
+        .setParameter("clientId", clientId)
+        .list()) {
+      Rule rule = rules.get(priceAdjustmentId);
+      if (rule != null) {
+        rule.hasCharacteristics = true;
+      }
+    }
+  }
+
+  /** The rules of a Price Adjustment discount */
+  static class Rule {
+    private final String id;
+    private final String orgId;
+    private final BigDecimal priority;
+    private final Validity validity;
+    private final BigDecimal minQty;
+    private final BigDecimal maxQty;
+    private String includePriceLists;
+    private String includeBusinessPartners;
+    private String includeBPCategories;
+    private String includeProducts;
+    private String includeProductCategories;
+    private String includeOrganizations;
+    private String includeCharacteristics;
+    private final Set<String> priceLists = new HashSet<>();
+    private final Set<String> businessPartners = new HashSet<>();
+    private final Set<String> bpCategories = new HashSet<>();
+    private final Set<String> products = new HashSet<>();
+    private final Set<String> productCategories = new HashSet<>();
+    private final Map<String, List<Validity>> organizations = new HashMap<>();
+    private boolean hasCharacteristics;
+
+    private Rule(String id, String orgId, BigDecimal priority, Validity validity,
+        BigDecimal minQty, BigDecimal maxQty) {
+      this.id = id;
+      this.orgId = orgId;
+      this.priority = priority;
+      this.validity = validity;
+      this.minQty = minQty;
+      this.maxQty = maxQty;
+    }
+
+    String getId() {
+      return id;
+    }
+
+    /**
+     * @return true if the applicability of the discount depends on rules that are not evaluated in
+     *         memory, so it must be verified with a query
+     */
+    boolean isVerificationRequired() {
+      return hasCharacteristics;
+    }
+  }
+
+  /**
+   * A validity period where both dates are inclusive and compared at day level, being the dates
+   * optional.
+   */
+  private static class Validity {
+    private final Date from;
+    private final Date to;
+
+    private Validity(Date startingDate, Date endingDate) {
+      from = startingDate != null ? DateUtils.truncate(startingDate, Calendar.DATE) : null;
+      to = endingDate != null
+          ? DateUtils.addDays(DateUtils.truncate(endingDate, Calendar.DATE), 1)
+          : null;
+    }
+
+    private boolean contains(Date date) {
+      return (from == null || !from.after(date)) && (to == null || to.after(date));
+    }
+  }
+}
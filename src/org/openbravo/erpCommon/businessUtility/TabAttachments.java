@@ -11,20 +11,18 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2001-2022 Openbravo SLU
+ * All portions are Copyright (C) 2001-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
  */
 package org.openbravo.erpCommon.businessUtility;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Map;
 
-import javax.mail.internet.MimeUtility;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -53,7 +51,6 @@ import org.openbravo.dal.core.OBContext;
 import org.openbravo.dal.service.OBDal;
 import org.openbravo.erpCommon.utility.OBMessageUtils;
 import org.openbravo.model.ad.ui.Tab;
-import org.openbravo.model.ad.utility.Attachment;
 import org.openbravo.model.ad.utility.AttachmentMethod;
 
 public class TabAttachments extends HttpSecureAppServlet {
@@ -159,60 +156,21 @@ public class TabAttachments extends HttpSecureAppServlet {
 
     } else if (vars.commandIn("DOWNLOAD_FILE")) {
       final String strFileReference = vars.getStringParameter("attachmentId");
-      ByteArrayOutputStream os = null;
       try {
-        OBContext.setAdminMode(true);
-        os = new ByteArrayOutputStream();
-        aim.download(strFileReference, os);
-        Attachment attachment = OBDal.getInstance().get(Attachment.class, strFileReference);
-
-        if (StringUtils.isEmpty(attachment.getDataType())) {
-          response.setContentType("application/txt");
-        } else {
-          response.setContentType(attachment.getDataType());
-        }
-
-        response.setCharacterEncoding("UTF-8");
-        response.setHeader("Content-Disposition",
-            "attachment; filename=\""
-                + MimeUtility.encodeWord(attachment.getName().replace("\"", "\\\""), "utf-8", "Q")
-                + "\"");
-
-        response.getOutputStream().write(os.toByteArray());
-        response.getOutputStream().flush();
-        response.getOutputStream().close();
-
+        aim.download(strFileReference, request, response);
       } catch (OBException e) {
         log.error("Error downloading file.", e);
         printResponse(response, vars, null, e.getMessage());
-
-      } finally {
-        if (os != null) {
-          os.close();
-        }
-        OBContext.restorePreviousMode();
       }
 
     } else if (vars.getCommand().contains("DOWNLOAD_ALL")) {
       String tabId = vars.getStringParameter("tabId");
       String recordIds = vars.getStringParameter("recordIds");
-      ByteArrayOutputStream os = null;
       try {
-        os = new ByteArrayOutputStream();
-        aim.downloadAll(tabId, recordIds, os);
-        response.setContentType("application/zip");
-        response.setHeader("Content-Disposition", "attachment; filename=attachments.zip");
-        response.getOutputStream().write(os.toByteArray());
-        response.getOutputStream().flush();
-        response.getOutputStream().close();
+        aim.downloadAll(tabId, recordIds, response);
       } catch (OBException e) {
         log.error("Error downloading all files.", e);
         printResponse(response, vars, null, e.getMessage());
-
-      } finally {
-        if (os != null) {
-          os.close();
-        }
       }
 
     } else {
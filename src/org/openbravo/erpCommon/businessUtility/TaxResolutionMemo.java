@@ -0,0 +1,243 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.erpCommon.businessUtility;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.time.DateUtils;
+import org.openbravo.base.exception.OBException;
+import org.openbravo.dal.service.OBDal;
+
+/**
+ * Keeps the taxes resolved by the C_GetTax database function while a process creating many lines
+ * is running, so the same combination of parameters is resolved only once. It is bound to the
+ * current thread between {@link #open()} and {@link #close()}:
+ * 
+ * <pre>
+ * try (TaxResolutionMemo memo = TaxResolutionMemo.open()) {
+ *   memo.resolve(keys); // optional, resolves all the keys with a single query
+ *   for (...) {
+ *     String taxId = TaxResolutionMemo.getTax(key);
+ *   }
+ * }
+ * </pre>
+ * 
+ * Nested invocations of {@link #open()} share the memo opened first, which is the one discarded on
+ * close.
+ */
+public class TaxResolutionMemo implements AutoCloseable {
+  private static final ThreadLocal<TaxResolutionMemo> currentMemo = new ThreadLocal<>();
+  private static final int MAX_KEYS_PER_QUERY = 100;
+
+  private final Map<Key, String> taxes;
+  private final boolean owner;
+
+  private TaxResolutionMemo(Map<Key, String> taxes, boolean owner) {
+    this.taxes = taxes;
+    this.owner = owner;
+  }
+
+  /**
+   * Opens a memo for the current thread. It must be closed once the process finishes.
+   * 
+   * @return the opened memo
+   */
+  public static TaxResolutionMemo open() {
+    TaxResolutionMemo memo = currentMemo.get();
+    if (memo != null) {
+      return new TaxResolutionMemo(memo.taxes, false);
+    }
+    memo = new TaxResolutionMemo(new HashMap<>(), true);
+    currentMemo.set(memo);
+    return memo;
+  }
+
+  /**
+   * Returns the ID of the tax for the given key. It is taken from the memo opened in the current
+   * thread, if any, otherwise it is resolved with the database.
+   * 
+   * @param key
+   *          the parameters of the tax resolution
+   * @return the ID of the tax, or null if no tax is found
+   */
+  public static String getTax(Key key) {
+    TaxResolutionMemo memo = currentMemo.get();
+    if (memo == null) {
+      return resolveTaxes(Collections.singletonList(key)).get(key);
+    }
+    memo.resolve(Collections.singleton(key));
+    return memo.taxes.get(key);
+  }
+
+  /**
+   * Resolves with a single query the taxes of all the given keys which are not resolved yet, so
+   * they are available for the subsequent {@link #getTax(Key)} invocations.
+   * 
+   * @param keys
+   *          the parameters of the tax resolutions, typically those of all the lines of a document
+   */
+  public void resolve(Collection<Key> keys) {
+    Set<Key> pending = new LinkedHashSet<>();
+    for (Key key : keys) {
+      if (!taxes.containsKey(key)) {
+        pending.add(key);
+      }
+    }
+    if (!pending.isEmpty()) {
+      taxes.putAll(resolveTaxes(pending));
+    }
+  }
+
+  @Override
+  public void close() {
+    if (owner) {
+      currentMemo.remove();
+    }
+  }
+
+  private static Map<Key, String> resolveTaxes(Collection<Key> keys) {
+    Map<Key, String> resolved = new HashMap<>();
+    List<Key> chunk = new ArrayList<>(Math.min(keys.size(), MAX_KEYS_PER_QUERY));
+    for (Key key : keys) {
+      chunk.add(key);
+      if (chunk.size() == MAX_KEYS_PER_QUERY) {
+        resolved.putAll(resolveChunk(chunk));
+        chunk.clear();
+      }
+    }
+    if (!chunk.isEmpty()) {
+      resolved.putAll(resolveChunk(chunk));
+    }
+    return resolved;
+  }
+
+  private static Map<Key, String> resolveChunk(List<Key> keys) {
+    StringBuilder sql = new StringBuilder("SELECT ");
+    for (int i = 0; i < keys.size(); i++) {
+      sql.append(i == 0 ? "" : ", ").append("C_GetTax(?, ?, ?, ?, ?, ?, ?, ?) AS TAX").append(i);
+    }
+    sql.append(" FROM DUAL");
+
+    Connection conn = OBDal.getInstance().getConnection(true);
+    try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+      int index = 1;
+      for (Key key : keys) {
+        setString(ps, index++, key.productId);
+        if (key.date == null) {
+          ps.setNull(index++, Types.DATE);
+        } else {
+          ps.setDate(index++, new java.sql.Date(key.date.getTime()));
+        }
+        setString(ps, index++, key.orgId);
+        setString(ps, index++, key.warehouseId);
+        setString(ps, index++, key.billToLocationId);
+        setString(ps, index++, key.shipToLocationId);
+        setString(ps, index++, key.projectId);
+        ps.setString(index++, key.salesTransaction ? "Y" : "N");
+      }
+      Map<Key, String> resolved = new HashMap<>();
+      try (ResultSet rs = ps.executeQuery()) {
+        if (rs.next()) {
+          for (int i = 0; i < keys.size(); i++) {
+            resolved.put(keys.get(i), rs.getString(i + 1));
+          }
+        }
+      }
+      return resolved;
+    } catch (SQLException e) {
+      throw new OBException("Error resolving taxes", e);
+    }
+  }
+
+  private static void setString(PreparedStatement ps, int index, String value)
+      throws SQLException {
+    if (value == null || value.isEmpty()) {
+      ps.setNull(index, Types.VARCHAR);
+    } else {
+      ps.setString(index, value);
+    }
+  }
+
+  /**
+   * The parameters of C_GetTax that determine a tax. The date is compared at day level and empty
+   * IDs are handled as null.
+   */
+  public static final class Key {
+    private final String productId;
+    private final Date date;
+    private final String orgId;
+    private final String warehouseId;
+    private final String billToLocationId;
+    private final String shipToLocationId;
+    private final String projectId;
+    private final boolean salesTransaction;
+
+    public Key(String productId, Date date, String orgId, String warehouseId,
+        String billToLocationId, String shipToLocationId, String projectId,
+        boolean salesTransaction) {
+      this.productId = StringUtils.defaultIfEmpty(productId, null);
+      this.date = date != null ? DateUtils.truncate(date, Calendar.DATE) : null;
+      this.orgId = StringUtils.defaultIfEmpty(orgId, null);
+      this.warehouseId = StringUtils.defaultIfEmpty(warehouseId, null);
+      this.billToLocationId = StringUtils.defaultIfEmpty(billToLocationId, null);
+      this.shipToLocationId = StringUtils.defaultIfEmpty(shipToLocationId, null);
+      this.projectId = StringUtils.defaultIfEmpty(projectId, null);
+      this.salesTransaction = salesTransaction;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return salesTransaction == other.salesTransaction
+          && Objects.equals(productId, other.productId) && Objects.equals(date, other.date)
+          && Objects.equals(orgId, other.orgId) && Objects.equals(warehouseId, other.warehouseId)
+          && Objects.equals(billToLocationId, other.billToLocationId)
+          && Objects.equals(shipToLocationId, other.shipToLocationId)
+          && Objects.equals(projectId, other.projectId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(productId, date, orgId, warehouseId, billToLocationId, shipToLocationId,
+          projectId, salesTransaction);
+    }
+  }
+}
@@ -62,6 +62,7 @@ import org.codehaus.jettison.json.JSONObject;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.query.Query;
+import org.openbravo.base.secureApp.SessionAccessCache;
 import org.openbravo.base.secureApp.VariablesSecureApp;
 import org.openbravo.base.session.OBPropertiesProvider;
 import org.openbravo.base.weld.WeldUtils;
@@ -907,6 +908,7 @@ public class ActivationKey {
               StringCollectionUtils.commaSeparated(sessionsToDeactivate));
           cp.releaseCommitConnection(trxConn);
           success = true;
+          sessionsToDeactivate.forEach(SessionAccessCache.getInstance()::invalidateSession);
         } catch (NoConnectionAvailableException | SQLException | ServletException e) {
           log.error("couldn't deactivate timed out sessions: " + sessionsToDeactivate, e);
         } finally {
@@ -37,6 +37,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.openbravo.authentication.AuthenticationManager;
 import org.openbravo.base.exception.OBException;
+import org.openbravo.base.secureApp.SessionAccessCache;
 import org.openbravo.client.kernel.RequestContext;
 import org.openbravo.database.ConnectionProvider;
 import org.openbravo.database.SessionInfo;
@@ -194,6 +195,7 @@ public class SessionListener implements HttpSessionListener, ServletContextListe
       // Do not use DAL here
       SessionLoginData.deactivate((ConnectionProvider) context.getAttribute("openbravoPool"),
           sessionId);
+      SessionAccessCache.getInstance().invalidateSession(sessionId);
       log.debug("Closed session" + sessionId);
       log.trace("Stack trace: ", new OBException());
     } catch (Exception e) {
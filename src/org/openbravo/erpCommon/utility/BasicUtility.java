@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2001-2012 Openbravo SLU
+ * All portions are Copyright (C) 2001-2024 Openbravo SLU
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -73,20 +73,30 @@ public class BasicUtility {
       localStrLanguage = "en_US";
     }
 
-    try {
-      log4j.debug("Utility.messageBD - Message Code: " + strCode);
-      strMessage = MessageBDData.message(conn, localStrLanguage, strCode);
-    } catch (final Exception ignore) {
-      log4j.error("Error getting message", ignore);
-    }
-    log4j.debug("Utility.messageBD - Message description: " + strMessage);
-    if (strMessage == null || strMessage.equals("")) {
+    MessageBDCache cache = MessageBDCache.getInstance();
+    if (cache.isEnabled()) {
       try {
-        strMessage = MessageBDData.columnname(conn, localStrLanguage, strCode);
+        strMessage = cache.getMessage(conn, strCode, localStrLanguage);
       } catch (final Exception e) {
         log4j.error("Error getting message", e);
         strMessage = strCode;
       }
+    } else {
+      try {
+        log4j.debug("Utility.messageBD - Message Code: " + strCode);
+        strMessage = MessageBDData.message(conn, localStrLanguage, strCode);
+      } catch (final Exception ignore) {
+        log4j.error("Error getting message", ignore);
+      }
+      log4j.debug("Utility.messageBD - Message description: " + strMessage);
+      if (strMessage == null || strMessage.equals("")) {
+        try {
+          strMessage = MessageBDData.columnname(conn, localStrLanguage, strCode);
+        } catch (final Exception e) {
+          log4j.error("Error getting message", e);
+          strMessage = strCode;
+        }
+      }
     }
     if (strMessage == null || strMessage.equals("")) {
       strMessage = strCode;
@@ -0,0 +1,210 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.erpCommon.utility;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.ServletException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.database.ConnectionProvider;
+
+/**
+ * Keeps in memory the texts returned by {@link BasicUtility#messageBD(ConnectionProvider, String,
+ * String, boolean)}, so they are not queried from the database on every call.
+ * 
+ * All the messages of a language are loaded together the first time a message in that language is
+ * requested. Element names, used when there is no message with the requested code, are cached as
+ * they are requested, up to 5000 per language. As they expire together with the messages of their
+ * language, codes without any message nor element do not fill the cache indefinitely.
+ * 
+ * The cache is disabled by default, so processes run outside of the application, like the build
+ * tasks, always read the messages from the database. When running in the application it is
+ * invalidated whenever a message or an element is modified in this node. As this is not notified
+ * to other nodes in a cluster, the cached messages of a language expire after a configurable time.
+ */
+public class MessageBDCache implements MessageBDCacheMBean {
+  public static final String MBEAN_NAME = "MessageBDCache";
+
+  private static final Logger log = LogManager.getLogger();
+  private static final MessageBDCache INSTANCE = new MessageBDCache();
+  private static final int MAX_COLUMN_NAMES = 5000;
+
+  private final Map<String, LanguageMessages> messagesByLanguage = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private volatile boolean enabled = false;
+  private long timeToLiveMillis;
+  private final int maxColumnNames;
+
+  /**
+   * @return the singleton instance of the cache
+   */
+  public static MessageBDCache getInstance() {
+    return INSTANCE;
+  }
+
+  MessageBDCache() {
+    this(MAX_COLUMN_NAMES);
+  }
+
+  MessageBDCache(int maxColumnNames) {
+    this.maxColumnNames = maxColumnNames;
+  }
+
+  /**
+   * Enables the cache.
+   * 
+   * @param timeToLiveSeconds
+   *          time after which the cached messages of a language are read again from the database
+   */
+  public void enable(long timeToLiveSeconds) {
+    timeToLiveMillis = timeToLiveSeconds * 1000L;
+    enabled = true;
+    log.debug("Message cache enabled, time to live: {} seconds", timeToLiveSeconds);
+  }
+
+  /**
+   * Disables the cache and removes all the cached messages.
+   */
+  public void disable() {
+    enabled = false;
+    invalidate();
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the text of a message, or if there is no message with the given code, the name of the
+   * element whose column name is the given code.
+   * 
+   * @param conn
+   *          the connection provider used to read the messages not cached yet
+   * @param strCode
+   *          the code of the message
+   * @param strLanguage
+   *          the language of the message
+   * @return the text of the message, or an empty string if there is neither a message nor an
+   *         element with the given code or if the code is null
+   * @throws ServletException
+   *           if the messages cannot be read from the database
+   */
+  String getMessage(ConnectionProvider conn, String strCode, String strLanguage)
+      throws ServletException {
+    if (strCode == null) {
+      return "";
+    }
+    LanguageMessages languageMessages = messagesByLanguage.get(strLanguage);
+    boolean cached = languageMessages != null && !languageMessages.isExpired(timeToLiveMillis);
+    if (!cached) {
+      languageMessages = loadLanguageMessages(conn, strLanguage);
+    }
+    String message = languageMessages.messages.get(strCode);
+    if (message == null || message.isEmpty()) {
+      message = languageMessages.columnNames.get(strCode);
+      if (message == null) {
+        cached = false;
+        message = MessageBDData.columnname(conn, strLanguage, strCode);
+        if (languageMessages.columnNames.size() < maxColumnNames) {
+          languageMessages.columnNames.put(strCode, message == null ? "" : message);
+        }
+      }
+    }
+    if (cached) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    return message;
+  }
+
+  private LanguageMessages loadLanguageMessages(ConnectionProvider conn, String strLanguage)
+      throws ServletException {
+    long t = System.currentTimeMillis();
+    Map<String, String> messages = new HashMap<>();
+    for (MessageBDCacheData data : MessageBDCacheData.select(conn, strLanguage)) {
+      messages.put(data.value, data.msgtext == null ? "" : data.msgtext);
+    }
+    LanguageMessages languageMessages = new LanguageMessages(messages);
+    messagesByLanguage.put(strLanguage, languageMessages);
+    log.debug("Loaded {} messages in {} in {} ms", messages.size(), strLanguage,
+        System.currentTimeMillis() - t);
+    return languageMessages;
+  }
+
+  @Override
+  public void invalidate() {
+    messagesByLanguage.clear();
+  }
+
+  @Override
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  @Override
+  public double getHitRatio() {
+    long hitCount = hits.sum();
+    long total = hitCount + misses.sum();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  int getCachedColumnNames(String strLanguage) {
+    LanguageMessages languageMessages = messagesByLanguage.get(strLanguage);
+    return languageMessages == null ? 0 : languageMessages.columnNames.size();
+  }
+
+  @Override
+  public int getCachedLanguages() {
+    return messagesByLanguage.size();
+  }
+
+  @Override
+  public void resetStatistics() {
+    hits.reset();
+    misses.reset();
+  }
+
+  private static class LanguageMessages {
+    private final long loadTime = System.currentTimeMillis();
+    private final Map<String, String> messages;
+    private final Map<String, String> columnNames = new ConcurrentHashMap<>();
+
+    private LanguageMessages(Map<String, String> messages) {
+      this.messages = messages;
+    }
+
+    private boolean isExpired(long timeToLiveMillis) {
+      return timeToLiveMillis > 0 && System.currentTimeMillis() - loadTime > timeToLiveMillis;
+    }
+  }
+}
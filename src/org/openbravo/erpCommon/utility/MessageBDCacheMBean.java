@@ -0,0 +1,61 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+
+package org.openbravo.erpCommon.utility;
+
+/**
+ * Exposes the statistics of the {@link MessageBDCache} through JMX and allows to invalidate it.
+ */
+public interface MessageBDCacheMBean {
+
+  /**
+   * @return whether the cache is enabled
+   */
+  public boolean isEnabled();
+
+  /**
+   * @return the number of messages retrieved from the cache
+   */
+  public long getHitCount();
+
+  /**
+   * @return the number of messages that had to be retrieved from the database
+   */
+  public long getMissCount();
+
+  /**
+   * @return the ratio of messages retrieved from the cache, between 0 and 1
+   */
+  public double getHitRatio();
+
+  /**
+   * @return the number of languages whose messages are currently cached
+   */
+  public int getCachedLanguages();
+
+  /**
+   * Removes all the cached messages, they will be read again from the database when needed.
+   */
+  public void invalidate();
+
+  /**
+   * Resets the hit and miss counters.
+   */
+  public void resetStatistics();
+}
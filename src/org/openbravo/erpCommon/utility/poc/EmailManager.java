@@ -9,7 +9,7 @@
  * either express or implied. See the License for the specific language
  * governing rights and limitations under the License. The Original Code is
  * Openbravo ERP. The Initial Developer of the Original Code is Openbravo SLU All
- * portions are Copyright (C) 2001-2023 Openbravo SLU All Rights Reserved.
+ * portions are Copyright (C) 2001-2024 Openbravo SLU All Rights Reserved.
  * Contributor(s): ______________________________________.
  * ***********************************************************************
  */
@@ -20,7 +20,10 @@ import java.io.IOException;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import javax.activation.DataHandler;
@@ -41,14 +44,20 @@ import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
 import javax.servlet.ServletException;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.codehaus.jettison.json.JSONException;
 import org.openbravo.base.exception.OBException;
+import org.openbravo.base.session.OBPropertiesProvider;
 import org.openbravo.dal.core.OBContext;
 import org.openbravo.database.ConnectionProvider;
 import org.openbravo.email.EmailUtils;
 import org.openbravo.model.common.enterprise.EmailServerConfiguration;
 import org.openbravo.service.NonBlockingExecutorServiceProvider;
+import org.openbravo.service.importprocess.ImportEntry;
+import org.openbravo.service.importprocess.ImportEntryBuilder;
+import org.openbravo.service.importprocess.ImportEntryManager;
 import org.openbravo.utils.FormatUtilities;
 
 public class EmailManager {
@@ -112,14 +121,10 @@ public class EmailManager {
 
       Session mailSession = getSession(auth, username, password, props);
 
-      Transport transport = mailSession.getTransport();
-
       MimeMessage message = getEmailMessage(senderAddress, subject, content, attachments, sentDate,
           headerExtras, replyTo, recipientTO, recipientCC, recipientBCC, contentType, mailSession);
 
-      transport.connect();
-      transport.sendMessage(message, message.getAllRecipients());
-      transport.close();
+      send(getTransportKey(props, username, password), mailSession, message);
     } catch (final AddressException exception) {
       log4j.error(exception);
       throw new ServletException(exception);
@@ -139,20 +144,17 @@ public class EmailManager {
 
       Session mailSession = getSession(auth, username, password, props);
 
-      Transport transport = mailSession.getTransport();
-
       MimeMessage message = getEmailMessage(senderAddress, subject, content, attachments, sentDate,
           headerExtras, replyTo, recipientTO, recipientCC, recipientBCC, contentType, mailSession);
 
+      String transportKey = getTransportKey(props, username, password);
       return CompletableFuture.runAsync(() -> {
         try {
-          transport.connect();
-          transport.sendMessage(message, message.getAllRecipients());
-          transport.close();
+          send(transportKey, mailSession, message);
         } catch (Exception e) {
           throw new OBException(e);
         }
-      }, NonBlockingExecutorServiceProvider.getExecutorService());
+      }, AsyncSender.EXECUTOR);
     } catch (final AddressException exception) {
       log4j.error(exception);
       return CompletableFuture.failedFuture(new ServletException(exception));
@@ -163,6 +165,54 @@ public class EmailManager {
     }
   }
 
+  /**
+   * Queues an email to be sent in background. The email is stored as an {@link ImportEntry} in the
+   * current transaction, so it is only sent if the transaction is committed. It is retried later if
+   * it cannot be sent, see {@link EmailOutboxProcessor}.
+   * 
+   * The contents of the attachments are stored together with the email, so the attachment files
+   * can be removed once it is queued.
+   *
+   * @param conf
+   *          The SMTP Server configuration
+   * @param email
+   *          The data of the email being sent
+   * @return the ImportEntry that keeps the email until it is sent
+   */
+  public static ImportEntry queueEmail(EmailServerConfiguration conf, EmailInfo email) {
+    try {
+      return ImportEntryBuilder
+          .newInstance(EmailOutboxProcessor.TYPE_OF_DATA,
+              EmailOutboxProcessor.toJSON(conf, email).toString())
+          .create();
+    } catch (JSONException | IOException e) {
+      throw new OBException("Could not queue the email " + email.getSubject(), e);
+    }
+  }
+
+  /**
+   * Sends the message reusing a pooled connection to the SMTP server if possible. The connection
+   * is discarded if sending fails, as it may be in an inconsistent state.
+   */
+  private static void send(String transportKey, Session mailSession, MimeMessage message)
+      throws MessagingException {
+    SmtpTransportPool pool = SmtpTransportPool.getInstance();
+    Transport transport = pool.borrow(transportKey, mailSession);
+    try {
+      transport.sendMessage(message, message.getAllRecipients());
+    } catch (MessagingException | RuntimeException e) {
+      pool.invalidate(transport);
+      throw e;
+    }
+    pool.release(transportKey, transport);
+  }
+
+  private static String getTransportKey(Properties props, String username, String password) {
+    // connections are only reused for exactly the same server, security, timeout and credentials
+    return new TreeMap<>(props).toString() + ":" + username + ":"
+        + (password == null ? "" : DigestUtils.sha256Hex(password));
+  }
+
   private static MimeMessage getEmailMessage(String senderAddress, String subject, String content,
       List<File> attachments, Date sentDate, List<String> headerExtras, String replyTo,
       String recipientTO, String recipientCC, String recipientBCC, String contentType,
@@ -325,6 +375,39 @@ public class EmailManager {
         email.getHeaderExtras(), timeoutMillis.intValue());
   }
 
+  /**
+   * Sends emails asynchronously in its own threads, so sending many of them does not prevent
+   * other tasks from being executed by the shared non-blocking executor.
+   */
+  private static class AsyncSender {
+    private static final String MAX_THREADS_PROPERTY = "email.async.maxThreads";
+    private static final int DEFAULT_MAX_THREADS = 4;
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private static ExecutorService createExecutor() {
+      if (NonBlockingExecutorServiceProvider.isVirtualThreadsEnabled()) {
+        return NonBlockingExecutorServiceProvider.getExecutorService("email", getMaxThreads());
+      }
+      return Executors.newFixedThreadPool(getMaxThreads(),
+          new ImportEntryManager.DaemonThreadFactory("Email"));
+    }
+
+    private static int getMaxThreads() {
+      Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+      String maxThreads = properties != null ? properties.getProperty(MAX_THREADS_PROPERTY) : null;
+      if (maxThreads == null) {
+        return DEFAULT_MAX_THREADS;
+      }
+      try {
+        return Math.max(1, Integer.parseInt(maxThreads.trim()));
+      } catch (NumberFormatException e) {
+        log4j.warn("Wrong value {} for property {}, using the default {}", maxThreads,
+            MAX_THREADS_PROPERTY, DEFAULT_MAX_THREADS);
+        return DEFAULT_MAX_THREADS;
+      }
+    }
+  }
+
   private static class SMTPAuthenticator extends javax.mail.Authenticator {
     private String _username;
     private String _password;
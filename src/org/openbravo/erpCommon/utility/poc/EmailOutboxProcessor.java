@@ -0,0 +1,258 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.erpCommon.utility.poc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.openbravo.base.session.OBPropertiesProvider;
+import org.openbravo.base.weld.WeldUtils;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.core.SessionHandler;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.common.enterprise.EmailServerConfiguration;
+import org.openbravo.service.importprocess.ImportEntry;
+import org.openbravo.service.importprocess.ImportEntryManager;
+import org.openbravo.service.importprocess.ImportEntryManager.ImportEntryQualifier;
+import org.openbravo.service.importprocess.ImportEntryProcessor;
+
+/**
+ * Sends the emails queued with {@link EmailManager#queueEmail(EmailServerConfiguration, EmailInfo)}.
+ * 
+ * The emails of the same server configuration are sent one after the other by the same thread,
+ * reusing the connection to the SMTP server. If sending an email fails, its entry is set in error
+ * with the time of its next attempt, waiting more time after each failed attempt. The
+ * {@link EmailOutboxRetryScheduler} sets it back to Initial once that time is reached. After
+ * {@link #MAX_ATTEMPTS} failed attempts the entry is kept in error.
+ */
+@ImportEntryQualifier(entity = EmailOutboxProcessor.TYPE_OF_DATA)
+@ApplicationScoped
+public class EmailOutboxProcessor extends ImportEntryProcessor {
+  static final String TYPE_OF_DATA = "Email";
+
+  static final int MAX_ATTEMPTS = 5;
+  private static final long FIRST_RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+  private static final long MAX_RETRY_DELAY = TimeUnit.HOURS.toMillis(1);
+
+  private static final String MIN_INTERVAL_PROPERTY = "email.outbox.minInterval";
+
+  private static final String CONFIGURATION = "emailServerConfigurationId";
+  private static final String ATTEMPTS = "attempts";
+  static final String NEXT_ATTEMPT = "nextAttempt";
+
+  @Override
+  protected ImportEntryProcessRunnable createImportEntryProcessRunnable() {
+    return WeldUtils.getInstanceFromStaticBeanManager(EmailOutboxRunnable.class);
+  }
+
+  @Override
+  protected boolean canHandleImportEntry(ImportEntry importEntryInformation) {
+    return TYPE_OF_DATA.equals(importEntryInformation.getTypeofdata());
+  }
+
+  @Override
+  protected String getProcessSelectionKey(ImportEntry importEntry) {
+    try {
+      return new JSONObject(importEntry.getJsonInfo()).getString(CONFIGURATION);
+    } catch (JSONException e) {
+      return importEntry.getTypeofdata();
+    }
+  }
+
+  /**
+   * Returns the time to wait before retrying to send an email, doubling it after each attempt.
+   */
+  static long getRetryDelay(int attempts) {
+    return Math.min(FIRST_RETRY_DELAY << Math.min(attempts - 1, 20), MAX_RETRY_DELAY);
+  }
+
+  /**
+   * Returns whether the email is waiting to be retried and the time to retry it has been reached.
+   */
+  static boolean isRetryDue(JSONObject json, long now) {
+    return json.has(NEXT_ATTEMPT) && json.optLong(NEXT_ATTEMPT, 0) <= now;
+  }
+
+  /**
+   * Converts the email into the JSON stored in the import entry. The contents of the attachments
+   * are included, as the files are usually temporary and can be removed before the email is sent.
+   */
+  static JSONObject toJSON(EmailServerConfiguration conf, EmailInfo email)
+      throws JSONException, IOException {
+    JSONObject json = new JSONObject();
+    json.put(CONFIGURATION, conf.getId());
+    json.put("recipientTO", email.getRecipientTO());
+    json.put("recipientCC", email.getRecipientCC());
+    json.put("recipientBCC", email.getRecipientBCC());
+    json.put("replyTo", email.getReplyTo());
+    json.put("subject", email.getSubject());
+    json.put("content", email.getContent());
+    json.put("contentType", email.getContentType());
+    if (email.getSentDate() != null) {
+      json.put("sentDate", email.getSentDate().getTime());
+    }
+    JSONArray attachments = new JSONArray();
+    if (email.getAttachments() != null) {
+      for (File attachment : email.getAttachments()) {
+        JSONObject jsonAttachment = new JSONObject();
+        jsonAttachment.put("name", attachment.getName());
+        jsonAttachment.put("content",
+            Base64.getEncoder().encodeToString(Files.readAllBytes(attachment.toPath())));
+        attachments.put(jsonAttachment);
+      }
+    }
+    json.put("attachments", attachments);
+    json.put("headerExtras", new JSONArray(
+        email.getHeaderExtras() != null ? email.getHeaderExtras() : new ArrayList<String>()));
+    json.put(ATTEMPTS, 0);
+    return json;
+  }
+
+  /**
+   * Converts the JSON stored in the import entry into the email to send.
+   * 
+   * @param attachmentsDir
+   *          directory where the attachments are written, it must be removed once the email is sent
+   */
+  static EmailInfo toEmailInfo(JSONObject json, Path attachmentsDir)
+      throws JSONException, IOException {
+    List<File> attachments = new ArrayList<>();
+    JSONArray jsonAttachments = json.getJSONArray("attachments");
+    for (int i = 0; i < jsonAttachments.length(); i++) {
+      JSONObject jsonAttachment = jsonAttachments.getJSONObject(i);
+      // each attachment in its own directory to keep its name even if repeated
+      Path attachment = Files.createDirectory(attachmentsDir.resolve(Integer.toString(i)))
+          .resolve(new File(jsonAttachment.getString("name")).getName());
+      Files.write(attachment, Base64.getDecoder().decode(jsonAttachment.getString("content")));
+      attachments.add(attachment.toFile());
+    }
+    List<String> headerExtras = new ArrayList<>();
+    JSONArray jsonHeaderExtras = json.getJSONArray("headerExtras");
+    for (int i = 0; i < jsonHeaderExtras.length(); i++) {
+      headerExtras.add(jsonHeaderExtras.getString(i));
+    }
+    return new EmailInfo.Builder().setRecipientTO(getString(json, "recipientTO"))
+        .setRecipientCC(getString(json, "recipientCC"))
+        .setRecipientBCC(getString(json, "recipientBCC"))
+        .setReplyTo(getString(json, "replyTo"))
+        .setSubject(getString(json, "subject"))
+        .setContent(getString(json, "content"))
+        .setContentType(getString(json, "contentType"))
+        .setSentDate(json.has("sentDate") ? new Date(json.getLong("sentDate")) : null)
+        .setAttachments(attachments)
+        .setHeaderExtras(headerExtras)
+        .build();
+  }
+
+  private static String getString(JSONObject json, String key) throws JSONException {
+    return json.isNull(key) ? null : json.getString(key);
+  }
+
+  /**
+   * Sends the queued emails of a server configuration.
+   */
+  protected static class EmailOutboxRunnable extends ImportEntryProcessRunnable {
+    private static final Logger log = LogManager.getLogger();
+
+    // emails of the same server configuration are sent by the same runnable
+    private long lastSendTime = 0;
+
+    @Override
+    protected void processEntry(ImportEntry importEntry) throws Exception {
+      JSONObject json = new JSONObject(importEntry.getJsonInfo());
+      OBContext.setAdminMode(true);
+      Path attachmentsDir = Files.createTempDirectory("email-outbox");
+      try {
+        EmailServerConfiguration conf = OBDal.getInstance()
+            .get(EmailServerConfiguration.class, json.getString(CONFIGURATION));
+        waitForMinInterval();
+        try {
+          lastSendTime = System.currentTimeMillis();
+          EmailManager.sendEmail(conf, toEmailInfo(json, attachmentsDir));
+        } catch (Exception e) {
+          int attempts = json.optInt(ATTEMPTS, 0) + 1;
+          json.put(ATTEMPTS, attempts);
+          if (conf == null || attempts >= MAX_ATTEMPTS) {
+            log.error("Error sending email {}, no more attempts", importEntry.getId(), e);
+            json.remove(NEXT_ATTEMPT);
+          } else {
+            long retryDelay = getRetryDelay(attempts);
+            log.warn("Error sending email {}, attempt {} of {}, retrying in {} seconds",
+                importEntry.getId(), attempts, MAX_ATTEMPTS,
+                TimeUnit.MILLISECONDS.toSeconds(retryDelay), e);
+            json.put(NEXT_ATTEMPT, System.currentTimeMillis() + retryDelay);
+          }
+          // in error status it is not offered again until the retry scheduler sets it as Initial
+          importEntry.setJsonInfo(json.toString());
+          ImportEntryManager.getInstance().handleImportError(importEntry, e);
+          OBDal.getInstance().commitAndClose();
+          return;
+        }
+
+        ImportEntryManager.getInstance().setImportEntryProcessed(importEntry.getId());
+        if (SessionHandler.isSessionHandlerPresent()) {
+          OBDal.getInstance().commitAndClose();
+        }
+      } finally {
+        FileUtils.deleteQuietly(attachmentsDir.toFile());
+        OBContext.restorePreviousMode();
+      }
+    }
+
+    /**
+     * Limits the rate at which emails are sent to the same SMTP server, as servers usually reject
+     * the messages when too many are sent in a short time.
+     */
+    private void waitForMinInterval() throws InterruptedException {
+      long wait = lastSendTime + getMinInterval() - System.currentTimeMillis();
+      if (wait > 0) {
+        Thread.sleep(wait);
+      }
+    }
+  }
+
+  private static long getMinInterval() {
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    String minInterval = properties != null ? properties.getProperty(MIN_INTERVAL_PROPERTY) : null;
+    if (minInterval == null) {
+      return 0;
+    }
+    try {
+      return Long.parseLong(minInterval.trim());
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
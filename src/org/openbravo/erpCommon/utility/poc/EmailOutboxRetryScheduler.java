@@ -0,0 +1,122 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.erpCommon.utility.poc;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.openbravo.dal.core.DalThreadCleaner;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.dal.service.OBQuery;
+import org.openbravo.service.importprocess.ImportEntry;
+import org.openbravo.service.importprocess.ImportEntryClusterService;
+import org.openbravo.service.importprocess.ImportEntryManager;
+import org.openbravo.service.importprocess.ImportEntryManager.DaemonThreadFactory;
+import org.openbravo.service.importprocess.ImportProcessUtils;
+
+/**
+ * Periodically sets back to Initial the queued emails whose sending failed once the time of their
+ * next attempt is reached, so they are processed again by the {@link EmailOutboxProcessor}. While
+ * waiting they are kept in error, so the {@link ImportEntryManager} does not offer them on every
+ * cycle.
+ * 
+ * As the pending retries are kept in the import entries, they are resumed after a restart.
+ */
+@ApplicationScoped
+public class EmailOutboxRetryScheduler {
+  private static final Logger log = LogManager.getLogger();
+
+  private static final long CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+  private static final int MAX_RETRIES_PER_CHECK = 1000;
+
+  @Inject
+  private ImportEntryClusterService clusterService;
+
+  private ScheduledExecutorService executorService;
+
+  public synchronized void start() {
+    if (executorService != null || ImportProcessUtils.isImportProcessDisabled()) {
+      return;
+    }
+    executorService = Executors
+        .newSingleThreadScheduledExecutor(new DaemonThreadFactory("Email Outbox Retry"));
+    executorService.scheduleWithFixedDelay(this::retryDueEmails, CHECK_INTERVAL, CHECK_INTERVAL,
+        TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized void shutdown() {
+    if (executorService == null) {
+      return;
+    }
+    executorService.shutdownNow();
+    executorService = null;
+  }
+
+  private void retryDueEmails() {
+    if (!clusterService.isHandledInCurrentNode()) {
+      return;
+    }
+    int retried = 0;
+    try {
+      OBContext.setOBContext("0", "0", "0", "0");
+      OBQuery<ImportEntry> qry = OBDal.getInstance()
+          .createQuery(ImportEntry.class,
+              ImportEntry.PROPERTY_TYPEOFDATA + " = :type and " + ImportEntry.PROPERTY_IMPORTSTATUS
+                  + " = 'Error' and " + ImportEntry.PROPERTY_JSONINFO + " like :retry order by "
+                  + ImportEntry.PROPERTY_CREATIONDATE);
+      qry.setFilterOnReadableClients(false);
+      qry.setFilterOnReadableOrganization(false);
+      qry.setNamedParameter("type", EmailOutboxProcessor.TYPE_OF_DATA);
+      qry.setNamedParameter("retry", "%\"" + EmailOutboxProcessor.NEXT_ATTEMPT + "\"%");
+      qry.setMaxResult(MAX_RETRIES_PER_CHECK);
+      List<ImportEntry> entries = qry.list();
+      long now = System.currentTimeMillis();
+      for (ImportEntry entry : entries) {
+        try {
+          if (EmailOutboxProcessor.isRetryDue(new JSONObject(entry.getJsonInfo()), now)) {
+            entry.setImportStatus("Initial");
+            retried++;
+          }
+        } catch (JSONException e) {
+          log.warn("Wrong email queued in import entry {}", entry.getId(), e);
+        }
+      }
+      OBDal.getInstance().commitAndClose();
+    } catch (Throwable t) {
+      ImportProcessUtils.logError(log, t);
+      retried = 0;
+    } finally {
+      DalThreadCleaner.getInstance().cleanWithRollback();
+    }
+    if (retried > 0) {
+      log.debug("Retrying {} queued emails", retried);
+      ImportEntryManager.getInstance().notifyNewImportEntryCreated();
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.erpCommon.utility.poc;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.session.OBPropertiesProvider;
+import org.openbravo.service.importprocess.ImportEntryManager.DaemonThreadFactory;
+
+/**
+ * Keeps the connections to the SMTP servers open after sending an email, so they can be reused to
+ * send the following ones without connecting and authenticating again.
+ * 
+ * Connections are pooled per server configuration, a connection is used by a single thread at a
+ * time. Idle connections are checked before being reused, because SMTP servers usually close the
+ * connections that are not used. The ones idle for longer than the idle timeout are closed
+ * periodically in background, so they are not kept open when no more emails are sent.
+ */
+class SmtpTransportPool {
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String MAX_IDLE_PROPERTY = "email.smtp.pool.maxIdle";
+  private static final String IDLE_TIMEOUT_PROPERTY = "email.smtp.pool.idleTimeout";
+  private static final int DEFAULT_MAX_IDLE = 4;
+  private static final long DEFAULT_IDLE_TIMEOUT = 60; // seconds
+  private static final long MIN_EVICTION_INTERVAL = 1000;
+
+  private static final SmtpTransportPool INSTANCE = new SmtpTransportPool(
+      (int) getLongProperty(MAX_IDLE_PROPERTY, DEFAULT_MAX_IDLE),
+      TimeUnit.SECONDS.toMillis(getLongProperty(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT)));
+
+  private final Map<String, Deque<PooledTransport>> idleTransports = new ConcurrentHashMap<>();
+  private final int maxIdle;
+  private final long idleTimeoutMillis;
+  private ScheduledFuture<?> eviction;
+
+  static SmtpTransportPool getInstance() {
+    return INSTANCE;
+  }
+
+  SmtpTransportPool(int maxIdle, long idleTimeoutMillis) {
+    this.maxIdle = maxIdle;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+  }
+
+  /**
+   * Returns a connected transport for the given server configuration, reusing an idle one if
+   * available. Once the message is sent, the transport must be given back with
+   * {@link #release(String, Transport)} or closed with {@link #invalidate(Transport)} if the sending
+   * failed.
+   * 
+   * @param key
+   *          identifies the server configuration, transports are only reused for the same key
+   * @param session
+   *          the mail session used to create a new transport if there is no idle one
+   */
+  Transport borrow(String key, Session session) throws MessagingException {
+    Deque<PooledTransport> idle = idleTransports.get(key);
+    PooledTransport pooled;
+    while (idle != null && (pooled = idle.pollFirst()) != null) {
+      if (!pooled.isExpired(idleTimeoutMillis) && pooled.transport.isConnected()) {
+        return pooled.transport;
+      }
+      close(pooled.transport);
+    }
+    Transport transport = session.getTransport();
+    transport.connect();
+    return transport;
+  }
+
+  /**
+   * Gives back a transport after successfully sending a message, so it can be reused.
+   */
+  void release(String key, Transport transport) {
+    if (maxIdle <= 0 || !transport.isConnected()) {
+      close(transport);
+      return;
+    }
+    scheduleEviction();
+    Deque<PooledTransport> idle = idleTransports.computeIfAbsent(key,
+        k -> new ConcurrentLinkedDeque<>());
+    idle.offerFirst(new PooledTransport(transport));
+    // remove the least recently used ones if there are too many
+    PooledTransport exceeding;
+    while (idle.size() > maxIdle && (exceeding = idle.pollLast()) != null) {
+      close(exceeding.transport);
+    }
+  }
+
+  /**
+   * Closes a transport that should not be reused, because sending a message with it failed.
+   */
+  void invalidate(Transport transport) {
+    close(transport);
+  }
+
+  /**
+   * Closes the transports which have been idle for longer than the idle timeout.
+   */
+  void closeExpired() {
+    for (Deque<PooledTransport> idle : idleTransports.values()) {
+      for (PooledTransport pooled : idle) {
+        // only closed if not borrowed in the meantime
+        if (pooled.isExpired(idleTimeoutMillis) && idle.removeFirstOccurrence(pooled)) {
+          close(pooled.transport);
+        }
+      }
+    }
+  }
+
+  private synchronized void scheduleEviction() {
+    if (eviction != null) {
+      return;
+    }
+    long interval = Math.max(idleTimeoutMillis, MIN_EVICTION_INTERVAL);
+    eviction = Evictor.EXECUTOR.scheduleWithFixedDelay(this::closeExpired, interval, interval,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Closes all the idle transports and stops closing the expired ones in background.
+   */
+  void clear() {
+    synchronized (this) {
+      if (eviction != null) {
+        eviction.cancel(false);
+        eviction = null;
+      }
+    }
+    for (Deque<PooledTransport> idle : idleTransports.values()) {
+      PooledTransport pooled;
+      while ((pooled = idle.pollFirst()) != null) {
+        close(pooled.transport);
+      }
+    }
+  }
+
+  int getIdleCount() {
+    return idleTransports.values().stream().mapToInt(Deque::size).sum();
+  }
+
+  private static void close(Transport transport) {
+    try {
+      transport.close();
+    } catch (MessagingException e) {
+      log.debug("Error closing SMTP connection", e);
+    }
+  }
+
+  private static long getLongProperty(String name, long defaultValue) {
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    String value = properties != null ? properties.getProperty(name) : null;
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      log.warn("Wrong value {} for property {}, using the default {}", value, name, defaultValue);
+      return defaultValue;
+    }
+  }
+
+  private static class Evictor {
+    private static final ScheduledExecutorService EXECUTOR = Executors
+        .newSingleThreadScheduledExecutor(new DaemonThreadFactory("SMTP Connection Evictor"));
+  }
+
+  private static class PooledTransport {
+    private final Transport transport;
+    private final long releaseTime = System.currentTimeMillis();
+
+    private PooledTransport(Transport transport) {
+      this.transport = transport;
+    }
+
+    private boolean isExpired(long idleTimeoutMillis) {
+      return System.currentTimeMillis() - releaseTime > idleTimeoutMillis;
+    }
+  }
+}
@@ -0,0 +1,341 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.erpCommon.utility.reporting;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.exception.OBException;
+import org.openbravo.base.secureApp.VariablesSecureApp;
+import org.openbravo.base.session.OBPropertiesProvider;
+import org.openbravo.dal.core.DalThreadCleaner;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.service.importprocess.ImportEntryManager;
+
+import net.sf.jasperreports.engine.JasperPrint;
+
+/**
+ * Fills the reports of several documents in parallel, so printing many documents at once does not
+ * take as much time as filling them one after the other.
+ * 
+ * Reports are filled in a bounded pool of threads, each of them with its own {@link ReportManager}
+ * and DAL session. The filled reports are returned by {@link #getJasperPrints()} in the same order
+ * as the documents were provided, as soon as each of them is available. This way they can be
+ * exported while the following ones are still being filled. Only a limited number of reports are
+ * filled ahead of the one being exported, to limit the memory used by big prints.
+ * 
+ * Once the reports are not requested anymore, {@link #close()} must be invoked, even if not all of
+ * them were requested, so the remaining reports are discarded and the completion is reached. The
+ * reports being filled at that moment are not interrupted: {@link #awaitCompletion(long, TimeUnit)}
+ * allows to wait for them before deleting the files they could generate.
+ * 
+ * The reports are filled with a copy of the values of the request needed to fill and save them, so
+ * they do not depend on the request once it has finished.
+ */
+public class BulkReportRenderer {
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String MAX_THREADS_PROPERTY = "report.bulk.maxThreads";
+  private static final int DEFAULT_MAX_THREADS = 4;
+  // session values read by ReportManager to fill and save the reports
+  private static final String[] SESSION_VALUES = { "#User_Client", "#User_Org", "#User_Level",
+      "#AD_ReportDecimalSeparator", "#AD_ReportGroupingSeparator", "#AD_ReportNumberFormat",
+      "inpTabId" };
+
+  private static ExecutorService executorService;
+  private static int maxThreads = -1;
+
+  private final Supplier<ReportManager> reportManagerSupplier;
+  private final VariablesSecureApp vars;
+  private final List<Report> reports;
+  private final boolean saveReports;
+  private final List<CompletableFuture<JasperPrint>> fills;
+  private final CompletableFuture<Void> completion = new CompletableFuture<>();
+  private final AtomicInteger filledReports = new AtomicInteger();
+  private final AtomicInteger finishedReports = new AtomicInteger();
+  // 1 for the reports already finished, so each of them is counted only once
+  private final AtomicIntegerArray finished;
+  private final OBContext obContext;
+  private ProgressListener progressListener;
+  private int submittedReports = 0;
+  private volatile boolean closed = false;
+
+  /**
+   * Listener notified every time a report is filled. It is invoked from the threads filling the
+   * reports.
+   */
+  @FunctionalInterface
+  public interface ProgressListener {
+    /**
+     * @param filledReports
+     *          number of reports already filled
+     * @param totalReports
+     *          total number of reports to fill
+     */
+    public void reportFilled(int filledReports, int totalReports);
+  }
+
+  /**
+   * @param reportManagerSupplier
+   *          provides a new {@link ReportManager} for each report, as they are not thread safe
+   * @param vars
+   *          the variables of the current request, the values needed to fill the reports are copied
+   * @param reports
+   *          the reports to fill, in the order they should be returned
+   * @param saveReports
+   *          if true, each report is also saved as a temporary report once filled
+   */
+  public BulkReportRenderer(Supplier<ReportManager> reportManagerSupplier, VariablesSecureApp vars,
+      List<Report> reports, boolean saveReports) {
+    this.reportManagerSupplier = reportManagerSupplier;
+    this.vars = copyVariables(vars);
+    this.reports = reports;
+    this.saveReports = saveReports;
+    this.fills = new ArrayList<>(reports.size());
+    this.finished = new AtomicIntegerArray(reports.size());
+    this.obContext = OBContext.getOBContext();
+    if (reports.isEmpty()) {
+      completion.complete(null);
+    }
+  }
+
+  /**
+   * Sets the listener notified each time a report is filled.
+   */
+  public BulkReportRenderer setProgressListener(ProgressListener progressListener) {
+    this.progressListener = progressListener;
+    return this;
+  }
+
+  /**
+   * @return a future completed once all the reports have been filled, or discarded if they were
+   *         not requested before closing the renderer
+   */
+  public CompletableFuture<Void> getCompletion() {
+    return completion;
+  }
+
+  /**
+   * Waits until all the reports have been filled, or discarded if they were not requested before
+   * closing the renderer.
+   * 
+   * @return true if the completion was reached, false if the timeout expired before
+   */
+  public boolean awaitCompletion(long timeout, TimeUnit unit) {
+    try {
+      completion.get(timeout, unit);
+      return true;
+    } catch (TimeoutException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      throw new OBException(e.getCause());
+    }
+  }
+
+  /**
+   * Cancels the reports which were not requested, for example because their export failed: the
+   * ones not being filled yet are discarded without filling them. The reports already returned are
+   * released. Use {@link #awaitCompletion(long, TimeUnit)} to wait for the reports still being
+   * filled.
+   */
+  public synchronized void close() {
+    closed = true;
+    while (submittedReports < reports.size()) {
+      fills.add(null);
+      markFinished(submittedReports);
+      submittedReports++;
+    }
+    for (int i = 0; i < fills.size(); i++) {
+      fills.set(i, null);
+    }
+  }
+
+  /**
+   * Returns the filled reports, in the same order as the documents were provided. The reports are
+   * filled lazily: getting an element of the list waits until that report has been filled, while
+   * the following ones are filled in background. Getting a report that could not be filled throws
+   * an {@link OBException} with the cause of the failure.
+   * 
+   * @return a read only list with the filled reports
+   */
+  public List<JasperPrint> getJasperPrints() {
+    return new AbstractList<JasperPrint>() {
+      @Override
+      public JasperPrint get(int index) {
+        return getJasperPrint(index);
+      }
+
+      @Override
+      public int size() {
+        return reports.size();
+      }
+    };
+  }
+
+  private synchronized JasperPrint getJasperPrint(int index) {
+    if (closed) {
+      throw new OBException("Reports can not be requested once the renderer is closed");
+    }
+    // keep some reports being filled ahead of the requested one
+    int fillUpTo = Math.min(reports.size(), index + 1 + 2 * getMaxThreads());
+    while (submittedReports < fillUpTo) {
+      int reportIndex = submittedReports;
+      fills.add(CompletableFuture.supplyAsync(() -> fill(reportIndex, saveReports),
+          getExecutorService()));
+      submittedReports++;
+    }
+    if (fills.get(index) == null) {
+      // already released, fill it again without saving it twice
+      fills.set(index,
+          CompletableFuture.supplyAsync(() -> fill(index, false), getExecutorService()));
+    }
+    // release the previous reports, the caller is the one keeping them now if needed
+    for (int i = 0; i < index; i++) {
+      fills.set(i, null);
+    }
+    try {
+      return fills.get(index).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OBException("Interrupted while filling report " + reports.get(index).getFilename(),
+          e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof OBException) {
+        throw (OBException) e.getCause();
+      }
+      throw new OBException("Error filling report " + reports.get(index).getFilename(),
+          e.getCause());
+    }
+  }
+
+  private JasperPrint fill(int index, boolean save) {
+    if (closed) {
+      // cancelled before starting to fill it
+      markFinished(index);
+      return null;
+    }
+    Report report = reports.get(index);
+    OBContext.setOBContext(obContext);
+    boolean errorOccurred = true;
+    try {
+      ReportManager reportManager = reportManagerSupplier.get();
+      JasperPrint jasperPrint = reportManager.processReport(report, vars);
+      if (save) {
+        reportManager.saveTempReport(report, vars);
+      }
+      errorOccurred = false;
+      return jasperPrint;
+    } catch (Exception e) {
+      throw new OBException("Error filling report for document " + report.getDocumentId(), e);
+    } finally {
+      if (errorOccurred) {
+        DalThreadCleaner.getInstance().cleanWithRollback();
+      } else {
+        DalThreadCleaner.getInstance().cleanWithCommit();
+      }
+      notifyFilled(index);
+    }
+  }
+
+  private void notifyFilled(int index) {
+    if (!markFinished(index)) {
+      // filled again after being released, it was already notified
+      return;
+    }
+    int filled = filledReports.incrementAndGet();
+    log.debug("Filled {} of {} reports", filled, reports.size());
+    if (progressListener != null) {
+      try {
+        progressListener.reportFilled(filled, reports.size());
+      } catch (Exception e) {
+        log.error("Error notifying report progress", e);
+      }
+    }
+  }
+
+  /**
+   * Marks the report as finished, completing the renderer once all the reports are finished.
+   * 
+   * @return true if the report was not finished before
+   */
+  private boolean markFinished(int index) {
+    if (!finished.compareAndSet(index, 0, 1)) {
+      return false;
+    }
+    if (finishedReports.incrementAndGet() == reports.size()) {
+      completion.complete(null);
+    }
+    return true;
+  }
+
+  private static VariablesSecureApp copyVariables(VariablesSecureApp vars) {
+    VariablesSecureApp copy = new VariablesSecureApp(vars.getUser(), vars.getClient(),
+        vars.getOrg(), vars.getRole(), vars.getLanguage());
+    for (String sessionValue : SESSION_VALUES) {
+      copy.setSessionValue(sessionValue, vars.getSessionValue(sessionValue));
+    }
+    return copy;
+  }
+
+  private static synchronized ExecutorService getExecutorService() {
+    if (executorService == null) {
+      executorService = Executors.newFixedThreadPool(getMaxThreads(),
+          new ImportEntryManager.DaemonThreadFactory("Report"));
+    }
+    return executorService;
+  }
+
+  private static synchronized int getMaxThreads() {
+    if (maxThreads == -1) {
+      maxThreads = readMaxThreads();
+    }
+    return maxThreads;
+  }
+
+  private static int readMaxThreads() {
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    String value = properties != null ? properties.getProperty(MAX_THREADS_PROPERTY) : null;
+    if (value == null) {
+      return DEFAULT_MAX_THREADS;
+    }
+    try {
+      return Math.max(1, Integer.parseInt(value.trim()));
+    } catch (NumberFormatException e) {
+      log.warn("Wrong value {} for property {}, using the default {}", value,
+          MAX_THREADS_PROPERTY, DEFAULT_MAX_THREADS);
+      return DEFAULT_MAX_THREADS;
+    }
+  }
+}
@@ -75,7 +75,6 @@ public class ReportManager {
   private ConnectionProvider _connectionProvider;
   private String _strBaseDesignPath;
   private String _strDefaultDesignPath;
-  private String language;
   private String _strBaseWeb; // BASE WEB!!!!!!
   private String _prefix;
   private String _strAttachmentPath;
@@ -115,7 +114,7 @@ public class ReportManager {
       Map<String, Object> extraDesignParameters) throws ReportingException {
 
     setTargetDirectory(report);
-    language = variables.getLanguage();
+    final String language = variables.getLanguage();
     final String baseDesignPath = _prefix + "/" + _strBaseDesignPath + "/" + _strDefaultDesignPath;
 
     String templateLocation = report.getTemplateInfo().getTemplateLocation();
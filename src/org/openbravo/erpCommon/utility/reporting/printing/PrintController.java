@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 
@@ -74,6 +75,7 @@ import org.openbravo.erpCommon.utility.Utility;
 import org.openbravo.erpCommon.utility.poc.EmailInfo;
 import org.openbravo.erpCommon.utility.poc.EmailManager;
 import org.openbravo.erpCommon.utility.poc.EmailType;
+import org.openbravo.erpCommon.utility.reporting.BulkReportRenderer;
 import org.openbravo.erpCommon.utility.reporting.DocumentType;
 import org.openbravo.erpCommon.utility.reporting.Report;
 import org.openbravo.erpCommon.utility.reporting.Report.OutputTypeEnum;
@@ -105,6 +107,7 @@ public class PrintController extends HttpSecureAppServlet {
   private static final String REPRINT_PATH = "reprint.html";
   private static final String SEND_PATH = "send.html";
   private static final String RESEND_PATH = "resend.html";
+  private static final long FILL_TIMEOUT_MINUTES = 30;
 
   @Override
   public void init(ServletConfig config) {
@@ -248,24 +251,28 @@ public class PrintController extends HttpSecureAppServlet {
          * documents will each be saved individually and the concatenated in the same manner as the
          * saved reports. After concatenating the reports they will be deleted.
          */
-        Report report = null;
-        JasperPrint jasperPrint = null;
-        Collection<JasperPrint> jrPrintReports = new ArrayList<JasperPrint>();
-        final Collection<Report> savedReports = new ArrayList<Report>();
+        final List<Report> savedReports = new ArrayList<Report>();
         for (int i = 0; i < documentIds.length; i++) {
           String documentId = documentIds[i];
-          report = buildReport(response, vars, documentId, reportManager, documentType,
-              Report.OutputTypeEnum.PRINT);
-          try {
-            jasperPrint = reportManager.processReport(report, vars);
-            jrPrintReports.add(jasperPrint);
-          } catch (final ReportingException e) {
-            advisePopUp(request, response, "Report processing failed",
-                "Unable to process report selection");
-            log4j.error(e.getMessage());
-            e.getStackTrace();
-          }
-          savedReports.add(report);
+          savedReports.add(buildReport(response, vars, documentId, reportManager, documentType,
+              Report.OutputTypeEnum.PRINT));
+        }
+        // reports are filled in parallel, all of them before writing the response so a failure
+        // can still be shown
+        BulkReportRenderer renderer = getBulkReportRenderer(vars, savedReports, false);
+        List<JasperPrint> jrPrintReports = null;
+        try {
+          jrPrintReports = new ArrayList<>(renderer.getJasperPrints());
+        } catch (OBException e) {
+          log4j.error("Error filling reports", e);
+        } finally {
+          // if printed, the temporary reports are deleted afterwards
+          finishBulkReportRenderer(renderer, savedReports, jrPrintReports == null);
+        }
+        if (jrPrintReports == null) {
+          advisePopUp(request, response, "Report processing failed",
+              "Unable to process report selection");
+          return;
         }
         printReports(response, jrPrintReports, savedReports, isDirectPrint(vars), multiReports,
             false);
@@ -346,26 +353,21 @@ public class PrintController extends HttpSecureAppServlet {
          * ARCHIVE will save each report individually and then print the reports in a single
          * printable (concatenated) format.
          */
-        Report report = null;
-        JasperPrint jasperPrint = null;
-        Collection<JasperPrint> jrPrintReports = new ArrayList<JasperPrint>();
-        final Collection<Report> savedReports = new ArrayList<Report>();
+        final List<Report> savedReports = new ArrayList<Report>();
         for (int index = 0; index < documentIds.length; index++) {
           String documentId = documentIds[index];
-          report = buildReport(response, vars, documentId, reportManager, documentType,
-              OutputTypeEnum.ARCHIVE);
+          savedReports.add(buildReport(response, vars, documentId, reportManager, documentType,
+              OutputTypeEnum.ARCHIVE));
           buildReport(response, vars, documentId, reports, reportManager);
-          try {
-            jasperPrint = reportManager.processReport(report, vars);
-            jrPrintReports.add(jasperPrint);
-          } catch (final ReportingException e) {
-            log4j.error(e);
-          }
-          reportManager.saveTempReport(report, vars);
-          savedReports.add(report);
         }
-        printReports(response, jrPrintReports, savedReports, isDirectPrint(vars), multiReports,
-            true);
+        // reports are filled and saved in parallel and printed as soon as each of them is available
+        BulkReportRenderer renderer = getBulkReportRenderer(vars, savedReports, true);
+        try {
+          exportReports(response, renderer.getJasperPrints(), savedReports, isDirectPrint(vars),
+              multiReports, true);
+        } finally {
+          finishBulkReportRenderer(renderer, savedReports, true);
+        }
       } else {
         if (vars.commandIn("DEFAULT")) {
           if (request.getServletPath().toLowerCase().indexOf(REPRINT_PATH) != -1) {
@@ -600,10 +602,48 @@ public class PrintController extends HttpSecureAppServlet {
 
   public void printReports(HttpServletResponse response, Collection<JasperPrint> jrPrintReports,
       Collection<Report> reports, boolean directPrint) {
-    printReports(response, jrPrintReports, reports, directPrint, false, false);
+    printReports(response, new ArrayList<>(jrPrintReports), reports, directPrint, false, false);
+  }
+
+  private BulkReportRenderer getBulkReportRenderer(VariablesSecureApp vars, List<Report> reports,
+      boolean saveReports) {
+    // each thread needs its own ReportManager as its connection provider is not thread safe
+    String user = vars.getUser();
+    return new BulkReportRenderer(
+        () -> new ReportManager(globalParameters.strFTPDirectory, strReplaceWithFull,
+            globalParameters.strBaseDesignPath, globalParameters.strDefaultDesignPath,
+            globalParameters.prefix, reports.size() > 1),
+        vars, reports, saveReports).setProgressListener((filled, total) -> log4j
+            .debug("Filled {} of {} reports for user {}", filled, total, user));
   }
 
-  private void printReports(HttpServletResponse response, Collection<JasperPrint> jrPrintReports,
+  /**
+   * Cancels the reports of the renderer that were not exported and waits for the ones still being
+   * filled, so their temporary reports can be safely deleted.
+   */
+  private void finishBulkReportRenderer(BulkReportRenderer renderer, List<Report> reports,
+      boolean deleteTempReports) {
+    renderer.close();
+    if (!renderer.awaitCompletion(FILL_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+      log4j.warn("Reports are still being filled after " + FILL_TIMEOUT_MINUTES
+          + " minutes, their temporary reports are not deleted");
+    } else if (deleteTempReports) {
+      deleteTempReports(reports);
+    }
+  }
+
+  private void printReports(HttpServletResponse response, List<JasperPrint> jrPrintReports,
+      Collection<Report> reports, boolean directPrint, boolean multiReports,
+      boolean archivedReports) {
+    try {
+      exportReports(response, jrPrintReports, reports, directPrint, multiReports,
+          archivedReports);
+    } finally {
+      deleteTempReports(reports);
+    }
+  }
+
+  private void exportReports(HttpServletResponse response, List<JasperPrint> jrPrintReports,
       Collection<Report> reports, boolean directPrint, boolean multiReports,
       boolean archivedReports) {
     ServletOutputStream os = null;
@@ -655,20 +695,22 @@ public class PrintController extends HttpSecureAppServlet {
         response.flushBuffer();
       } catch (IOException e) {
         log4j.error(e.getMessage(), e);
-      } finally {
-        try {
-          for (Report report : reports) {
-            // Delete temporal reports generated for the returned report in case they have been
-            // attached also
-            File file = new File(report.getTargetLocation());
-            if (file.exists() && !file.isDirectory()) {
-              file.delete();
-            }
-          }
-        } catch (IOException e) {
-          log4j.error("Error deleting temporal reports", e);
+      }
+    }
+  }
+
+  private void deleteTempReports(Collection<Report> reports) {
+    try {
+      for (Report report : reports) {
+        // Delete temporal reports generated for the returned report in case they have been
+        // attached also
+        File file = new File(report.getTargetLocation());
+        if (file.exists() && !file.isDirectory()) {
+          file.delete();
         }
       }
+    } catch (IOException e) {
+      log4j.error("Error deleting temporal reports", e);
     }
   }
 
@@ -681,7 +723,7 @@ public class PrintController extends HttpSecureAppServlet {
     os.println(xmlDocument.print());
   }
 
-  private void concatReport(Report[] reports, Collection<JasperPrint> jrPrintReports,
+  private void concatReport(Report[] reports, List<JasperPrint> jrPrintReports,
       HttpServletResponse response, boolean directPrint) {
     try {
       String filename = "";
@@ -700,15 +742,15 @@ public class PrintController extends HttpSecureAppServlet {
       }
       if (!directPrint) {
         response.setHeader("Content-disposition", "attachment" + "; filename=" + filename);
-        ReportingUtils.concatPDFReport(new ArrayList<>(jrPrintReports), createBookmarks,
+        ReportingUtils.concatPDFReport(jrPrintReports, createBookmarks,
             response.getOutputStream(), configuration);
       } else {
         response.setContentType("text/html");
         Path path = Files.createTempFile(Paths.get(globalParameters.strFTPDirectory),
             filename + "-", ".pdf");
         try (OutputStream outputStream = Files.newOutputStream(path, StandardOpenOption.CREATE)) {
-          ReportingUtils.concatPDFReport(new ArrayList<>(jrPrintReports), createBookmarks,
-              outputStream, configuration);
+          ReportingUtils.concatPDFReport(jrPrintReports, createBookmarks, outputStream,
+              configuration);
         }
         doDirectPrint(response.getOutputStream(), path.toFile().getName());
       }
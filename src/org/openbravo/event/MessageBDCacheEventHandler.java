@@ -0,0 +1,93 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.event;
+
+import javax.enterprise.event.Observes;
+
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.client.kernel.event.EntityDeleteEvent;
+import org.openbravo.client.kernel.event.EntityNewEvent;
+import org.openbravo.client.kernel.event.EntityPersistenceEventObserver;
+import org.openbravo.client.kernel.event.EntityUpdateEvent;
+import org.openbravo.client.kernel.event.TransactionBeginEvent;
+import org.openbravo.client.kernel.event.TransactionCompletedEvent;
+import org.openbravo.erpCommon.utility.MessageBDCache;
+import org.openbravo.model.ad.ui.Element;
+import org.openbravo.model.ad.ui.ElementTrl;
+import org.openbravo.model.ad.ui.Message;
+import org.openbravo.model.ad.ui.MessageTrl;
+
+/**
+ * Invalidates the {@link MessageBDCache} whenever a message, an element or any of their
+ * translations is modified. It is invalidated again once the transaction is completed, so messages
+ * read before the changes were committed are not kept.
+ */
+class MessageBDCacheEventHandler extends EntityPersistenceEventObserver {
+  private static final Entity[] ENTITIES = {
+      ModelProvider.getInstance().getEntity(Message.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(MessageTrl.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Element.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(ElementTrl.ENTITY_NAME) };
+
+  private static ThreadLocal<Boolean> messagesModified = new ThreadLocal<>();
+
+  @Override
+  protected Entity[] getObservedEntities() {
+    return ENTITIES;
+  }
+
+  public void onTransactionBegin(@Observes TransactionBeginEvent event) {
+    messagesModified.remove();
+  }
+
+  public void onNew(@Observes EntityNewEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    invalidate();
+  }
+
+  public void onUpdate(@Observes EntityUpdateEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    invalidate();
+  }
+
+  public void onDelete(@Observes EntityDeleteEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    invalidate();
+  }
+
+  public void onTransactionCompleted(@Observes TransactionCompletedEvent event) {
+    boolean modified = Boolean.TRUE.equals(messagesModified.get());
+    messagesModified.remove();
+    if (modified) {
+      MessageBDCache.getInstance().invalidate();
+    }
+  }
+
+  private void invalidate() {
+    MessageBDCache.getInstance().invalidate();
+    messagesModified.set(Boolean.TRUE);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.event;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.base.structure.BaseOBObject;
+import org.openbravo.client.kernel.event.EntityDeleteEvent;
+import org.openbravo.client.kernel.event.EntityNewEvent;
+import org.openbravo.client.kernel.event.EntityPersistenceEvent;
+import org.openbravo.client.kernel.event.EntityPersistenceEventObserver;
+import org.openbravo.client.kernel.event.EntityUpdateEvent;
+import org.openbravo.erpCommon.businessUtility.PriceAdjustmentRuleIndex;
+import org.openbravo.model.pricing.priceadjustment.PriceAdjustment;
+
+/**
+ * Discards the Price Adjustment rules kept in memory by {@link PriceAdjustmentRuleIndex} for a
+ * client when any of its discounts, or any of the definitions of a discount (price lists, business
+ * partners, products, organizations...), change.
+ */
+class PriceAdjustmentRuleIndexEventHandler extends EntityPersistenceEventObserver {
+  private static final Entity[] ENTITIES = getPriceAdjustmentEntities();
+
+  @Inject
+  private PriceAdjustmentRuleIndex priceAdjustmentRuleIndex;
+
+  private static Entity[] getPriceAdjustmentEntities() {
+    List<Entity> entities = ModelProvider.getInstance()
+        .getModel()
+        .stream()
+        .filter(entity -> entity.getProperties()
+            .stream()
+            .anyMatch(property -> property.isParent() && property.getTargetEntity() != null
+                && PriceAdjustment.ENTITY_NAME.equals(property.getTargetEntity().getName())))
+        .collect(Collectors.toList());
+    entities.add(ModelProvider.getInstance().getEntity(PriceAdjustment.ENTITY_NAME));
+    return entities.toArray(new Entity[entities.size()]);
+  }
+
+  @Override
+  protected Entity[] getObservedEntities() {
+    return ENTITIES;
+  }
+
+  public void onSave(@Observes EntityNewEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    invalidateRules(event);
+  }
+
+  public void onUpdate(@Observes EntityUpdateEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    invalidateRules(event);
+  }
+
+  public void onDelete(@Observes EntityDeleteEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    invalidateRules(event);
+  }
+
+  private void invalidateRules(EntityPersistenceEvent event) {
+    BaseOBObject client = (BaseOBObject) event.getTargetInstance().get("client");
+    if (client != null) {
+      priceAdjustmentRuleIndex.invalidate((String) client.getId());
+    }
+  }
+}
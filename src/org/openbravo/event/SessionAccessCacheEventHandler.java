@@ -0,0 +1,155 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.event;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.enterprise.event.Observes;
+
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.base.secureApp.SessionAccessCache;
+import org.openbravo.base.structure.BaseOBObject;
+import org.openbravo.client.kernel.event.EntityDeleteEvent;
+import org.openbravo.client.kernel.event.EntityNewEvent;
+import org.openbravo.client.kernel.event.EntityPersistenceEventObserver;
+import org.openbravo.client.kernel.event.EntityUpdateEvent;
+import org.openbravo.client.kernel.event.TransactionBeginEvent;
+import org.openbravo.client.kernel.event.TransactionCompletedEvent;
+import org.openbravo.model.ad.access.FormAccess;
+import org.openbravo.model.ad.access.ProcessAccess;
+import org.openbravo.model.ad.access.Role;
+import org.openbravo.model.ad.access.Session;
+import org.openbravo.model.ad.access.TableAccess;
+import org.openbravo.model.ad.access.WindowAccess;
+
+/**
+ * Keeps the {@link SessionAccessCache} up to date: sessions are removed from it when they are
+ * deactivated and the access decisions of a role are discarded whenever the role or any of its
+ * window, process, form or table accesses are modified. The sessions and decisions are discarded
+ * again once the transaction is completed, so the ones read before the changes were committed are
+ * not kept.
+ */
+class SessionAccessCacheEventHandler extends EntityPersistenceEventObserver {
+  private static final Entity[] ENTITIES = {
+      ModelProvider.getInstance().getEntity(Session.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Role.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(WindowAccess.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(ProcessAccess.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(FormAccess.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(TableAccess.ENTITY_NAME) };
+  private static final String ROLE_PROPERTY = "role";
+
+  private static ThreadLocal<Set<String>> modifiedRoles = new ThreadLocal<>();
+  private static ThreadLocal<Set<String>> deactivatedSessions = new ThreadLocal<>();
+
+  @Override
+  protected Entity[] getObservedEntities() {
+    return ENTITIES;
+  }
+
+  public void onTransactionBegin(@Observes TransactionBeginEvent event) {
+    modifiedRoles.remove();
+    deactivatedSessions.remove();
+  }
+
+  public void onNew(@Observes EntityNewEvent event) {
+    if (!isValidEvent(event) || event.getTargetInstance() instanceof Session) {
+      return;
+    }
+    invalidateRole(getRoleId(event.getTargetInstance()));
+  }
+
+  public void onUpdate(@Observes EntityUpdateEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    BaseOBObject bob = event.getTargetInstance();
+    if (bob instanceof Session) {
+      Session session = (Session) bob;
+      if (!session.isSessionActive() || !session.isActive()) {
+        invalidateSession(session.getId());
+      }
+      return;
+    }
+    invalidateRole(getRoleId(bob));
+    if (!(bob instanceof Role)) {
+      BaseOBObject previousRole = (BaseOBObject) event
+          .getPreviousState(bob.getEntity().getProperty(ROLE_PROPERTY));
+      invalidateRole(previousRole != null ? (String) previousRole.getId() : null);
+    }
+  }
+
+  public void onDelete(@Observes EntityDeleteEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    BaseOBObject bob = event.getTargetInstance();
+    if (bob instanceof Session) {
+      invalidateSession((String) bob.getId());
+      return;
+    }
+    invalidateRole(getRoleId(bob));
+  }
+
+  public void onTransactionCompleted(@Observes TransactionCompletedEvent event) {
+    Set<String> roles = modifiedRoles.get();
+    modifiedRoles.remove();
+    if (roles != null) {
+      roles.forEach(SessionAccessCache.getInstance()::invalidateRole);
+    }
+    Set<String> sessions = deactivatedSessions.get();
+    deactivatedSessions.remove();
+    if (sessions != null) {
+      sessions.forEach(SessionAccessCache.getInstance()::invalidateSession);
+    }
+  }
+
+  private String getRoleId(BaseOBObject bob) {
+    if (bob instanceof Role) {
+      return (String) bob.getId();
+    }
+    BaseOBObject role = (BaseOBObject) bob.get(ROLE_PROPERTY);
+    return role != null ? (String) role.getId() : null;
+  }
+
+  private void invalidateSession(String sessionId) {
+    SessionAccessCache.getInstance().invalidateSession(sessionId);
+    Set<String> sessions = deactivatedSessions.get();
+    if (sessions == null) {
+      sessions = new HashSet<>();
+      deactivatedSessions.set(sessions);
+    }
+    sessions.add(sessionId);
+  }
+
+  private void invalidateRole(String roleId) {
+    if (roleId == null) {
+      return;
+    }
+    SessionAccessCache.getInstance().invalidateRole(roleId);
+    Set<String> roles = modifiedRoles.get();
+    if (roles == null) {
+      roles = new HashSet<>();
+      modifiedRoles.set(roles);
+    }
+    roles.add(roleId);
+  }
+}
@@ -0,0 +1,314 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.jmx;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.service.importprocess.ImportEntryManager;
+
+/**
+ * Collects the number of invocations, the execution time and the number of queries of the
+ * extensions implemented by the modules, like event handlers, callouts, import entry processors or
+ * process hooks, to help finding which of them are slow.
+ * 
+ * The instrumentation is disabled by default and it can be enabled and disabled at runtime through
+ * JMX. When it is disabled, {@link #start(ExtensionType, Class)} just returns a shared measurement
+ * which records nothing. The collected statistics can also be periodically written to the log.
+ * 
+ * The time and queries of an extension include those of the extensions it triggers, for example an
+ * event handler fired when a callout flushes the session.
+ */
+public class ExtensionInstrumentation implements ExtensionInstrumentationMBean {
+  public static final String MBEAN_NAME = "ExtensionInstrumentation";
+
+  private static final Logger log = LogManager.getLogger();
+  private static final ExtensionInstrumentation INSTANCE = new ExtensionInstrumentation();
+  // upper limits in milliseconds of the buckets of the latency histogram
+  private static final long[] HISTOGRAM_LIMITS = { 1, 5, 10, 50, 100, 500, 1000 };
+  private static final int MAX_LOGGED_EXTENSIONS = 10;
+
+  /** The kinds of extensions which are instrumented. */
+  public enum ExtensionType {
+    EVENT_HANDLER, CALLOUT, IMPORT_PROCESSOR, PROCESS_RUNNER_HOOK, STORED_PROCEDURE_HOOK
+  }
+
+  private final Map<String, ExtensionStatistics> statistics = new ConcurrentHashMap<>();
+  private final ThreadLocal<long[]> executedQueries = ThreadLocal.withInitial(() -> new long[1]);
+  private volatile boolean enabled;
+  private long logInterval;
+  private ScheduledExecutorService logExecutor;
+  private ScheduledFuture<?> logTask;
+
+  /**
+   * @return the singleton instance of ExtensionInstrumentation
+   */
+  public static ExtensionInstrumentation getInstance() {
+    return INSTANCE;
+  }
+
+  ExtensionInstrumentation() {
+  }
+
+  /**
+   * Starts measuring an invocation of an extension. The returned measurement must be closed once
+   * the extension finishes, usually with a try-with-resources statement.
+   * 
+   * @param type
+   *          the kind of extension being invoked
+   * @param extensionClass
+   *          the class implementing the extension
+   * @return the measurement of the invocation
+   */
+  public Measurement start(ExtensionType type, Class<?> extensionClass) {
+    if (!enabled) {
+      return Measurement.NOT_MEASURED;
+    }
+    return new Measurement(this, type, extensionClass, System.nanoTime(),
+        executedQueries.get()[0]);
+  }
+
+  /**
+   * Counts a query executed by the current thread, it is attributed to the extensions being
+   * measured in it.
+   */
+  public void queryExecuted() {
+    if (enabled) {
+      executedQueries.get()[0]++;
+    }
+  }
+
+  private void record(Measurement measurement) {
+    long time = System.nanoTime() - measurement.startTime;
+    long queries = executedQueries.get()[0] - measurement.startQueries;
+    String key = measurement.type + " " + measurement.extensionClass.getName();
+    ExtensionStatistics extensionStatistics = statistics.get(key);
+    if (extensionStatistics == null) {
+      extensionStatistics = statistics.computeIfAbsent(key, k -> new ExtensionStatistics(key));
+    }
+    extensionStatistics.record(time, queries);
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @Override
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    log.info("Extension instrumentation {}", enabled ? "enabled" : "disabled");
+  }
+
+  @Override
+  public synchronized long getLogInterval() {
+    return logInterval;
+  }
+
+  @Override
+  public synchronized void setLogInterval(long seconds) {
+    if (logTask != null) {
+      logTask.cancel(false);
+      logTask = null;
+    }
+    logInterval = Math.max(0, seconds);
+    if (logInterval == 0) {
+      return;
+    }
+    if (logExecutor == null) {
+      logExecutor = Executors.newSingleThreadScheduledExecutor(
+          new ImportEntryManager.DaemonThreadFactory("ExtensionInstrumentation"));
+    }
+    logTask = logExecutor.scheduleAtFixedRate(this::logStatistics, logInterval, logInterval,
+        TimeUnit.SECONDS);
+  }
+
+  @Override
+  public String[] getStatistics() {
+    return statistics.values()
+        .stream()
+        .sorted(Comparator.comparingLong((ExtensionStatistics s) -> s.time.sum()).reversed())
+        .map(ExtensionStatistics::toString)
+        .toArray(String[]::new);
+  }
+
+  @Override
+  public void reset() {
+    statistics.clear();
+  }
+
+  /**
+   * Logs the extensions which spent more time since the previous time the statistics were logged.
+   */
+  void logStatistics() {
+    try {
+      List<String> samples = statistics.values()
+          .stream()
+          .map(ExtensionStatistics::sample)
+          .filter(sample -> sample.invocations > 0)
+          .sorted(Comparator.comparingLong((Sample sample) -> sample.time).reversed())
+          .limit(MAX_LOGGED_EXTENSIONS)
+          .map(Sample::toString)
+          .collect(Collectors.toList());
+      if (!samples.isEmpty()) {
+        log.info("Slowest extensions in the last {} seconds:\n  {}", getLogInterval(),
+            String.join("\n  ", samples));
+      }
+    } catch (Exception e) {
+      log.error("Could not log the extension statistics", e);
+    }
+  }
+
+  private static String toMillis(long nanos) {
+    return String.format("%.3f ms", (double) nanos / TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  /**
+   * The measurement of an extension invocation, closing it records the invocation.
+   */
+  public static class Measurement implements AutoCloseable {
+    private static final Measurement NOT_MEASURED = new Measurement(null, null, null, 0, 0);
+
+    private final ExtensionInstrumentation instrumentation;
+    private final ExtensionType type;
+    private final Class<?> extensionClass;
+    private final long startTime;
+    private final long startQueries;
+
+    private Measurement(ExtensionInstrumentation instrumentation, ExtensionType type,
+        Class<?> extensionClass, long startTime, long startQueries) {
+      this.instrumentation = instrumentation;
+      this.type = type;
+      this.extensionClass = extensionClass;
+      this.startTime = startTime;
+      this.startQueries = startQueries;
+    }
+
+    @Override
+    public void close() {
+      if (instrumentation != null) {
+        instrumentation.record(this);
+      }
+    }
+  }
+
+  /** The statistics of an extension class. */
+  private static class ExtensionStatistics {
+    private final String name;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder time = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] histogram = new LongAdder[HISTOGRAM_LIMITS.length + 1];
+    // only accessed by the thread logging the statistics
+    private long sampledInvocations;
+    private long sampledTime;
+    private long sampledQueries;
+
+    private ExtensionStatistics(String name) {
+      this.name = name;
+      for (int i = 0; i < histogram.length; i++) {
+        histogram[i] = new LongAdder();
+      }
+    }
+
+    private void record(long nanos, long executedQueries) {
+      invocations.increment();
+      time.add(nanos);
+      queries.add(executedQueries);
+      maxTime.accumulate(nanos);
+      long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+      int bucket = 0;
+      while (bucket < HISTOGRAM_LIMITS.length && millis >= HISTOGRAM_LIMITS[bucket]) {
+        bucket++;
+      }
+      histogram[bucket].increment();
+    }
+
+    private Sample sample() {
+      long currentInvocations = invocations.sum();
+      long currentTime = time.sum();
+      long currentQueries = queries.sum();
+      Sample sample = new Sample(name, currentInvocations - sampledInvocations,
+          currentTime - sampledTime, currentQueries - sampledQueries);
+      sampledInvocations = currentInvocations;
+      sampledTime = currentTime;
+      sampledQueries = currentQueries;
+      return sample;
+    }
+
+    @Override
+    public String toString() {
+      long count = invocations.sum();
+      long totalTime = time.sum();
+      StringBuilder sb = new StringBuilder(name).append(": ")
+          .append(count)
+          .append(" invocations, ")
+          .append(toMillis(totalTime))
+          .append(" total, ")
+          .append(toMillis(count == 0 ? 0 : totalTime / count))
+          .append(" average, ")
+          .append(toMillis(maxTime.get()))
+          .append(" max, ")
+          .append(queries.sum())
+          .append(" queries, histogram [");
+      for (int i = 0; i < histogram.length; i++) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        sb.append(i < HISTOGRAM_LIMITS.length ? "<" + HISTOGRAM_LIMITS[i]
+            : ">=" + HISTOGRAM_LIMITS[HISTOGRAM_LIMITS.length - 1]);
+        sb.append(" ms: ").append(histogram[i].sum());
+      }
+      return sb.append("]").toString();
+    }
+  }
+
+  /** The activity of an extension between two consecutive logs of the statistics. */
+  private static class Sample {
+    private final String name;
+    private final long invocations;
+    private final long time;
+    private final long queries;
+
+    private Sample(String name, long invocations, long time, long queries) {
+      this.name = name;
+      this.invocations = invocations;
+      this.time = time;
+      this.queries = queries;
+    }
+
+    @Override
+    public String toString() {
+      return name + ": " + invocations + " invocations, " + toMillis(time) + " total, " + queries
+          + " queries";
+    }
+  }
+}
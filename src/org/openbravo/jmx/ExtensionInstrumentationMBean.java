@@ -0,0 +1,44 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.jmx;
+
+/** Exposes the statistics collected by {@link ExtensionInstrumentation} as a JMX Bean. */
+public interface ExtensionInstrumentationMBean {
+
+  /** Whether the extension invocations are being measured. */
+  boolean isEnabled();
+
+  /** Enables or disables the measurement of the extension invocations. */
+  void setEnabled(boolean enabled);
+
+  /** Seconds between two consecutive logs of the statistics, 0 if they are not logged. */
+  long getLogInterval();
+
+  /** Sets the seconds between two consecutive logs of the statistics, 0 stops logging them. */
+  void setLogInterval(long seconds);
+
+  /**
+   * Invocation count, execution times, query count and latency histogram of each extension,
+   * sorted by the total time in descending order.
+   */
+  String[] getStatistics();
+
+  /** Discards the statistics collected so far. */
+  void reset();
+}
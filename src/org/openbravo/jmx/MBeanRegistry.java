@@ -11,7 +11,7 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2017-2018 Openbravo SLU
+ * All portions are Copyright (C) 2017-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -57,6 +57,25 @@ public class MBeanRegistry {
     }
   }
 
+  /**
+   * Unregisters an MBean previously registered with {@link #registerMBean(String, Object)}. Nothing
+   * is done if there is no MBean registered with the provided name.
+   * 
+   * @param mBeanName
+   *          the name of the MBean
+   */
+  public static void unregisterMBean(String mBeanName) {
+    try {
+      ObjectName name = new ObjectName("Openbravo:" + getContextString() + "name=" + mBeanName);
+      MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      if (mBeanServer.isRegistered(name)) {
+        mBeanServer.unregisterMBean(name);
+      }
+    } catch (Exception ignored) {
+      log.error("Could not unregister {} jmx bean", mBeanName, ignored);
+    }
+  }
+
   private static String getContextString() {
     String context = "";
     if (DalContextListener.getServletContext() != null) {
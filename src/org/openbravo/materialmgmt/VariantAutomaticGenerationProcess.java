@@ -26,10 +26,12 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.exception.GenericJDBCException;
 import org.openbravo.advpaymentmngt.utility.FIN_Utility;
@@ -47,6 +49,8 @@ import org.openbravo.erpCommon.utility.OBMessageUtils;
 import org.openbravo.materialmgmt.utility.EANUtility;
 import org.openbravo.model.ad.system.Client;
 import org.openbravo.model.ad.utility.Image;
+import org.openbravo.model.common.plm.Characteristic;
+import org.openbravo.model.common.plm.CharacteristicValue;
 import org.openbravo.model.common.plm.Product;
 import org.openbravo.model.common.plm.ProductAccounts;
 import org.openbravo.model.common.plm.ProductCharacteristic;
@@ -61,6 +65,22 @@ public class VariantAutomaticGenerationProcess implements Process {
   private static final int searchKeyLength = getSearchKeyColumnLength();
   private static final String SALES_PRICELIST = "SALES";
   private static final String PURCHASE_PRICELIST = "PURCHASE";
+  private static final int BATCH_SIZE = 1000;
+  private static final int JDBC_BATCH_SIZE = 100;
+
+  private final int batchSize;
+
+  public VariantAutomaticGenerationProcess() {
+    this(BATCH_SIZE);
+  }
+
+  /**
+   * @param batchSize
+   *          the number of variants whose records are inserted together before clearing the session
+   */
+  VariantAutomaticGenerationProcess(int batchSize) {
+    this.batchSize = batchSize;
+  }
 
   @Override
   public void execute(ProcessBundle bundle) throws Exception {
@@ -75,169 +95,10 @@ public class VariantAutomaticGenerationProcess implements Process {
 
       runChecks(product);
 
-      int totalMaxLength = product.getSearchKey().length();
-      long variantNumber = 1;
-      Map<String, ProductCharacteristicAux> prChUseCode = new HashMap<String, ProductCharacteristicAux>();
-
-      OBCriteria<ProductCharacteristic> prChCrit = OBDal.getInstance()
-          .createCriteria(ProductCharacteristic.class);
-      prChCrit.add(Restrictions.eq(ProductCharacteristic.PROPERTY_PRODUCT, product));
-      prChCrit.add(Restrictions.eq(ProductCharacteristic.PROPERTY_VARIANT, true));
-      prChCrit.addOrderBy(ProductCharacteristic.PROPERTY_SEQUENCENUMBER, true);
-      List<ProductCharacteristic> prChCritList = prChCrit.list();
-      List<String> prChs = new ArrayList<String>();
-      for (ProductCharacteristic pc : prChCritList) {
-        prChs.add(pc.getId());
-      }
-      int chNumber = prChs.size();
-      String[] currentValues = new String[chNumber];
-
-      int i = 0;
-      for (ProductCharacteristic prCh : prChCritList) {
-        List<String> prChConfs = new ArrayList<String>();
-        for (ProductCharacteristicConf pcc : prCh.getProductCharacteristicConfList()) {
-          if (pcc.isActive()) {
-            prChConfs.add(pcc.getId());
-          }
-        }
-        long valuesCount = prChConfs.size();
-
-        boolean useCode = true;
-        int maxLength = 0;
-        for (String id : prChConfs) {
-          ProductCharacteristicConf prChConf = OBDal.getInstance()
-              .get(ProductCharacteristicConf.class, id);
-          if (StringUtils.isBlank(prChConf.getCode())) {
-            useCode = false;
-            break;
-          }
-          if (prChConf.getCode().length() > maxLength) {
-            maxLength = prChConf.getCode().length();
-          }
-        }
-
-        variantNumber = variantNumber * valuesCount;
-        if (useCode) {
-          totalMaxLength += maxLength;
-        }
-
-        if (!prChConfs.isEmpty()) {
-          ProductCharacteristicAux prChAux = new ProductCharacteristicAux(useCode, prChConfs);
-          currentValues[i] = prChAux.getNextValue();
-          prChUseCode.put(prCh.getId(), prChAux);
-          i++;
-        }
-      }
-      totalMaxLength += Long.toString(variantNumber).length();
-      boolean useCodes = totalMaxLength <= searchKeyLength;
-
-      boolean hasNext = variantNumber > 0;
-      int productNo = 0;
-      int k = 0;
-      Long start = System.currentTimeMillis();
       boolean multilingualDocs = OBDal.getInstance()
           .get(Client.class, bundle.getContext().getClient())
           .isMultilingualDocuments();
-      while (hasNext) {
-        k = k + 1;
-        // Create variant product
-        product = OBDal.getInstance().get(Product.class, recordID);
-        Product variant = (Product) DalUtil.copy(product);
-
-        if (multilingualDocs) {
-          variant.set(Product.PROPERTY_PRODUCTTRLLIST, null);
-        }
-
-        if (product.getImage() != null) {
-          Image newPrImage = (Image) DalUtil.copy(product.getImage(), false);
-          OBDal.getInstance().save(newPrImage);
-          variant.setImage(newPrImage);
-        }
-
-        variant.setCreationDate(new Date());
-        variant.setGenericProduct(product);
-        variant.setProductAccountsList(Collections.<ProductAccounts> emptyList());
-        variant.setGeneric(false);
-        for (ProductCharacteristic prCh : variant.getProductCharacteristicList()) {
-          prCh.setProductCharacteristicConfList(
-              Collections.<ProductCharacteristicConf> emptyList());
-        }
-
-        String searchKey = product.getSearchKey();
-        for (i = 0; i < chNumber; i++) {
-          ProductCharacteristicConf prChConf = OBDal.getInstance()
-              .get(ProductCharacteristicConf.class, currentValues[i]);
-          ProductCharacteristicAux prChConfAux = prChUseCode.get(prChs.get(i));
-
-          if (useCodes && prChConfAux.isUseCode()) {
-            searchKey += prChConf.getCode();
-          }
-        }
-        for (int j = 0; j < (Long.toString(variantNumber).length()
-            - Integer.toString(productNo).length()); j++) {
-          searchKey += "0";
-        }
-        searchKey += productNo;
-        variant.setSearchKey(searchKey);
-        if (product.isGenerateVariantEAN()) {
-          variant.setUPCEAN(EANUtility.generateEAN(product.getSequence()));
-        }
-        OBDal.getInstance().save(variant);
-        String strChDesc = "";
-        for (i = 0; i < chNumber; i++) {
-          ProductCharacteristicConf prChConf = OBDal.getInstance()
-              .get(ProductCharacteristicConf.class, currentValues[i]);
-          ProductCharacteristicValue newPrChValue = OBProvider.getInstance()
-              .get(ProductCharacteristicValue.class);
-          newPrChValue.setCharacteristic(prChConf.getCharacteristicOfProduct().getCharacteristic());
-          newPrChValue.setCharacteristicValue(prChConf.getCharacteristicValue());
-          newPrChValue.setProduct(variant);
-          newPrChValue.setOrganization(product.getOrganization());
-          if (StringUtils.isNotBlank(strChDesc)) {
-            strChDesc += ", ";
-          }
-          strChDesc += prChConf.getCharacteristicOfProduct().getCharacteristic().getName() + ":";
-          strChDesc += " " + prChConf.getCharacteristicValue().getName();
-          OBDal.getInstance().save(newPrChValue);
-          if (prChConf.getCharacteristicOfProduct().isDefinesPrice()
-              && prChConf.getNetUnitPrice() != null) {
-            setPrice(variant, prChConf.getNetUnitPrice(),
-                prChConf.getCharacteristicOfProduct().getPriceListType());
-          }
-          if (prChConf.getCharacteristicOfProduct().isDefinesImage()
-              && prChConf.getImage() != null) {
-            Image newImage = (Image) DalUtil.copy(prChConf.getImage(), false);
-            OBDal.getInstance().save(newImage);
-            variant.setImage(newImage);
-          }
-        }
-        variant.setCharacteristicDescription(strChDesc);
-        OBDal.getInstance().save(variant);
-
-        for (i = 0; i < chNumber; i++) {
-          ProductCharacteristicAux prChConfAux = prChUseCode.get(prChs.get(i));
-          currentValues[i] = prChConfAux.getNextValue();
-          if (!prChConfAux.isIteratorReset()) {
-            break;
-          } else if (i + 1 == chNumber) {
-            hasNext = false;
-          }
-        }
-        productNo++;
-
-        // Creates variants from 1 to 1000 and shows time spent on it.
-        if (k == 1000) {
-          OBDal.getInstance().flush();
-          OBDal.getInstance().getSession().clear();
-          log4j.debug(
-              "Variants loop: " + productNo + " : " + ((System.currentTimeMillis()) - (start)));
-          k = 0;
-          start = System.currentTimeMillis();
-        }
-      }
-
-      OBDal.getInstance().flush();
-      OBDal.getInstance().getSession().clear();
+      int productNo = generateVariants(recordID, multilingualDocs);
 
       String message = OBMessageUtils.messageBD("variantsCreated");
       Map<String, String> map = new HashMap<String, String>();
@@ -266,6 +127,164 @@ public class VariantAutomaticGenerationProcess implements Process {
 
   }
 
+  /**
+   * Creates a variant of the generic product for each combination of the values of its variant
+   * characteristics.
+   * 
+   * @return the number of variants created
+   */
+  int generateVariants(String productId, boolean multilingualDocs) {
+    Product product = OBDal.getInstance().get(Product.class, productId);
+
+    // The characteristic values are read only once, the variants are built from these detached
+    // descriptions so nothing has to be reloaded after the session is cleared
+    List<ProductCharacteristicAux> variantCharacteristics = getVariantCharacteristics(product);
+
+    int totalMaxLength = product.getSearchKey().length();
+    long variantNumber = 1;
+    for (ProductCharacteristicAux prChAux : variantCharacteristics) {
+      variantNumber = variantNumber * prChAux.getValues().size();
+      if (prChAux.isUseCode()) {
+        totalMaxLength += prChAux.getMaxCodeLength();
+      }
+    }
+    totalMaxLength += Long.toString(variantNumber).length();
+    boolean useCodes = totalMaxLength <= searchKeyLength;
+
+    Session session = OBDal.getInstance().getSession();
+    Integer previousJdbcBatchSize = session.getJdbcBatchSize();
+    session.setJdbcBatchSize(JDBC_BATCH_SIZE);
+    try {
+      int productNo = 0;
+      long start = System.currentTimeMillis();
+      VariantBatch batch = new VariantBatch();
+      Iterator<List<CharacteristicValueAux>> combinations = new VariantCombinationIterator(
+          variantCharacteristics);
+      while (combinations.hasNext()) {
+        // The generic product is only loaded again after the session has been cleared
+        product = OBDal.getInstance().get(Product.class, productId);
+        List<CharacteristicValueAux> combination = combinations.next();
+        String searchKey = getSearchKey(product, variantCharacteristics, combination, useCodes,
+            productNo, variantNumber);
+        createVariant(product, combination, searchKey, multilingualDocs, batch);
+        productNo++;
+
+        if (batch.size() == batchSize) {
+          batch.save();
+          log4j.debug("Variants loop: " + productNo + " : " + (System.currentTimeMillis() - start));
+          start = System.currentTimeMillis();
+        }
+      }
+      batch.save();
+      return productNo;
+    } finally {
+      session.setJdbcBatchSize(previousJdbcBatchSize);
+    }
+  }
+
+  private List<ProductCharacteristicAux> getVariantCharacteristics(Product product) {
+    OBCriteria<ProductCharacteristic> prChCrit = OBDal.getInstance()
+        .createCriteria(ProductCharacteristic.class);
+    prChCrit.add(Restrictions.eq(ProductCharacteristic.PROPERTY_PRODUCT, product));
+    prChCrit.add(Restrictions.eq(ProductCharacteristic.PROPERTY_VARIANT, true));
+    prChCrit.addOrderBy(ProductCharacteristic.PROPERTY_SEQUENCENUMBER, true);
+
+    List<ProductCharacteristicAux> variantCharacteristics = new ArrayList<>();
+    for (ProductCharacteristic prCh : prChCrit.list()) {
+      List<CharacteristicValueAux> values = new ArrayList<>();
+      boolean useCode = true;
+      int maxLength = 0;
+      for (ProductCharacteristicConf prChConf : prCh.getProductCharacteristicConfList()) {
+        if (!prChConf.isActive()) {
+          continue;
+        }
+        values.add(new CharacteristicValueAux(prCh, prChConf));
+        if (StringUtils.isBlank(prChConf.getCode())) {
+          useCode = false;
+        } else if (prChConf.getCode().length() > maxLength) {
+          maxLength = prChConf.getCode().length();
+        }
+      }
+      variantCharacteristics.add(new ProductCharacteristicAux(useCode, maxLength, values));
+    }
+    return variantCharacteristics;
+  }
+
+  private String getSearchKey(Product product,
+      List<ProductCharacteristicAux> variantCharacteristics,
+      List<CharacteristicValueAux> combination, boolean useCodes, int productNo,
+      long variantNumber) {
+    StringBuilder searchKey = new StringBuilder(product.getSearchKey());
+    for (int i = 0; i < combination.size(); i++) {
+      if (useCodes && variantCharacteristics.get(i).isUseCode()) {
+        searchKey.append(combination.get(i).getCode());
+      }
+    }
+    for (int j = 0; j < (Long.toString(variantNumber).length()
+        - Integer.toString(productNo).length()); j++) {
+      searchKey.append("0");
+    }
+    return searchKey.append(productNo).toString();
+  }
+
+  private void createVariant(Product product, List<CharacteristicValueAux> combination,
+      String searchKey, boolean multilingualDocs, VariantBatch batch) {
+    Product variant = (Product) DalUtil.copy(product);
+
+    if (multilingualDocs) {
+      variant.set(Product.PROPERTY_PRODUCTTRLLIST, null);
+    }
+
+    // The image of the generic product is not copied if a characteristic value replaces it
+    String imageId = product.getImage() != null ? product.getImage().getId() : null;
+    for (CharacteristicValueAux value : combination) {
+      if (value.getImageId() != null) {
+        imageId = value.getImageId();
+      }
+    }
+    if (imageId != null) {
+      Image newPrImage = (Image) DalUtil.copy(OBDal.getInstance().get(Image.class, imageId),
+          false);
+      batch.images.add(newPrImage);
+      variant.setImage(newPrImage);
+    }
+
+    variant.setCreationDate(new Date());
+    variant.setGenericProduct(product);
+    variant.setProductAccountsList(Collections.<ProductAccounts> emptyList());
+    variant.setGeneric(false);
+    for (ProductCharacteristic prCh : variant.getProductCharacteristicList()) {
+      prCh.setProductCharacteristicConfList(Collections.<ProductCharacteristicConf> emptyList());
+    }
+
+    variant.setSearchKey(searchKey);
+    if (product.isGenerateVariantEAN()) {
+      variant.setUPCEAN(EANUtility.generateEAN(product.getSequence()));
+    }
+
+    StringBuilder strChDesc = new StringBuilder();
+    for (CharacteristicValueAux value : combination) {
+      ProductCharacteristicValue newPrChValue = OBProvider.getInstance()
+          .get(ProductCharacteristicValue.class);
+      newPrChValue.setCharacteristic(
+          OBDal.getInstance().getProxy(Characteristic.class, value.getCharacteristicId()));
+      newPrChValue.setCharacteristicValue(OBDal.getInstance()
+          .getProxy(CharacteristicValue.class, value.getCharacteristicValueId()));
+      newPrChValue.setProduct(variant);
+      newPrChValue.setOrganization(product.getOrganization());
+      if (strChDesc.length() > 0) {
+        strChDesc.append(", ");
+      }
+      strChDesc.append(value.getDescription());
+      batch.characteristicValues.add(newPrChValue);
+      if (value.getPrice() != null) {
+        setPrice(variant, value.getPrice(), value.getPriceListType());
+      }
+    }
+    variant.setCharacteristicDescription(strChDesc.toString());
+    batch.variants.add(variant);
+  }
+
   private static int getSearchKeyColumnLength() {
     final Entity prodEntity = ModelProvider.getInstance().getEntity(Product.ENTITY_NAME);
 
@@ -308,18 +327,54 @@ public class VariantAutomaticGenerationProcess implements Process {
       prodPrice.setStandardPrice(price);
       prodPrice.setListPrice(price);
       prodPrice.setPriceLimit(price);
-      OBDal.getInstance().save(prodPrice);
+    }
+  }
+
+  /**
+   * The records of the variants created since the session was last cleared. They are saved grouped
+   * by entity, so the inserts of each table are consecutive and Hibernate sends them in JDBC
+   * batches, instead of alternating the tables for every variant.
+   */
+  private static class VariantBatch {
+    private List<Image> images = new ArrayList<>();
+    private List<Product> variants = new ArrayList<>();
+    private List<ProductCharacteristicValue> characteristicValues = new ArrayList<>();
+
+    int size() {
+      return variants.size();
+    }
+
+    /**
+     * Saves the records, the variants cascade their own copies of the children of the generic
+     * product, and clears the session to keep its size bounded.
+     */
+    void save() {
+      for (Image image : images) {
+        OBDal.getInstance().save(image);
+      }
+      for (Product variant : variants) {
+        OBDal.getInstance().save(variant);
+      }
+      for (ProductCharacteristicValue characteristicValue : characteristicValues) {
+        OBDal.getInstance().save(characteristicValue);
+      }
+      OBDal.getInstance().flush();
+      OBDal.getInstance().getSession().clear();
+      images.clear();
+      variants.clear();
+      characteristicValues.clear();
     }
   }
 
   private static class ProductCharacteristicAux {
     private boolean useCode;
-    private boolean isIteratorReset;
-    private List<String> values;
-    private Iterator<String> iterator;
+    private int maxCodeLength;
+    private List<CharacteristicValueAux> values;
 
-    ProductCharacteristicAux(boolean _useCode, List<String> _values) {
+    ProductCharacteristicAux(boolean _useCode, int _maxCodeLength,
+        List<CharacteristicValueAux> _values) {
       useCode = _useCode;
+      maxCodeLength = _maxCodeLength;
       values = _values;
     }
 
@@ -327,20 +382,118 @@ public class VariantAutomaticGenerationProcess implements Process {
       return useCode;
     }
 
-    public boolean isIteratorReset() {
-      return isIteratorReset;
+    public int getMaxCodeLength() {
+      return maxCodeLength;
+    }
+
+    public List<CharacteristicValueAux> getValues() {
+      return values;
+    }
+  }
+
+  /**
+   * Detached description of a characteristic value configured in the generic product, with all the
+   * information needed to create the variants that use it.
+   */
+  private static class CharacteristicValueAux {
+    private String code;
+    private String characteristicId;
+    private String characteristicValueId;
+    private String description;
+    private BigDecimal price;
+    private String priceListType;
+    private String imageId;
+
+    CharacteristicValueAux(ProductCharacteristic prCh, ProductCharacteristicConf prChConf) {
+      code = prChConf.getCode();
+      characteristicId = prCh.getCharacteristic().getId();
+      characteristicValueId = prChConf.getCharacteristicValue().getId();
+      description = prCh.getCharacteristic().getName() + ": "
+          + prChConf.getCharacteristicValue().getName();
+      if (prCh.isDefinesPrice() && prChConf.getNetUnitPrice() != null) {
+        price = prChConf.getNetUnitPrice();
+        priceListType = prCh.getPriceListType();
+      }
+      if (prCh.isDefinesImage() && prChConf.getImage() != null) {
+        imageId = prChConf.getImage().getId();
+      }
+    }
+
+    public String getCode() {
+      return code;
+    }
+
+    public String getCharacteristicId() {
+      return characteristicId;
+    }
+
+    public String getCharacteristicValueId() {
+      return characteristicValueId;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    public BigDecimal getPrice() {
+      return price;
+    }
+
+    public String getPriceListType() {
+      return priceListType;
+    }
+
+    public String getImageId() {
+      return imageId;
     }
+  }
 
-    public String getNextValue() {
-      String prChConf;
-      if (iterator == null || !iterator.hasNext()) {
-        iterator = values.iterator();
-        isIteratorReset = true;
-      } else {
-        isIteratorReset = false;
+  /**
+   * Lazily iterates all the combinations of the values of the variant characteristics, the first
+   * characteristic being the one that changes most often. Only the current combination is kept in
+   * memory.
+   */
+  private static class VariantCombinationIterator
+      implements Iterator<List<CharacteristicValueAux>> {
+    private List<ProductCharacteristicAux> characteristics;
+    private int[] positions;
+    private boolean hasNext;
+
+    VariantCombinationIterator(List<ProductCharacteristicAux> _characteristics) {
+      characteristics = _characteristics;
+      positions = new int[characteristics.size()];
+      hasNext = !characteristics.isEmpty();
+      for (ProductCharacteristicAux characteristic : characteristics) {
+        if (characteristic.getValues().isEmpty()) {
+          hasNext = false;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return hasNext;
+    }
+
+    @Override
+    public List<CharacteristicValueAux> next() {
+      if (!hasNext) {
+        throw new NoSuchElementException();
+      }
+      List<CharacteristicValueAux> combination = new ArrayList<>(characteristics.size());
+      for (int i = 0; i < positions.length; i++) {
+        combination.add(characteristics.get(i).getValues().get(positions[i]));
+      }
+      hasNext = false;
+      for (int i = 0; i < positions.length; i++) {
+        positions[i]++;
+        if (positions[i] < characteristics.get(i).getValues().size()) {
+          hasNext = true;
+          break;
+        }
+        positions[i] = 0;
       }
-      prChConf = iterator.next();
-      return prChConf;
+      return combination;
     }
   }
 }
@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2008-2022 Openbravo SLU
+ * All portions are Copyright (C) 2008-2024 Openbravo SLU
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -34,6 +34,9 @@ import org.openbravo.base.weld.WeldUtils;
 import org.openbravo.database.ConnectionProvider;
 import org.openbravo.erpCommon.ad_process.ADProcessIDSelector;
 import org.openbravo.erpCommon.utility.SequenceIdData;
+import org.openbravo.jmx.ExtensionInstrumentation;
+import org.openbravo.jmx.ExtensionInstrumentation.ExtensionType;
+import org.openbravo.jmx.ExtensionInstrumentation.Measurement;
 
 /**
  * @author awolski
@@ -88,7 +91,10 @@ public class ProcessRunner {
       endTime = System.currentTimeMillis();
       status = SUCCESS;
       for (ProcessRunnerHook hook : getHooks()) {
-        hook.onExecutionFinish(bundle);
+        try (Measurement measurement = ExtensionInstrumentation.getInstance()
+            .start(ExtensionType.PROCESS_RUNNER_HOOK, hook.getClass())) {
+          hook.onExecutionFinish(bundle);
+        }
       }
 
     } catch (final Exception e) {
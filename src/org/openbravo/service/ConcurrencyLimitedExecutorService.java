@@ -0,0 +1,142 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor service that executes its tasks in another executor, running at most a given number
+ * of them at the same time. The tasks submitted while that limit is reached wait in a queue, so
+ * the submitting thread is never blocked.
+ *
+ * Shutting down this executor service does not shut down the executor where the tasks are run,
+ * which can be shared by several instances of this class.
+ */
+class ConcurrencyLimitedExecutorService extends AbstractExecutorService {
+  private final Executor executor;
+  private final int maxConcurrency;
+  private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger running = new AtomicInteger();
+  private volatile boolean shutdown;
+
+  ConcurrencyLimitedExecutorService(Executor executor, int maxConcurrency) {
+    this.executor = executor;
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (shutdown) {
+      throw new RejectedExecutionException("Executor service has been shut down");
+    }
+    queue.add(command);
+    startQueuedTasks();
+  }
+
+  private void startQueuedTasks() {
+    while (!queue.isEmpty()) {
+      int current = running.get();
+      if (current >= maxConcurrency) {
+        return;
+      }
+      if (!running.compareAndSet(current, current + 1)) {
+        continue;
+      }
+      Runnable task = queue.poll();
+      if (task == null) {
+        // another thread took the queued task
+        running.decrementAndGet();
+        continue;
+      }
+      try {
+        executor.execute(() -> {
+          try {
+            task.run();
+          } finally {
+            running.decrementAndGet();
+            startQueuedTasks();
+          }
+        });
+      } catch (RejectedExecutionException ex) {
+        running.decrementAndGet();
+        throw ex;
+      }
+    }
+  }
+
+  /**
+   * @return the number of tasks currently running
+   */
+  int getRunningCount() {
+    return running.get();
+  }
+
+  /**
+   * @return the number of tasks waiting to be run
+   */
+  int getQueuedCount() {
+    return queue.size();
+  }
+
+  @Override
+  public void shutdown() {
+    shutdown = true;
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    shutdown = true;
+    List<Runnable> pending = new ArrayList<>();
+    Runnable task;
+    while ((task = queue.poll()) != null) {
+      pending.add(task);
+    }
+    return pending;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return shutdown && queue.isEmpty() && running.get() == 0;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!isTerminated()) {
+      if (System.nanoTime() >= deadline) {
+        return false;
+      }
+      Thread.sleep(10);
+    }
+    return true;
+  }
+}
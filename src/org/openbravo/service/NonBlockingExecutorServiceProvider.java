@@ -11,13 +11,16 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2023 Openbravo SLU
+ * All portions are Copyright (C) 2023-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
  */
 package org.openbravo.service;
 
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -29,7 +32,13 @@ import org.openbravo.base.session.OBPropertiesProvider;
 import org.openbravo.service.importprocess.ImportEntryManager;
 
 /**
- * Singleton that provides an ExecutorService for non-blocking tasks
+ * Singleton that provides an ExecutorService for non-blocking tasks.
+ *
+ * By default all the non-blocking tasks share a fixed pool of platform threads. When the
+ * nonBlocking.virtualThreads property is set to true and the JVM supports virtual threads, the
+ * consumers that request their own executor with {@link #getExecutorService(String, int)} run each
+ * of their tasks in a new virtual thread, limiting the tasks of each consumer that run at the same
+ * time.
  */
 @ApplicationScoped
 public class NonBlockingExecutorServiceProvider {
@@ -37,8 +46,13 @@ public class NonBlockingExecutorServiceProvider {
 
   private static final Integer DEFAULT_AMOUNT_OF_NON_BLOCKING_THREADS = 10;
   private static final String AMOUNT_OF_NON_BLOCKING_THREADS_PROPERTY = "amountOfNonBlockingThreads";
+  private static final String VIRTUAL_THREADS_PROPERTY = "nonBlocking.virtualThreads";
   private static final Logger log = LogManager.getLogger();
 
+  private static volatile ExecutorService virtualThreadExecutor = null;
+  private static volatile boolean virtualThreadsInitialized = false;
+  private static final Map<String, ExecutorService> consumerExecutors = new ConcurrentHashMap<>();
+
   private static synchronized void initializeExecutorService() {
     if (executorService == null) {
       int amountOfThreads;
@@ -64,4 +78,76 @@ public class NonBlockingExecutorServiceProvider {
     }
     return executorService;
   }
+
+  /**
+   * Returns the executor service where the non-blocking tasks of the given consumer are executed.
+   * If virtual threads are enabled, each task is executed in its own virtual thread and at most
+   * nonBlocking.&lt;consumer&gt;.maxConcurrency tasks of the consumer are executed at the same time,
+   * the rest wait in a queue. Otherwise the shared pool returned by {@link #getExecutorService()}
+   * is used.
+   *
+   * @param consumer
+   *          the name of the consumer of the executor service, e.g., externalSystem
+   * @param defaultMaxConcurrency
+   *          maximum number of tasks of the consumer executed at the same time with virtual
+   *          threads, if not overridden by the nonBlocking.&lt;consumer&gt;.maxConcurrency property
+   *
+   * @return the executor service for the given consumer
+   */
+  public static ExecutorService getExecutorService(String consumer, int defaultMaxConcurrency) {
+    if (!isVirtualThreadsEnabled()) {
+      return getExecutorService();
+    }
+    return consumerExecutors.computeIfAbsent(consumer,
+        c -> new ConcurrencyLimitedExecutorService(virtualThreadExecutor,
+            getMaxConcurrency(c, defaultMaxConcurrency)));
+  }
+
+  /**
+   * @return true if the non-blocking tasks are executed in virtual threads
+   */
+  public static boolean isVirtualThreadsEnabled() {
+    if (!virtualThreadsInitialized) {
+      initializeVirtualThreadExecutor();
+    }
+    return virtualThreadExecutor != null;
+  }
+
+  private static synchronized void initializeVirtualThreadExecutor() {
+    if (virtualThreadsInitialized) {
+      return;
+    }
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    if (properties != null
+        && "true".equals(properties.getProperty(VIRTUAL_THREADS_PROPERTY, "false").trim())) {
+      try {
+        // Resolved by reflection as virtual threads are not available in all the supported JDKs
+        virtualThreadExecutor = (ExecutorService) Executors.class
+            .getMethod("newVirtualThreadPerTaskExecutor")
+            .invoke(null);
+        log.info("Non-blocking tasks are executed in virtual threads");
+      } catch (ReflectiveOperationException ex) {
+        log.warn("Virtual threads are not supported by this JVM ({}), using a fixed thread pool",
+            System.getProperty("java.version"));
+      }
+    }
+    virtualThreadsInitialized = true;
+  }
+
+  private static int getMaxConcurrency(String consumer, int defaultMaxConcurrency) {
+    String propertyName = "nonBlocking." + consumer + ".maxConcurrency";
+    String value = OBPropertiesProvider.getInstance()
+        .getOpenbravoProperties()
+        .getProperty(propertyName);
+    if (value == null) {
+      return defaultMaxConcurrency;
+    }
+    try {
+      return Math.max(1, Integer.parseInt(value.trim()));
+    } catch (NumberFormatException ex) {
+      log.warn("Wrong value {} for property {}, using the default {}", value, propertyName,
+          defaultMaxConcurrency);
+      return defaultMaxConcurrency;
+    }
+  }
 }
@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2009-2016 Openbravo SLU 
+ * All portions are Copyright (C) 2009-2024 Openbravo SLU 
  * All Rights Reserved. 
  * Contributor(s):  ______________________________________.
  * Modification july 2010 (c) openbravo SLU, based on contribution made by iferca
@@ -38,6 +38,9 @@ import org.openbravo.dal.core.OBContext;
 import org.openbravo.dal.service.OBCriteria;
 import org.openbravo.dal.service.OBDal;
 import org.openbravo.erpCommon.ad_process.ADProcessIDSelector;
+import org.openbravo.jmx.ExtensionInstrumentation;
+import org.openbravo.jmx.ExtensionInstrumentation.ExtensionType;
+import org.openbravo.jmx.ExtensionInstrumentation.Measurement;
 import org.openbravo.model.ad.process.Parameter;
 import org.openbravo.model.ad.process.ProcessInstance;
 
@@ -216,7 +219,10 @@ public class CallProcess {
         }
         ps.execute();
         for (StoredProcedureHook hook : getHooks(process.getId())) {
-          hook.onExecutionFinish(recordID, parameters);
+          try (Measurement measurement = ExtensionInstrumentation.getInstance()
+              .start(ExtensionType.STORED_PROCEDURE_HOOK, hook.getClass())) {
+            hook.onExecutionFinish(recordID, parameters);
+          }
         }
 
       } catch (Exception e) {
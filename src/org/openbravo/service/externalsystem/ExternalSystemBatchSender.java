@@ -0,0 +1,228 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.service.externalsystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+import org.openbravo.base.session.OBPropertiesProvider;
+import org.openbravo.client.kernel.event.TransactionBeginEvent;
+import org.openbravo.client.kernel.event.TransactionCompletedEvent;
+import org.openbravo.dal.core.DalThreadCleaner;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.service.importprocess.ImportEntryManager;
+
+/**
+ * Sends records to external systems in batches once the DAL transaction where they were registered
+ * has been committed. This way the records of a rolled back transaction are never sent.
+ *
+ * The records are identified by a key: registering the same key again for an external system
+ * replaces the previously registered record if it has not been sent yet, so that repeated changes
+ * of the same record end up in a single send. The committed records are kept for a short window
+ * (externalSystem.batch.window property, 1000 ms by default) and then sent together to each
+ * external system in a single request whose payload is a JSON object with the records in its
+ * "data" array. A batch is sent right away when it reaches the maximum size
+ * (externalSystem.batch.maxSize property, 500 by default). If the externalSystem.batch.gzip
+ * property is set to true, the payload is sent compressed with gzip.
+ */
+@ApplicationScoped
+public class ExternalSystemBatchSender {
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String WINDOW_PROPERTY = "externalSystem.batch.window";
+  private static final int DEFAULT_WINDOW = 1000;
+  private static final String MAX_SIZE_PROPERTY = "externalSystem.batch.maxSize";
+  private static final int DEFAULT_MAX_SIZE = 500;
+  private static final String GZIP_PROPERTY = "externalSystem.batch.gzip";
+
+  private static final ThreadLocal<Map<String, Map<String, JSONObject>>> transactionRecords = new ThreadLocal<>();
+
+  private final Map<String, Map<String, JSONObject>> pendingRecords = new HashMap<>();
+  private ScheduledExecutorService executor;
+  private long window = -1;
+  private int maxSize;
+  private boolean gzip;
+
+  @Inject
+  private ExternalSystemProvider externalSystemProvider;
+
+  /**
+   * Registers a record to be sent to an external system once the current transaction is committed.
+   * If a record with the same key was already registered for the external system and it has not
+   * been sent yet, it is replaced by the new one.
+   *
+   * @param externalSystemId
+   *          The ID of the {@link ExternalSystemData} where the record is sent
+   * @param key
+   *          The key that identifies the record, usually the ID of the changed object
+   * @param record
+   *          The record to be sent
+   */
+  public void send(String externalSystemId, String key, JSONObject record) {
+    Map<String, Map<String, JSONObject>> records = transactionRecords.get();
+    if (records == null) {
+      records = new LinkedHashMap<>();
+      transactionRecords.set(records);
+    }
+    records.computeIfAbsent(externalSystemId, id -> new LinkedHashMap<>()).put(key, record);
+  }
+
+  public void onTransactionBegin(@Observes TransactionBeginEvent event) {
+    transactionRecords.remove();
+  }
+
+  public void onTransactionCompleted(@Observes TransactionCompletedEvent event) {
+    Map<String, Map<String, JSONObject>> records = transactionRecords.get();
+    transactionRecords.remove();
+    if (records == null) {
+      return;
+    }
+    if (event.getTransaction().getStatus() != TransactionStatus.COMMITTED) {
+      log.debug("Discarding records for {} external systems of a not committed transaction",
+          records.size());
+      return;
+    }
+    addCommittedRecords(records);
+  }
+
+  private synchronized void addCommittedRecords(Map<String, Map<String, JSONObject>> records) {
+    initialize();
+    for (Map.Entry<String, Map<String, JSONObject>> entry : records.entrySet()) {
+      String externalSystemId = entry.getKey();
+      Map<String, JSONObject> batch = pendingRecords.computeIfAbsent(externalSystemId, id -> {
+        executor.schedule(() -> flush(id), window, TimeUnit.MILLISECONDS);
+        return new LinkedHashMap<>();
+      });
+      batch.putAll(entry.getValue());
+      if (batch.size() >= maxSize) {
+        pendingRecords.remove(externalSystemId);
+        executor.execute(() -> send(externalSystemId, batch.values()));
+      }
+    }
+  }
+
+  private void initialize() {
+    if (window >= 0) {
+      return;
+    }
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    window = getIntProperty(properties, WINDOW_PROPERTY, DEFAULT_WINDOW);
+    maxSize = Math.max(1, getIntProperty(properties, MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+    gzip = properties != null && "true".equals(properties.getProperty(GZIP_PROPERTY));
+    executor = Executors.newSingleThreadScheduledExecutor(
+        new ImportEntryManager.DaemonThreadFactory("ExternalSystemBatchSender"));
+  }
+
+  private static int getIntProperty(Properties properties, String propertyName,
+      int defaultValue) {
+    String value = properties != null ? properties.getProperty(propertyName) : null;
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException ex) {
+      log.warn("Wrong value {} for property {}, using the default {}", value, propertyName,
+          defaultValue);
+      return defaultValue;
+    }
+  }
+
+  private void flush(String externalSystemId) {
+    Map<String, JSONObject> batch;
+    synchronized (this) {
+      batch = pendingRecords.remove(externalSystemId);
+    }
+    if (batch != null) {
+      send(externalSystemId, batch.values());
+    }
+  }
+
+  private void send(String externalSystemId, Collection<JSONObject> records) {
+    try {
+      OBContext.setOBContext("0", "0", "0", "0");
+      ExternalSystem externalSystem = externalSystemProvider.getExternalSystem(externalSystemId)
+          .orElse(null);
+      if (externalSystem == null) {
+        log.warn("Could not send {} records: external system {} not found or not active",
+            records.size(), externalSystemId);
+        return;
+      }
+      byte[] payload = getPayload(records);
+      Map<String, Object> configuration = gzip ? Map.of("Content-Encoding", "gzip")
+          : Map.of();
+      externalSystem
+          .send(externalSystem.getDefaultOperation(), () -> new ByteArrayInputStream(payload),
+              null, configuration)
+          .thenAccept(response -> {
+            if (response.getType() == ExternalSystemResponse.Type.ERROR) {
+              log.error("Error sending {} records to external system {}: {}", records.size(),
+                  externalSystem.getName(), response.getError());
+            } else {
+              log.debug("Sent {} records to external system {}", records.size(),
+                  externalSystem.getName());
+            }
+          });
+    } catch (Exception ex) {
+      log.error("Error sending {} records to external system {}", records.size(),
+          externalSystemId, ex);
+    } finally {
+      DalThreadCleaner.getInstance().cleanWithRollback();
+    }
+  }
+
+  private byte[] getPayload(Collection<JSONObject> records) throws JSONException, IOException {
+    List<JSONObject> data = new ArrayList<>(records);
+    JSONObject payload = new JSONObject();
+    payload.put("data", new JSONArray(data));
+    byte[] bytes = payload.toString().getBytes(StandardCharsets.UTF_8);
+    if (!gzip) {
+      return bytes;
+    }
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+    try (OutputStream os = new GZIPOutputStream(compressed)) {
+      os.write(bytes);
+    }
+    return compressed.toByteArray();
+  }
+}
@@ -20,6 +20,7 @@ package org.openbravo.service.externalsystem.http;
 
 import java.io.InputStream;
 import java.net.Authenticator;
+import java.net.ConnectException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
@@ -27,13 +28,20 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -47,7 +55,9 @@ import org.apache.logging.log4j.Logger;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 import org.openbravo.base.exception.OBException;
+import org.openbravo.base.session.OBPropertiesProvider;
 import org.openbravo.cache.Cacheable;
+import org.openbravo.jmx.MBeanRegistry;
 import org.openbravo.service.NonBlockingExecutorServiceProvider;
 import org.openbravo.service.externalsystem.ExternalSystem;
 import org.openbravo.service.externalsystem.ExternalSystemConfigurationError;
@@ -59,19 +69,38 @@ import org.openbravo.service.externalsystem.HttpExternalSystemData;
 import org.openbravo.service.externalsystem.Protocol;
 
 /**
- * Allows to communicate with an external system through HTTP requests
+ * Allows to communicate with an external system through HTTP requests. The requests sent to each
+ * external system are limited by an {@link HttpExternalSystemBulkhead}, which bounds the number of
+ * concurrent and queued requests and stops sending them while the external system is failing.
+ * Idempotent requests (GET and DELETE) that fail because of a connection error or a timeout are
+ * retried with a randomized exponential backoff.
  */
 @Protocol("HTTP")
 public class HttpExternalSystem extends ExternalSystem implements Cacheable {
   private static final Logger log = LogManager.getLogger();
   public static final int MAX_TIMEOUT = 30;
   private static final int MAX_RETRIES = 1;
+  private static final String MAX_IN_FLIGHT_PROPERTY = "externalSystem.http.maxInFlight";
+  private static final int DEFAULT_MAX_IN_FLIGHT = 10;
+  private static final String MAX_QUEUED_PROPERTY = "externalSystem.http.maxQueued";
+  private static final int DEFAULT_MAX_QUEUED = 100;
+  private static final String FAILURE_THRESHOLD_PROPERTY = "externalSystem.http.circuitBreaker.failureThreshold";
+  private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+  private static final String OPEN_DURATION_PROPERTY = "externalSystem.http.circuitBreaker.openDuration";
+  private static final int DEFAULT_OPEN_DURATION = 30;
+  private static final String IDEMPOTENT_RETRIES_PROPERTY = "externalSystem.http.idempotentRetries";
+  private static final int DEFAULT_IDEMPOTENT_RETRIES = 2;
+  private static final long RETRY_BASE_DELAY = 200;
+  private static final String EXECUTOR_CONSUMER = "externalSystem";
+  private static final int DEFAULT_MAX_CONCURRENT_TASKS = 100;
 
   private String url;
   private String requestMethod;
   private int timeout;
   private HttpClient client;
   private HttpAuthorizationProvider authorizationProvider;
+  private HttpExternalSystemBulkhead bulkhead;
+  private int idempotentRetries;
 
   @Inject
   @Any
@@ -93,6 +122,49 @@ public class HttpExternalSystem extends ExternalSystem implements Cacheable {
     timeout = getTimeoutValue(httpConfig);
     setAuthorizationProvider(newHttpAuthorizationProvider(httpConfig));
     client = buildClient();
+    configureBulkhead();
+  }
+
+  private void configureBulkhead() {
+    if (bulkhead != null) {
+      MBeanRegistry.unregisterMBean(getMBeanName());
+    }
+    bulkhead = new HttpExternalSystemBulkhead(getName(),
+        getIntProperty(MAX_IN_FLIGHT_PROPERTY, DEFAULT_MAX_IN_FLIGHT),
+        getIntProperty(MAX_QUEUED_PROPERTY, DEFAULT_MAX_QUEUED),
+        getIntProperty(FAILURE_THRESHOLD_PROPERTY, DEFAULT_FAILURE_THRESHOLD),
+        TimeUnit.SECONDS.toMillis(getIntProperty(OPEN_DURATION_PROPERTY, DEFAULT_OPEN_DURATION)),
+        getExecutorService());
+    idempotentRetries = getIntProperty(IDEMPOTENT_RETRIES_PROPERTY, DEFAULT_IDEMPOTENT_RETRIES);
+    MBeanRegistry.registerMBean(getMBeanName(), bulkhead);
+  }
+
+  private static int getIntProperty(String propertyName, int defaultValue) {
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    String value = properties != null ? properties.getProperty(propertyName) : null;
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      int intValue = Integer.parseInt(value.trim());
+      if (intValue >= 0) {
+        return intValue;
+      }
+    } catch (NumberFormatException ignore) {
+      // use the default value
+    }
+    log.warn("Wrong value {} for property {}, using the default {}", value, propertyName,
+        defaultValue);
+    return defaultValue;
+  }
+
+  private static ExecutorService getExecutorService() {
+    return NonBlockingExecutorServiceProvider.getExecutorService(EXECUTOR_CONSUMER,
+        DEFAULT_MAX_CONCURRENT_TASKS);
+  }
+
+  private String getMBeanName() {
+    return "HttpExternalSystem-" + getId();
   }
 
   private int getTimeoutValue(HttpExternalSystemData httpConfig) {
@@ -112,7 +184,7 @@ public class HttpExternalSystem extends ExternalSystem implements Cacheable {
     HttpClient.Builder builder = HttpClient.newBuilder()
         .connectTimeout(Duration.ofSeconds(timeout));
 
-    builder.executor(NonBlockingExecutorServiceProvider.getExecutorService());
+    builder.executor(getExecutorService());
 
     if (authorizationProvider instanceof Authenticator) {
       builder.authenticator((Authenticator) authorizationProvider);
@@ -186,11 +258,11 @@ public class HttpExternalSystem extends ExternalSystem implements Cacheable {
 
   /** Internal API, this method is not private only because of testing purposes */
   CompletableFuture<ExternalSystemResponse> sendRequest(Supplier<HttpRequest> requestSupplier) {
-    return sendRequestWithRetry(requestSupplier, MAX_RETRIES);
+    return bulkhead.execute(() -> sendRequestWithRetry(requestSupplier, MAX_RETRIES, 0));
   }
 
   private CompletableFuture<ExternalSystemResponse> sendRequestWithRetry(
-      Supplier<HttpRequest> requestSupplier, int remainingRetries) {
+      Supplier<HttpRequest> requestSupplier, int remainingRetries, int attempt) {
     HttpRequest request;
     try {
       request = requestSupplier.get();
@@ -205,7 +277,7 @@ public class HttpExternalSystem extends ExternalSystem implements Cacheable {
         retry = authorizationProvider.handleRequestRetry(response.statusCode());
       }
       if (retry) {
-        return sendRequestWithRetry(requestSupplier, remainingRetries - 1);
+        return sendRequestWithRetry(requestSupplier, remainingRetries - 1, attempt);
       }
       return CompletableFuture.completedFuture(response)
           .thenApply(this::buildResponse)
@@ -215,12 +287,44 @@ public class HttpExternalSystem extends ExternalSystem implements Cacheable {
       // allows running the request on the provided executor service, but it doesn't return a
       // CompletableFuture with the same executor service, so we need to provide it again here in
       // the thenComposeAsync.
-    }, NonBlockingExecutorServiceProvider.getExecutorService())
-        .exceptionally(this::buildErrorResponse)
+    }, getExecutorService())
+        .handle((response, error) -> {
+          if (error == null) {
+            return CompletableFuture.completedFuture(response);
+          }
+          if (attempt < idempotentRetries && isIdempotent(request) && isTransientError(error)) {
+            return retryAfterDelay(requestSupplier, remainingRetries, attempt, error);
+          }
+          return CompletableFuture.completedFuture(buildErrorResponse(error));
+        })
+        .thenCompose(Function.identity())
         .whenComplete((response, action) -> log.debug("{} request to {} completed in {} ms",
             request.method(), url, System.currentTimeMillis() - requestStartTime));
   }
 
+  private boolean isIdempotent(HttpRequest request) {
+    return "GET".equals(request.method()) || "DELETE".equals(request.method());
+  }
+
+  private boolean isTransientError(Throwable error) {
+    Throwable cause = error instanceof CompletionException && error.getCause() != null
+        ? error.getCause()
+        : error;
+    return cause instanceof ConnectException || cause instanceof HttpTimeoutException;
+  }
+
+  private CompletableFuture<ExternalSystemResponse> retryAfterDelay(
+      Supplier<HttpRequest> requestSupplier, int remainingRetries, int attempt, Throwable error) {
+    // full jitter: wait a random time up to an exponentially growing limit to avoid all the
+    // pending requests retrying at once
+    long delay = ThreadLocalRandom.current().nextLong(RETRY_BASE_DELAY << attempt) + 1;
+    log.debug("Retrying request to {} in {} ms after error: {}", url, delay, error.getMessage());
+    Executor delayedExecutor = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS,
+        getExecutorService());
+    return CompletableFuture.supplyAsync(() -> null, delayedExecutor)
+        .thenCompose(v -> sendRequestWithRetry(requestSupplier, remainingRetries, attempt + 1));
+  }
+
   private Supplier<HttpRequest> getDeleteRequestSupplier(String path,
       Map<String, Object> configuration) {
     return () -> getHttpRequestBuilder(path, configuration).DELETE().build();
@@ -274,6 +378,11 @@ public class HttpExternalSystem extends ExternalSystem implements Cacheable {
         .header("Content-Type",
             (String) configuration.getOrDefault("Content-Type", "application/json"));
 
+    if (configuration.containsKey("Content-Encoding")) {
+      // the payload is already encoded, e.g., compressed with gzip
+      builder.header("Content-Encoding", (String) configuration.get("Content-Encoding"));
+    }
+
     if (authorizationProvider instanceof HttpAuthorizationRequestHeaderProvider) {
       ((HttpAuthorizationRequestHeaderProvider) authorizationProvider).getHeaders()
           .entrySet()
@@ -336,9 +445,10 @@ public class HttpExternalSystem extends ExternalSystem implements Cacheable {
 
   @Override
   public void close() throws Exception {
-    // We do not need to manually close anything here because the resources are automatically
-    // released when the HttpClient is no longer referenced. This should happen when this instance
-    // is invalidated from the ExternalSystemProvider cache.
+    // We do not need to manually close the HttpClient because its resources are automatically
+    // released when it is no longer referenced. This should happen when this instance is
+    // invalidated from the ExternalSystemProvider cache.
+    MBeanRegistry.unregisterMBean(getMBeanName());
   }
 
   @Override
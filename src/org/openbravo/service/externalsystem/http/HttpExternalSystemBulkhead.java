@@ -0,0 +1,341 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.service.externalsystem.http;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.service.externalsystem.ExternalSystemResponse;
+import org.openbravo.service.externalsystem.ExternalSystemResponse.Type;
+import org.openbravo.service.externalsystem.ExternalSystemResponseBuilder;
+
+/**
+ * Limits the requests that an {@link HttpExternalSystem} sends concurrently to its external system.
+ * At most {@code maxInFlight} requests are in progress at the same time, up to {@code maxQueued}
+ * additional requests wait for a free slot and any other request is rejected right away with an
+ * error response.
+ *
+ * It also acts as a circuit breaker: after {@code failureThreshold} consecutive failed requests
+ * (connection errors, timeouts or 5xx responses) the circuit is opened and every request is
+ * rejected without contacting the external system. Once {@code openDuration} has elapsed a single
+ * request is let through to probe the external system: if it succeeds the circuit is closed again,
+ * otherwise it is kept open for another period.
+ */
+class HttpExternalSystemBulkhead implements HttpExternalSystemBulkheadMBean {
+  private static final Logger log = LogManager.getLogger();
+
+  enum CircuitState {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String name;
+  private final int maxInFlight;
+  private final int maxQueued;
+  private final int failureThreshold;
+  private final long openDuration;
+  private final Executor executor;
+
+  private final Deque<PendingRequest> queue = new ArrayDeque<>();
+  private int inFlight;
+  private CircuitState circuitState = CircuitState.CLOSED;
+  private int consecutiveFailures;
+  private long openedAt;
+
+  private final LongAdder requestCount = new LongAdder();
+  private final LongAdder errorCount = new LongAdder();
+  private final LongAdder rejectedCount = new LongAdder();
+  private final LongAdder shortCircuitedCount = new LongAdder();
+  private final LongAdder totalLatency = new LongAdder();
+  private final LongAdder totalQueueTime = new LongAdder();
+  private final AtomicLong maxLatency = new AtomicLong();
+
+  /**
+   * @param name
+   *          the name of the external system, used for logging and monitoring
+   * @param maxInFlight
+   *          maximum number of requests in progress at the same time
+   * @param maxQueued
+   *          maximum number of requests waiting for a free slot
+   * @param failureThreshold
+   *          number of consecutive failures that opens the circuit
+   * @param openDuration
+   *          time in milliseconds the circuit is kept open before probing the external system
+   * @param executor
+   *          the executor used to start the queued requests
+   */
+  HttpExternalSystemBulkhead(String name, int maxInFlight, int maxQueued, int failureThreshold,
+      long openDuration, Executor executor) {
+    this.name = name;
+    this.maxInFlight = maxInFlight;
+    this.maxQueued = maxQueued;
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+    this.executor = executor;
+  }
+
+  /**
+   * Executes the given request as soon as there is a free slot for it.
+   *
+   * @param request
+   *          a supplier that sends the request and returns the future response
+   *
+   * @return a CompletableFuture with the response of the request or with an error response if the
+   *         request was rejected because the queue is full or because the circuit is open
+   */
+  CompletableFuture<ExternalSystemResponse> execute(
+      Supplier<CompletableFuture<ExternalSystemResponse>> request) {
+    PendingRequest pendingRequest = new PendingRequest(request);
+    synchronized (this) {
+      if (!isRequestAllowed()) {
+        shortCircuitedCount.increment();
+        return CompletableFuture.completedFuture(buildCircuitOpenResponse());
+      }
+      if (inFlight >= maxInFlight) {
+        if (queue.size() >= maxQueued) {
+          rejectedCount.increment();
+          reopenIfProbing();
+          log.debug("Rejected request to external system {}: {} requests already queued", name,
+              queue.size());
+          return CompletableFuture.completedFuture(ExternalSystemResponseBuilder.newBuilder()
+              .withError("Too many pending requests to external system " + name)
+              .build());
+        }
+        queue.add(pendingRequest);
+        return pendingRequest.result;
+      }
+      inFlight++;
+    }
+    start(pendingRequest);
+    return pendingRequest.result;
+  }
+
+  private boolean isRequestAllowed() {
+    switch (circuitState) {
+      case OPEN:
+        if (System.currentTimeMillis() - openedAt < openDuration) {
+          return false;
+        }
+        // let a single request probe the external system
+        circuitState = CircuitState.HALF_OPEN;
+        return true;
+      case HALF_OPEN:
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  private void reopenIfProbing() {
+    if (circuitState == CircuitState.HALF_OPEN) {
+      // the probe request was not sent: let the next request probe the external system
+      circuitState = CircuitState.OPEN;
+    }
+  }
+
+  private void start(PendingRequest pendingRequest) {
+    long startTime = System.currentTimeMillis();
+    totalQueueTime.add(startTime - pendingRequest.queuedAt);
+    CompletableFuture<ExternalSystemResponse> response;
+    try {
+      response = pendingRequest.request.get();
+    } catch (RuntimeException ex) {
+      response = CompletableFuture.failedFuture(ex);
+    }
+    response.whenComplete((result, error) -> {
+      onRequestCompleted(result, error, System.currentTimeMillis() - startTime);
+      releaseSlot();
+      if (error != null) {
+        pendingRequest.result.completeExceptionally(error);
+      } else {
+        pendingRequest.result.complete(result);
+      }
+    });
+  }
+
+  private void onRequestCompleted(ExternalSystemResponse response, Throwable error, long latency) {
+    requestCount.increment();
+    totalLatency.add(latency);
+    maxLatency.accumulateAndGet(latency, Math::max);
+    if (error != null || response.getType() == Type.ERROR) {
+      errorCount.increment();
+    }
+    synchronized (this) {
+      if (error != null) {
+        // the request could not be built, this is not a problem of the external system
+        reopenIfProbing();
+        return;
+      }
+      if (isFailure(response)) {
+        consecutiveFailures++;
+        if (circuitState == CircuitState.HALF_OPEN
+            || (circuitState == CircuitState.CLOSED && consecutiveFailures >= failureThreshold)) {
+          log.warn("Opening circuit of external system {} after {} consecutive failures", name,
+              consecutiveFailures);
+          circuitState = CircuitState.OPEN;
+          openedAt = System.currentTimeMillis();
+        }
+      } else {
+        consecutiveFailures = 0;
+        if (circuitState != CircuitState.CLOSED) {
+          log.info("Closing circuit of external system {}", name);
+          circuitState = CircuitState.CLOSED;
+        }
+      }
+    }
+  }
+
+  private boolean isFailure(ExternalSystemResponse response) {
+    if (response.getType() != Type.ERROR) {
+      return false;
+    }
+    // status code 0 means that no response was received: connection error, timeout...
+    return response.getStatusCode() == 0 || response.getStatusCode() >= 500;
+  }
+
+  private void releaseSlot() {
+    PendingRequest next;
+    synchronized (this) {
+      next = queue.poll();
+      while (next != null && circuitState == CircuitState.OPEN) {
+        shortCircuitedCount.increment();
+        next.result.complete(buildCircuitOpenResponse());
+        next = queue.poll();
+      }
+      if (next == null) {
+        inFlight--;
+        return;
+      }
+    }
+    // the slot is handed over to the next request, which is started in the executor to avoid
+    // running it in the thread that completed the previous one
+    PendingRequest nextRequest = next;
+    executor.execute(() -> start(nextRequest));
+  }
+
+  private ExternalSystemResponse buildCircuitOpenResponse() {
+    return ExternalSystemResponseBuilder.newBuilder()
+        .withError("Circuit open: external system " + name + " is not available")
+        .build();
+  }
+
+  synchronized CircuitState getCircuit() {
+    return circuitState;
+  }
+
+  @Override
+  public String getExternalSystemName() {
+    return name;
+  }
+
+  @Override
+  public String getCircuitState() {
+    return getCircuit().name();
+  }
+
+  @Override
+  public synchronized void closeCircuit() {
+    circuitState = CircuitState.CLOSED;
+    consecutiveFailures = 0;
+  }
+
+  @Override
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  @Override
+  public int getMaxQueued() {
+    return maxQueued;
+  }
+
+  @Override
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  @Override
+  public synchronized int getQueued() {
+    return queue.size();
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  @Override
+  public long getErrorCount() {
+    return errorCount.sum();
+  }
+
+  @Override
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  @Override
+  public long getShortCircuitedCount() {
+    return shortCircuitedCount.sum();
+  }
+
+  @Override
+  public double getAverageLatency() {
+    long requests = requestCount.sum();
+    return requests == 0 ? 0 : (double) totalLatency.sum() / requests;
+  }
+
+  @Override
+  public long getMaxLatency() {
+    return maxLatency.get();
+  }
+
+  @Override
+  public double getAverageQueueTime() {
+    long requests = requestCount.sum();
+    return requests == 0 ? 0 : (double) totalQueueTime.sum() / requests;
+  }
+
+  @Override
+  public void resetStatistics() {
+    requestCount.reset();
+    errorCount.reset();
+    rejectedCount.reset();
+    shortCircuitedCount.reset();
+    totalLatency.reset();
+    totalQueueTime.reset();
+    maxLatency.set(0);
+  }
+
+  private static class PendingRequest {
+    private final Supplier<CompletableFuture<ExternalSystemResponse>> request;
+    private final CompletableFuture<ExternalSystemResponse> result = new CompletableFuture<>();
+    private final long queuedAt = System.currentTimeMillis();
+
+    private PendingRequest(Supplier<CompletableFuture<ExternalSystemResponse>> request) {
+      this.request = request;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Openbravo  Public  License
+ * Version  1.1  (the  "License"),  being   the  Mozilla   Public  License
+ * Version 1.1  with a permitted attribution clause; you may not  use this
+ * file except in compliance with the License. You  may  obtain  a copy of
+ * the License at http://www.openbravo.com/legal/license.html
+ * Software distributed under the License  is  distributed  on  an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific  language  governing  rights  and  limitations
+ * under the License.
+ * The Original Code is Openbravo ERP.
+ * The Initial Developer of the Original Code is Openbravo SLU
+ * All portions are Copyright (C) 2024 Openbravo SLU
+ * All Rights Reserved.
+ * Contributor(s):  ______________________________________.
+ ************************************************************************
+ */
+package org.openbravo.service.externalsystem.http;
+
+/** Defines bean to expose the {@link HttpExternalSystem} request limits as a JMX Bean. */
+public interface HttpExternalSystemBulkheadMBean {
+
+  /** Name of the external system. */
+  String getExternalSystemName();
+
+  /** State of the circuit breaker: CLOSED, OPEN or HALF_OPEN. */
+  String getCircuitState();
+
+  /** Closes the circuit, allowing requests to be sent to the external system again. */
+  void closeCircuit();
+
+  /** Maximum number of requests in progress at the same time. */
+  int getMaxInFlight();
+
+  /** Maximum number of requests waiting for a free slot. */
+  int getMaxQueued();
+
+  /** Number of requests currently in progress. */
+  int getInFlight();
+
+  /** Number of requests currently waiting for a free slot. */
+  int getQueued();
+
+  /** Number of requests sent to the external system. */
+  long getRequestCount();
+
+  /** Number of sent requests which ended with an error response. */
+  long getErrorCount();
+
+  /** Number of requests rejected because the queue was full. */
+  long getRejectedCount();
+
+  /** Number of requests rejected because the circuit was open. */
+  long getShortCircuitedCount();
+
+  /** Average time in milliseconds until a sent request completes. */
+  double getAverageLatency();
+
+  /** Maximum time in milliseconds until a sent request completes. */
+  long getMaxLatency();
+
+  /** Average time in milliseconds a request waits for a free slot. */
+  double getAverageQueueTime();
+
+  /** Resets the request statistics. */
+  void resetStatistics();
+}
@@ -11,16 +11,19 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2015-2018 Openbravo SLU
+ * All portions are Copyright (C) 2015-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
  */
 package org.openbravo.service.importprocess;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -32,10 +35,12 @@ import javax.inject.Inject;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hibernate.query.NativeQuery;
 import org.openbravo.base.model.Entity;
 import org.openbravo.base.model.ModelProvider;
 import org.openbravo.base.model.Property;
 import org.openbravo.base.provider.OBProvider;
+import org.openbravo.base.session.OBPropertiesProvider;
 import org.openbravo.dal.core.OBContext;
 import org.openbravo.dal.service.OBDal;
 import org.openbravo.dal.service.OBQuery;
@@ -48,6 +53,12 @@ import org.openbravo.service.importprocess.ImportEntryManager.ImportEntryProcess
  * Works currently with a hard coded interval of 1 hour, so every hour processed import entries are
  * moved to the archive .
  * 
+ * When the import.archive.bulk property is enabled, the entries are archived continuously in chunks
+ * of consecutive creation dates, pausing between chunks so that the archiving does not compete with
+ * the processing of new entries. The entries of the types without any
+ * {@link ImportEntryArchivePreProcessor} are moved with set based insert and delete statements,
+ * without loading them.
+ * 
  * @author mtaal
  */
 @ApplicationScoped
@@ -63,6 +74,11 @@ public class ImportEntryArchiveManager {
    */
   private static final long ARCHIVE_INTERVAL = 60 * 60000;
 
+  /**
+   * When archiving in bulk, time to wait until checking again after finding no entries to archive.
+   */
+  private static final long BULK_ARCHIVE_INTERVAL = 60000;
+
   private static ImportEntryArchiveManager instance;
 
   public static ImportEntryArchiveManager getInstance() {
@@ -81,6 +97,11 @@ public class ImportEntryArchiveManager {
 
   private boolean isShutDown = false;
 
+  private boolean bulkArchive;
+  private int chunkSize;
+  private long chunkDelay;
+  private String copiedColumns;
+
   @Inject
   @Any
   private Instance<ImportEntryProcessor> entryProcessors;
@@ -92,6 +113,10 @@ public class ImportEntryArchiveManager {
   }
 
   public void start() {
+    bulkArchive = OBPropertiesProvider.getInstance().getBooleanProperty("import.archive.bulk");
+    chunkSize = ImportProcessUtils.getCheckIntProperty(log, "import.archive.chunk.size", 1000, 100);
+    chunkDelay = ImportProcessUtils.getCheckIntProperty(log, "import.archive.chunk.delay", 1000,
+        0);
     executorService = Executors.newSingleThreadExecutor(new DaemonThreadFactory());
     archiveThread = new ImportEntryArchiveThread(this);
     executorService.execute(archiveThread);
@@ -125,6 +150,7 @@ public class ImportEntryArchiveManager {
   private static class ImportEntryArchiveThread implements Runnable {
 
     private final ImportEntryArchiveManager manager;
+    private Date lastCreated;
 
     ImportEntryArchiveThread(ImportEntryArchiveManager manager) {
       this.manager = manager;
@@ -136,8 +162,9 @@ public class ImportEntryArchiveManager {
 
       // don't start right away at startup, give the system time to
       // really start
-      log.debug("Started, first sleep " + ARCHIVE_INTERVAL);
-      doWait();
+      long interval = manager.bulkArchive ? BULK_ARCHIVE_INTERVAL : ARCHIVE_INTERVAL;
+      log.debug("Started, first sleep " + interval);
+      doWait(interval);
       log.debug("Run loop started");
 
       if (manager.isShutDown) {
@@ -145,7 +172,6 @@ public class ImportEntryArchiveManager {
         return;
       }
 
-      Date lastCreated = null;
       while (true) {
         try {
 
@@ -154,7 +180,7 @@ public class ImportEntryArchiveManager {
           }
 
           if (shouldWait()) {
-            doWait();
+            doWait(ARCHIVE_INTERVAL);
             // woken, re-start from beginning of loop
             continue;
           }
@@ -168,71 +194,32 @@ public class ImportEntryArchiveManager {
 
           boolean dataProcessed = false;
           try {
-            // stored is used in the whereclause to make sure that the system will continue
-            // processing next records if there is one failing or giving issues, so the failing
-            // is skipped in the next cycle
-            String additionalClause = "";
-            if (lastCreated != null) {
-              additionalClause = " AND " + ImportEntry.PROPERTY_CREATIONDATE + ">:created";
-            }
-            OBQuery<ImportEntry> entriesQry = OBDal.getInstance()
-                .createQuery(ImportEntry.class, ImportEntry.PROPERTY_IMPORTSTATUS + "='Processed' "
-                    + additionalClause + " order by " + ImportEntry.PROPERTY_CREATIONDATE);
-            entriesQry.setFilterOnReadableClients(false);
-            entriesQry.setFilterOnReadableOrganization(false);
-            if (lastCreated != null) {
-              entriesQry.setNamedParameter("created", lastCreated);
-            }
-            entriesQry.setMaxResult(1000);
-
-            log.debug("Querying for entries to archive");
-
-            // do a try catch block here
-            final List<ImportEntry> entries = entriesQry.list();
-            log.debug("Found " + entries.size() + " import entries");
             manager.clusterService.startProcessing();
-            for (ImportEntry importEntry : entries) {
-              if (!isHandlingImportEntryArchiving()) {
-                // detected that we are not anymore in the node in charge of handling the import
-                // entries, stop archiving them
-                break;
+            if (manager.bulkArchive) {
+              List<Object[]> chunk = getNextChunk();
+              dataProcessed = !chunk.isEmpty();
+              if (dataProcessed) {
+                archiveChunk(chunk);
               }
-              dataProcessed = true;
-              lastCreated = importEntry.getCreationDate();
-
-              if (manager.isShutDown) {
-                return;
-              }
-              ImportEntryProcessor importEntryProcessor = ImportEntryArchiveManager.getInstance()
-                  .getImportEntryProcessor(importEntry.getTypeofdata());
-              if (importEntryProcessor == null || importEntryProcessor.enableArchive()) {
-
-                ImportEntryArchive archiveEntry = createArchiveEntry(importEntry);
-
-                for (ImportEntryArchivePreProcessor processor : manager.archiveEntryPreProcessors) {
-                  processor.beforeArchive(importEntry, archiveEntry);
-                }
-
-                log.debug("Processed one entry");
-                OBDal.getInstance().save(archiveEntry);
-              } else {
-                log.debug("Skipped one entry of type " + importEntry.getTypeofdata());
-              }
-
-              OBDal.getInstance().remove(importEntry);
+            } else {
+              dataProcessed = archiveEntries(null, null, 1000);
             }
-            // commit in batches of 1000 records
+            // commit in batches
             OBDal.getInstance().commitAndClose();
           } catch (Throwable t) {
             ImportProcessUtils.logError(log, t);
+            OBDal.getInstance().rollbackAndClose();
           } finally {
             manager.clusterService.endProcessing();
           }
 
-          // nothing to do in last cycle wait one hour
           if (!dataProcessed) {
+            // nothing to do in last cycle, wait one hour or until the next bulk check
             lastCreated = null;
-            doWait();
+            doWait(interval);
+          } else if (manager.bulkArchive) {
+            // pace the chunks to leave room for the processing of new entries
+            doWait(manager.chunkDelay);
           }
         } catch (Throwable t) {
           log.error(t.getMessage(), t);
@@ -240,6 +227,222 @@ public class ImportEntryArchiveManager {
       }
     }
 
+    /**
+     * Returns the creation date and type of data of the oldest processed entries, up to the chunk
+     * size.
+     */
+    private List<Object[]> getNextChunk() {
+      NativeQuery<Object[]> chunkQry = OBDal.getInstance()
+          .getSession()
+          .createNativeQuery("SELECT CREATED, TYPEOFDATA FROM C_IMPORT_ENTRY"
+              + " WHERE IMPORTSTATUS = 'Processed'"
+              + (lastCreated != null ? " AND CREATED > :created" : "") + " ORDER BY CREATED");
+      if (lastCreated != null) {
+        chunkQry.setParameter("created", lastCreated);
+      }
+      chunkQry.setMaxResults(manager.chunkSize);
+      return chunkQry.list();
+    }
+
+    /**
+     * Archives a chunk of entries. The chunk is delimited by the creation date of its newest entry,
+     * the entries of the types with pre-processors are archived one by one and the rest of them are
+     * moved in bulk.
+     */
+    private void archiveChunk(List<Object[]> chunk) {
+      Date chunkEnd = (Date) chunk.get(chunk.size() - 1)[0];
+
+      Set<String> typesOfData = new LinkedHashSet<>();
+      for (Object[] entry : chunk) {
+        typesOfData.add((String) entry[1]);
+      }
+      List<String> withPreProcessors = new ArrayList<>();
+      List<String> archived = new ArrayList<>();
+      List<String> skipped = new ArrayList<>();
+      for (String typeOfData : typesOfData) {
+        if (hasArchivePreProcessors(typeOfData)) {
+          withPreProcessors.add(typeOfData);
+        } else if (isArchiveEnabled(typeOfData)) {
+          archived.add(typeOfData);
+        } else {
+          skipped.add(typeOfData);
+        }
+      }
+
+      Date chunkStart = lastCreated;
+      if (!withPreProcessors.isEmpty()) {
+        archiveEntries(withPreProcessors, chunkEnd, Integer.MAX_VALUE);
+        OBDal.getInstance().flush();
+      }
+      // in case of failure, the next chunk starts after this one
+      lastCreated = chunkEnd;
+
+      String chunkFilter = " WHERE IMPORTSTATUS = 'Processed' AND TYPEOFDATA IN (:types)"
+          + " AND CREATED <= :chunkEnd" + (chunkStart != null ? " AND CREATED > :chunkStart" : "");
+      if (!archived.isEmpty()) {
+        String copiedColumns = getCopiedColumns();
+        int inserted = executeUpdate("INSERT INTO C_IMPORT_ENTRY_ARCHIVE"
+            + " (C_IMPORT_ENTRY_ARCHIVE_ID, " + copiedColumns + ") SELECT C_IMPORT_ENTRY_ID, "
+            + copiedColumns + " FROM C_IMPORT_ENTRY" + chunkFilter, archived, chunkStart,
+            chunkEnd);
+        // only the ones already in the archive are deleted, in case any other entry has been set
+        // as processed in the meantime
+        executeUpdate("DELETE FROM C_IMPORT_ENTRY" + chunkFilter
+            + " AND EXISTS (SELECT 1 FROM C_IMPORT_ENTRY_ARCHIVE A"
+            + " WHERE A.C_IMPORT_ENTRY_ARCHIVE_ID = C_IMPORT_ENTRY.C_IMPORT_ENTRY_ID)", archived,
+            chunkStart, chunkEnd);
+        log.debug("Archived {} entries in bulk", inserted);
+      }
+      if (!skipped.isEmpty()) {
+        int deleted = executeUpdate("DELETE FROM C_IMPORT_ENTRY" + chunkFilter, skipped,
+            chunkStart, chunkEnd);
+        log.debug("Skipped {} entries of types {}", deleted, skipped);
+      }
+      // the whole chunk was archived, continue with the oldest remaining entry
+      lastCreated = chunkStart;
+    }
+
+    /**
+     * Returns the columns copied by the bulk archiving, which are the ones of the properties shared
+     * by the {@link ImportEntry} and {@link ImportEntryArchive} entities, in the same way as they
+     * are copied when archiving the entries one by one. This includes the columns added by modules
+     * to both tables.
+     */
+    private String getCopiedColumns() {
+      if (manager.copiedColumns != null) {
+        return manager.copiedColumns;
+      }
+      Entity entryEntity = ModelProvider.getInstance().getEntity(ImportEntry.ENTITY_NAME);
+      Entity archiveEntity = ModelProvider.getInstance().getEntity(ImportEntryArchive.ENTITY_NAME);
+      List<String> columns = new ArrayList<>();
+      for (Property sourceProperty : entryEntity.getProperties()) {
+        if (sourceProperty.isId() || sourceProperty.isOneToMany()
+            || sourceProperty.isComputedColumn() || sourceProperty.isProxy()
+            || sourceProperty.getColumnName() == null
+            || !archiveEntity.hasProperty(sourceProperty.getName())) {
+          continue;
+        }
+        Property targetProperty = archiveEntity.getProperty(sourceProperty.getName());
+        if (targetProperty.getDomainType().getClass() != sourceProperty.getDomainType().getClass()
+            || !sourceProperty.getColumnName().equalsIgnoreCase(targetProperty.getColumnName())) {
+          continue;
+        }
+        columns.add(sourceProperty.getColumnName().toUpperCase());
+      }
+      manager.copiedColumns = String.join(", ", columns);
+      log.debug("Columns copied in bulk to the archive: {}", manager.copiedColumns);
+      return manager.copiedColumns;
+    }
+
+    private int executeUpdate(String sql, List<String> typesOfData, Date chunkStart,
+        Date chunkEnd) {
+      NativeQuery<?> qry = OBDal.getInstance()
+          .getSession()
+          .createNativeQuery(sql)
+          .setParameterList("types", typesOfData)
+          .setParameter("chunkEnd", chunkEnd);
+      if (chunkStart != null) {
+        qry.setParameter("chunkStart", chunkStart);
+      }
+      return qry.executeUpdate();
+    }
+
+    private boolean hasArchivePreProcessors(String typeOfData) {
+      for (ImportEntryArchivePreProcessor processor : manager.archiveEntryPreProcessors) {
+        if (processor.isApplicable(typeOfData)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean isArchiveEnabled(String typeOfData) {
+      ImportEntryProcessor importEntryProcessor = manager.getImportEntryProcessor(typeOfData);
+      return importEntryProcessor == null || importEntryProcessor.enableArchive();
+    }
+
+    /**
+     * Archives one by one the processed entries, calling the pre-processors for each of them.
+     * 
+     * @param typesOfData
+     *          if not null, only the entries of these types are archived
+     * @param createdUntil
+     *          if not null, only the entries created until this date are archived
+     * @param maxResults
+     *          the maximum number of entries archived
+     * @return true if any entry was found to be archived
+     */
+    private boolean archiveEntries(List<String> typesOfData, Date createdUntil, int maxResults) {
+      // stored is used in the whereclause to make sure that the system will continue
+      // processing next records if there is one failing or giving issues, so the failing
+      // is skipped in the next cycle
+      String additionalClause = "";
+      if (lastCreated != null) {
+        additionalClause += " AND " + ImportEntry.PROPERTY_CREATIONDATE + ">:created";
+      }
+      if (createdUntil != null) {
+        additionalClause += " AND " + ImportEntry.PROPERTY_CREATIONDATE + "<=:createdUntil";
+      }
+      if (typesOfData != null) {
+        additionalClause += " AND " + ImportEntry.PROPERTY_TYPEOFDATA + " in (:types)";
+      }
+      OBQuery<ImportEntry> entriesQry = OBDal.getInstance()
+          .createQuery(ImportEntry.class, ImportEntry.PROPERTY_IMPORTSTATUS + "='Processed' "
+              + additionalClause + " order by " + ImportEntry.PROPERTY_CREATIONDATE);
+      entriesQry.setFilterOnReadableClients(false);
+      entriesQry.setFilterOnReadableOrganization(false);
+      if (lastCreated != null) {
+        entriesQry.setNamedParameter("created", lastCreated);
+      }
+      if (createdUntil != null) {
+        entriesQry.setNamedParameter("createdUntil", createdUntil);
+      }
+      if (typesOfData != null) {
+        entriesQry.setNamedParameter("types", typesOfData);
+      }
+      entriesQry.setMaxResult(maxResults);
+
+      log.debug("Querying for entries to archive");
+
+      // do a try catch block here
+      final List<ImportEntry> entries = entriesQry.list();
+      log.debug("Found " + entries.size() + " import entries");
+      boolean dataProcessed = false;
+      for (ImportEntry importEntry : entries) {
+        if (!isHandlingImportEntryArchiving()) {
+          // detected that we are not anymore in the node in charge of handling the import
+          // entries, stop archiving them
+          break;
+        }
+        dataProcessed = true;
+        lastCreated = importEntry.getCreationDate();
+
+        if (manager.isShutDown) {
+          break;
+        }
+        ImportEntryProcessor importEntryProcessor = ImportEntryArchiveManager.getInstance()
+            .getImportEntryProcessor(importEntry.getTypeofdata());
+        if (importEntryProcessor == null || importEntryProcessor.enableArchive()) {
+
+          ImportEntryArchive archiveEntry = createArchiveEntry(importEntry);
+
+          for (ImportEntryArchivePreProcessor processor : manager.archiveEntryPreProcessors) {
+            if (processor.isApplicable(importEntry.getTypeofdata())) {
+              processor.beforeArchive(importEntry, archiveEntry);
+            }
+          }
+
+          log.debug("Processed one entry");
+          OBDal.getInstance().save(archiveEntry);
+        } else {
+          log.debug("Skipped one entry of type " + importEntry.getTypeofdata());
+        }
+
+        OBDal.getInstance().remove(importEntry);
+      }
+      return dataProcessed;
+    }
+
     private boolean shouldWait() {
       // - in cluster: process if we are in the node in charge of handling the import entries,
       // otherwise just wait
@@ -251,10 +454,10 @@ public class ImportEntryArchiveManager {
       return manager.clusterService.isHandledInCurrentNode();
     }
 
-    private void doWait() {
+    private void doWait(long millis) {
       log.debug("waiting");
       try {
-        Thread.sleep(ARCHIVE_INTERVAL);
+        Thread.sleep(millis);
       } catch (Exception ignored) {
       }
     }
@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2015 Openbravo SLU
+ * All portions are Copyright (C) 2015-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -28,4 +28,18 @@ public class ImportEntryArchivePreProcessor {
   public void beforeArchive(ImportEntry source, ImportEntryArchive target) {
 
   }
+
+  /**
+   * Returns whether this pre-processor has to be called for the entries of the given type of data.
+   * When archiving in bulk, the entries of the types without any pre-processor are moved to the
+   * archive without loading them. By default it is called for all the types.
+   * 
+   * @param typeOfData
+   *          the type of data of the entry being archived
+   * @return true if {@link #beforeArchive(ImportEntry, ImportEntryArchive)} has to be called for
+   *         the entries of this type of data
+   */
+  public boolean isApplicable(String typeOfData) {
+    return true;
+  }
 }
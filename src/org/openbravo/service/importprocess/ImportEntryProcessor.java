@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2015-2023 Openbravo SLU
+ * All portions are Copyright (C) 2015-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -43,6 +43,9 @@ import org.openbravo.dal.core.TriggerHandler;
 import org.openbravo.dal.service.OBDal;
 import org.openbravo.database.ExternalConnectionPool;
 import org.openbravo.database.SessionInfo;
+import org.openbravo.jmx.ExtensionInstrumentation;
+import org.openbravo.jmx.ExtensionInstrumentation.ExtensionType;
+import org.openbravo.jmx.ExtensionInstrumentation.Measurement;
 import org.openbravo.model.common.enterprise.Organization;
 
 /**
@@ -444,7 +447,10 @@ public abstract class ImportEntryProcessor {
             logger.debug("Processing entry {} {}", localImportEntry.getIdentifier(), typeOfData);
           }
 
-          processEntry(localImportEntry);
+          try (Measurement measurement = ExtensionInstrumentation.getInstance()
+              .start(ExtensionType.IMPORT_PROCESSOR, getClass())) {
+            processEntry(localImportEntry);
+          }
 
           postProcessEntry(queuedImportEntry.importEntryId, t0, localImportEntry, typeOfData);
 
@@ -11,7 +11,7 @@
  * under the License. 
  * The Original Code is Openbravo ERP. 
  * The Initial Developer of the Original Code is Openbravo SLU 
- * All portions are Copyright (C) 2015-2018 Openbravo SLU
+ * All portions are Copyright (C) 2015-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -24,11 +24,12 @@ import javax.servlet.ServletContextListener;
 
 import org.openbravo.base.weld.WeldUtils;
 import org.openbravo.cluster.ClusterServiceManager;
+import org.openbravo.erpCommon.utility.poc.EmailOutboxRetryScheduler;
 
 /**
  * Initializes the import process layer by calling {@link ImportEntryManager#start()} and
  * {@link ImportEntryManager#shutdown()} when the application stops. It also does the same for the
- * {@link ClusterServiceManager}.
+ * {@link ClusterServiceManager} and the {@link EmailOutboxRetryScheduler}.
  * 
  * @author mtaal
  */
@@ -36,6 +37,7 @@ public class ImportProcessContextListener implements ServletContextListener {
 
   private ImportEntryManager importEntryManager;
   private ClusterServiceManager clusterServiceManager;
+  private EmailOutboxRetryScheduler emailOutboxRetryScheduler;
 
   @Override
   public void contextInitialized(ServletContextEvent event) {
@@ -43,11 +45,15 @@ public class ImportProcessContextListener implements ServletContextListener {
     importEntryManager.start();
     clusterServiceManager = WeldUtils.getInstanceFromStaticBeanManager(ClusterServiceManager.class);
     clusterServiceManager.start();
+    emailOutboxRetryScheduler = WeldUtils
+        .getInstanceFromStaticBeanManager(EmailOutboxRetryScheduler.class);
+    emailOutboxRetryScheduler.start();
   }
 
   @Override
   public void contextDestroyed(ServletContextEvent event) {
     importEntryManager.shutdown();
     clusterServiceManager.shutdown();
+    emailOutboxRetryScheduler.shutdown();
   }
 }
@@ -11,7 +11,7 @@
  * under the License.
  * The Original Code is Openbravo ERP.
  * The Initial Developer of the Original Code is Openbravo SLU
- * All portions are Copyright (C) 2023 Openbravo SLU
+ * All portions are Copyright (C) 2023-2024 Openbravo SLU
  * All Rights Reserved.
  * Contributor(s):  ______________________________________.
  ************************************************************************
@@ -49,6 +49,9 @@ public abstract class NonBlockingImportEntryProcessRunnable extends ImportEntryP
   @Any
   private Instance<ImportEntryPostProcessor> importEntryPostProcessors;
 
+  private static final String EXECUTOR_CONSUMER = "importEntry";
+  private static final int DEFAULT_MAX_CONCURRENT_TASKS = 100;
+
   private final Logger log = LogManager.getLogger();
 
   /**
@@ -152,6 +155,7 @@ public abstract class NonBlockingImportEntryProcessRunnable extends ImportEntryP
    * @return An executor service with non-blocking threads
    */
   protected ExecutorService getExecutorService() {
-    return NonBlockingExecutorServiceProvider.getExecutorService();
+    return NonBlockingExecutorServiceProvider.getExecutorService(EXECUTOR_CONSUMER,
+        DEFAULT_MAX_CONCURRENT_TASKS);
   }
 }
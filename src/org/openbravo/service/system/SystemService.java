@@ -42,6 +42,7 @@ import org.openbravo.base.model.Entity;
 import org.openbravo.base.model.ModelProvider;
 import org.openbravo.base.provider.OBProvider;
 import org.openbravo.base.provider.OBSingleton;
+import org.openbravo.base.secureApp.SessionAccessCache;
 import org.openbravo.base.session.OBPropertiesProvider;
 import org.openbravo.base.structure.BaseOBObject;
 import org.openbravo.dal.core.OBContext;
@@ -254,6 +255,8 @@ public class SystemService implements OBSingleton {
         throw new RuntimeException("Could not shutdown scheduler", e);
       }
       OBDal.getInstance().getConnection().commit();
+      // discarded again once committed, so sessions read as active meanwhile are not kept
+      SessionAccessCache.getInstance().invalidateSessions();
       disableConstraints(platform);
       OBContext.setAdminMode(false);
       OBDal.getInstance().flush();
@@ -353,6 +356,7 @@ public class SystemService implements OBSingleton {
             .prepareStatement("UPDATE AD_SESSION SET SESSION_ACTIVE='N' WHERE CREATEDBY<>?");
         updateSession.setString(1, OBContext.getOBContext().getUser().getId());
         updateSession.executeUpdate();
+        SessionAccessCache.getInstance().invalidateSessions();
       } finally {
         if (updateSession != null && !updateSession.isClosed()) {
           updateSession.close();